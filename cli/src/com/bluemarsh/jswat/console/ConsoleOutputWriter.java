@@ -24,23 +24,81 @@ package com.bluemarsh.jswat.console;
 
 import com.bluemarsh.jswat.core.output.OutputWriter;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.NbBundle;
 
 /**
  * Implementation of OutputWriter for the console mode.
  *
+ * <p>Messages are not written on the calling thread, which is frequently
+ * the thread dispatching the debuggee events, but are instead queued and
+ * written in batches by a thread of their own, so a slow terminal does not
+ * slow down the debugging. When the queue is full, the overflow policy
+ * decides whether the caller waits, or the message is discarded. Call
+ * flush() to wait for the queued messages to be written, such as before
+ * displaying the input prompt.</p>
+ *
  * @author  Nathan Fiedler
  */
 public class ConsoleOutputWriter implements OutputWriter {
 
+    /** Logger for gracefully reporting unexpected errors. */
+    private static final Logger logger = Logger.getLogger(
+            ConsoleOutputWriter.class.getName());
+    /** Number of messages the queue holds. */
+    private static final int QUEUE_SIZE = 1024;
+    /** Largest number of messages written at once. */
+    private static final int BATCH_SIZE = 128;
+    /** When sampling, one in this many overflowing messages is kept. */
+    private static final int SAMPLE_RATE = 10;
     /** Sink for all output. */
-    private PrintWriter output;
+    private final PrintWriter output;
+    /** Messages waiting to be written. */
+    private final BlockingQueue<String> queue;
+    /** Number of messages accepted into the queue. */
+    private final AtomicLong accepted;
+    /** Number of messages discarded since the last batch was written. */
+    private final AtomicLong dropped;
+    /** Number of messages that found the queue full. */
+    private final AtomicLong overflowed;
+    /** The thread writing the messages. */
+    private final Thread thread;
+    /** Number of accepted messages that have been written (guarded by
+     * this writer). */
+    private long written;
+    /** What to do with a message when the queue is full. */
+    private volatile OverflowPolicy policy;
 
     /**
      * Default constructor for ConsoleOutputWriter.
      */
     public ConsoleOutputWriter() {
-        // Turn on auto-flush so we don't have to bother.
-        output = new PrintWriter(System.out, true);
+        this(new PrintWriter(System.out), QUEUE_SIZE);
+    }
+
+    /**
+     * Constructs a ConsoleOutputWriter that writes to the given writer.
+     *
+     * @param  output    sink for all output.
+     * @param  capacity  number of messages the queue holds.
+     */
+    ConsoleOutputWriter(PrintWriter output, int capacity) {
+        this.output = output;
+        queue = new ArrayBlockingQueue<String>(capacity);
+        accepted = new AtomicLong();
+        dropped = new AtomicLong();
+        overflowed = new AtomicLong();
+        policy = OverflowPolicy.BLOCK;
+        thread = new Thread(new Drainer(), "ConsoleOutputWriter");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     @Override
@@ -48,13 +106,165 @@ public class ConsoleOutputWriter implements OutputWriter {
         // Nothing to do.
     }
 
+    /**
+     * Waits until all of the messages queued before this call have been
+     * written to the console.
+     */
+    public void flush() {
+        long target = accepted.get();
+        synchronized (this) {
+            try {
+                // A message counted but then refused by the queue is
+                // taken off the count again, hence the second check.
+                while (written < Math.min(target, accepted.get())
+                        && thread.isAlive()) {
+                    wait(100);
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns the policy applied to messages when the queue is full.
+     *
+     * @return  overflow policy.
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return policy;
+    }
+
+    /**
+     * Adds the message to the queue, subject to the overflow policy.
+     *
+     * @param  msg  message to be written.
+     */
+    private void enqueue(String msg) {
+        if (!thread.isAlive()) {
+            write(msg);
+            return;
+        }
+        // Count the message before it can be written, otherwise flush()
+        // might return without waiting for it.
+        accepted.incrementAndGet();
+        if (queue.offer(msg)) {
+            return;
+        }
+        OverflowPolicy p = policy;
+        if (p == OverflowPolicy.SAMPLE
+                && overflowed.incrementAndGet() % SAMPLE_RATE == 0) {
+            p = OverflowPolicy.BLOCK;
+        }
+        if (p == OverflowPolicy.BLOCK) {
+            try {
+                while (!queue.offer(msg, 100, TimeUnit.MILLISECONDS)) {
+                    if (!thread.isAlive()) {
+                        accepted.decrementAndGet();
+                        write(msg);
+                        return;
+                    }
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                accepted.decrementAndGet();
+                dropped.incrementAndGet();
+            }
+        } else {
+            accepted.decrementAndGet();
+            dropped.incrementAndGet();
+        }
+    }
+
     @Override
     public void printError(String msg) {
-        output.println(msg);
+        enqueue(msg);
     }
 
     @Override
     public void printOutput(String msg) {
-        output.println(msg);
+        enqueue(msg);
+    }
+
+    /**
+     * Sets the policy applied to messages when the queue is full.
+     *
+     * @param  policy  overflow policy.
+     */
+    public void setOverflowPolicy(OverflowPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("policy must be non-null");
+        }
+        this.policy = policy;
+    }
+
+    /**
+     * Writes the message directly to the console, for use when the
+     * thread that writes the queued messages is no longer running.
+     *
+     * @param  msg  message to be written.
+     */
+    private void write(String msg) {
+        synchronized (output) {
+            output.println(msg);
+            output.flush();
+        }
+    }
+
+    /**
+     * What to do with a message when the queue is full.
+     */
+    public static enum OverflowPolicy {
+        /** Wait for room in the queue. */
+        BLOCK,
+        /** Discard the message. */
+        DROP,
+        /** Keep one in every few messages, discarding the rest. */
+        SAMPLE
+    }
+
+    /**
+     * Writes the queued messages to the console in batches.
+     */
+    private class Drainer implements Runnable {
+
+        @Override
+        public void run() {
+            List<String> batch = new ArrayList<String>(BATCH_SIZE);
+            while (true) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException ie) {
+                    break;
+                }
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                // Keep on draining no matter what goes wrong, otherwise
+                // flush() and the blocked callers would wait in vain.
+                try {
+                    long lost = dropped.getAndSet(0);
+                    if (lost > 0) {
+                        output.println(NbBundle.getMessage(
+                                ConsoleOutputWriter.class,
+                                "CTL_ConsoleOutputWriter_Dropped",
+                                String.valueOf(lost)));
+                    }
+                } catch (Throwable t) {
+                    logger.log(Level.SEVERE, null, t);
+                }
+                try {
+                    for (String msg : batch) {
+                        output.println(msg);
+                    }
+                    output.flush();
+                } catch (Throwable t) {
+                    logger.log(Level.SEVERE, null, t);
+                }
+                synchronized (ConsoleOutputWriter.this) {
+                    written += batch.size();
+                    ConsoleOutputWriter.this.notifyAll();
+                }
+                batch.clear();
+            }
+        }
     }
 }
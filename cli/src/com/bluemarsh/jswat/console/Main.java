@@ -32,6 +32,9 @@ import com.bluemarsh.jswat.core.connect.ConnectionFactory;
 import com.bluemarsh.jswat.core.connect.ConnectionListener;
 import com.bluemarsh.jswat.core.connect.ConnectionProvider;
 import com.bluemarsh.jswat.core.connect.JvmConnection;
+import com.bluemarsh.jswat.core.management.ManagementProvider;
+import com.bluemarsh.jswat.core.output.OutputProvider;
+import com.bluemarsh.jswat.core.output.OutputWriter;
 import com.bluemarsh.jswat.core.path.PathManager;
 import com.bluemarsh.jswat.core.path.PathProvider;
 import com.bluemarsh.jswat.core.runtime.RuntimeManager;
@@ -75,6 +78,8 @@ public class Main {
 
     /** If true, the debugger attempts to emulate JDB output. */
     private static boolean jdbEmulationMode;
+    /** File to which debuggee output is copied, if any. */
+    private static File teeFile;
     /** Logger for gracefully reporting unexpected errors. */
     private static final Logger logger = Logger.getLogger(Main.class.getName());
 
@@ -142,6 +147,8 @@ public class Main {
 
             @Override
             public void run() {
+                // Withdraw the debugger internals from JMX clients.
+                ManagementProvider.uninstall();
                 // Save the command aliases.
                 CommandParser parser = CommandProvider.getCommandParser();
                 parser.saveSettings();
@@ -171,6 +178,9 @@ public class Main {
         BreakpointWatcher bwatcher = new BreakpointWatcher();
         sessionMgr.addSessionManagerListener(bwatcher);
 
+        // Expose the debugger internals to JMX clients.
+        ManagementProvider.install();
+
         // Add the watchers and adapters to the open sessions.
         Iterator<Session> iter = sessionMgr.iterateSessions();
         while (iter.hasNext()) {
@@ -195,6 +205,15 @@ public class Main {
             logger.log(Level.SEVERE, null, pe);
         }
 
+        if (teeFile != null) {
+            try {
+                adapter.setTeeFile(teeFile);
+            } catch (IOException ioe) {
+                output.println(NbBundle.getMessage(Main.class,
+                        "ERR_Main_TeeFile", teeFile, ioe.getMessage()));
+            }
+        }
+
         // Display a helpful greeting.
         output.println(NbBundle.getMessage(Main.class, "MSG_Main_Welcome"));
         if (jdbEmulationMode) {
@@ -208,6 +227,8 @@ public class Main {
         while (true) {
             // Keep the prompt format identical to jdb for compatibility
             // with emacs and other possible wrappers.
+            // Let the queued messages out before the prompt.
+            flushOutput();
             output.print("> ");
             output.flush();
             try {
@@ -236,6 +257,17 @@ public class Main {
         }
     }
 
+    /**
+     * Waits for the messages queued by the console output writer to be
+     * written, so they are not mixed up with the input prompt.
+     */
+    private static void flushOutput() {
+        OutputWriter writer = OutputProvider.getWriter();
+        if (writer instanceof ConsoleOutputWriter) {
+            ((ConsoleOutputWriter) writer).flush();
+        }
+    }
+
     /**
      * Interprets the given command via the command parser.
      *
@@ -364,6 +396,20 @@ public class Main {
                 Main.class, "MSG_Main_Option_jdb"));
         options.addOption(OptionBuilder.create("jdb"));
 
+        // Option: tee <file>
+        OptionBuilder.hasArg();
+        OptionBuilder.withArgName("file");
+        OptionBuilder.withDescription(NbBundle.getMessage(
+                Main.class, "MSG_Main_Option_tee"));
+        options.addOption(OptionBuilder.create("tee"));
+
+        // Option: overflow <policy>
+        OptionBuilder.hasArg();
+        OptionBuilder.withArgName("policy");
+        OptionBuilder.withDescription(NbBundle.getMessage(
+                Main.class, "MSG_Main_Option_overflow"));
+        options.addOption(OptionBuilder.create("overflow"));
+
         // Parse the command line arguments.
         CommandLineParser parser = new GnuParser();
         CommandLine line = parser.parse(options, args);
@@ -375,6 +421,23 @@ public class Main {
             formatter.printHelp("java com.bluemarsh.jswat.console.Main", options);
             System.exit(0);
         }
+        if (line.hasOption("overflow")) {
+            String value = line.getOptionValue("overflow");
+            OutputWriter writer = OutputProvider.getWriter();
+            if (writer instanceof ConsoleOutputWriter) {
+                try {
+                    ((ConsoleOutputWriter) writer).setOverflowPolicy(
+                            ConsoleOutputWriter.OverflowPolicy.valueOf(
+                            value.toUpperCase()));
+                } catch (IllegalArgumentException iae) {
+                    System.err.println(NbBundle.getMessage(Main.class,
+                            "ERR_Main_Overflow", value));
+                }
+            }
+        }
+        if (line.hasOption("tee")) {
+            teeFile = new File(line.getOptionValue("tee"));
+        }
         if (line.hasOption("sourcepath")) {
             Session session = SessionProvider.getCurrentSession();
             PathManager pm = PathProvider.getPathManager(session);
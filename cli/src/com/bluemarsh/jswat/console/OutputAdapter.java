@@ -29,15 +29,17 @@ import com.bluemarsh.jswat.core.session.SessionListener;
 import com.bluemarsh.jswat.core.session.SessionManagerEvent;
 import com.bluemarsh.jswat.core.session.SessionManagerListener;
 import com.bluemarsh.jswat.core.util.Threads;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PipedReader;
 import java.io.PrintWriter;
 import java.io.Reader;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Future;
@@ -54,6 +56,8 @@ public class OutputAdapter implements SessionListener, SessionManagerListener {
 
     /** Receiver of the debuggee output. */
     private PrintWriter outputSink;
+    /** Receives a copy of all debuggee output, may be null. */
+    private Writer outputTee;
     /** A Map of Session instances to Future instances. */
     private Map<Session, Future<?>> inputFutures;
 
@@ -76,13 +80,9 @@ public class OutputAdapter implements SessionListener, SessionManagerListener {
         if (!conn.isRemote()) {
             // We can read from a launched debuggee.
             Process process = conn.getVM().process();
-            InputStream is = process.getInputStream();
-            OutputReader or = new OutputReader(is, outputSink);
-            Threads.getThreadPool().submit(or);
-
-            is = process.getErrorStream();
-            or = new OutputReader(is, outputSink);
-            Threads.getThreadPool().submit(or);
+            OutputPump pump = new OutputPump(outputSink, outputTee);
+            pump.pump(process.getInputStream());
+            pump.pump(process.getErrorStream());
 
             PipedReader pr = PipeProvider.getPipedReader(session);
             OutputStream os = process.getOutputStream();
@@ -108,6 +108,19 @@ public class OutputAdapter implements SessionListener, SessionManagerListener {
         }
     }
 
+    /**
+     * Copies all of the output of the debuggees to the given file, in
+     * addition to writing it to the console.
+     *
+     * @param  file  file to which output is appended.
+     * @throws  IOException
+     *          if the file could not be opened.
+     */
+    public void setTeeFile(File file) throws IOException {
+        outputTee = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file, true)));
+    }
+
     @Override
     public void opened(Session session) {
     }
@@ -135,51 +148,6 @@ public class OutputAdapter implements SessionListener, SessionManagerListener {
     public void suspended(SessionEvent sevt) {
     }
 
-    /**
-     * Basically just reads from an input stream and writes to a writer.
-     * This is used to read from the debuggee output streams.
-     *
-     * @author  Nathan Fiedler
-     */
-    private static class OutputReader implements Runnable {
-
-        /** Stream from which we are to read. */
-        private InputStream inputStream;
-        /** Where the output goes to. */
-        private PrintWriter printWriter;
-
-        /**
-         * Constructs a stream reader.
-         *
-         * @param  is  input stream to read from.
-         * @param  pw  writer to write to.
-         */
-        OutputReader(InputStream is, PrintWriter pw) {
-            inputStream = is;
-            printWriter = pw;
-        }
-
-        @Override
-        public void run() {
-            // Read from the input stream.
-            try {
-                InputStreamReader isr = new InputStreamReader(inputStream);
-                char[] buf = new char[8192];
-                int len = isr.read(buf);
-                while (len != -1) {
-                    printWriter.write(buf, 0, len);
-                    printWriter.flush();
-                    len = isr.read(buf);
-                }
-            } catch (InterruptedIOException iioe) {
-                // Just stop reading.
-            } catch (IOException ioe) {
-                printWriter.println(NbBundle.getMessage(
-                        getClass(), "ERR_OutputAdapter_Output", ioe));
-            }
-        }
-    }
-
     /**
      * Basically just reads from a reader and writes to an output stream.
      * This is used to send input to the debuggee standard input stream.
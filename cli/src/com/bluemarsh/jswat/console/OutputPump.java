@@ -0,0 +1,321 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.console;
+
+import com.bluemarsh.jswat.core.util.Threads;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.NbBundle;
+
+/**
+ * Class OutputPump moves the output of a debuggee to the console without
+ * ever letting the one hold up the other. The debuggee streams are read
+ * on threads of their own into a bounded ring buffer, and a separate
+ * thread writes the buffered output to the console in batches, whenever
+ * enough has accumulated or a short time has passed.
+ *
+ * <p>Should the debuggee write faster than the console can keep up, the
+ * oldest output in the buffer is discarded, and a marker noting how much
+ * was dropped is written in its place. Optionally, all of the output is
+ * also written to a file, without any being discarded.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class OutputPump {
+    /** Logger for gracefully reporting unexpected errors. */
+    private static final Logger logger = Logger.getLogger(
+            OutputPump.class.getName());
+    /** Number of characters the buffer holds by default. */
+    private static final int BUFFER_SIZE = 65536;
+    /** Number of buffered characters that prompts an immediate flush. */
+    private static final int FLUSH_SIZE = 8192;
+    /** Milliseconds to wait for more output before flushing. */
+    private static final long FLUSH_INTERVAL = 100;
+    /** Number of bytes read from a stream at a time. */
+    private static final int READ_SIZE = 8192;
+    /** Where the output is written for the user to see. */
+    private final Writer sink;
+    /** Where all of the output is copied, may be null. */
+    private final Writer tee;
+    /** The ring buffer of output waiting to be written. */
+    private final char[] ring;
+    /** Guards the ring buffer and the reader count. */
+    private final Object lock;
+    /** Offset of the oldest character in the ring buffer. */
+    private int head;
+    /** Number of characters in the ring buffer. */
+    private int count;
+    /** Number of characters discarded since the last flush. */
+    private long dropped;
+    /** Number of streams still being read. */
+    private int readers;
+    /** True once the flusher has been started. */
+    private boolean flushing;
+    /** True if writing to the tee failed, and should not be tried again. */
+    private volatile boolean teeFailed;
+
+    /**
+     * Constructs a new OutputPump.
+     *
+     * @param  sink  where the output is written.
+     * @param  tee   where all of the output is copied, or null for none.
+     */
+    public OutputPump(Writer sink, Writer tee) {
+        this(sink, tee, BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a new OutputPump with a buffer of the given size.
+     *
+     * @param  sink      where the output is written.
+     * @param  tee       where all of the output is copied, or null.
+     * @param  capacity  number of characters the buffer holds.
+     */
+    OutputPump(Writer sink, Writer tee, int capacity) {
+        this.sink = sink;
+        this.tee = tee;
+        ring = new char[capacity];
+        lock = new Object();
+    }
+
+    /**
+     * Adds the given characters to the buffer, discarding the oldest
+     * buffered characters to make room if necessary.
+     *
+     * @param  buf  characters to be added.
+     * @param  off  offset of the first character.
+     * @param  len  number of characters.
+     */
+    void append(char[] buf, int off, int len) {
+        synchronized (lock) {
+            if (len >= ring.length) {
+                // Only the very end of the input will fit.
+                dropped += count + len - ring.length;
+                off += len - ring.length;
+                len = ring.length;
+                head = 0;
+                count = 0;
+            }
+            int overflow = count + len - ring.length;
+            if (overflow > 0) {
+                head = (head + overflow) % ring.length;
+                count -= overflow;
+                dropped += overflow;
+            }
+            int tail = (head + count) % ring.length;
+            int first = Math.min(len, ring.length - tail);
+            System.arraycopy(buf, off, ring, tail, first);
+            System.arraycopy(buf, off + first, ring, 0, len - first);
+            count += len;
+            if (count >= FLUSH_SIZE) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Empties the buffer, returning its contents, preceded by a marker if
+     * any output was discarded since the last time.
+     *
+     * @return  buffered output, or null if there was none.
+     */
+    String drain() {
+        synchronized (lock) {
+            if (count == 0 && dropped == 0) {
+                return null;
+            }
+            StringBuilder sb = new StringBuilder(count + 80);
+            if (dropped > 0) {
+                sb.append(NbBundle.getMessage(OutputPump.class,
+                        "CTL_OutputPump_Dropped", String.valueOf(dropped)));
+                sb.append('\n');
+                dropped = 0;
+            }
+            int first = Math.min(count, ring.length - head);
+            sb.append(ring, head, first);
+            sb.append(ring, 0, count - first);
+            head = 0;
+            count = 0;
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Starts reading from the given stream, which is read until it
+     * reaches the end or the reading thread is interrupted.
+     *
+     * @param  is  stream to be read.
+     */
+    public void pump(InputStream is) {
+        synchronized (lock) {
+            readers++;
+            if (!flushing) {
+                flushing = true;
+                Threads.getThreadPool().submit(new Flusher());
+            }
+        }
+        Threads.getThreadPool().submit(new StreamReader(is));
+    }
+
+    /**
+     * Copies the characters to the tee, if there is one.
+     *
+     * @param  buf  characters to be copied.
+     * @param  off  offset of the first character.
+     * @param  len  number of characters.
+     */
+    private void teeOutput(char[] buf, int off, int len) {
+        if (tee == null || teeFailed) {
+            return;
+        }
+        try {
+            synchronized (tee) {
+                tee.write(buf, off, len);
+            }
+        } catch (IOException ioe) {
+            teeFailed = true;
+            logger.log(Level.WARNING, null, ioe);
+        }
+    }
+
+    /**
+     * Writes the buffered output to the sink in batches, until all of the
+     * streams have been read completely.
+     */
+    private class Flusher implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    String text;
+                    synchronized (lock) {
+                        if (count < FLUSH_SIZE && readers > 0) {
+                            lock.wait(FLUSH_INTERVAL);
+                        }
+                        text = drain();
+                        if (text == null && readers == 0) {
+                            flushing = false;
+                            break;
+                        }
+                    }
+                    // Write outside of the lock, so the readers are never
+                    // held up by a slow console.
+                    if (text != null) {
+                        sink.write(text);
+                        sink.flush();
+                    }
+                    if (tee != null && !teeFailed) {
+                        synchronized (tee) {
+                            tee.flush();
+                        }
+                    }
+                }
+            } catch (InterruptedException ie) {
+                synchronized (lock) {
+                    flushing = false;
+                }
+            } catch (IOException ioe) {
+                logger.log(Level.WARNING, null, ioe);
+                synchronized (lock) {
+                    flushing = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads one of the debuggee streams into the buffer.
+     */
+    private class StreamReader implements Runnable {
+        /** The stream to be read. */
+        private final InputStream inputStream;
+
+        /**
+         * Constructs a new StreamReader.
+         *
+         * @param  is  the stream to be read.
+         */
+        StreamReader(InputStream is) {
+            inputStream = is;
+        }
+
+        /**
+         * Moves the decoded characters to the buffer and the tee.
+         *
+         * @param  chars  decoded characters, ready to be written.
+         */
+        private void deliver(CharBuffer chars) {
+            chars.flip();
+            if (chars.hasRemaining()) {
+                int off = chars.arrayOffset() + chars.position();
+                append(chars.array(), off, chars.remaining());
+                teeOutput(chars.array(), off, chars.remaining());
+            }
+            chars.clear();
+        }
+
+        @Override
+        public void run() {
+            ReadableByteChannel channel = Channels.newChannel(inputStream);
+            CharsetDecoder decoder = Charset.defaultCharset().newDecoder();
+            decoder.onMalformedInput(CodingErrorAction.REPLACE);
+            decoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
+            ByteBuffer bytes = ByteBuffer.allocate(READ_SIZE);
+            CharBuffer chars = CharBuffer.allocate(READ_SIZE);
+            try {
+                while (channel.read(bytes) != -1) {
+                    bytes.flip();
+                    decoder.decode(bytes, chars, false);
+                    // Keep any partial character for the next read.
+                    bytes.compact();
+                    deliver(chars);
+                }
+                bytes.flip();
+                decoder.decode(bytes, chars, true);
+                decoder.flush(chars);
+                deliver(chars);
+            } catch (ClosedByInterruptException cbie) {
+                // Just stop reading.
+            } catch (IOException ioe) {
+                String msg = NbBundle.getMessage(OutputPump.class,
+                        "ERR_OutputPump_Output", ioe) + '\n';
+                append(msg.toCharArray(), 0, msg.length());
+            } finally {
+                synchronized (lock) {
+                    readers--;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+}
@@ -32,6 +32,7 @@ import com.bluemarsh.jswat.core.session.SessionListener;
 import com.bluemarsh.jswat.core.session.SessionManagerEvent;
 import com.bluemarsh.jswat.core.session.SessionManagerListener;
 import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.bluemarsh.jswat.core.stepping.RunToLocation;
 import com.bluemarsh.jswat.core.util.Strings;
 import com.sun.jdi.Location;
 import com.sun.jdi.event.BreakpointEvent;
@@ -136,9 +137,11 @@ public class SessionWatcher implements SessionListener, SessionManagerListener {
         if (session.equals(current)) {
             Event event = sevt.getEvent();
             // Only respond to locatable events that are _not_ breakpoint
-            // events, as those are handled by the breakpoint watcher.
+            // events, as those are handled by the breakpoint watcher
+            // (except for run-to requests, which have no breakpoint).
             if (event != null && event instanceof LocatableEvent &&
-                    !(event instanceof BreakpointEvent)) {
+                    (!(event instanceof BreakpointEvent) ||
+                    RunToLocation.isRunTo(event.request()))) {
                 LocatableEvent le = (LocatableEvent) event;
                 Location loc = le.location();
                 if (loc != null) {
@@ -30,6 +30,7 @@ import com.bluemarsh.jswat.command.MissingArgumentsException;
 import com.bluemarsh.jswat.command.commands.ViewCommand;
 import com.bluemarsh.jswat.command.commands.WhereCommand;
 import com.bluemarsh.jswat.core.context.DebuggingContext;
+import com.bluemarsh.jswat.core.context.SuspensionSnapshot;
 import com.bluemarsh.jswat.core.path.PathEntry;
 import com.bluemarsh.jswat.core.path.PathManager;
 import com.bluemarsh.jswat.core.path.PathProvider;
@@ -72,7 +73,7 @@ public class ListCommand extends AbstractCommand {
         PathManager pm = PathProvider.getPathManager(session);
         DebuggingContext dc = context.getDebuggingContext();
         ThreadReference thread = dc.getThread();
-        StackFrame frame = thread == null ? null : getFrame(thread);
+        StackFrame frame = thread == null ? null : getFrame(dc);
         Location loc = frame == null ? null : frame.location();
         if (loc == null) {
             throw new CommandException(getMessage("ERR_list_not_ready"));
@@ -153,21 +154,23 @@ public class ListCommand extends AbstractCommand {
         return NbBundle.getMessage(ListCommand.class, key, arg1, arg2);
     }
 
-    StackFrame getFrame(ThreadReference thread) throws CommandException {
-        List<StackFrame> stack = null;
+    StackFrame getFrame(DebuggingContext dc) throws CommandException {
+        SuspensionSnapshot snapshot = dc.getSnapshot();
+        if (snapshot == null) {
+            throw new CommandException(NbBundle.getMessage(WhereCommand.class,
+                                                           "ERR_IncompatibleThread"));
+        }
         try {
-            stack = thread.frames();
+            return snapshot.getFrame(0);
         } catch (IncompatibleThreadStateException itse) {
             throw new CommandException(NbBundle.getMessage(WhereCommand.class,
                                                            "ERR_ThreadNotSuspended"));
         } catch (ObjectCollectedException oce) {
             throw new CommandException(NbBundle.getMessage(WhereCommand.class,
                                                            "ERR_ObjectCollected"));
-        }
-        if (stack == null) {
+        } catch (IndexOutOfBoundsException ioobe) {
             throw new CommandException(NbBundle.getMessage(WhereCommand.class,
                                                            "ERR_IncompatibleThread"));
         }
-        return stack.get(0);
     }
 }
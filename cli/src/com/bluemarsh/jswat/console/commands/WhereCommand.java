@@ -93,12 +93,13 @@ public class WhereCommand
             sb.append(NbBundle.getMessage(getClass(), "CTL_where_header", thread.name()));
             sb.append('\n');
         }
-        List<StackFrame> stack = getStack(thread);
-
         // Start at current frame -- Notes (b) and (e)
-        for (int i = dc.getFrame(), nFrames = stack.size(); i < nFrames; i++) {
+        int first = dc.getFrame();
+        int nFrames = getFrameCount(thread, dc);
+        List<StackFrame> stack = getStack(thread, dc, first, nFrames - first);
+        for (int i = 0; i < stack.size(); i++) {
             sb.append("  [");  // Note (g)
-            sb.append(i + 1);  // Note (c)
+            sb.append(first + i + 1);  // Note (c)
             sb.append("] ");
             appendFrameDescriptor(stack.get(i).location(), sb);
             // XXX:  implement Note (f)
@@ -125,11 +126,11 @@ public class WhereCommand
      */
     void displayCurrentFrame(CommandContext context) throws CommandException {
         DebuggingContext dc = ContextProvider.getContext(context.getSession());
-        List<StackFrame> stack = getStack(dc.getThread());
         int i = dc.getFrame();
+        List<StackFrame> stack = getStack(dc.getThread(), dc, i, 1);
         StringBuilder sb = new StringBuilder(256);
         sb.append("  [").append(i).append("] ");
-        appendFrameDescriptor(stack.get(i).location(), sb);
+        appendFrameDescriptor(stack.get(0).location(), sb);
         context.getWriter().println(sb.toString());
     }
 }
@@ -0,0 +1,131 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.console;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ConsoleOutputWriter class.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ConsoleOutputWriterTest {
+
+    @Test
+    public void test_ConsoleOutputWriter_flush() {
+        StringWriter sw = new StringWriter();
+        ConsoleOutputWriter writer = new ConsoleOutputWriter(
+                new PrintWriter(sw), 16);
+        StringBuilder expected = new StringBuilder();
+        for (int ii = 0; ii < 500; ii++) {
+            writer.printOutput("message " + ii);
+            expected.append("message ").append(ii);
+            expected.append(System.getProperty("line.separator"));
+        }
+        writer.flush();
+        assertEquals(expected.toString(), sw.toString());
+    }
+
+    @Test
+    public void test_ConsoleOutputWriter_drop() throws InterruptedException {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final StringWriter sw = new StringWriter();
+        Writer slow = new Writer() {
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ie) {
+                    throw new IOException(ie);
+                }
+                sw.write(cbuf, off, len);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ConsoleOutputWriter writer = new ConsoleOutputWriter(
+                new PrintWriter(slow), 2);
+        writer.setOverflowPolicy(ConsoleOutputWriter.OverflowPolicy.DROP);
+        writer.printOutput("first");
+        // Wait until the console is stuck writing the first message.
+        writing.await();
+        writer.printOutput("second");
+        writer.printOutput("third");
+        writer.printOutput("fourth");
+        writer.printOutput("fifth");
+        release.countDown();
+        writer.flush();
+        String output = sw.toString();
+        assertTrue(output.contains("first"));
+        assertTrue(output.contains("second"));
+        assertTrue(output.contains("third"));
+        assertFalse(output.contains("fourth"));
+        assertFalse(output.contains("fifth"));
+        assertTrue(output.contains("[... 2 messages dropped ...]"));
+    }
+
+    @Test
+    public void test_ConsoleOutputWriter_failure() {
+        final StringWriter sw = new StringWriter();
+        Writer faulty = new Writer() {
+            private boolean failed;
+
+            @Override
+            public void write(char[] cbuf, int off, int len) {
+                if (!failed) {
+                    failed = true;
+                    throw new IllegalStateException("simulated failure");
+                }
+                sw.write(cbuf, off, len);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ConsoleOutputWriter writer = new ConsoleOutputWriter(
+                new PrintWriter(faulty), 16);
+        writer.printOutput("lost");
+        // Must not hang even though the first write failed.
+        writer.flush();
+        writer.printOutput("after");
+        writer.flush();
+        assertTrue(sw.toString().contains("after"));
+    }
+}
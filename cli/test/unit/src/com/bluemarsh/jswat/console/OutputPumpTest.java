@@ -0,0 +1,86 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.console;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the OutputPump class.
+ *
+ * @author  Nathan Fiedler
+ */
+public class OutputPumpTest {
+
+    @Test
+    public void test_OutputPump_drain() {
+        OutputPump pump = new OutputPump(new StringWriter(), null, 8);
+        assertNull(pump.drain());
+        pump.append("abc".toCharArray(), 0, 3);
+        pump.append("defgh".toCharArray(), 1, 3);
+        assertEquals("abcefg", pump.drain());
+        assertNull(pump.drain());
+        // Wrap around the end of the buffer.
+        pump.append("123456".toCharArray(), 0, 6);
+        pump.append("78".toCharArray(), 0, 2);
+        assertEquals("12345678", pump.drain());
+    }
+
+    @Test
+    public void test_OutputPump_dropped() {
+        OutputPump pump = new OutputPump(new StringWriter(), null, 8);
+        pump.append("abcdef".toCharArray(), 0, 6);
+        pump.append("ghijkl".toCharArray(), 0, 6);
+        String text = pump.drain();
+        assertTrue(text.endsWith("efghijkl"));
+        assertTrue(text.contains("4"));
+        // More than the whole buffer at once.
+        pump.append("0123456789".toCharArray(), 0, 10);
+        text = pump.drain();
+        assertTrue(text.endsWith("23456789"));
+        assertTrue(text.contains("2"));
+        // The marker appears only once.
+        pump.append("x".toCharArray(), 0, 1);
+        assertEquals("x", pump.drain());
+    }
+
+    @Test
+    public void test_OutputPump_pump() throws InterruptedException {
+        StringBuilder sb = new StringBuilder();
+        for (int ii = 0; ii < 1000; ii++) {
+            sb.append("line ").append(ii).append('\n');
+        }
+        String expected = sb.toString();
+        StringWriter sink = new StringWriter();
+        StringWriter tee = new StringWriter();
+        OutputPump pump = new OutputPump(sink, tee);
+        pump.pump(new ByteArrayInputStream(expected.getBytes()));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sink.toString().length() < expected.length()
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(expected, sink.toString());
+        assertEquals(expected, tee.toString());
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.command.commands;
+
+import com.bluemarsh.jswat.command.AbstractCommand;
+import com.bluemarsh.jswat.command.CommandArguments;
+import com.bluemarsh.jswat.command.CommandContext;
+import com.bluemarsh.jswat.command.CommandException;
+import com.bluemarsh.jswat.command.MissingArgumentsException;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.trace.ContentionProfiler;
+import com.bluemarsh.jswat.core.trace.ContentionStatistic;
+import com.bluemarsh.jswat.core.trace.TraceProvider;
+import java.io.PrintWriter;
+import java.util.List;
+import org.openide.util.NbBundle;
+
+/**
+ * Measures the time threads spend blocked on monitors in the debuggee.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ContentionCommand extends AbstractCommand {
+    /** Default number of rows shown. */
+    private static final int DEFAULT_COUNT = 20;
+
+    @Override
+    public String getName() {
+        return "contention";
+    }
+
+    @Override
+    public void perform(CommandContext context, CommandArguments arguments)
+            throws CommandException, MissingArgumentsException {
+
+        PrintWriter writer = context.getWriter();
+        Session session = context.getSession();
+        ContentionProfiler profiler = TraceProvider.getContentionProfiler(session);
+        String subcmd = arguments.hasMoreTokens() ? arguments.peek() : "show";
+        if (subcmd.equals("start")) {
+            arguments.nextToken();
+            if (!session.isConnected()) {
+                throw new CommandException(NbBundle.getMessage(
+                        ContentionCommand.class, "ERR_contention_NotConnected"));
+            }
+            if (profiler.isProfiling()) {
+                throw new CommandException(NbBundle.getMessage(
+                        ContentionCommand.class, "ERR_contention_Profiling"));
+            }
+            try {
+                profiler.start();
+            } catch (UnsupportedOperationException uoe) {
+                throw new CommandException(NbBundle.getMessage(
+                        ContentionCommand.class, "ERR_contention_Unsupported"));
+            }
+            writer.println(NbBundle.getMessage(ContentionCommand.class,
+                    "CTL_contention_Started"));
+        } else if (subcmd.equals("stop")) {
+            arguments.nextToken();
+            if (!profiler.isProfiling()) {
+                throw new CommandException(NbBundle.getMessage(
+                        ContentionCommand.class, "ERR_contention_NotProfiling"));
+            }
+            profiler.stop();
+            writer.println(NbBundle.getMessage(ContentionCommand.class,
+                    "CTL_contention_Stopped"));
+        } else if (subcmd.equals("reset")) {
+            arguments.nextToken();
+            profiler.reset();
+            writer.println(NbBundle.getMessage(ContentionCommand.class,
+                    "CTL_contention_Reset"));
+        } else {
+            if (subcmd.equals("show")) {
+                arguments.nextToken();
+            }
+            show(profiler, writer, arguments);
+        }
+    }
+
+    /**
+     * Displays the statistics with the longest total times.
+     *
+     * @param  profiler   contention profiler.
+     * @param  writer     where the statistics are written.
+     * @param  arguments  optional row count and 'classes' keyword.
+     * @throws  CommandException
+     *          if the arguments are invalid.
+     */
+    private void show(ContentionProfiler profiler, PrintWriter writer,
+            CommandArguments arguments) throws CommandException {
+        int limit = DEFAULT_COUNT;
+        boolean byClass = false;
+        while (arguments.hasMoreTokens()) {
+            String token = arguments.nextToken();
+            if (token.equals("classes")) {
+                byClass = true;
+            } else {
+                try {
+                    limit = Integer.parseInt(token);
+                } catch (NumberFormatException nfe) {
+                    throw new CommandException(NbBundle.getMessage(
+                            ContentionCommand.class,
+                            "ERR_contention_InvalidArgument", token));
+                }
+            }
+        }
+        List<ContentionStatistic> stats = profiler.getStatistics(byClass);
+        if (stats.isEmpty()) {
+            writer.println(NbBundle.getMessage(ContentionCommand.class,
+                    "CTL_contention_None"));
+            return;
+        }
+        String blocked = NbBundle.getMessage(ContentionCommand.class,
+                "CTL_contention_Blocked");
+        String waiting = NbBundle.getMessage(ContentionCommand.class,
+                "CTL_contention_Waiting");
+        writer.println(NbBundle.getMessage(ContentionCommand.class,
+                "CTL_contention_Header"));
+        int rows = Math.min(limit, stats.size());
+        for (int ii = 0; ii < rows; ii++) {
+            ContentionStatistic cs = stats.get(ii);
+            writer.println(String.format("%10d %10.1f %10.1f  %-7s  %s",
+                    cs.getCount(), cs.getTotalTime() / 1000000.0,
+                    cs.getMaxTime() / 1000000.0,
+                    cs.isWaiting() ? waiting : blocked, cs.getMonitorClass()));
+            if (cs.getSite() != null) {
+                writer.println(NbBundle.getMessage(ContentionCommand.class,
+                        "CTL_contention_Site", cs.getSite()));
+            }
+        }
+        writer.println(NbBundle.getMessage(ContentionCommand.class,
+                "CTL_contention_Events", String.valueOf(profiler.getEventCount())));
+    }
+}
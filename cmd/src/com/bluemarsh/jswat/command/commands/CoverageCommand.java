@@ -0,0 +1,179 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.command.commands;
+
+import com.bluemarsh.jswat.command.AbstractCommand;
+import com.bluemarsh.jswat.command.CommandArguments;
+import com.bluemarsh.jswat.command.CommandContext;
+import com.bluemarsh.jswat.command.CommandException;
+import com.bluemarsh.jswat.command.MissingArgumentsException;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.trace.ClassCoverage;
+import com.bluemarsh.jswat.core.trace.CoverageRecorder;
+import com.bluemarsh.jswat.core.trace.TraceProvider;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import org.openide.util.NbBundle;
+
+/**
+ * Records which lines of code are executed in the debuggee.
+ *
+ * @author  Nathan Fiedler
+ */
+public class CoverageCommand extends AbstractCommand {
+
+    /**
+     * Writes the coverage report to the named file.
+     *
+     * @param  recorder  coverage recorder.
+     * @param  file      where the report is written.
+     * @param  writer    where the result is reported.
+     * @throws  CommandException
+     *          if the file could not be written.
+     */
+    private static void export(CoverageRecorder recorder, File file,
+            PrintWriter writer) throws CommandException {
+        try {
+            Writer out = new FileWriter(file);
+            try {
+                recorder.writeReport(out);
+            } finally {
+                out.close();
+            }
+        } catch (IOException ioe) {
+            throw new CommandException(NbBundle.getMessage(
+                    CoverageCommand.class, "ERR_coverage_File",
+                    file, ioe.getMessage()), ioe);
+        }
+        writer.println(NbBundle.getMessage(CoverageCommand.class,
+                "CTL_coverage_Exported", file));
+    }
+
+    @Override
+    public String getName() {
+        return "coverage";
+    }
+
+    @Override
+    public void perform(CommandContext context, CommandArguments arguments)
+            throws CommandException, MissingArgumentsException {
+
+        PrintWriter writer = context.getWriter();
+        Session session = context.getSession();
+        CoverageRecorder recorder = TraceProvider.getCoverageRecorder(session);
+        String subcmd = arguments.hasMoreTokens() ? arguments.nextToken() : "show";
+        if (subcmd.equals("start")) {
+            if (!arguments.hasMoreTokens()) {
+                throw new MissingArgumentsException();
+            }
+            if (!session.isConnected()) {
+                throw new CommandException(NbBundle.getMessage(
+                        CoverageCommand.class, "ERR_coverage_NotConnected"));
+            }
+            if (recorder.isRecording()) {
+                throw new CommandException(NbBundle.getMessage(
+                        CoverageCommand.class, "ERR_coverage_Recording"));
+            }
+            List<String> filters = new ArrayList<String>();
+            while (arguments.hasMoreTokens()) {
+                filters.add(arguments.nextToken());
+            }
+            recorder.start(filters);
+            writer.println(NbBundle.getMessage(CoverageCommand.class,
+                    "CTL_coverage_Started", filters.toString()));
+        } else if (subcmd.equals("stop")) {
+            if (!recorder.isRecording()) {
+                throw new CommandException(NbBundle.getMessage(
+                        CoverageCommand.class, "ERR_coverage_NotRecording"));
+            }
+            recorder.stop();
+            writer.println(NbBundle.getMessage(CoverageCommand.class,
+                    "CTL_coverage_Stopped"));
+        } else if (subcmd.equals("reset")) {
+            recorder.reset();
+            writer.println(NbBundle.getMessage(CoverageCommand.class,
+                    "CTL_coverage_Reset"));
+        } else if (subcmd.equals("export")) {
+            export(recorder, new File(arguments.nextToken()), writer);
+        } else if (subcmd.equals("show")) {
+            String pattern = arguments.hasMoreTokens() ? arguments.nextToken() : null;
+            show(recorder, pattern, writer);
+        } else {
+            throw new CommandException(NbBundle.getMessage(
+                    CoverageCommand.class, "ERR_coverage_InvalidArgument", subcmd));
+        }
+    }
+
+    /**
+     * Displays the coverage of each class. If a pattern is given, only the
+     * matching classes are shown, along with the lines not yet executed.
+     *
+     * @param  recorder  coverage recorder.
+     * @param  pattern   class name prefix, or null to show all classes.
+     * @param  writer    where the coverage is written.
+     */
+    private static void show(CoverageRecorder recorder, String pattern,
+            PrintWriter writer) {
+        List<ClassCoverage> coverage = recorder.getCoverage();
+        if (coverage.isEmpty()) {
+            writer.println(NbBundle.getMessage(CoverageCommand.class,
+                    "CTL_coverage_None"));
+            return;
+        }
+        if (pattern != null && pattern.endsWith("*")) {
+            pattern = pattern.substring(0, pattern.length() - 1);
+        }
+        writer.println(NbBundle.getMessage(CoverageCommand.class,
+                "CTL_coverage_Header"));
+        int totalLines = 0;
+        int totalHits = 0;
+        for (ClassCoverage cc : coverage) {
+            if (pattern != null && !cc.getName().startsWith(pattern)) {
+                continue;
+            }
+            int lines = cc.getLineCount();
+            int hits = cc.getHitCount();
+            totalLines += lines;
+            totalHits += hits;
+            writer.println(String.format("%6d %6d %6.1f%%  %s", hits, lines,
+                    CoverageRecorder.percent(hits, lines), cc.getName()));
+            if (pattern != null && hits < lines) {
+                writer.println(NbBundle.getMessage(CoverageCommand.class,
+                        "CTL_coverage_Missed",
+                        ClassCoverage.toRanges(cc.getMissed())));
+            }
+        }
+        writer.println(NbBundle.getMessage(CoverageCommand.class,
+                "CTL_coverage_Total", String.valueOf(totalHits),
+                String.valueOf(totalLines), String.format("%.1f",
+                CoverageRecorder.percent(totalHits, totalLines))));
+        if (recorder.isRecording()) {
+            writer.println(NbBundle.getMessage(CoverageCommand.class,
+                    "CTL_coverage_Pending",
+                    String.valueOf(recorder.getPendingCount())));
+        }
+    }
+}
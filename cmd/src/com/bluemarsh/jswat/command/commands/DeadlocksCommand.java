@@ -0,0 +1,98 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.command.commands;
+
+import com.bluemarsh.jswat.command.AbstractCommand;
+import com.bluemarsh.jswat.command.CommandArguments;
+import com.bluemarsh.jswat.command.CommandContext;
+import com.bluemarsh.jswat.command.CommandException;
+import com.bluemarsh.jswat.command.MissingArgumentsException;
+import com.bluemarsh.jswat.core.thread.Deadlock;
+import com.bluemarsh.jswat.core.thread.DeadlockDetector;
+import com.bluemarsh.jswat.core.thread.DeadlockedThread;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import org.openide.util.NbBundle;
+
+/**
+ * Finds the threads that are deadlocked on monitors.
+ *
+ * @author  Nathan Fiedler
+ */
+public class DeadlocksCommand extends AbstractCommand {
+
+    @Override
+    public String getName() {
+        return "deadlocks";
+    }
+
+    @Override
+    public void perform(CommandContext context, CommandArguments arguments)
+            throws CommandException, MissingArgumentsException {
+
+        PrintWriter writer = context.getWriter();
+        List<Deadlock> deadlocks;
+        try {
+            deadlocks = DeadlockDetector.detect(context.getSession());
+        } catch (UnsupportedOperationException uoe) {
+            throw new CommandException(NbBundle.getMessage(
+                    DeadlocksCommand.class, "ERR_deadlocks_Unsupported"), uoe);
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            throw new CommandException(NbBundle.getMessage(
+                    DeadlocksCommand.class, "ERR_deadlocks_Failed",
+                    cause.toString()), cause);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (deadlocks.isEmpty()) {
+            writer.println(NbBundle.getMessage(DeadlocksCommand.class,
+                    "CTL_deadlocks_None"));
+            return;
+        }
+        int number = 1;
+        for (Deadlock deadlock : deadlocks) {
+            List<DeadlockedThread> threads = deadlock.getThreads();
+            writer.println(NbBundle.getMessage(DeadlocksCommand.class,
+                    "CTL_deadlocks_Header", String.valueOf(number),
+                    String.valueOf(threads.size())));
+            for (DeadlockedThread dt : threads) {
+                writer.println(NbBundle.getMessage(DeadlocksCommand.class,
+                        "CTL_deadlocks_Blocked", dt.getName(),
+                        dt.getMonitor(), dt.getOwnerName()));
+                writer.println(NbBundle.getMessage(DeadlocksCommand.class,
+                        "CTL_deadlocks_Holds", dt.getHeldMonitor()));
+                for (String frame : dt.getFrames()) {
+                    writer.println(NbBundle.getMessage(DeadlocksCommand.class,
+                            "CTL_deadlocks_Frame", frame));
+                }
+            }
+            number++;
+        }
+    }
+
+    @Override
+    public boolean requiresDebuggee() {
+        return true;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.command.commands;
+
+import com.bluemarsh.jswat.command.AbstractCommand;
+import com.bluemarsh.jswat.command.CommandArguments;
+import com.bluemarsh.jswat.command.CommandContext;
+import com.bluemarsh.jswat.command.CommandException;
+import com.bluemarsh.jswat.command.MissingArgumentsException;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.trace.ExceptionCount;
+import com.bluemarsh.jswat.core.trace.ExceptionHistogram;
+import com.bluemarsh.jswat.core.trace.ExceptionSnapshot;
+import com.bluemarsh.jswat.core.trace.TraceProvider;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import org.openide.util.NbBundle;
+
+/**
+ * Counts the exceptions thrown in the debuggee without suspending it.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ExceptionsCommand extends AbstractCommand {
+    /** Default number of rows shown. */
+    private static final int DEFAULT_COUNT = 20;
+
+    @Override
+    public String getName() {
+        return "exceptions";
+    }
+
+    @Override
+    public void perform(CommandContext context, CommandArguments arguments)
+            throws CommandException, MissingArgumentsException {
+
+        PrintWriter writer = context.getWriter();
+        Session session = context.getSession();
+        ExceptionHistogram histogram = TraceProvider.getExceptionHistogram(session);
+        String subcmd = arguments.hasMoreTokens() ? arguments.peek() : "show";
+        if (subcmd.equals("start")) {
+            arguments.nextToken();
+            if (!session.isConnected()) {
+                throw new CommandException(NbBundle.getMessage(
+                        ExceptionsCommand.class, "ERR_exceptions_NotConnected"));
+            }
+            if (histogram.isCollecting()) {
+                throw new CommandException(NbBundle.getMessage(
+                        ExceptionsCommand.class, "ERR_exceptions_Collecting"));
+            }
+            List<String> exclusions = new ArrayList<String>();
+            while (arguments.hasMoreTokens()) {
+                String token = arguments.nextToken();
+                if (!token.startsWith("x:") || token.length() == 2) {
+                    throw new CommandException(NbBundle.getMessage(
+                            ExceptionsCommand.class,
+                            "ERR_exceptions_InvalidArgument", token));
+                }
+                exclusions.add(token.substring(2));
+            }
+            histogram.start(exclusions);
+            writer.println(NbBundle.getMessage(ExceptionsCommand.class,
+                    "CTL_exceptions_Started"));
+        } else if (subcmd.equals("stop")) {
+            arguments.nextToken();
+            if (!histogram.isCollecting()) {
+                throw new CommandException(NbBundle.getMessage(
+                        ExceptionsCommand.class, "ERR_exceptions_NotCollecting"));
+            }
+            histogram.stop();
+            writer.println(NbBundle.getMessage(ExceptionsCommand.class,
+                    "CTL_exceptions_Stopped"));
+        } else if (subcmd.equals("mark")) {
+            arguments.nextToken();
+            ExceptionSnapshot snapshot = histogram.mark();
+            writer.println(NbBundle.getMessage(ExceptionsCommand.class,
+                    "CTL_exceptions_Marked", String.valueOf(snapshot.getTotal())));
+        } else if (subcmd.equals("reset")) {
+            arguments.nextToken();
+            histogram.reset();
+            writer.println(NbBundle.getMessage(ExceptionsCommand.class,
+                    "CTL_exceptions_Reset"));
+        } else if (subcmd.equals("delta")) {
+            arguments.nextToken();
+            ExceptionSnapshot mark = histogram.getMark();
+            if (mark == null) {
+                throw new CommandException(NbBundle.getMessage(
+                        ExceptionsCommand.class, "ERR_exceptions_NoMark"));
+            }
+            show(histogram.getSnapshot().delta(mark), writer, arguments);
+        } else {
+            if (subcmd.equals("show")) {
+                arguments.nextToken();
+            }
+            show(histogram.getSnapshot(), writer, arguments);
+            long missed = histogram.getMissedCount();
+            if (missed > 0) {
+                writer.println(NbBundle.getMessage(ExceptionsCommand.class,
+                        "CTL_exceptions_Missed", String.valueOf(missed)));
+            }
+        }
+    }
+
+    /**
+     * Displays the largest counts of the given snapshot.
+     *
+     * @param  snapshot   exception counts to display.
+     * @param  writer     where the counts are written.
+     * @param  arguments  optional row count and 'types' keyword.
+     * @throws  CommandException
+     *          if the arguments are invalid.
+     */
+    private void show(ExceptionSnapshot snapshot, PrintWriter writer,
+            CommandArguments arguments) throws CommandException {
+        int limit = DEFAULT_COUNT;
+        boolean byType = false;
+        while (arguments.hasMoreTokens()) {
+            String token = arguments.nextToken();
+            if (token.equals("types")) {
+                byType = true;
+            } else {
+                try {
+                    limit = Integer.parseInt(token);
+                } catch (NumberFormatException nfe) {
+                    throw new CommandException(NbBundle.getMessage(
+                            ExceptionsCommand.class,
+                            "ERR_exceptions_InvalidArgument", token));
+                }
+            }
+        }
+        List<ExceptionCount> counts = byType ? snapshot.getTypeCounts()
+                : snapshot.getCounts();
+        if (counts.isEmpty()) {
+            writer.println(NbBundle.getMessage(ExceptionsCommand.class,
+                    "CTL_exceptions_None"));
+            return;
+        }
+        String uncaught = NbBundle.getMessage(ExceptionsCommand.class,
+                "CTL_exceptions_Uncaught");
+        int rows = Math.min(limit, counts.size());
+        for (int ii = 0; ii < rows; ii++) {
+            ExceptionCount ec = counts.get(ii);
+            writer.println(String.format("%10d  %s", ec.getCount(), ec.getType()));
+            if (!byType) {
+                String caught = ec.getCaughtAt() == null ? uncaught
+                        : ec.getCaughtAt();
+                writer.println(NbBundle.getMessage(ExceptionsCommand.class,
+                        "CTL_exceptions_Location", ec.getThrownAt(), caught));
+            }
+        }
+        double seconds = snapshot.getElapsedTime() / 1000000000.0;
+        double rate = seconds > 0 ? snapshot.getTotal() / seconds : 0.0;
+        writer.println(NbBundle.getMessage(ExceptionsCommand.class,
+                "CTL_exceptions_Total", String.valueOf(snapshot.getTotal()),
+                String.format("%.1f", seconds), String.format("%.1f", rate)));
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.command.commands;
+
+import com.bluemarsh.jswat.command.AbstractCommand;
+import com.bluemarsh.jswat.command.CommandArguments;
+import com.bluemarsh.jswat.command.CommandContext;
+import com.bluemarsh.jswat.command.CommandException;
+import com.bluemarsh.jswat.command.MissingArgumentsException;
+import com.bluemarsh.jswat.core.context.DebuggingContext;
+import com.bluemarsh.jswat.core.expr.EvaluationException;
+import com.bluemarsh.jswat.core.expr.Evaluator;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.trace.FieldChange;
+import com.bluemarsh.jswat.core.trace.FieldHistory;
+import com.bluemarsh.jswat.core.trace.FieldRecorder;
+import com.bluemarsh.jswat.core.trace.TraceProvider;
+import com.bluemarsh.jswat.core.util.Classes;
+import com.sun.jdi.Field;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.VirtualMachine;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Date;
+import java.util.List;
+import org.openide.util.NbBundle;
+
+/**
+ * Records and displays the history of the values given to a field.
+ *
+ * @author  Nathan Fiedler
+ */
+public class FieldHistoryCommand extends AbstractCommand {
+    /** Default number of changes shown. */
+    private static final int DEFAULT_COUNT = 20;
+
+    /**
+     * Finds the field history with the given number.
+     *
+     * @param  recorder  field recorder.
+     * @param  token     history number, starting with one.
+     * @return  field history.
+     * @throws  CommandException
+     *          if there is no such history.
+     */
+    private static FieldHistory findHistory(FieldRecorder recorder,
+            String token) throws CommandException {
+        List<FieldHistory> histories = recorder.getHistories();
+        try {
+            int index = Integer.parseInt(token) - 1;
+            if (index >= 0 && index < histories.size()) {
+                return histories.get(index);
+            }
+        } catch (NumberFormatException nfe) {
+            // Fall through to the error.
+        }
+        throw new CommandException(NbBundle.getMessage(
+                FieldHistoryCommand.class, "ERR_fieldhistory_NoHistory", token));
+    }
+
+    @Override
+    public String getName() {
+        return "fieldhistory";
+    }
+
+    /**
+     * Lists the field histories.
+     *
+     * @param  recorder  field recorder.
+     * @param  writer    where the list is written.
+     */
+    private static void list(FieldRecorder recorder, PrintWriter writer) {
+        List<FieldHistory> histories = recorder.getHistories();
+        if (histories.isEmpty()) {
+            writer.println(NbBundle.getMessage(FieldHistoryCommand.class,
+                    "CTL_fieldhistory_None"));
+            return;
+        }
+        int number = 1;
+        for (FieldHistory history : histories) {
+            String key = history.isActive() ? "CTL_fieldhistory_Active"
+                    : "CTL_fieldhistory_Stopped";
+            writer.println(NbBundle.getMessage(FieldHistoryCommand.class, key,
+                    String.valueOf(number), history.getName(),
+                    String.valueOf(history.getCount())));
+            number++;
+        }
+    }
+
+    @Override
+    public void perform(CommandContext context, CommandArguments arguments)
+            throws CommandException, MissingArgumentsException {
+
+        PrintWriter writer = context.getWriter();
+        Session session = context.getSession();
+        FieldRecorder recorder = TraceProvider.getFieldRecorder(session);
+        String subcmd = arguments.hasMoreTokens() ? arguments.nextToken() : "list";
+        if (subcmd.equals("list")) {
+            list(recorder, writer);
+        } else if (subcmd.equals("record")) {
+            record(context, recorder, arguments);
+        } else if (subcmd.equals("show")) {
+            FieldHistory history = findHistory(recorder, arguments.nextToken());
+            int count = DEFAULT_COUNT;
+            if (arguments.hasMoreTokens()) {
+                String token = arguments.nextToken();
+                try {
+                    count = Integer.parseInt(token);
+                } catch (NumberFormatException nfe) {
+                    throw new CommandException(NbBundle.getMessage(
+                            FieldHistoryCommand.class,
+                            "ERR_fieldhistory_InvalidArgument", token));
+                }
+            }
+            show(history, count, writer);
+        } else if (subcmd.equals("stop")) {
+            FieldHistory history = findHistory(recorder, arguments.nextToken());
+            recorder.stop(history);
+            writer.println(NbBundle.getMessage(FieldHistoryCommand.class,
+                    "CTL_fieldhistory_StoppedOne", history.getName()));
+        } else if (subcmd.equals("remove")) {
+            FieldHistory history = findHistory(recorder, arguments.nextToken());
+            recorder.remove(history);
+            writer.println(NbBundle.getMessage(FieldHistoryCommand.class,
+                    "CTL_fieldhistory_Removed", history.getName()));
+        } else {
+            throw new CommandException(NbBundle.getMessage(
+                    FieldHistoryCommand.class,
+                    "ERR_fieldhistory_InvalidArgument", subcmd));
+        }
+    }
+
+    /**
+     * Starts recording a field, as described by the arguments.
+     *
+     * @param  context    command context.
+     * @param  recorder   field recorder.
+     * @param  arguments  optional spill file, the field, and an optional
+     *                    expression giving the object to be recorded.
+     * @throws  CommandException
+     *          if the arguments are invalid.
+     * @throws  MissingArgumentsException
+     *          if arguments are missing.
+     */
+    private static void record(CommandContext context, FieldRecorder recorder,
+            CommandArguments arguments) throws CommandException,
+            MissingArgumentsException {
+        Session session = context.getSession();
+        if (!session.isConnected()) {
+            throw new CommandException(NbBundle.getMessage(
+                    FieldHistoryCommand.class, "ERR_fieldhistory_NotConnected"));
+        }
+        String token = arguments.nextToken();
+        File spill = null;
+        if (token.equals("file")) {
+            spill = new File(arguments.nextToken());
+            token = arguments.nextToken();
+        }
+
+        // Split apart the class and field specifier.
+        int idx = token.lastIndexOf('.');
+        if (idx < 0) {
+            throw new CommandException(NbBundle.getMessage(
+                    FieldHistoryCommand.class, "ERR_fieldhistory_MissingClass", token));
+        }
+        String cname = token.substring(0, idx);
+        String fname = token.substring(idx + 1);
+        VirtualMachine vm = session.getConnection().getVM();
+        List<ReferenceType> classes = Classes.findClasses(vm, cname);
+        if (classes == null || classes.isEmpty()) {
+            throw new CommandException(NbBundle.getMessage(
+                    FieldHistoryCommand.class, "ERR_fieldhistory_NoClass", cname));
+        }
+        Field field = classes.get(0).fieldByName(fname);
+        if (field == null) {
+            throw new CommandException(NbBundle.getMessage(
+                    FieldHistoryCommand.class, "ERR_fieldhistory_NoField", fname));
+        }
+
+        // The rest is the expression for the object to be recorded.
+        ObjectReference instance = null;
+        if (arguments.hasMoreTokens()) {
+            arguments.returnAsIs(true);
+            String expr = arguments.rest();
+            DebuggingContext dc = context.getDebuggingContext();
+            Object o;
+            try {
+                o = new Evaluator(expr).evaluate(dc.getThread(), dc.getFrame());
+            } catch (EvaluationException ee) {
+                throw new CommandException(NbBundle.getMessage(
+                        FieldHistoryCommand.class, "ERR_EvaluationError",
+                        ee.getMessage()));
+            }
+            if (!(o instanceof ObjectReference)) {
+                throw new CommandException(NbBundle.getMessage(
+                        FieldHistoryCommand.class, "ERR_fieldhistory_NotObject", expr));
+            }
+            instance = (ObjectReference) o;
+        }
+
+        FieldHistory history;
+        try {
+            history = recorder.record(field, instance,
+                    FieldRecorder.DEFAULT_CAPACITY);
+        } catch (UnsupportedOperationException uoe) {
+            throw new CommandException(NbBundle.getMessage(
+                    FieldHistoryCommand.class, "ERR_fieldhistory_Unsupported"));
+        }
+        if (spill != null) {
+            try {
+                history.setSpillFile(spill);
+            } catch (IOException ioe) {
+                throw new CommandException(NbBundle.getMessage(
+                        FieldHistoryCommand.class, "ERR_fieldhistory_File",
+                        spill, ioe.getMessage()), ioe);
+            }
+        }
+        context.getWriter().println(NbBundle.getMessage(
+                FieldHistoryCommand.class, "CTL_fieldhistory_Recording",
+                history.getName()));
+    }
+
+    /**
+     * Displays the most recent changes of the field.
+     *
+     * @param  history  field history.
+     * @param  count    number of changes to show.
+     * @param  writer   where the changes are written.
+     */
+    private static void show(FieldHistory history, int count,
+            PrintWriter writer) {
+        List<FieldChange> changes = history.getChanges(count);
+        writer.println(NbBundle.getMessage(FieldHistoryCommand.class,
+                "CTL_fieldhistory_Header", history.getName(),
+                String.valueOf(history.getCount()),
+                String.valueOf(history.getDropped())));
+        for (FieldChange change : changes) {
+            writer.println(String.format("%6d  %tT  %s = %s",
+                    change.getSequence(), new Date(change.getTime()),
+                    change.getThread(), change.getValue()));
+            writer.println(NbBundle.getMessage(FieldHistoryCommand.class,
+                    "CTL_fieldhistory_Site", change.getLocation()));
+        }
+    }
+}
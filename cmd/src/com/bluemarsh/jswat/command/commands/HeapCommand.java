@@ -0,0 +1,215 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.command.commands;
+
+import com.bluemarsh.jswat.command.AbstractCommand;
+import com.bluemarsh.jswat.command.CommandArguments;
+import com.bluemarsh.jswat.command.CommandContext;
+import com.bluemarsh.jswat.command.CommandException;
+import com.bluemarsh.jswat.command.MissingArgumentsException;
+import com.bluemarsh.jswat.core.heap.ClassCount;
+import com.bluemarsh.jswat.core.heap.HeapHistogram;
+import com.bluemarsh.jswat.core.heap.HeapProvider;
+import com.bluemarsh.jswat.core.heap.HeapSnapshot;
+import java.io.PrintWriter;
+import java.util.Date;
+import java.util.List;
+import org.openide.util.NbBundle;
+
+/**
+ * Counts the instances of each class in the debuggee heap.
+ *
+ * @author  Nathan Fiedler
+ */
+public class HeapCommand extends AbstractCommand {
+    /** Default number of rows shown. */
+    private static final int DEFAULT_COUNT = 20;
+
+    @Override
+    public String getName() {
+        return "heap";
+    }
+
+    @Override
+    public void perform(CommandContext context, CommandArguments arguments)
+            throws CommandException, MissingArgumentsException {
+
+        PrintWriter writer = context.getWriter();
+        HeapHistogram histogram = HeapProvider.getHeapHistogram(
+                context.getSession());
+        String subcmd = arguments.hasMoreTokens() ? arguments.peek() : "snapshot";
+        if (subcmd.equals("show")) {
+            arguments.nextToken();
+            HeapSnapshot latest = histogram.getLatest();
+            if (latest == null) {
+                throw new CommandException(NbBundle.getMessage(
+                        HeapCommand.class, "ERR_heap_NoSnapshot"));
+            }
+            List<ClassCount> counts = latest.getCounts(histogram.getPrevious());
+            show(histogram, latest, counts, writer, parseCount(arguments));
+        } else if (subcmd.equals("diff")) {
+            arguments.nextToken();
+            HeapSnapshot latest = histogram.getLatest();
+            HeapSnapshot previous = histogram.getPrevious();
+            if (previous == null) {
+                throw new CommandException(NbBundle.getMessage(
+                        HeapCommand.class, "ERR_heap_NoPrevious"));
+            }
+            show(histogram, latest, latest.getGrowth(previous), writer,
+                    parseCount(arguments));
+        } else if (subcmd.equals("trend")) {
+            arguments.nextToken();
+            if (!arguments.hasMoreTokens()) {
+                throw new MissingArgumentsException();
+            }
+            trend(histogram, arguments.nextToken(), writer);
+        } else if (subcmd.equals("auto")) {
+            arguments.nextToken();
+            boolean auto = true;
+            if (arguments.hasMoreTokens()) {
+                String token = arguments.nextToken();
+                if (token.equals("off")) {
+                    auto = false;
+                } else if (!token.equals("on")) {
+                    throw new CommandException(NbBundle.getMessage(
+                            HeapCommand.class, "ERR_heap_InvalidArgument", token));
+                }
+            }
+            histogram.setAutoSnapshot(auto);
+            writer.println(NbBundle.getMessage(HeapCommand.class,
+                    auto ? "CTL_heap_AutoOn" : "CTL_heap_AutoOff"));
+        } else if (subcmd.equals("clear")) {
+            arguments.nextToken();
+            histogram.clear();
+            writer.println(NbBundle.getMessage(HeapCommand.class,
+                    "CTL_heap_Cleared"));
+        } else {
+            if (subcmd.equals("snapshot")) {
+                arguments.nextToken();
+            }
+            int limit = parseCount(arguments);
+            HeapSnapshot latest;
+            try {
+                latest = histogram.takeSnapshot(null);
+            } catch (UnsupportedOperationException uoe) {
+                throw new CommandException(NbBundle.getMessage(
+                        HeapCommand.class, "ERR_heap_Unsupported"), uoe);
+            }
+            List<ClassCount> counts = latest.getCounts(histogram.getPrevious());
+            show(histogram, latest, counts, writer, limit);
+        }
+    }
+
+    /**
+     * Parses the optional row count argument.
+     *
+     * @param  arguments  command arguments.
+     * @return  number of rows to show.
+     * @throws  CommandException
+     *          if the argument is not a number.
+     */
+    private static int parseCount(CommandArguments arguments)
+            throws CommandException {
+        if (!arguments.hasMoreTokens()) {
+            return DEFAULT_COUNT;
+        }
+        String token = arguments.nextToken();
+        try {
+            return Integer.parseInt(token);
+        } catch (NumberFormatException nfe) {
+            throw new CommandException(NbBundle.getMessage(
+                    HeapCommand.class, "ERR_heap_InvalidArgument", token));
+        }
+    }
+
+    @Override
+    public boolean requiresDebuggee() {
+        return true;
+    }
+
+    /**
+     * Displays the first rows of a heap histogram.
+     *
+     * @param  histogram  the heap histogram.
+     * @param  snapshot   the snapshot being shown.
+     * @param  counts     rows of the histogram, in display order.
+     * @param  writer     where the rows are written.
+     * @param  limit      maximum number of rows to show.
+     */
+    private static void show(HeapHistogram histogram, HeapSnapshot snapshot,
+            List<ClassCount> counts, PrintWriter writer, int limit) {
+        writer.println(NbBundle.getMessage(HeapCommand.class, "CTL_heap_Header"));
+        int rows = Math.min(limit, counts.size());
+        for (int ii = 0; ii < rows; ii++) {
+            ClassCount cc = counts.get(ii);
+            writer.println(String.format("%12d %+10d  %s", cc.getCount(),
+                    cc.getChange(), cc.getName()));
+        }
+        List<HeapSnapshot> snapshots = histogram.getSnapshots();
+        writer.println(NbBundle.getMessage(HeapCommand.class,
+                "CTL_heap_Summary", String.valueOf(snapshot.getTotal()),
+                String.valueOf(counts.size()),
+                String.valueOf(snapshots.indexOf(snapshot) + 1),
+                String.valueOf(snapshots.size())));
+    }
+
+    /**
+     * Displays the instance counts of the named class in each of the
+     * retained snapshots.
+     *
+     * @param  histogram  the heap histogram.
+     * @param  name       class name, or the simple name of the class.
+     * @param  writer     where the counts are written.
+     * @throws  CommandException
+     *          if no such class is found.
+     */
+    private static void trend(HeapHistogram histogram, String name,
+            PrintWriter writer) throws CommandException {
+        List<HeapSnapshot> snapshots = histogram.getSnapshots();
+        if (snapshots.isEmpty()) {
+            throw new CommandException(NbBundle.getMessage(
+                    HeapCommand.class, "ERR_heap_NoSnapshot"));
+        }
+        HeapSnapshot latest = snapshots.get(snapshots.size() - 1);
+        String suffix = '.' + name;
+        boolean found = false;
+        for (int index = 0; index < latest.getClassCount(); index++) {
+            String cname = latest.getName(index);
+            if (!cname.equals(name) && !cname.endsWith(suffix)) {
+                continue;
+            }
+            found = true;
+            writer.println(NbBundle.getMessage(HeapCommand.class,
+                    "CTL_heap_TrendHeader", cname));
+            for (HeapSnapshot snapshot : snapshots) {
+                String label = snapshot.getLabel() == null ? ""
+                        : snapshot.getLabel();
+                writer.println(String.format("%12d  %tT  %s",
+                        snapshot.getCount(index),
+                        new Date(snapshot.getTime()), label));
+            }
+        }
+        if (!found) {
+            throw new CommandException(NbBundle.getMessage(
+                    HeapCommand.class, "ERR_heap_NoClass", name));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.command.commands;
+
+import com.bluemarsh.jswat.command.AbstractCommand;
+import com.bluemarsh.jswat.command.CommandArguments;
+import com.bluemarsh.jswat.command.CommandContext;
+import com.bluemarsh.jswat.command.CommandException;
+import com.bluemarsh.jswat.command.MissingArgumentsException;
+import com.bluemarsh.jswat.core.hotswap.HotSwapProvider;
+import com.bluemarsh.jswat.core.hotswap.HotSwapResult;
+import com.bluemarsh.jswat.core.hotswap.HotSwapWatcher;
+import com.bluemarsh.jswat.core.session.Session;
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import org.openide.util.NbBundle;
+
+/**
+ * Watches the class directories and redefines classes as they change.
+ *
+ * @author  Nathan Fiedler
+ */
+public class HotSwapCommand extends AbstractCommand {
+
+    @Override
+    public String getName() {
+        return "hotswap";
+    }
+
+    @Override
+    public void perform(CommandContext context, CommandArguments arguments)
+            throws CommandException, MissingArgumentsException {
+
+        PrintWriter writer = context.getWriter();
+        Session session = context.getSession();
+        HotSwapWatcher watcher = HotSwapProvider.getHotSwapWatcher(session);
+        String subcmd = arguments.hasMoreTokens() ? arguments.nextToken() : "status";
+        if (subcmd.equals("watch")) {
+            if (!session.isConnected()) {
+                throw new CommandException(NbBundle.getMessage(
+                        HotSwapCommand.class, "ERR_hotswap_NotConnected"));
+            }
+            if (watcher.isWatching()) {
+                throw new CommandException(NbBundle.getMessage(
+                        HotSwapCommand.class, "ERR_hotswap_Watching"));
+            }
+            List<File> dirs = null;
+            if (arguments.hasMoreTokens()) {
+                dirs = new ArrayList<File>();
+                while (arguments.hasMoreTokens()) {
+                    String token = arguments.nextToken();
+                    File dir = new File(token);
+                    if (!dir.isDirectory()) {
+                        throw new CommandException(NbBundle.getMessage(
+                                HotSwapCommand.class, "ERR_hotswap_NotDirectory",
+                                token));
+                    }
+                    dirs.add(dir);
+                }
+            }
+            try {
+                watcher.start(dirs);
+            } catch (UnsupportedOperationException uoe) {
+                throw new CommandException(NbBundle.getMessage(
+                        HotSwapCommand.class, "ERR_hotswap_Unsupported"));
+            }
+            status(watcher, writer);
+        } else if (subcmd.equals("stop")) {
+            if (!watcher.isWatching()) {
+                throw new CommandException(NbBundle.getMessage(
+                        HotSwapCommand.class, "ERR_hotswap_NotWatching"));
+            }
+            watcher.stop();
+            writer.println(NbBundle.getMessage(HotSwapCommand.class,
+                    "CTL_hotswap_Stopped"));
+        } else if (subcmd.equals("status")) {
+            status(watcher, writer);
+        } else {
+            throw new CommandException(NbBundle.getMessage(
+                    HotSwapCommand.class, "ERR_hotswap_InvalidArgument", subcmd));
+        }
+    }
+
+    /**
+     * Displays the watched directories and the outcome of the most
+     * recent redefinition.
+     *
+     * @param  watcher  the hot swap watcher.
+     * @param  writer   where the status is written.
+     */
+    private static void status(HotSwapWatcher watcher, PrintWriter writer) {
+        if (!watcher.isWatching()) {
+            writer.println(NbBundle.getMessage(HotSwapCommand.class,
+                    "CTL_hotswap_NotWatching"));
+        } else {
+            List<File> dirs = watcher.getDirectories();
+            if (dirs.isEmpty()) {
+                writer.println(NbBundle.getMessage(HotSwapCommand.class,
+                        "CTL_hotswap_NoDirectories"));
+            }
+            for (File dir : dirs) {
+                writer.println(NbBundle.getMessage(HotSwapCommand.class,
+                        "CTL_hotswap_Watching", dir));
+            }
+        }
+        List<HotSwapResult> results = watcher.getResults();
+        if (!results.isEmpty()) {
+            writer.println(NbBundle.getMessage(HotSwapCommand.class,
+                    "CTL_hotswap_Results"));
+            for (HotSwapResult result : results) {
+                writer.println("  " + result);
+            }
+        }
+    }
+}
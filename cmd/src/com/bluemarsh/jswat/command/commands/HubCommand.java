@@ -0,0 +1,259 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.command.commands;
+
+import com.bluemarsh.jswat.command.AbstractCommand;
+import com.bluemarsh.jswat.command.AmbiguousMatchException;
+import com.bluemarsh.jswat.command.Command;
+import com.bluemarsh.jswat.command.CommandArguments;
+import com.bluemarsh.jswat.command.CommandContext;
+import com.bluemarsh.jswat.command.CommandException;
+import com.bluemarsh.jswat.command.CommandParser;
+import com.bluemarsh.jswat.command.MissingArgumentsException;
+import com.bluemarsh.jswat.core.connect.ListeningHub;
+import com.bluemarsh.jswat.core.connect.NoListeningConnectorException;
+import com.bluemarsh.jswat.core.context.ContextProvider;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.connect.IllegalConnectorArgumentsException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import org.openide.util.NbBundle;
+
+/**
+ * Accepts any number of debuggees on one address, each in its own session,
+ * and operates on those sessions as a group.
+ *
+ * @author  Nathan Fiedler
+ */
+public class HubCommand extends AbstractCommand {
+
+    @Override
+    public String getName() {
+        return "hub";
+    }
+
+    @Override
+    public void perform(CommandContext context, CommandArguments arguments)
+            throws CommandException, MissingArgumentsException {
+
+        PrintWriter writer = context.getWriter();
+        ListeningHub hub = ListeningHub.getDefault();
+        String subcmd = arguments.hasMoreTokens() ? arguments.nextToken() : "list";
+        if (subcmd.equals("listen")) {
+            if (!arguments.hasMoreTokens()) {
+                throw new MissingArgumentsException();
+            }
+            if (hub.isListening()) {
+                throw new CommandException(NbBundle.getMessage(
+                        HubCommand.class, "ERR_hub_Listening", hub.getAddress()));
+            }
+            listen(hub, arguments.nextToken(), context.getSession(), writer);
+        } else if (subcmd.equals("stop")) {
+            if (!hub.isListening()) {
+                throw new CommandException(NbBundle.getMessage(
+                        HubCommand.class, "ERR_hub_NotListening"));
+            }
+            hub.stop();
+            writer.println(NbBundle.getMessage(HubCommand.class,
+                    "CTL_hub_Stopped"));
+        } else if (subcmd.equals("list")) {
+            list(hub, context.getSession(), writer);
+        } else if (subcmd.equals("focus")) {
+            if (!arguments.hasMoreTokens()) {
+                throw new MissingArgumentsException();
+            }
+            String id = arguments.nextToken();
+            Session session = findSession(hub, id);
+            SessionProvider.getSessionManager().setCurrent(session);
+        } else if (subcmd.equals("all")) {
+            if (!arguments.hasMoreTokens()) {
+                throw new MissingArgumentsException();
+            }
+            arguments.returnAsIs(true);
+            broadcast(hub, arguments.rest(), context.getParser(), writer);
+        } else {
+            throw new CommandException(NbBundle.getMessage(
+                    HubCommand.class, "ERR_hub_InvalidArgument", subcmd));
+        }
+    }
+
+    /**
+     * Invokes the command in each of the connected hub sessions. A failure
+     * in one session is reported and does not prevent the command from
+     * being invoked in the others.
+     *
+     * @param  hub     the listening hub.
+     * @param  input   the command and its arguments.
+     * @param  parser  the command parser.
+     * @param  writer  where output is written.
+     * @throws  CommandException
+     *          if the command is not found.
+     */
+    private static void broadcast(ListeningHub hub, String input,
+            CommandParser parser, PrintWriter writer) throws CommandException {
+        CommandArguments args = new CommandArguments(input);
+        String name = args.nextToken();
+        Command command;
+        try {
+            command = parser.findCommand(name);
+        } catch (AmbiguousMatchException ame) {
+            throw new CommandException(ame.getMessage());
+        }
+        if (command == null) {
+            throw new CommandException(NbBundle.getMessage(HubCommand.class,
+                    "ERR_hub_UnknownCommand", name));
+        }
+        int count = 0;
+        for (Session session : hub.getSessions()) {
+            if (!session.isConnected()) {
+                continue;
+            }
+            count++;
+            writer.println(NbBundle.getMessage(HubCommand.class,
+                    "CTL_hub_Session", session.getIdentifier(),
+                    session.getProperty(Session.PROP_SESSION_NAME)));
+            if (command.requiresThread()) {
+                ThreadReference thread = ContextProvider.getContext(
+                        session).getThread();
+                if (thread == null || !thread.isSuspended()) {
+                    writer.println(NbBundle.getMessage(HubCommand.class,
+                            "ERR_hub_NoThread"));
+                    continue;
+                }
+            }
+            args.reset();
+            args.nextToken();
+            try {
+                command.perform(new CommandContext(session, writer, parser), args);
+            } catch (MissingArgumentsException mae) {
+                throw mae;
+            } catch (CommandException ce) {
+                writer.println(ce.getMessage());
+            }
+        }
+        if (count == 0) {
+            writer.println(NbBundle.getMessage(HubCommand.class,
+                    "CTL_hub_NoSessions"));
+        }
+    }
+
+    /**
+     * Finds the hub session with the given identifier.
+     *
+     * @param  hub  the listening hub.
+     * @param  id   session identifier.
+     * @return  the session.
+     * @throws  CommandException
+     *          if there is no such hub session.
+     */
+    private static Session findSession(ListeningHub hub, String id)
+            throws CommandException {
+        for (Session session : hub.getSessions()) {
+            if (session.getIdentifier().equals(id)) {
+                return session;
+            }
+        }
+        throw new CommandException(NbBundle.getMessage(HubCommand.class,
+                "ERR_hub_UnknownSession", id));
+    }
+
+    /**
+     * Lists the sessions created by the hub.
+     *
+     * @param  hub      the listening hub.
+     * @param  current  the current session.
+     * @param  writer   where output is written.
+     */
+    private static void list(ListeningHub hub, Session current,
+            PrintWriter writer) {
+        if (hub.isListening()) {
+            writer.println(NbBundle.getMessage(HubCommand.class,
+                    "CTL_hub_ListeningOn", hub.getAddress()));
+        } else {
+            writer.println(NbBundle.getMessage(HubCommand.class,
+                    "CTL_hub_NotListening"));
+        }
+        List<Session> sessions = hub.getSessions();
+        if (sessions.isEmpty()) {
+            writer.println(NbBundle.getMessage(HubCommand.class,
+                    "CTL_hub_NoSessions"));
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Session session : sessions) {
+            sb.append(current.equals(session) ? "* [" : "  [");
+            sb.append(session.getIdentifier());
+            sb.append(", ");
+            sb.append(session.getProperty(Session.PROP_SESSION_NAME));
+            sb.append("] <");
+            sb.append(session.getState());
+            sb.append(">\n");
+        }
+        writer.print(sb.toString());
+    }
+
+    /**
+     * Starts the hub listening on the given address.
+     *
+     * @param  hub       the listening hub.
+     * @param  address   [host:]port or shared memory name.
+     * @param  template  session from which new sessions are copied.
+     * @param  writer    where output is written.
+     * @throws  CommandException
+     *          if the hub could not start listening.
+     */
+    private static void listen(ListeningHub hub, String address,
+            Session template, PrintWriter writer) throws CommandException {
+        String transport;
+        String host = null;
+        String addr = address;
+        int colon = address.indexOf(':');
+        if (colon >= 0) {
+            host = address.substring(0, colon);
+            addr = address.substring(colon + 1);
+            transport = "dt_socket";
+        } else {
+            try {
+                Integer.parseInt(address);
+                transport = "dt_socket";
+            } catch (NumberFormatException nfe) {
+                transport = "dt_shmem";
+            }
+        }
+        try {
+            String actual = hub.start(transport, host, addr, template);
+            writer.println(NbBundle.getMessage(HubCommand.class,
+                    "CTL_hub_ListeningOn", actual));
+        } catch (IllegalConnectorArgumentsException icae) {
+            throw new CommandException(NbBundle.getMessage(
+                    HubCommand.class, "ERR_hub_BadConnectorArgs"), icae);
+        } catch (IOException ioe) {
+            throw new CommandException(NbBundle.getMessage(
+                    HubCommand.class, "ERR_hub_IOError", ioe.getMessage()), ioe);
+        } catch (NoListeningConnectorException nlce) {
+            throw new CommandException(NbBundle.getMessage(
+                    HubCommand.class, "ERR_hub_NoListening", transport), nlce);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.command.commands;
+
+import com.bluemarsh.jswat.command.AbstractCommand;
+import com.bluemarsh.jswat.command.CommandArguments;
+import com.bluemarsh.jswat.command.CommandContext;
+import com.bluemarsh.jswat.command.CommandException;
+import com.bluemarsh.jswat.command.MissingArgumentsException;
+import com.bluemarsh.jswat.core.breakpoint.BreakpointProvider;
+import com.bluemarsh.jswat.core.breakpoint.HitJournal;
+import com.bluemarsh.jswat.core.session.Session;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import org.openide.util.NbBundle;
+
+/**
+ * Records breakpoint hits in a journal file and displays the recent hits.
+ *
+ * @author  Nathan Fiedler
+ */
+public class JournalCommand extends AbstractCommand {
+    /** Number of lines shown by tail when no count is given. */
+    private static final int DEFAULT_TAIL = 10;
+
+    @Override
+    public String getName() {
+        return "journal";
+    }
+
+    @Override
+    public void perform(CommandContext context, CommandArguments arguments)
+            throws CommandException, MissingArgumentsException {
+
+        PrintWriter writer = context.getWriter();
+        Session session = context.getSession();
+        HitJournal journal = BreakpointProvider.getHitJournal(session);
+        String subcmd = arguments.hasMoreTokens() ? arguments.nextToken() : "status";
+        if (subcmd.equals("start")) {
+            File file;
+            if (arguments.hasMoreTokens()) {
+                file = new File(arguments.rest());
+            } else {
+                file = new File(System.getProperty("user.dir"),
+                        "jswat-" + session.getIdentifier() + "-hits.jsonl");
+            }
+            try {
+                journal.start(file);
+            } catch (IOException ioe) {
+                throw new CommandException(NbBundle.getMessage(
+                        JournalCommand.class, "ERR_journal_Open",
+                        file, ioe.getMessage()), ioe);
+            }
+            status(journal, writer);
+        } else if (subcmd.equals("stop")) {
+            if (!journal.isEnabled()) {
+                throw new CommandException(NbBundle.getMessage(
+                        JournalCommand.class, "ERR_journal_NotJournaling"));
+            }
+            journal.stop();
+            writer.println(NbBundle.getMessage(JournalCommand.class,
+                    "CTL_journal_Stopped", journal.getFile()));
+        } else if (subcmd.equals("status")) {
+            status(journal, writer);
+        } else if (subcmd.equals("tail")) {
+            File file = journal.getFile();
+            if (file == null) {
+                throw new CommandException(NbBundle.getMessage(
+                        JournalCommand.class, "ERR_journal_NoFile"));
+            }
+            int count = DEFAULT_TAIL;
+            if (arguments.hasMoreTokens()) {
+                try {
+                    count = Integer.parseInt(arguments.peek());
+                    arguments.nextToken();
+                } catch (NumberFormatException nfe) {
+                    // Not a count, must be the filter.
+                }
+            }
+            String filter = arguments.hasMoreTokens() ? arguments.rest() : null;
+            // Make sure the most recent hits are in the file.
+            journal.flush();
+            List<String> lines;
+            try {
+                lines = HitJournal.tail(file, count, filter);
+            } catch (IOException ioe) {
+                throw new CommandException(NbBundle.getMessage(
+                        JournalCommand.class, "ERR_journal_Read",
+                        file, ioe.getMessage()), ioe);
+            }
+            if (lines.isEmpty()) {
+                writer.println(NbBundle.getMessage(JournalCommand.class,
+                        "CTL_journal_NoHits"));
+            }
+            for (String line : lines) {
+                writer.println(line);
+            }
+        } else {
+            throw new CommandException(NbBundle.getMessage(
+                    JournalCommand.class, "ERR_journal_InvalidArgument", subcmd));
+        }
+    }
+
+    /**
+     * Displays the journal file and the number of hits written to it.
+     *
+     * @param  journal  the hit journal.
+     * @param  writer   where the status is written.
+     */
+    private static void status(HitJournal journal, PrintWriter writer) {
+        if (journal.isEnabled()) {
+            writer.println(NbBundle.getMessage(JournalCommand.class,
+                    "CTL_journal_Journaling", journal.getFile(),
+                    String.valueOf(journal.getWritten()),
+                    String.valueOf(journal.getDropped())));
+        } else {
+            writer.println(NbBundle.getMessage(JournalCommand.class,
+                    "CTL_journal_NotJournaling"));
+        }
+    }
+}
@@ -30,6 +30,7 @@ import com.bluemarsh.jswat.command.CommandException;
 import com.bluemarsh.jswat.command.MissingArgumentsException;
 import com.bluemarsh.jswat.core.context.ContextProvider;
 import com.bluemarsh.jswat.core.context.DebuggingContext;
+import com.bluemarsh.jswat.core.context.SuspensionSnapshot;
 import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.util.Names;
 import com.bluemarsh.jswat.core.util.Strings;
@@ -151,9 +152,14 @@ public class LocalsCommand extends AbstractCommand {
         }
 
         // Get the stack frame.
+        if (thread == null) {
+            throw new CommandException(NbBundle.getMessage(
+                    LocalsCommand.class, "ERR_NoThread"));
+        }
+        SuspensionSnapshot snapshot = dc.getSnapshot();
         StackFrame frame;
         try {
-            frame = thread.frame(frameIdx);
+            frame = snapshot.getFrame(frameIdx);
         } catch (IncompatibleThreadStateException itse) {
             throw new CommandException(NbBundle.getMessage(
                     LocalsCommand.class, "ERR_ThreadNotSuspended"));
@@ -171,11 +177,20 @@ public class LocalsCommand extends AbstractCommand {
 
         // Get the list of visible variables, including fields.
         Map vars;
+        Map<LocalVariable, Value> values;
+        Map<Field, Value> fieldValues;
         try {
             vars = getVariables(frame);
+            // Fetch the variable and field values in as few requests as
+            // possible (and possibly none, if already prefetched).
+            values = snapshot.getValues(frameIdx);
+            fieldValues = snapshot.getFieldValues(frameIdx);
         } catch (AbsentInformationException aie) {
             throw new CommandException(NbBundle.getMessage(
                     LocalsCommand.class, "ERR_NoVariableInfo"));
+        } catch (IncompatibleThreadStateException itse) {
+            throw new CommandException(NbBundle.getMessage(
+                    LocalsCommand.class, "ERR_ThreadNotSuspended"));
         } catch (InvalidStackFrameException isfe) {
             throw new CommandException(NbBundle.getMessage(
                     LocalsCommand.class, "ERR_ThreadNotSuspended"));
@@ -207,7 +222,7 @@ public class LocalsCommand extends AbstractCommand {
                     sb.append("  ");
                 }
                 // Fetch the local variable value.
-                val = frame.getValue(var);
+                val = values.get(var);
 
                 // Print the variable's type name.
                 // Value.type().name() returns actual type name.
@@ -219,11 +234,14 @@ public class LocalsCommand extends AbstractCommand {
                 Field field = (Field) o;
                 if (field.isStatic()) {
                     sb.append(": ");
-                    val = clazz.getValue(field);
+                    val = fieldValues.containsKey(field)
+                            ? fieldValues.get(field) : clazz.getValue(field);
                 } else {
                     sb.append(". ");
                     if (thisObj != null) {
-                        val = thisObj.getValue(field);
+                        val = fieldValues.containsKey(field)
+                                ? fieldValues.get(field)
+                                : thisObj.getValue(field);
                     }
                 }
 
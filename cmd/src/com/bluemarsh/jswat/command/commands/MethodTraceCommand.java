@@ -32,16 +32,37 @@ import com.bluemarsh.jswat.core.breakpoint.BreakpointFactory;
 import com.bluemarsh.jswat.core.breakpoint.BreakpointManager;
 import com.bluemarsh.jswat.core.breakpoint.BreakpointProvider;
 import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.trace.CallTree;
+import com.bluemarsh.jswat.core.trace.MethodProfile;
+import com.bluemarsh.jswat.core.trace.TraceConsumer;
+import com.bluemarsh.jswat.core.trace.TraceFileReader;
+import com.bluemarsh.jswat.core.trace.TraceFileWriter;
+import com.bluemarsh.jswat.core.trace.TraceProvider;
+import com.bluemarsh.jswat.core.trace.TraceRecorder;
+import com.bluemarsh.jswat.core.util.Threads;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.VirtualMachine;
 import com.sun.jdi.request.EventRequest;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
 import org.openide.util.NbBundle;
 
 /**
  * Creates trace breakpoints to monitor method entry and exit events.
+ * Also records method traces to a file, displays recorded traces, and
+ * reports the call tree profile of a recording.
  *
  * @author Nathan Fiedler
  */
 public class MethodTraceCommand extends AbstractCommand {
+    /** Default number of methods shown by 'trace hot'. */
+    private static final int DEFAULT_HOT_COUNT = 20;
 
     @Override
     public String getName() {
@@ -55,6 +76,36 @@ public class MethodTraceCommand extends AbstractCommand {
         Session session = context.getSession();
         PrintWriter writer = context.getWriter();
 
+        String subcmd = arguments.peek();
+        if (subcmd.equals("record")) {
+            arguments.nextToken();
+            if (!arguments.hasMoreTokens()) {
+                throw new MissingArgumentsException();
+            }
+            record(session, writer, arguments, new File(arguments.nextToken()));
+            return;
+        } else if (subcmd.equals("profile")) {
+            arguments.nextToken();
+            record(session, writer, arguments, null);
+            return;
+        } else if (subcmd.equals("hot")) {
+            arguments.nextToken();
+            hot(session, writer, arguments);
+            return;
+        } else if (subcmd.equals("collapsed")) {
+            arguments.nextToken();
+            collapsed(session, writer, arguments);
+            return;
+        } else if (subcmd.equals("stop")) {
+            arguments.nextToken();
+            stop(session, writer);
+            return;
+        } else if (subcmd.equals("dump")) {
+            arguments.nextToken();
+            dump(writer, arguments);
+            return;
+        }
+
         // Look for any optional arguments.
         int suspendPolicy = EventRequest.SUSPEND_ALL;
         boolean enter = true;
@@ -101,8 +152,332 @@ public class MethodTraceCommand extends AbstractCommand {
                 "CTL_trace_Added"));
     }
 
+    /**
+     * Writes the call tree in the collapsed stacks format.
+     *
+     * @param  session    current session.
+     * @param  writer     where messages are written.
+     * @param  arguments  output file name and optional trace file name.
+     * @throws  CommandException
+     *          if there is no call tree, or an I/O error occurs.
+     * @throws  MissingArgumentsException
+     *          if the output file name is missing.
+     */
+    private void collapsed(Session session, PrintWriter writer,
+            CommandArguments arguments)
+            throws CommandException, MissingArgumentsException {
+        if (!arguments.hasMoreTokens()) {
+            throw new MissingArgumentsException();
+        }
+        File output = new File(arguments.nextToken());
+        CallTree tree = getCallTree(session, arguments);
+        try {
+            Writer out = new BufferedWriter(new FileWriter(output));
+            try {
+                tree.writeCollapsed(out);
+            } finally {
+                out.close();
+            }
+        } catch (IOException ioe) {
+            throw new CommandException(NbBundle.getMessage(
+                    MethodTraceCommand.class, "ERR_trace_IOError",
+                    ioe.getMessage()), ioe);
+        }
+        writer.println(NbBundle.getMessage(MethodTraceCommand.class,
+                "CTL_trace_Collapsed", output.getAbsolutePath()));
+    }
+
+    /**
+     * Displays the contents of a trace file.
+     *
+     * @param  writer     where the trace is written.
+     * @param  arguments  file name and optional record limit.
+     * @throws  CommandException
+     *          if the file could not be read.
+     * @throws  MissingArgumentsException
+     *          if the file name is missing.
+     */
+    private void dump(PrintWriter writer, CommandArguments arguments)
+            throws CommandException, MissingArgumentsException {
+        if (!arguments.hasMoreTokens()) {
+            throw new MissingArgumentsException();
+        }
+        File file = new File(arguments.nextToken());
+        long limit = Long.MAX_VALUE;
+        if (arguments.hasMoreTokens()) {
+            String token = arguments.nextToken();
+            try {
+                limit = Long.parseLong(token);
+            } catch (NumberFormatException nfe) {
+                throw new CommandException(NbBundle.getMessage(
+                        MethodTraceCommand.class, "ERR_InvalidNumber", token));
+            }
+        }
+        TracePrinter printer = new TracePrinter(writer, limit);
+        try {
+            new TraceFileReader(file).read(printer);
+        } catch (IOException ioe) {
+            throw new CommandException(NbBundle.getMessage(
+                    MethodTraceCommand.class, "ERR_trace_IOError",
+                    ioe.getMessage()), ioe);
+        }
+        writer.println(NbBundle.getMessage(MethodTraceCommand.class,
+                "CTL_trace_DumpSummary", String.valueOf(printer.count),
+                String.valueOf(printer.methods.size()),
+                String.valueOf(printer.threads.size())));
+        if (printer.dropped > 0) {
+            writer.println(NbBundle.getMessage(MethodTraceCommand.class,
+                    "CTL_trace_Dropped", String.valueOf(printer.dropped)));
+        } else if (printer.dropped < 0) {
+            writer.println(NbBundle.getMessage(MethodTraceCommand.class,
+                    "CTL_trace_Truncated"));
+        }
+    }
+
+    /**
+     * Returns the call tree of the last recording, or that built from the
+     * trace file named in the arguments.
+     *
+     * @param  session    current session.
+     * @param  arguments  optional trace file name.
+     * @return  call tree.
+     * @throws  CommandException
+     *          if there is no call tree, or the file could not be read.
+     */
+    private CallTree getCallTree(Session session, CommandArguments arguments)
+            throws CommandException {
+        CallTree tree;
+        if (arguments.hasMoreTokens()) {
+            tree = new CallTree();
+            try {
+                new TraceFileReader(new File(arguments.nextToken())).read(tree);
+            } catch (IOException ioe) {
+                throw new CommandException(NbBundle.getMessage(
+                        MethodTraceCommand.class, "ERR_trace_IOError",
+                        ioe.getMessage()), ioe);
+            }
+        } else {
+            tree = TraceProvider.getTraceRecorder(session).getCallTree();
+            if (tree == null) {
+                throw new CommandException(NbBundle.getMessage(
+                        MethodTraceCommand.class, "ERR_trace_NoProfile"));
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * Displays the methods in which the most time was spent.
+     *
+     * @param  session    current session.
+     * @param  writer     where the methods are written.
+     * @param  arguments  optional count and trace file name.
+     * @throws  CommandException
+     *          if there is no call tree, or the file could not be read.
+     */
+    private void hot(Session session, PrintWriter writer,
+            CommandArguments arguments) throws CommandException {
+        int count = DEFAULT_HOT_COUNT;
+        if (arguments.hasMoreTokens()) {
+            String token = arguments.peek();
+            try {
+                count = Integer.parseInt(token);
+                arguments.nextToken();
+            } catch (NumberFormatException nfe) {
+                // Must be the trace file name.
+            }
+        }
+        CallTree tree = getCallTree(session, arguments);
+        List<MethodProfile> list = tree.getHotMethods(count);
+        if (list.isEmpty()) {
+            writer.println(NbBundle.getMessage(MethodTraceCommand.class,
+                    "CTL_trace_NoMethods"));
+            return;
+        }
+        String format = "%10s %12s %12s  %s";
+        writer.println(String.format(format,
+                NbBundle.getMessage(MethodTraceCommand.class, "CTL_trace_Calls"),
+                NbBundle.getMessage(MethodTraceCommand.class, "CTL_trace_Self"),
+                NbBundle.getMessage(MethodTraceCommand.class, "CTL_trace_Total"),
+                NbBundle.getMessage(MethodTraceCommand.class, "CTL_trace_Method")));
+        for (MethodProfile mp : list) {
+            writer.println(String.format("%10d %12.3f %12.3f  %s",
+                    mp.getCount(), mp.getExclusiveTime() / 1000000.0,
+                    mp.getInclusiveTime() / 1000000.0, mp.getName()));
+        }
+        int threads = tree.getThreadCount();
+        for (int ii = 0; ii < threads; ii++) {
+            writer.println(NbBundle.getMessage(MethodTraceCommand.class,
+                    "CTL_trace_MaxDepth", tree.getThreadName(ii),
+                    String.valueOf(tree.getMaxDepth(ii))));
+        }
+    }
+
+    /**
+     * Starts recording method entry and exit events, optionally to a
+     * trace file; the call tree is always built.
+     *
+     * @param  session    current session.
+     * @param  writer     where messages are written.
+     * @param  arguments  optional filters.
+     * @param  file       trace file to be written, or null for none.
+     * @throws  CommandException
+     *          if the recording could not be started.
+     */
+    private void record(Session session, PrintWriter writer,
+            CommandArguments arguments, File file) throws CommandException {
+        if (!session.isConnected()) {
+            throw new CommandException(NbBundle.getMessage(
+                    MethodTraceCommand.class, "ERR_trace_NotConnected"));
+        }
+        TraceRecorder recorder = TraceProvider.getTraceRecorder(session);
+        if (recorder.isRecording()) {
+            throw new CommandException(NbBundle.getMessage(
+                    MethodTraceCommand.class, "ERR_trace_Recording"));
+        }
+        String cfilter = null;
+        ThreadReference thread = null;
+        while (arguments.hasMoreTokens()) {
+            String token = arguments.nextToken();
+            if (token.startsWith("c:")) {
+                cfilter = token.substring(2);
+            } else if (token.startsWith("t:")) {
+                String id = token.substring(2);
+                VirtualMachine vm = session.getConnection().getVM();
+                thread = Threads.findThread(vm, id);
+                if (thread == null) {
+                    throw new CommandException(NbBundle.getMessage(
+                            MethodTraceCommand.class, "ERR_ThreadNotFound", id));
+                }
+            } else {
+                throw new CommandException(NbBundle.getMessage(
+                        MethodTraceCommand.class, "ERR_trace_UnknownFilter", token));
+            }
+        }
+        if (file == null) {
+            recorder.start(cfilter, thread, null);
+            writer.println(NbBundle.getMessage(MethodTraceCommand.class,
+                    "CTL_trace_Profiling"));
+            return;
+        }
+        try {
+            recorder.start(cfilter, thread, new TraceFileWriter(file));
+        } catch (IOException ioe) {
+            throw new CommandException(NbBundle.getMessage(
+                    MethodTraceCommand.class, "ERR_trace_IOError",
+                    ioe.getMessage()), ioe);
+        }
+        writer.println(NbBundle.getMessage(MethodTraceCommand.class,
+                "CTL_trace_Recording", file.getAbsolutePath()));
+    }
+
     @Override
     public boolean requiresArguments() {
         return true;
     }
+
+    /**
+     * Stops recording method entry and exit events.
+     *
+     * @param  session  current session.
+     * @param  writer   where messages are written.
+     * @throws  CommandException
+     *          if not recording, or the trace file could not be written.
+     */
+    private void stop(Session session, PrintWriter writer)
+            throws CommandException {
+        TraceRecorder recorder = TraceProvider.getTraceRecorder(session);
+        if (!recorder.isRecording()) {
+            throw new CommandException(NbBundle.getMessage(
+                    MethodTraceCommand.class, "ERR_trace_NotRecording"));
+        }
+        try {
+            recorder.stop();
+        } catch (IOException ioe) {
+            throw new CommandException(NbBundle.getMessage(
+                    MethodTraceCommand.class, "ERR_trace_IOError",
+                    ioe.getMessage()), ioe);
+        }
+        writer.println(NbBundle.getMessage(MethodTraceCommand.class,
+                "CTL_trace_Stopped", String.valueOf(recorder.getRecordCount()),
+                String.valueOf(recorder.getDroppedCount())));
+    }
+
+    /**
+     * Prints the records of a trace file, indenting each according to the
+     * call depth within its thread.
+     */
+    private static class TracePrinter implements TraceConsumer {
+        /** Maximum indentation, in call levels. */
+        private static final int MAX_INDENT = 40;
+        /** Where the trace is written. */
+        private final PrintWriter writer;
+        /** Maximum number of records to print. */
+        private final long limit;
+        /** Method names, indexed by identifier. */
+        private final List<String> methods;
+        /** Thread names, indexed by identifier. */
+        private final List<String> threads;
+        /** Current call depth, indexed by thread identifier. */
+        private final List<Integer> depths;
+        /** Number of records read. */
+        private long count;
+        /** Number of records dropped during recording. */
+        private long dropped;
+
+        /**
+         * Constructs a new TracePrinter.
+         *
+         * @param  writer  where the trace is written.
+         * @param  limit   maximum number of records to print.
+         */
+        TracePrinter(PrintWriter writer, long limit) {
+            this.writer = writer;
+            this.limit = limit;
+            methods = new ArrayList<String>();
+            threads = new ArrayList<String>();
+            depths = new ArrayList<Integer>();
+        }
+
+        @Override
+        public void close(long dropped) {
+            this.dropped = dropped;
+        }
+
+        @Override
+        public void defineMethod(int id, String name) {
+            methods.add(name);
+        }
+
+        @Override
+        public void defineThread(int id, String name) {
+            threads.add(name);
+            depths.add(Integer.valueOf(0));
+        }
+
+        @Override
+        public void record(byte kind, int method, int thread, long time) {
+            count++;
+            int depth = depths.get(thread).intValue();
+            if (kind == METHOD_EXIT && depth > 0) {
+                depth--;
+            }
+            if (count <= limit) {
+                StringBuilder sb = new StringBuilder();
+                sb.append(String.format("%12.3f [", time / 1000000.0));
+                sb.append(threads.get(thread));
+                sb.append("] ");
+                for (int ii = Math.min(depth, MAX_INDENT); ii > 0; ii--) {
+                    sb.append("  ");
+                }
+                sb.append(kind == METHOD_ENTRY ? "> " : "< ");
+                sb.append(methods.get(method));
+                writer.println(sb.toString());
+            }
+            if (kind == METHOD_ENTRY) {
+                depth++;
+            }
+            depths.set(thread, Integer.valueOf(depth));
+        }
+    }
 }
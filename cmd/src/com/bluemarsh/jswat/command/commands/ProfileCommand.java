@@ -0,0 +1,274 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.command.commands;
+
+import com.bluemarsh.jswat.command.AbstractCommand;
+import com.bluemarsh.jswat.command.CommandArguments;
+import com.bluemarsh.jswat.command.CommandContext;
+import com.bluemarsh.jswat.command.CommandException;
+import com.bluemarsh.jswat.command.MissingArgumentsException;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.trace.MethodProfile;
+import com.bluemarsh.jswat.core.trace.SampleTree;
+import com.bluemarsh.jswat.core.trace.SamplingProfiler;
+import com.bluemarsh.jswat.core.trace.TraceProvider;
+import com.bluemarsh.jswat.core.util.Threads;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.VirtualMachine;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.List;
+import org.openide.util.NbBundle;
+
+/**
+ * Profiles the debuggee by periodically sampling the stacks of the
+ * running threads.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ProfileCommand extends AbstractCommand {
+    /** Default milliseconds between samples. */
+    private static final long DEFAULT_INTERVAL = 10;
+    /** Default number of frames captured in each sample. */
+    private static final int DEFAULT_DEPTH = 32;
+    /** Default number of methods shown. */
+    private static final int DEFAULT_COUNT = 20;
+
+    /**
+     * Writes the sampled stacks in the collapsed stacks format.
+     *
+     * @param  profiler   the sampling profiler.
+     * @param  writer     where messages are written.
+     * @param  arguments  output file name.
+     * @throws  CommandException
+     *          if there is no profile, or an I/O error occurs.
+     * @throws  MissingArgumentsException
+     *          if the output file name is missing.
+     */
+    private void collapsed(SamplingProfiler profiler, PrintWriter writer,
+            CommandArguments arguments)
+            throws CommandException, MissingArgumentsException {
+        if (!arguments.hasMoreTokens()) {
+            throw new MissingArgumentsException();
+        }
+        File output = new File(arguments.nextToken());
+        SampleTree tree = getSampleTree(profiler);
+        try {
+            Writer out = new BufferedWriter(new FileWriter(output));
+            try {
+                tree.writeCollapsed(out);
+            } finally {
+                out.close();
+            }
+        } catch (IOException ioe) {
+            throw new CommandException(NbBundle.getMessage(
+                    ProfileCommand.class, "ERR_profile_IOError",
+                    ioe.getMessage()), ioe);
+        }
+        writer.println(NbBundle.getMessage(ProfileCommand.class,
+                "CTL_profile_Collapsed", output.getAbsolutePath()));
+    }
+
+    @Override
+    public String getName() {
+        return "profile";
+    }
+
+    /**
+     * Returns the sample tree of the current or last profile.
+     *
+     * @param  profiler  the sampling profiler.
+     * @return  sample tree.
+     * @throws  CommandException
+     *          if nothing has been profiled.
+     */
+    private SampleTree getSampleTree(SamplingProfiler profiler)
+            throws CommandException {
+        SampleTree tree = profiler.getSampleTree();
+        if (tree == null) {
+            throw new CommandException(NbBundle.getMessage(
+                    ProfileCommand.class, "ERR_profile_NoProfile"));
+        }
+        return tree;
+    }
+
+    /**
+     * Parses the given token as a positive number.
+     *
+     * @param  token  token to parse.
+     * @return  the number.
+     * @throws  CommandException
+     *          if the token is not a positive number.
+     */
+    private static int parsePositive(String token) throws CommandException {
+        try {
+            int value = Integer.parseInt(token);
+            if (value > 0) {
+                return value;
+            }
+        } catch (NumberFormatException nfe) {
+            // Fall through to the error.
+        }
+        throw new CommandException(NbBundle.getMessage(
+                ProfileCommand.class, "ERR_profile_InvalidNumber", token));
+    }
+
+    @Override
+    public void perform(CommandContext context, CommandArguments arguments)
+            throws CommandException, MissingArgumentsException {
+
+        PrintWriter writer = context.getWriter();
+        Session session = context.getSession();
+        SamplingProfiler profiler = TraceProvider.getSamplingProfiler(session);
+        String subcmd = arguments.hasMoreTokens() ? arguments.nextToken() : "show";
+        if (subcmd.equals("start")) {
+            start(session, profiler, writer, arguments);
+        } else if (subcmd.equals("stop")) {
+            if (!profiler.isProfiling()) {
+                throw new CommandException(NbBundle.getMessage(
+                        ProfileCommand.class, "ERR_profile_NotProfiling"));
+            }
+            profiler.stop();
+            showStatistics(profiler, writer);
+        } else if (subcmd.equals("show")) {
+            int count = DEFAULT_COUNT;
+            if (arguments.hasMoreTokens()) {
+                count = parsePositive(arguments.nextToken());
+            }
+            show(profiler, writer, count);
+        } else if (subcmd.equals("collapsed")) {
+            collapsed(profiler, writer, arguments);
+        } else {
+            throw new CommandException(NbBundle.getMessage(
+                    ProfileCommand.class, "ERR_profile_Subcommand", subcmd));
+        }
+    }
+
+    /**
+     * Displays the methods in which the most samples were taken, followed
+     * by the sampling statistics.
+     *
+     * @param  profiler  the sampling profiler.
+     * @param  writer    where the methods are written.
+     * @param  count     maximum number of methods to show.
+     * @throws  CommandException
+     *          if nothing has been profiled.
+     */
+    private void show(SamplingProfiler profiler, PrintWriter writer,
+            int count) throws CommandException {
+        SampleTree tree = getSampleTree(profiler);
+        List<MethodProfile> list = tree.getHotMethods(count);
+        if (list.isEmpty()) {
+            writer.println(NbBundle.getMessage(ProfileCommand.class,
+                    "CTL_profile_NoSamples"));
+        } else {
+            writer.println(String.format("%10s %12s %12s  %s",
+                    NbBundle.getMessage(ProfileCommand.class, "CTL_profile_Samples"),
+                    NbBundle.getMessage(ProfileCommand.class, "CTL_profile_Self"),
+                    NbBundle.getMessage(ProfileCommand.class, "CTL_profile_Total"),
+                    NbBundle.getMessage(ProfileCommand.class, "CTL_profile_Method")));
+            for (MethodProfile mp : list) {
+                writer.println(String.format("%10d %12.1f %12.1f  %s",
+                        mp.getCount(), mp.getExclusiveTime() / 1000000.0,
+                        mp.getInclusiveTime() / 1000000.0, mp.getName()));
+            }
+        }
+        showStatistics(profiler, writer);
+    }
+
+    /**
+     * Displays the number of samples and the cost of taking them.
+     *
+     * @param  profiler  the sampling profiler.
+     * @param  writer    where the statistics are written.
+     */
+    private void showStatistics(SamplingProfiler profiler, PrintWriter writer) {
+        SampleTree tree = profiler.getSampleTree();
+        long passes = profiler.getPassCount();
+        long elapsed = profiler.getElapsedTime();
+        long overhead = profiler.getOverheadTime();
+        long suspend = profiler.getSuspendTime();
+        writer.println(NbBundle.getMessage(ProfileCommand.class,
+                "CTL_profile_Statistics", String.valueOf(tree.getSampleCount()),
+                String.valueOf(passes), String.valueOf(tree.getThreadCount()),
+                String.valueOf(profiler.getSkippedCount()),
+                String.format("%.1f", elapsed / 1000000000.0)));
+        double percent = elapsed == 0 ? 0.0 : overhead * 100.0 / elapsed;
+        double perPass = passes == 0 ? 0.0 : suspend / 1000000.0 / passes;
+        writer.println(NbBundle.getMessage(ProfileCommand.class,
+                "CTL_profile_Overhead", String.format("%.1f", percent),
+                String.format("%.1f", suspend / 1000000.0),
+                String.format("%.3f", perPass)));
+    }
+
+    /**
+     * Starts sampling the debuggee.
+     *
+     * @param  session    current session.
+     * @param  profiler   the sampling profiler.
+     * @param  writer     where messages are written.
+     * @param  arguments  optional interval, depth, thread and mode.
+     * @throws  CommandException
+     *          if the profile could not be started.
+     */
+    private void start(Session session, SamplingProfiler profiler,
+            PrintWriter writer, CommandArguments arguments)
+            throws CommandException {
+        if (!session.isConnected()) {
+            throw new CommandException(NbBundle.getMessage(
+                    ProfileCommand.class, "ERR_profile_NotConnected"));
+        }
+        if (profiler.isProfiling()) {
+            throw new CommandException(NbBundle.getMessage(
+                    ProfileCommand.class, "ERR_profile_Profiling"));
+        }
+        long interval = DEFAULT_INTERVAL;
+        int depth = DEFAULT_DEPTH;
+        ThreadReference thread = null;
+        boolean suspendAll = false;
+        while (arguments.hasMoreTokens()) {
+            String token = arguments.nextToken();
+            if (token.startsWith("d:")) {
+                depth = parsePositive(token.substring(2));
+            } else if (token.startsWith("t:")) {
+                String id = token.substring(2);
+                VirtualMachine vm = session.getConnection().getVM();
+                thread = Threads.findThread(vm, id);
+                if (thread == null) {
+                    throw new CommandException(NbBundle.getMessage(
+                            ProfileCommand.class, "ERR_ThreadNotFound", id));
+                }
+            } else if (token.equals("all")) {
+                suspendAll = true;
+            } else {
+                interval = parsePositive(token);
+            }
+        }
+        profiler.start(interval, depth, thread, suspendAll);
+        writer.println(NbBundle.getMessage(ProfileCommand.class,
+                "CTL_profile_Started", String.valueOf(interval),
+                String.valueOf(depth)));
+    }
+}
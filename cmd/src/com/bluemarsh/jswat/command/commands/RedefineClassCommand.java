@@ -28,6 +28,7 @@ import com.bluemarsh.jswat.command.CommandArguments;
 import com.bluemarsh.jswat.command.CommandContext;
 import com.bluemarsh.jswat.command.CommandException;
 import com.bluemarsh.jswat.command.MissingArgumentsException;
+import com.bluemarsh.jswat.core.breakpoint.RedefinitionResolver;
 import com.bluemarsh.jswat.core.path.PathEntry;
 import com.bluemarsh.jswat.core.path.PathManager;
 import com.bluemarsh.jswat.core.path.PathProvider;
@@ -40,6 +41,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
+import java.util.Collections;
 import java.util.List;
 import org.openide.util.NbBundle;
 
@@ -114,6 +116,8 @@ public class RedefineClassCommand extends AbstractCommand {
         }
         writer.println(NbBundle.getMessage(RedefineClassCommand.class,
                 "CTL_redefine_Redefined"));
+        RedefinitionResolver.classesRedefined(session,
+                Collections.singletonList(clazz));
     }
 
     @Override
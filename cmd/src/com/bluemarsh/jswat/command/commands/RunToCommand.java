@@ -0,0 +1,146 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.command.commands;
+
+import com.bluemarsh.jswat.command.AbstractCommand;
+import com.bluemarsh.jswat.command.CommandArguments;
+import com.bluemarsh.jswat.command.CommandContext;
+import com.bluemarsh.jswat.command.CommandException;
+import com.bluemarsh.jswat.command.MissingArgumentsException;
+import com.bluemarsh.jswat.core.context.DebuggingContext;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.stepping.RunToLocation;
+import com.bluemarsh.jswat.core.stepping.SteppingException;
+import com.bluemarsh.jswat.core.stepping.SteppingProvider;
+import com.bluemarsh.jswat.core.util.Names;
+import com.bluemarsh.jswat.core.util.Strings;
+import com.bluemarsh.jswat.core.util.Threads;
+import com.sun.jdi.Location;
+import com.sun.jdi.ThreadReference;
+import java.util.Collections;
+import java.util.List;
+import org.openide.util.NbBundle;
+
+/**
+ * Resumes the debuggee until it reaches a line or method, without
+ * creating a breakpoint.
+ *
+ * @author  Nathan Fiedler
+ */
+public class RunToCommand extends AbstractCommand {
+
+    @Override
+    public String getName() {
+        return "runto";
+    }
+
+    @Override
+    public void perform(CommandContext context, CommandArguments arguments)
+            throws CommandException, MissingArgumentsException {
+
+        Session session = context.getSession();
+        ThreadReference thread = null;
+        if (!arguments.hasMoreTokens()) {
+            throw new MissingArgumentsException();
+        }
+        if (arguments.peek().startsWith("t:")) {
+            String id = arguments.nextToken().substring(2);
+            thread = Threads.findThread(session.getConnection().getVM(), id);
+            if (thread == null) {
+                throw new CommandException(NbBundle.getMessage(
+                        RunToCommand.class, "ERR_ThreadNotFound", id));
+            }
+        }
+        // Argument lists may contain spaces.
+        String spec = arguments.rest();
+
+        // Split apart the class and the line or method.
+        String cname = null;
+        int paren = spec.indexOf('(');
+        int colon = paren < 0 ? spec.lastIndexOf(':')
+                : spec.lastIndexOf(':', paren);
+        String target = spec;
+        if (colon > 0) {
+            cname = spec.substring(0, colon);
+            target = spec.substring(colon + 1);
+            if (!Names.isValidClassname(cname, false)) {
+                throw new CommandException(NbBundle.getMessage(
+                        RunToCommand.class, "ERR_MalformedClass", cname));
+            }
+        }
+        boolean isLine = paren < 0 && target.length() > 0
+                && Character.isDigit(target.charAt(0));
+        if (cname == null) {
+            // Default to the class at the current location.
+            DebuggingContext dc = context.getDebuggingContext();
+            Location location = dc.getLocation();
+            if (location == null) {
+                throw new CommandException(NbBundle.getMessage(
+                        RunToCommand.class, "ERR_runto_NoClass"));
+            }
+            cname = location.declaringType().name();
+            int dollar = cname.indexOf('$');
+            if (isLine && dollar > 0) {
+                // Nested classes are searched via the outer class.
+                cname = cname.substring(0, dollar);
+            }
+        }
+
+        RunToLocation runTo = SteppingProvider.getRunToLocation(session);
+        try {
+            if (isLine) {
+                int line;
+                try {
+                    line = Integer.parseInt(target);
+                } catch (NumberFormatException nfe) {
+                    throw new CommandException(NbBundle.getMessage(
+                            RunToCommand.class, "ERR_InvalidNumber", target));
+                }
+                runTo.runToLine(cname, line, thread);
+            } else {
+                String method = target;
+                List<String> args = Collections.emptyList();
+                if (paren >= 0) {
+                    int close = target.lastIndexOf(')');
+                    int open = target.indexOf('(');
+                    if (close < open) {
+                        throw new CommandException(NbBundle.getMessage(
+                                RunToCommand.class, "ERR_MalformedMethod", spec));
+                    }
+                    method = target.substring(0, open);
+                    args = Strings.stringToList(target.substring(open + 1, close));
+                }
+                if (!Names.isMethodIdentifier(method)) {
+                    throw new CommandException(NbBundle.getMessage(
+                            RunToCommand.class, "ERR_MalformedMethod", spec));
+                }
+                runTo.runToMethod(cname, method, args, thread);
+            }
+        } catch (SteppingException se) {
+            throw new CommandException(se.getMessage(), se);
+        }
+    }
+
+    @Override
+    public boolean requiresDebuggee() {
+        return true;
+    }
+}
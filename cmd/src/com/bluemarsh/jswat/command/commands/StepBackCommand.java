@@ -0,0 +1,170 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.command.commands;
+
+import com.bluemarsh.jswat.command.AbstractCommand;
+import com.bluemarsh.jswat.command.CommandArguments;
+import com.bluemarsh.jswat.command.CommandContext;
+import com.bluemarsh.jswat.command.CommandException;
+import com.bluemarsh.jswat.command.MissingArgumentsException;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.trace.ExecutionHistory;
+import com.bluemarsh.jswat.core.trace.ExecutionState;
+import com.bluemarsh.jswat.core.trace.TraceProvider;
+import java.io.PrintWriter;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import org.openide.util.NbBundle;
+
+/**
+ * Records the state of the debuggee at each stop, and displays the
+ * earlier states.
+ *
+ * @author  Nathan Fiedler
+ */
+public class StepBackCommand extends AbstractCommand {
+    /** Default number of states listed. */
+    private static final int DEFAULT_COUNT = 20;
+
+    @Override
+    public String getName() {
+        return "stepback";
+    }
+
+    /**
+     * Lists the most recent states, one line each.
+     *
+     * @param  history  execution history.
+     * @param  count    number of states to list.
+     * @param  writer   where the states are written.
+     */
+    private static void list(ExecutionHistory history, int count,
+            PrintWriter writer) {
+        List<ExecutionState> states = history.getStates();
+        if (states.isEmpty()) {
+            writer.println(NbBundle.getMessage(StepBackCommand.class,
+                    "CTL_stepback_None"));
+            return;
+        }
+        int start = Math.max(0, states.size() - count);
+        for (int ii = start; ii < states.size(); ii++) {
+            ExecutionState state = states.get(ii);
+            int back = states.size() - 1 - ii;
+            writer.println(String.format("%4d  %tT  %s  %s", back,
+                    new Date(state.getTime()), state.getThread(),
+                    state.getLocation()));
+        }
+    }
+
+    /**
+     * Parses a positive number from the given token.
+     *
+     * @param  token  token to parse.
+     * @return  the number.
+     * @throws  CommandException
+     *          if the token is not a positive number.
+     */
+    private static int parseNumber(String token) throws CommandException {
+        int n = -1;
+        try {
+            n = Integer.parseInt(token);
+        } catch (NumberFormatException nfe) {
+            // Fall through to the error.
+        }
+        if (n < 0) {
+            throw new CommandException(NbBundle.getMessage(
+                    StepBackCommand.class, "ERR_InvalidNumber", token));
+        }
+        return n;
+    }
+
+    @Override
+    public void perform(CommandContext context, CommandArguments arguments)
+            throws CommandException, MissingArgumentsException {
+
+        PrintWriter writer = context.getWriter();
+        Session session = context.getSession();
+        ExecutionHistory history = TraceProvider.getExecutionHistory(session);
+        String subcmd = arguments.hasMoreTokens() ? arguments.nextToken() : "1";
+        if (subcmd.equals("on")) {
+            if (arguments.hasMoreTokens()) {
+                int size = parseNumber(arguments.nextToken());
+                if (size == 0) {
+                    throw new CommandException(NbBundle.getMessage(
+                            StepBackCommand.class, "ERR_InvalidNumber", "0"));
+                }
+                history.setCapacity(size);
+            }
+            history.setEnabled(true);
+            writer.println(NbBundle.getMessage(StepBackCommand.class,
+                    "CTL_stepback_On", String.valueOf(history.getCapacity())));
+        } else if (subcmd.equals("off")) {
+            history.setEnabled(false);
+            writer.println(NbBundle.getMessage(StepBackCommand.class,
+                    "CTL_stepback_Off"));
+        } else if (subcmd.equals("clear")) {
+            history.clear();
+            writer.println(NbBundle.getMessage(StepBackCommand.class,
+                    "CTL_stepback_Cleared"));
+        } else if (subcmd.equals("list")) {
+            int count = DEFAULT_COUNT;
+            if (arguments.hasMoreTokens()) {
+                count = parseNumber(arguments.nextToken());
+            }
+            list(history, count, writer);
+        } else {
+            int back = parseNumber(subcmd);
+            ExecutionState state = history.getState(back);
+            if (state == null) {
+                String key = history.isEnabled() ? "ERR_stepback_NoState"
+                        : "ERR_stepback_Disabled";
+                throw new CommandException(NbBundle.getMessage(
+                        StepBackCommand.class, key, subcmd));
+            }
+            show(state, back, writer);
+        }
+    }
+
+    /**
+     * Displays the given state in full.
+     *
+     * @param  state   the state to show.
+     * @param  back    number of stops before the most recent.
+     * @param  writer  where the state is written.
+     */
+    private static void show(ExecutionState state, int back,
+            PrintWriter writer) {
+        writer.println(NbBundle.getMessage(StepBackCommand.class,
+                "CTL_stepback_Header", String.valueOf(back),
+                state.getLocation(), state.getThread()));
+        writer.println(NbBundle.getMessage(StepBackCommand.class,
+                "CTL_stepback_Locals"));
+        for (Map.Entry<String, String> entry : state.getLocals().entrySet()) {
+            writer.println("  " + entry.getKey() + " = " + entry.getValue());
+        }
+        writer.println(NbBundle.getMessage(StepBackCommand.class,
+                "CTL_stepback_Fields"));
+        for (Map.Entry<String, String> entry : state.getFields().entrySet()) {
+            writer.println("  " + entry.getKey() + " = " + entry.getValue());
+        }
+    }
+}
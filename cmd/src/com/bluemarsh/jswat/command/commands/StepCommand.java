@@ -32,9 +32,12 @@ import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.stepping.Stepper;
 import com.bluemarsh.jswat.core.stepping.SteppingException;
 import com.bluemarsh.jswat.core.stepping.SteppingProvider;
+import com.sun.jdi.request.StepRequest;
+import org.openide.util.NbBundle;
 
 /**
- * Performs a single step operation, stepping into method calls.
+ * Performs a single step operation, stepping into method calls, or a
+ * series of such steps.
  *
  * @author Nathan Fiedler
  */
@@ -57,6 +60,8 @@ public class StepCommand extends AbstractCommand {
                 String token = arguments.peek();
                 if (token.equals("out") || token.equals("up")) {
                     st.stepOut();
+                } else {
+                    stepRepeatedly(st, StepRequest.STEP_INTO, arguments);
                 }
             } else {
                 st.stepInto();
@@ -66,6 +71,47 @@ public class StepCommand extends AbstractCommand {
         }
     }
 
+    /**
+     * Performs a series of steps, as given by the arguments, which consist
+     * of a step count, the word 'until' and a condition, or both.
+     *
+     * @param  st         the stepper.
+     * @param  depth      how to step (one of the StepRequest constants).
+     * @param  arguments  the command arguments.
+     * @throws  CommandException
+     *          if the arguments are invalid.
+     * @throws  SteppingException
+     *          if the step operation failed.
+     */
+    static void stepRepeatedly(Stepper st, int depth,
+            CommandArguments arguments) throws CommandException,
+            SteppingException {
+        int count = 0;
+        String condition = null;
+        String token = arguments.nextToken();
+        if (!token.equals("until")) {
+            try {
+                count = Integer.parseInt(token);
+            } catch (NumberFormatException nfe) {
+                count = -1;
+            }
+            if (count <= 0) {
+                throw new CommandException(NbBundle.getMessage(
+                        StepCommand.class, "ERR_InvalidNumber", token));
+            }
+            token = arguments.hasMoreTokens() ? arguments.nextToken() : null;
+        }
+        if (token != null) {
+            if (!token.equals("until") || !arguments.hasMoreTokens()) {
+                throw new CommandException(NbBundle.getMessage(
+                        StepCommand.class, "ERR_step_Syntax"));
+            }
+            arguments.returnAsIs(true);
+            condition = arguments.rest();
+        }
+        st.stepRepeatedly(depth, count, condition);
+    }
+
     @Override
     public boolean requiresDebuggee() {
         return true;
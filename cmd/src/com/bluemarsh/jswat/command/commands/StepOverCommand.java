@@ -32,9 +32,11 @@ import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.stepping.Stepper;
 import com.bluemarsh.jswat.core.stepping.SteppingException;
 import com.bluemarsh.jswat.core.stepping.SteppingProvider;
+import com.sun.jdi.request.StepRequest;
 
 /**
- * Performs a single step operation, stepping over method calls.
+ * Performs a single step operation, stepping over method calls, or a
+ * series of such steps.
  *
  * @author Nathan Fiedler
  */
@@ -53,7 +55,11 @@ public class StepOverCommand extends AbstractCommand {
         Stepper st = SteppingProvider.getStepper(session);
 
         try {
-            st.stepOver();
+            if (arguments.hasMoreTokens()) {
+                StepCommand.stepRepeatedly(st, StepRequest.STEP_OVER, arguments);
+            } else {
+                st.stepOver();
+            }
         } catch (SteppingException se) {
             throw new CommandException(se);
         }
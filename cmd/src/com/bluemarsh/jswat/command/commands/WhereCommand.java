@@ -29,6 +29,7 @@ import com.bluemarsh.jswat.command.CommandContext;
 import com.bluemarsh.jswat.command.CommandException;
 import com.bluemarsh.jswat.command.MissingArgumentsException;
 import com.bluemarsh.jswat.core.context.DebuggingContext;
+import com.bluemarsh.jswat.core.context.SuspensionSnapshot;
 import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.util.Threads;
 import com.sun.jdi.AbsentInformationException;
@@ -40,7 +41,10 @@ import com.sun.jdi.StackFrame;
 import com.sun.jdi.ThreadReference;
 import com.sun.jdi.VirtualMachine;
 import java.io.PrintWriter;
+import java.util.Collections;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import org.openide.util.NbBundle;
 
 /**
@@ -50,10 +54,28 @@ import org.openide.util.NbBundle;
  */
 public class WhereCommand extends AbstractCommand {
 
+    /** Number of frames shown at the top of a deep stack. */
+    protected static final int FIRST_PAGE = 20;
+    /** Number of frames shown at the bottom of a deep stack. */
+    protected static final int LAST_PAGE = 10;
+    /** Pattern for a range of frames, e.g. 10-40, or 100- for the rest. */
+    private static final Pattern RANGE_PATTERN =
+            Pattern.compile("(\\d+)-(\\d*)");
+
     /**
      * First argument, or empty string if no args.
      */
     protected String arg = "";  // "where"
+    /**
+     * First frame of the range to be shown, or -1 to show the first
+     * and last pages of the stack.
+     */
+    protected int rangeStart = -1;
+    /**
+     * Last frame (inclusive) of the range to be shown, or -1 for the
+     * bottom of the stack.
+     */
+    protected int rangeEnd = -1;
 
     @Override
     public String getName() {
@@ -71,7 +93,33 @@ public class WhereCommand extends AbstractCommand {
         // Get the current thread.
         DebuggingContext dc = context.getDebuggingContext();
         ThreadReference current = dc.getThread();
-        if (!arguments.hasMoreTokens()) {
+        arg = "";
+        rangeStart = -1;
+        rangeEnd = -1;
+        String threadArg = null;
+        while (arguments.hasMoreTokens()) {
+            String token = arguments.nextToken();
+            Matcher m = RANGE_PATTERN.matcher(token);
+            if (rangeStart < 0 && m.matches()) {
+                try {
+                    rangeStart = Integer.parseInt(m.group(1));
+                    if (m.group(2).length() > 0) {
+                        rangeEnd = Integer.parseInt(m.group(2));
+                    }
+                } catch (NumberFormatException nfe) {
+                    throw new CommandException(
+                            getMessage("ERR_InvalidNumber", token));
+                }
+                if (rangeEnd >= 0 && rangeEnd < rangeStart) {
+                    throw new CommandException(
+                            getMessage("ERR_where_InvalidRange", token));
+                }
+            } else if (threadArg == null) {
+                threadArg = token;
+            }
+            // Note that like JDB, we silently ignore any further args.
+        }
+        if (threadArg == null) {
             // No arguments, try to use the current thread.
             if (current == null) {
                 throw new CommandException(getMessage("ERR_NoThread"));
@@ -79,8 +127,7 @@ public class WhereCommand extends AbstractCommand {
                 printStack(current, writer, dc);
             }
         } else {
-            // Note that like JDB, we silently ignore any further args.
-            arg = arguments.nextToken();
+            arg = threadArg;
             if (arg.equals("all")) {
                 // Show thread locks for all threads.
                 List<ThreadReference> threads = vm.allThreads();
@@ -112,26 +159,65 @@ public class WhereCommand extends AbstractCommand {
      */
     protected void printStack(ThreadReference thread, PrintWriter writer,
             DebuggingContext dc) throws CommandException {
-        List<StackFrame> stack = getStack(thread);
-
-        boolean threadIsCurrent = false;
-        ThreadReference currThrd = dc.getThread();
-        if (currThrd != null && currThrd.equals(thread)) {
-            threadIsCurrent = true;
-        }
+        int nFrames = getFrameCount(thread, dc);
 
         StringBuilder sb = new StringBuilder(256);
         sb.append(getMessage("CTL_where_header", thread.name()));
         sb.append('\n');
-        int nFrames = stack.size();
         if (nFrames == 0) {
             sb.append(getMessage("CTL_where_emptyStack"));
             sb.append('\n');
+        } else if (rangeStart >= 0) {
+            if (rangeStart >= nFrames) {
+                throw new CommandException(NbBundle.getMessage(
+                        WhereCommand.class, "ERR_where_RangeOutOfBounds",
+                        String.valueOf(rangeStart), thread.name(),
+                        String.valueOf(nFrames - 1)));
+            }
+            int end = rangeEnd < 0 ? nFrames : Math.min(rangeEnd + 1, nFrames);
+            appendFrames(thread, dc, rangeStart, end, sb);
+        } else if (nFrames <= FIRST_PAGE + LAST_PAGE) {
+            appendFrames(thread, dc, 0, nFrames, sb);
+        } else {
+            // Fetching thousands of frames is slow, show just the ends.
+            int lastStart = nFrames - LAST_PAGE;
+            appendFrames(thread, dc, 0, FIRST_PAGE, sb);
+            sb.append(NbBundle.getMessage(WhereCommand.class,
+                    "CTL_where_omitted",
+                    String.valueOf(lastStart - FIRST_PAGE),
+                    String.valueOf(FIRST_PAGE),
+                    String.valueOf(lastStart - 1)));
+            sb.append('\n');
+            appendFrames(thread, dc, lastStart, nFrames, sb);
         }
+        writer.print(sb.toString());
+    }
+
+    /**
+     * Appends the descriptions of a range of stack frames.
+     *
+     * @param  thread  ThreadReference whose stack is to be printed.
+     * @param  dc      debugging context.
+     * @param  start   index of first frame to append.
+     * @param  end     index after the last frame to append.
+     * @param  sb      where the descriptions are appended.
+     * @throws  CommandException
+     *          if something goes wrong.
+     */
+    private void appendFrames(ThreadReference thread, DebuggingContext dc,
+            int start, int end, StringBuilder sb) throws CommandException {
+        boolean threadIsCurrent = false;
+        ThreadReference currThrd = dc.getThread();
+        if (currThrd != null && currThrd.equals(thread)) {
+            threadIsCurrent = true;
+        }
+        List<StackFrame> stack = getStack(thread, dc, start, end - start);
+        int nFrames = stack.size();
         for (int i = 0; i < nFrames; i++) {
             Location loc = stack.get(i).location();
+            int index = start + i;
             if (threadIsCurrent) {
-                if (dc.getFrame() == i) {
+                if (dc.getFrame() == index) {
                     sb.append("* [");
                 } else {
                     sb.append("  [");
@@ -140,7 +226,7 @@ public class WhereCommand extends AbstractCommand {
                 sb.append("  [");
             }
             // Leave the stack frame index as zero-based.
-            sb.append(i);
+            sb.append(index);
             sb.append("] ");
             appendFrameDescriptor(loc, sb);
             long pc = loc.codeIndex();
@@ -150,7 +236,6 @@ public class WhereCommand extends AbstractCommand {
             }
             sb.append('\n');
         }
-        writer.print(sb.toString());
     }
 
     /**
@@ -177,6 +262,92 @@ public class WhereCommand extends AbstractCommand {
         sb.append(')');
     }
 
+    /**
+     * Returns the number of frames in the stack of the given thread.
+     *
+     * @param  thread  thread whose frames are to be counted.
+     * @param  dc      debugging context.
+     * @return  frame count.
+     * @throws  CommandException
+     *          if the thread is not suspended.
+     */
+    public int getFrameCount(ThreadReference thread, DebuggingContext dc)
+            throws CommandException {
+        try {
+            SuspensionSnapshot snapshot = dc.getSnapshot();
+            if (snapshot != null && snapshot.getThread().equals(thread)) {
+                return snapshot.getFrameCount();
+            }
+            return thread.frameCount();
+        } catch (IncompatibleThreadStateException itse) {
+            throw new CommandException(getMessage("ERR_ThreadNotSuspended"));
+        } catch (ObjectCollectedException oce) {
+            throw new CommandException(getMessage("ERR_ObjectCollected"));
+        }
+    }
+
+    /**
+     * Return a range of {@link StackFrame} objects for passed thread,
+     * retrieving only those frames from the debuggee. The range is
+     * clipped to the frames that exist.
+     *
+     * @param  thread  thread whose frames are wanted.
+     * @param  dc      debugging context.
+     * @param  start   index of the first frame.
+     * @param  length  number of frames.
+     * @return  list of stack frames.
+     * @throws  CommandException
+     *          if the thread is not suspended.
+     * @throws  IndexOutOfBoundsException
+     *          if start or length is negative.
+     */
+    public List<StackFrame> getStack(ThreadReference thread,
+            DebuggingContext dc, int start, int length)
+            throws CommandException {
+        if (start < 0) {
+            throw new IndexOutOfBoundsException("start: " + start);
+        }
+        if (length < 0) {
+            throw new IndexOutOfBoundsException("length: " + length);
+        }
+        try {
+            SuspensionSnapshot snapshot = dc.getSnapshot();
+            if (snapshot != null && snapshot.getThread().equals(thread)) {
+                return snapshot.getFrames(start, length);
+            }
+            int count = thread.frameCount();
+            int end = Math.min(count, start + length);
+            if (start >= end) {
+                return Collections.emptyList();
+            }
+            return thread.frames(start, end - start);
+        } catch (IncompatibleThreadStateException itse) {
+            throw new CommandException(getMessage("ERR_ThreadNotSuspended"));
+        } catch (ObjectCollectedException oce) {
+            throw new CommandException(getMessage("ERR_ObjectCollected"));
+        }
+    }
+
+    /**
+     * Return a list of {@link StackFrame} objects for passed thread. If
+     * the thread is the current thread, the frames are taken from the
+     * shared snapshot of the debugging context.
+     */
+    public List<StackFrame> getStack(ThreadReference thread,
+            DebuggingContext dc) throws CommandException {
+        SuspensionSnapshot snapshot = dc.getSnapshot();
+        if (snapshot == null || !snapshot.getThread().equals(thread)) {
+            return getStack(thread);
+        }
+        try {
+            return snapshot.getFrames();
+        } catch (IncompatibleThreadStateException itse) {
+            throw new CommandException(getMessage("ERR_ThreadNotSuspended"));
+        } catch (ObjectCollectedException oce) {
+            throw new CommandException(getMessage("ERR_ObjectCollected"));
+        }
+    }
+
     /**
      * Return a list of {@link StackFrame} objects for passed thread.
      */
@@ -38,6 +38,14 @@ public class CoreSettings {
     public static final String PROP_CONNECT_TIMEOUT = "connectionTimeout";
     /** Name of the method invocation timeout setting. */
     public static final String PROP_INVOKE_TIMEOUT = "invocationTimeout";
+    /** Name of the prefetch budget setting. */
+    public static final String PROP_PREFETCH_BUDGET = "prefetchBudget";
+    /** Name of the prefetch depth setting. */
+    public static final String PROP_PREFETCH_DEPTH = "prefetchDepth";
+    /** Name of the retention search depth setting. */
+    public static final String PROP_RETENTION_DEPTH = "retentionDepth";
+    /** Name of the retention search object budget setting. */
+    public static final String PROP_RETENTION_OBJECTS = "retentionObjects";
     /** Name of the show all threads setting. */
     public static final String PROP_SHOW_ALL_THREADS = "showAllThreads";
     /** Name of the show hidden files setting. */
@@ -91,6 +99,42 @@ public class CoreSettings {
         return preferences.getInt(PROP_INVOKE_TIMEOUT, 5000);
     }
 
+    /**
+     * Retrieves the prefetch budget value.
+     *
+     * @return  time allowed for prefetching (in milliseconds).
+     */
+    public int getPrefetchBudget() {
+        return preferences.getInt(PROP_PREFETCH_BUDGET, 1000);
+    }
+
+    /**
+     * Retrieves the prefetch depth value.
+     *
+     * @return  number of stack frames to prefetch; zero if disabled.
+     */
+    public int getPrefetchDepth() {
+        return preferences.getInt(PROP_PREFETCH_DEPTH, 10);
+    }
+
+    /**
+     * Retrieves the retention search depth value.
+     *
+     * @return  maximum length of a path to a garbage collection root.
+     */
+    public int getRetentionDepth() {
+        return preferences.getInt(PROP_RETENTION_DEPTH, 16);
+    }
+
+    /**
+     * Retrieves the retention search object budget value.
+     *
+     * @return  maximum number of objects visited by a retention search.
+     */
+    public int getRetentionObjects() {
+        return preferences.getInt(PROP_RETENTION_OBJECTS, 5000);
+    }
+
     /**
      * Retrieves the show all threads value.
      *
@@ -162,6 +206,54 @@ public class CoreSettings {
         preferences.putInt(PROP_INVOKE_TIMEOUT, timeout);
     }
 
+    /**
+     * Sets the prefetch budget value.
+     *
+     * @param  budget  time allowed for prefetching (in milliseconds).
+     */
+    public void setPrefetchBudget(int budget) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("budget cannot be negative");
+        }
+        preferences.putInt(PROP_PREFETCH_BUDGET, budget);
+    }
+
+    /**
+     * Sets the prefetch depth value.
+     *
+     * @param  depth  number of stack frames to prefetch; zero to disable.
+     */
+    public void setPrefetchDepth(int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("depth cannot be negative");
+        }
+        preferences.putInt(PROP_PREFETCH_DEPTH, depth);
+    }
+
+    /**
+     * Sets the retention search depth value.
+     *
+     * @param  depth  maximum length of a path to a garbage collection root.
+     */
+    public void setRetentionDepth(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("depth must be positive");
+        }
+        preferences.putInt(PROP_RETENTION_DEPTH, depth);
+    }
+
+    /**
+     * Sets the retention search object budget value.
+     *
+     * @param  objects  maximum number of objects visited by a search.
+     */
+    public void setRetentionObjects(int objects) {
+        if (objects < 1) {
+            throw new IllegalArgumentException("objects must be positive");
+        }
+        preferences.putInt(PROP_RETENTION_OBJECTS, objects);
+    }
+
     /**
      * Sets the show all threads value.
      *
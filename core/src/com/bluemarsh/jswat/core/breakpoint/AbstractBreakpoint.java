@@ -284,6 +284,7 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
                 BreakpointEventType.STOPPED, e);
         fireEvent(be);
         runMonitors(be);
+        recordHit(be);
         if (deleteWhenHit) {
             // Let listeners know we should be deleted. Hopefully one of
             // them (e.g. breakpoint manager) will actually remove us.
@@ -293,6 +294,26 @@ public abstract class AbstractBreakpoint implements Breakpoint, DispatcherListen
         return suspendPolicy == EventRequest.SUSPEND_NONE;
     }
 
+    /**
+     * Records the hit in the journal of the session to which this
+     * breakpoint belongs, if journaling is enabled for that session.
+     *
+     * @param event breakpoint event, after the monitors have been run.
+     */
+    protected void recordHit(BreakpointEvent event) {
+        BreakpointGroup group = getBreakpointGroup();
+        if (group == null) {
+            return;
+        }
+        Session session = BreakpointProvider.getSession(group);
+        if (session != null) {
+            HitJournal journal = BreakpointProvider.getHitJournal(session);
+            if (journal.isEnabled()) {
+                journal.record(event);
+            }
+        }
+    }
+
     /**
      * Register this breakpoint as a listener for the given event request, such
      * that the event dispatcher will invoke this breakpoint when events related
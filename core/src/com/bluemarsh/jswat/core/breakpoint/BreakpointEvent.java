@@ -23,7 +23,10 @@
 package com.bluemarsh.jswat.core.breakpoint;
 
 import com.sun.jdi.event.Event;
+import java.util.Collections;
 import java.util.EventObject;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * An event which indicates that a breakpoint has changed status.
@@ -42,6 +45,8 @@ public class BreakpointEvent extends EventObject {
     private transient Event event;
     /** Exception that caused this event, if any. */
     private Exception exception;
+    /** Results of the monitors run for this event, in the order run. */
+    private transient Map<String, String> monitorResults;
 
     /**
      * Constructs a new BreakpointEvent.
@@ -68,6 +73,21 @@ public class BreakpointEvent extends EventObject {
         exception = exc;
     }
 
+    /**
+     * Records the result of a monitor that was run for this event, such
+     * that it may be reported along with the event (e.g. in the hit
+     * journal).
+     *
+     * @param  name    identifies the monitor (e.g. the expression).
+     * @param  result  outcome of running the monitor.
+     */
+    public synchronized void addMonitorResult(String name, String result) {
+        if (monitorResults == null) {
+            monitorResults = new LinkedHashMap<String, String>();
+        }
+        monitorResults.put(name, result);
+    }
+
     /**
      * Get the breakpoint that changed.
      *
@@ -97,6 +117,18 @@ public class BreakpointEvent extends EventObject {
         return event;
     }
 
+    /**
+     * Returns the results of the monitors run for this event.
+     *
+     * @return  monitor results keyed by monitor, possibly empty.
+     */
+    public synchronized Map<String, String> getMonitorResults() {
+        if (monitorResults == null) {
+            return Collections.emptyMap();
+        }
+        return new LinkedHashMap<String, String>(monitorResults);
+    }
+
     /**
      * Get the breakpoint event type.
      *
@@ -53,6 +53,8 @@ public class BreakpointProvider {
     private static Map<BreakpointManager, Session> reverseMap;
     /** Map of BreakpointManager instances, keyed by their root groups. */
     private static Map<BreakpointGroup, BreakpointManager> groupMap;
+    /** Map of HitJournal instances, keyed by Session instance. */
+    private static Map<Session, HitJournal> journalMap;
     /** The BreakpointFactory instance, if it has already been retrieved. */
     private static BreakpointFactory bpFactory;
 
@@ -61,6 +63,7 @@ public class BreakpointProvider {
         instanceMap = new HashMap<Session, BreakpointManager>();
         reverseMap = new HashMap<BreakpointManager, Session>();
         groupMap = new HashMap<BreakpointGroup, BreakpointManager>();
+        journalMap = new HashMap<Session, HitJournal>();
     }
 
     /**
@@ -144,6 +147,25 @@ public class BreakpointProvider {
         }
     }
 
+    /**
+     * Retrieve the HitJournal instance for the given Session, creating one
+     * if necessary. The journal is initially disabled.
+     *
+     * @param  session  Session for which to get HitJournal.
+     * @return  HitJournal instance.
+     */
+    public static HitJournal getHitJournal(Session session) {
+        synchronized (mapsLock) {
+            HitJournal inst = journalMap.get(session);
+            if (inst == null) {
+                inst = new HitJournal();
+                journalMap.put(session, inst);
+                session.addSessionListener(inst);
+            }
+            return inst;
+        }
+    }
+
     /**
      * Retrieve the Session instance associated with the given BreakpointGroup.
      *
@@ -27,6 +27,7 @@ import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.session.SessionEvent;
 import com.bluemarsh.jswat.core.session.SessionListener;
 import com.bluemarsh.jswat.core.util.Names;
+import com.sun.jdi.Locatable;
 import com.sun.jdi.ReferenceType;
 import com.sun.jdi.VirtualMachine;
 import com.sun.jdi.VMDisconnectedException;
@@ -37,8 +38,10 @@ import com.sun.jdi.request.EventRequest;
 import com.sun.jdi.request.EventRequestManager;
 import com.sun.jdi.request.InvalidRequestStateException;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import org.openide.util.NbBundle;
 
 /**
@@ -62,8 +65,10 @@ public abstract class DefaultResolvableBreakpoint extends AbstractBreakpoint
     private boolean preWild;
     /** Class prepare request used to resolve the breakpoint. */
     private ClassPrepareRequest prepareRequest;
-    /** Resolved event requests, if breakpoint has resolved. */
-    private List<EventRequest> eventRequests;
+    /** Resolved event requests, if breakpoint has resolved; replaced
+     * as a whole when the breakpoint is resolved again after its class
+     * has been redefined. */
+    private volatile List<EventRequest> eventRequests;
 
     /**
      * Creates a new instance of ResolvableBreakpoint.
@@ -187,6 +192,26 @@ public abstract class DefaultResolvableBreakpoint extends AbstractBreakpoint
         return className;
     }
 
+    /**
+     * Indicates if any of the event requests of this breakpoint were
+     * created in one of the given classes, which have been redefined and
+     * thus left the requests pointing at obsolete code.
+     *
+     * @param  redefined  the classes that were redefined.
+     * @return  true if this breakpoint must be resolved again.
+     */
+    boolean isAffectedBy(Set<ReferenceType> redefined) {
+        for (EventRequest er : eventRequests) {
+            if (er instanceof Locatable) {
+                ReferenceType type = ((Locatable) er).location().declaringType();
+                if (redefined.contains(type)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     @Override
     public boolean isResolved() {
         return !eventRequests.isEmpty();
@@ -307,6 +332,73 @@ public abstract class DefaultResolvableBreakpoint extends AbstractBreakpoint
         }
     }
 
+    /**
+     * Resolves this breakpoint again against the new definitions of the
+     * given classes. The requests set in the obsolete code are replaced
+     * with those created against the new code. JDI has already deleted
+     * the breakpoint requests in the redefined classes, so deleting the
+     * obsolete requests afterwards is only a precaution, in case any of
+     * them survived the redefinition.
+     *
+     * <p>This method will fire a change event if the breakpoint is no
+     * longer resolved, and fires an error event if a resolve exception
+     * occurs.</p>
+     *
+     * @param  redefined  the classes that were redefined.
+     * @return  true if resolved against the new code, false if the
+     *          location no longer exists in the redefined classes.
+     */
+    boolean resolveRedefined(Set<ReferenceType> redefined) {
+        List<EventRequest> current = eventRequests;
+        List<EventRequest> replacement = new LinkedList<EventRequest>();
+        List<EventRequest> obsolete = new LinkedList<EventRequest>();
+        Set<ReferenceType> types = new LinkedHashSet<ReferenceType>();
+        for (EventRequest er : current) {
+            if (er instanceof Locatable) {
+                ReferenceType type = ((Locatable) er).location().declaringType();
+                if (redefined.contains(type)) {
+                    obsolete.add(er);
+                    types.add(type);
+                    continue;
+                }
+            }
+            replacement.add(er);
+        }
+        if (obsolete.isEmpty()) {
+            return true;
+        }
+
+        // Resolve against the very types the requests were created in,
+        // which may be nested within the class that was matched.
+        int kept = replacement.size();
+        ResolveException error = null;
+        for (ReferenceType type : types) {
+            try {
+                resolveReference(type, replacement);
+            } catch (ResolveException re) {
+                error = re;
+            }
+        }
+        boolean resolved = replacement.size() > kept;
+        eventRequests = replacement;
+        try {
+            for (EventRequest er : obsolete) {
+                VirtualMachine vm = er.virtualMachine();
+                EventRequestManager erm = vm.eventRequestManager();
+                erm.deleteEventRequest(er);
+            }
+        } catch (VMDisconnectedException vmde) {
+            // We will clean up in disconnected().
+        }
+        if (replacement.isEmpty()) {
+            propSupport.firePropertyChange(PROP_RESOLVED, true, false);
+        }
+        if (error != null) {
+            fireError(error);
+        }
+        return resolved;
+    }
+
     /**
      * Resolve against the given ReferenceType. If successful, add the
      * new event requests to the provided list.
@@ -82,8 +82,11 @@ public class ExpressionMonitor implements Monitor {
         OutputWriter writer = OutputProvider.getWriter();
         try {
             Object o = eval.evaluate(thread, 0);
-            writer.printOutput(expression + " = " + String.valueOf(o));
+            String value = String.valueOf(o);
+            event.addMonitorResult(expression, value);
+            writer.printOutput(expression + " = " + value);
         } catch (EvaluationException ee) {
+            event.addMonitorResult(expression, ee.toString());
             writer.printOutput(NbBundle.getMessage(ExpressionMonitor.class,
                     "ExpressionMonitor.failed", expression, ee.toString()));
         }
@@ -0,0 +1,365 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.breakpoint;
+
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.sun.jdi.AbsentInformationException;
+import com.sun.jdi.Location;
+import com.sun.jdi.ObjectCollectedException;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.VMDisconnectedException;
+import com.sun.jdi.event.Event;
+import com.sun.jdi.event.LocatableEvent;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class HitJournal records every breakpoint hit in a session as a single
+ * line of JSON in a file, for later analysis with the usual text tools.
+ * Each line gives the time of the hit (in milliseconds since the epoch),
+ * the breakpoint number and description, the thread, the location, the
+ * hit count, and the results of the expression monitors, if any. For
+ * example:
+ *
+ * <pre>
+ * {"time":1381234567890,"breakpoint":3,"description":"...","thread":"main",
+ *  "class":"Foo","method":"bar","line":42,"source":"Foo.java",
+ *  "hitCount":7,"monitors":{"x":"12"}}
+ * </pre>
+ *
+ * <p>The line is built on the thread that hit the breakpoint, but written
+ * to the file on a thread of its own, such that journaling adds very
+ * little to the time the debuggee is held up. Lines are discarded, rather
+ * than waited on, if the disk cannot keep up. The file is rotated when it
+ * grows too large.</p>
+ *
+ * <p>Use <code>BreakpointProvider.getHitJournal()</code> to get the journal
+ * for a session.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class HitJournal implements SessionListener {
+    /** Size in bytes beyond which the journal file is rotated. */
+    private static final long MAX_SIZE = 10L * 1024 * 1024;
+    /** Number of journal files kept, including the current one. */
+    private static final int MAX_FILES = 4;
+    /** Writes the journal file, or null if journaling is disabled. */
+    private volatile JournalWriter writer;
+    /** The journal file most recently written. */
+    private volatile File file;
+
+    /**
+     * Creates a new instance of HitJournal.
+     */
+    HitJournal() {
+    }
+
+    @Override
+    public void closing(SessionEvent sevt) {
+        stop();
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+    }
+
+    @Override
+    public void disconnected(SessionEvent sevt) {
+        flush();
+    }
+
+    /**
+     * Waits until all of the hits recorded so far have been written to
+     * the journal file.
+     */
+    public void flush() {
+        JournalWriter w = writer;
+        if (w != null) {
+            w.flush();
+        }
+    }
+
+    /**
+     * Returns the number of hits that were not written to the journal
+     * because the disk could not keep up.
+     *
+     * @return  count of dropped hits, zero if journaling is disabled.
+     */
+    public long getDropped() {
+        JournalWriter w = writer;
+        return w == null ? 0 : w.getDropped();
+    }
+
+    /**
+     * Returns the file to which the hits are, or were most recently,
+     * written.
+     *
+     * @return  journal file, or null if journaling was never started.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the number of hits written to the journal file.
+     *
+     * @return  count of written hits, zero if journaling is disabled.
+     */
+    public long getWritten() {
+        JournalWriter w = writer;
+        return w == null ? 0 : w.getWritten();
+    }
+
+    /**
+     * Indicates if the hits are being journaled.
+     *
+     * @return  true if enabled, false otherwise.
+     */
+    public boolean isEnabled() {
+        return writer != null;
+    }
+
+    @Override
+    public void opened(Session session) {
+    }
+
+    /**
+     * Appends the given string to the buffer as a JSON string literal.
+     *
+     * @param  sb  buffer to append to.
+     * @param  s   string to be quoted, may be null.
+     */
+    static void quote(StringBuilder sb, String s) {
+        if (s == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        int len = s.length();
+        for (int ii = 0; ii < len; ii++) {
+            char ch = s.charAt(ii);
+            switch (ch) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (ch < 0x20) {
+                        String hex = Integer.toHexString(ch);
+                        sb.append("\\u");
+                        for (int jj = hex.length(); jj < 4; jj++) {
+                            sb.append('0');
+                        }
+                        sb.append(hex);
+                    } else {
+                        sb.append(ch);
+                    }
+                    break;
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Records the breakpoint hit in the journal, if journaling is enabled.
+     * This should be called after the monitors have been run, so their
+     * results are included.
+     *
+     * @param  be  the breakpoint event for the hit.
+     */
+    void record(BreakpointEvent be) {
+        JournalWriter w = writer;
+        if (w == null) {
+            return;
+        }
+        // Gather everything from the debuggee before building the line,
+        // so that a failure part way through cannot leave it half written.
+        String threadName = null;
+        String className = null;
+        String methodName = null;
+        int line = -1;
+        String source = null;
+        Event event = be.getEvent();
+        if (event instanceof LocatableEvent) {
+            LocatableEvent le = (LocatableEvent) event;
+            try {
+                ThreadReference thread = le.thread();
+                if (thread != null) {
+                    threadName = thread.name();
+                }
+            } catch (ObjectCollectedException oce) {
+                // Leave the thread out.
+            } catch (VMDisconnectedException vmde) {
+                return;
+            }
+            try {
+                Location loc = le.location();
+                String type = loc.declaringType().name();
+                String method = loc.method().name();
+                int number = loc.lineNumber();
+                try {
+                    source = loc.sourceName();
+                } catch (AbsentInformationException aie) {
+                    // Leave the source out.
+                }
+                className = type;
+                methodName = method;
+                line = number;
+            } catch (ObjectCollectedException oce) {
+                // Leave the location out.
+            } catch (VMDisconnectedException vmde) {
+                return;
+            }
+        }
+
+        Breakpoint bp = be.getBreakpoint();
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("{\"time\":").append(System.currentTimeMillis());
+        sb.append(",\"breakpoint\":");
+        sb.append(bp.getProperty(Breakpoint.PROP_NUMBER));
+        sb.append(",\"description\":");
+        quote(sb, bp.getDescription());
+        if (event instanceof LocatableEvent) {
+            sb.append(",\"thread\":");
+            quote(sb, threadName);
+        }
+        if (className != null) {
+            sb.append(",\"class\":");
+            quote(sb, className);
+            sb.append(",\"method\":");
+            quote(sb, methodName);
+            sb.append(",\"line\":").append(line);
+            if (source != null) {
+                sb.append(",\"source\":");
+                quote(sb, source);
+            }
+        }
+        sb.append(",\"hitCount\":").append(bp.getHitCount());
+        Map<String, String> results = be.getMonitorResults();
+        if (!results.isEmpty()) {
+            sb.append(",\"monitors\":{");
+            boolean first = true;
+            for (Map.Entry<String, String> entry : results.entrySet()) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                quote(sb, entry.getKey());
+                sb.append(':');
+                quote(sb, entry.getValue());
+            }
+            sb.append('}');
+        }
+        sb.append('}');
+        w.write(sb.toString());
+    }
+
+    @Override
+    public void resuming(SessionEvent sevt) {
+    }
+
+    /**
+     * Starts journaling the breakpoint hits to the given file, appending
+     * to it if it already exists. Any journal already being written is
+     * closed first.
+     *
+     * @param  file  the journal file.
+     * @throws  IOException
+     *          if the file could not be opened.
+     */
+    public synchronized void start(File file) throws IOException {
+        stop();
+        writer = new JournalWriter(file, MAX_SIZE, MAX_FILES);
+        this.file = file;
+    }
+
+    /**
+     * Stops journaling the breakpoint hits, writing out any that are
+     * still waiting to be written.
+     */
+    public synchronized void stop() {
+        JournalWriter w = writer;
+        if (w != null) {
+            writer = null;
+            w.close();
+        }
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
+    }
+
+    /**
+     * Reads the last lines of the given journal file that contain the
+     * given text.
+     *
+     * @param  file    journal file to read.
+     * @param  count   largest number of lines to return.
+     * @param  filter  text the lines must contain, or null for all lines.
+     * @return  matching lines, oldest first.
+     * @throws  IOException
+     *          if the file could not be read.
+     */
+    public static List<String> tail(File file, int count, String filter)
+            throws IOException {
+        LinkedList<String> lines = new LinkedList<String>();
+        if (count <= 0) {
+            return lines;
+        }
+        BufferedReader br = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), "UTF-8"));
+        try {
+            String line = br.readLine();
+            while (line != null) {
+                if (filter == null || line.contains(filter)) {
+                    lines.add(line);
+                    if (lines.size() > count) {
+                        lines.removeFirst();
+                    }
+                }
+                line = br.readLine();
+            }
+        } finally {
+            br.close();
+        }
+        return new ArrayList<String>(lines);
+    }
+}
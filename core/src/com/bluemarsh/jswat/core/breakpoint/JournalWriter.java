@@ -0,0 +1,264 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.breakpoint;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class JournalWriter appends lines of text to a file on a thread of its
+ * own, such that the caller never waits for the disk. The lines are queued
+ * and written in batches, and when the queue is full the line is discarded
+ * rather than holding up the caller. Once the file grows beyond the size
+ * limit it is renamed to <code>file.1</code> (with any older files shifted
+ * up by one, the oldest being deleted), and a new file is started.
+ *
+ * @author  Nathan Fiedler
+ */
+class JournalWriter {
+    /** Logger for gracefully reporting unexpected errors. */
+    private static final Logger logger = Logger.getLogger(
+            JournalWriter.class.getName());
+    /** Number of lines the queue holds. */
+    private static final int QUEUE_SIZE = 4096;
+    /** Largest number of lines written at once. */
+    private static final int BATCH_SIZE = 256;
+    /** The file being written. */
+    private final File file;
+    /** Size in bytes beyond which the file is rotated. */
+    private final long maxSize;
+    /** Number of files kept, including the one being written. */
+    private final int maxFiles;
+    /** Lines waiting to be written. */
+    private final BlockingQueue<String> queue;
+    /** Number of lines accepted into the queue. */
+    private final AtomicLong accepted;
+    /** Number of lines discarded because the queue was full. */
+    private final AtomicLong dropped;
+    /** The thread writing the lines. */
+    private final Thread thread;
+    /** Number of lines successfully written to the file. */
+    private final AtomicLong written;
+    /** Number of accepted lines that have been taken care of, whether
+     * written or not (guarded by this writer). */
+    private long processed;
+    /** Sink for the lines, used only by the writing thread. */
+    private Writer output;
+    /** Size of the current file in bytes, used only by the writing thread. */
+    private long size;
+
+    /**
+     * Constructs a JournalWriter that appends to the given file.
+     *
+     * @param  file      file to be written.
+     * @param  maxSize   size in bytes beyond which the file is rotated.
+     * @param  maxFiles  number of files to keep, at least one.
+     * @throws  IOException
+     *          if the file could not be opened.
+     */
+    JournalWriter(File file, long maxSize, int maxFiles) throws IOException {
+        this.file = file;
+        this.maxSize = maxSize;
+        this.maxFiles = Math.max(maxFiles, 1);
+        queue = new ArrayBlockingQueue<String>(QUEUE_SIZE);
+        accepted = new AtomicLong();
+        dropped = new AtomicLong();
+        written = new AtomicLong();
+        open();
+        thread = new Thread(new Drainer(), "JournalWriter");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Writes the queued lines to the file and closes it. Lines given to
+     * write() after this call are discarded.
+     */
+    void close() {
+        flush();
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until all of the lines queued before this call have been
+     * written to the file.
+     */
+    void flush() {
+        long target = accepted.get();
+        synchronized (this) {
+            try {
+                while (processed < target && thread.isAlive()) {
+                    wait(100);
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of lines discarded because the queue was full.
+     *
+     * @return  count of dropped lines.
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns the number of lines written to the file so far.
+     *
+     * @return  count of written lines.
+     */
+    long getWritten() {
+        return written.get();
+    }
+
+    /**
+     * Opens the file for appending.
+     *
+     * @throws  IOException
+     *          if the file could not be opened.
+     */
+    private void open() throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        try {
+            output = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(file, true), "UTF-8"));
+        } catch (UnsupportedEncodingException uee) {
+            // UTF-8 is always supported.
+            throw new IOException(uee.toString());
+        }
+        size = file.length();
+    }
+
+    /**
+     * Closes the current file, shifts the older files up by one, and
+     * starts a new file.
+     *
+     * @throws  IOException
+     *          if the new file could not be opened.
+     */
+    private void rotate() throws IOException {
+        output.close();
+        String path = file.getPath();
+        File oldest = new File(path + '.' + (maxFiles - 1));
+        if (maxFiles > 1) {
+            oldest.delete();
+            for (int ii = maxFiles - 2; ii > 0; ii--) {
+                File older = new File(path + '.' + ii);
+                if (older.exists()) {
+                    older.renameTo(new File(path + '.' + (ii + 1)));
+                }
+            }
+            file.renameTo(new File(path + '.' + 1));
+        } else {
+            file.delete();
+        }
+        open();
+    }
+
+    /**
+     * Queues the line to be written, discarding it if the queue is full.
+     *
+     * @param  line  line of text, without the line terminator.
+     */
+    void write(String line) {
+        if (!thread.isAlive()) {
+            dropped.incrementAndGet();
+            return;
+        }
+        // Count the line before it can be written, otherwise flush()
+        // might return without waiting for it.
+        accepted.incrementAndGet();
+        if (!queue.offer(line)) {
+            accepted.decrementAndGet();
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Writes the queued lines to the file in batches.
+     */
+    private class Drainer implements Runnable {
+
+        @Override
+        public void run() {
+            List<String> batch = new ArrayList<String>(BATCH_SIZE);
+            boolean closing = false;
+            while (!closing) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException ie) {
+                    closing = true;
+                }
+                queue.drainTo(batch, BATCH_SIZE - batch.size());
+                try {
+                    for (String line : batch) {
+                        output.write(line);
+                        output.write('\n');
+                        // Lines are mostly ASCII, close enough for rotation.
+                        size += line.length() + 1;
+                        if (size >= maxSize) {
+                            rotate();
+                        }
+                    }
+                    output.flush();
+                    written.addAndGet(batch.size());
+                } catch (IOException ioe) {
+                    logger.log(Level.WARNING, file.getPath(), ioe);
+                    dropped.addAndGet(batch.size());
+                    closing = true;
+                }
+                synchronized (JournalWriter.this) {
+                    processed += batch.size();
+                    JournalWriter.this.notifyAll();
+                }
+                batch.clear();
+            }
+            try {
+                output.close();
+            } catch (IOException ioe) {
+                logger.log(Level.WARNING, file.getPath(), ioe);
+            }
+        }
+    }
+}
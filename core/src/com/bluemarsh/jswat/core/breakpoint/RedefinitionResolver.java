@@ -0,0 +1,141 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.breakpoint;
+
+import com.bluemarsh.jswat.core.output.OutputProvider;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.util.Threads;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.VMDisconnectedException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.NbBundle;
+
+/**
+ * Class RedefinitionResolver resolves the breakpoints of a session again
+ * after classes have been redefined in the debuggee. Redefinition clears
+ * the breakpoints set in the old code of the classes, so any breakpoint
+ * that had resolved against those classes is resolved anew against the
+ * line tables of the new code, all in one pass.
+ *
+ * <p>A handful of breakpoints are resolved immediately, on the calling
+ * thread; larger batches are resolved on a background thread so as not
+ * to hold up the console or the user interface. In either case, the
+ * number of breakpoints that moved to the new code, and the number that
+ * could no longer be resolved, are written to the output window.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class RedefinitionResolver {
+    /** Logger for gracefully reporting unexpected errors. */
+    private static final Logger logger = Logger.getLogger(
+            RedefinitionResolver.class.getName());
+    /** Largest number of breakpoints to resolve on the calling thread. */
+    private static final int INLINE_LIMIT = 10;
+
+    /**
+     * Creates a new instance of RedefinitionResolver.
+     */
+    private RedefinitionResolver() {
+    }
+
+    /**
+     * Resolves again the breakpoints of the session that were set in any
+     * of the given classes, which have just been redefined.
+     *
+     * @param  session  session in which the classes were redefined.
+     * @param  classes  the classes that were redefined.
+     */
+    public static void classesRedefined(Session session,
+            Collection<ReferenceType> classes) {
+        if (classes.isEmpty()) {
+            return;
+        }
+        final Set<ReferenceType> redefined = new HashSet<ReferenceType>(classes);
+        final List<DefaultResolvableBreakpoint> affected =
+                new ArrayList<DefaultResolvableBreakpoint>();
+        BreakpointManager bm = BreakpointProvider.getBreakpointManager(session);
+        Iterator<Breakpoint> iter = bm.getDefaultGroup().breakpoints(true);
+        while (iter.hasNext()) {
+            Breakpoint bp = iter.next();
+            if (bp instanceof DefaultResolvableBreakpoint) {
+                DefaultResolvableBreakpoint rbp = (DefaultResolvableBreakpoint) bp;
+                if (rbp.isAffectedBy(redefined)) {
+                    affected.add(rbp);
+                }
+            }
+        }
+        if (affected.isEmpty()) {
+            return;
+        }
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                resolve(affected, redefined);
+            }
+        };
+        if (affected.size() <= INLINE_LIMIT) {
+            task.run();
+        } else {
+            Threads.getThreadPool().submit(task);
+        }
+    }
+
+    /**
+     * Resolves the given breakpoints against the redefined classes and
+     * reports the outcome.
+     *
+     * @param  breakpoints  the breakpoints to be resolved.
+     * @param  redefined    the classes that were redefined.
+     */
+    private static void resolve(List<DefaultResolvableBreakpoint> breakpoints,
+            Set<ReferenceType> redefined) {
+        int moved = 0;
+        int unresolved = 0;
+        try {
+            for (DefaultResolvableBreakpoint bp : breakpoints) {
+                if (bp.resolveRedefined(redefined)) {
+                    moved++;
+                } else {
+                    unresolved++;
+                }
+            }
+        } catch (VMDisconnectedException vmde) {
+            return;
+        } catch (RuntimeException re) {
+            logger.log(Level.WARNING, null, re);
+        }
+        String msg = NbBundle.getMessage(RedefinitionResolver.class,
+                "CTL_Redefinition_Resolved", String.valueOf(moved),
+                String.valueOf(unresolved));
+        if (unresolved > 0) {
+            OutputProvider.getWriter().printError(msg);
+        } else {
+            OutputProvider.getWriter().printOutput(msg);
+        }
+    }
+}
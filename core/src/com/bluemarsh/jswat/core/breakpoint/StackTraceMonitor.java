@@ -43,6 +43,10 @@ import org.openide.util.NbBundle;
  */
 public class StackTraceMonitor implements Monitor {
 
+    /** Number of frames shown at the top of a deep stack. */
+    private static final int FIRST_PAGE = 20;
+    /** Number of frames shown at the bottom of a deep stack. */
+    private static final int LAST_PAGE = 10;
     /** The instance of this class. */
     private static StackTraceMonitor theInstance;
 
@@ -82,30 +86,52 @@ public class StackTraceMonitor implements Monitor {
         if (thread == null) {
             return;
         }
-        List<StackFrame> stack = null;
+        // This is copied from the WhereCommand in the cmd module.
+        StringBuilder sb = new StringBuilder(256);
+        sb.append(NbBundle.getMessage(StackTraceMonitor.class,
+                "CTL_StackTrace_header", thread.name()));
+        sb.append('\n');
         try {
-            stack = thread.frames();
+            int nFrames = thread.frameCount();
+            if (nFrames == 0) {
+                sb.append(NbBundle.getMessage(StackTraceMonitor.class,
+                        "CTL_StackTrace_emptyStack"));
+                sb.append('\n');
+            } else if (nFrames <= FIRST_PAGE + LAST_PAGE) {
+                appendFrames(thread.frames(0, nFrames), 0, sb);
+            } else {
+                // Retrieving thousands of frames is slow, show the ends.
+                int lastStart = nFrames - LAST_PAGE;
+                appendFrames(thread.frames(0, FIRST_PAGE), 0, sb);
+                sb.append(NbBundle.getMessage(StackTraceMonitor.class,
+                        "CTL_StackTrace_omitted",
+                        String.valueOf(lastStart - FIRST_PAGE)));
+                sb.append('\n');
+                appendFrames(thread.frames(lastStart, LAST_PAGE),
+                        lastStart, sb);
+            }
         } catch (IncompatibleThreadStateException itse) {
             return;
         } catch (ObjectCollectedException oce) {
             return;
         }
-        if (stack == null) {
-            return;
-        }
-        // This is copied from the WhereCommand in the cmd module.
-        StringBuilder sb = new StringBuilder(256);
-        sb.append(NbBundle.getMessage(StackTraceMonitor.class,
-                "CTL_StackTrace_header", thread.name()));
-        sb.append('\n');
+        OutputWriter writer = OutputProvider.getWriter();
+        writer.printOutput(sb.toString());
+    }
+
+    /**
+     * Appends the descriptions of the given stack frames.
+     *
+     * @param  stack  the stack frames to describe.
+     * @param  start  index of the first of the frames.
+     * @param  sb     where the descriptions are appended.
+     */
+    private void appendFrames(List<StackFrame> stack, int start,
+            StringBuilder sb) {
         int nFrames = stack.size();
-        if (nFrames == 0) {
-            sb.append(NbBundle.getMessage(StackTraceMonitor.class,
-                    "CTL_StackTrace_emptyStack"));
-            sb.append('\n');
-        }
-        for (int index = 0; index < nFrames; index++) {
-            StackFrame frame = stack.get(index);
+        for (int ii = 0; ii < nFrames; ii++) {
+            StackFrame frame = stack.get(ii);
+            int index = start + ii;
             Location loc = frame.location();
             Method method = loc.method();
             sb.append("  [");
@@ -136,8 +162,6 @@ public class StackTraceMonitor implements Monitor {
             }
             sb.append('\n');
         }
-        OutputWriter writer = OutputProvider.getWriter();
-        writer.printOutput(sb.toString());
     }
 
     @Override
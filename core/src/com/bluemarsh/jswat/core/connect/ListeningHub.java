@@ -0,0 +1,447 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.connect;
+
+import com.bluemarsh.jswat.core.breakpoint.Breakpoint;
+import com.bluemarsh.jswat.core.breakpoint.BreakpointGroup;
+import com.bluemarsh.jswat.core.breakpoint.BreakpointManager;
+import com.bluemarsh.jswat.core.breakpoint.BreakpointProvider;
+import com.bluemarsh.jswat.core.breakpoint.UncaughtExceptionBreakpoint;
+import com.bluemarsh.jswat.core.output.OutputProvider;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.bluemarsh.jswat.core.session.SessionManager;
+import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.bluemarsh.jswat.core.util.Threads;
+import com.sun.jdi.IncompatibleThreadStateException;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.VMDisconnectedException;
+import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.connect.Connector;
+import com.sun.jdi.connect.IllegalConnectorArgumentsException;
+import com.sun.jdi.connect.ListeningConnector;
+import java.beans.ExceptionListener;
+import java.beans.XMLDecoder;
+import java.beans.XMLEncoder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.NbBundle;
+
+/**
+ * Class ListeningHub accepts any number of debuggees on a single listening
+ * address, creating a new session for each one as it connects. This makes
+ * it practical to debug many instances of the same program at once, such
+ * as a service that forks a pool of worker processes.
+ *
+ * <p>Each new session is a copy of the template session given when the
+ * hub was started, taking on its properties (classpath, sourcepath, and
+ * so on) and a copy of its breakpoints. The session is named after the
+ * main class of the debuggee, once that can be determined.</p>
+ *
+ * <p>Each session has its own event dispatcher, running on a thread of
+ * its own, so a debuggee that produces a flood of events does not hold
+ * up the events of the other debuggees. Likewise, the sessions are set up
+ * away from the thread accepting the connections, so that a burst of
+ * debuggees connecting at once is accepted without delay.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class ListeningHub implements Runnable {
+    /** Logger for gracefully reporting unexpected errors. */
+    private static final Logger logger = Logger.getLogger(
+            ListeningHub.class.getName());
+    /** The singleton instance of this class. */
+    private static ListeningHub theInstance;
+    /** Sessions created by the hub, in the order the debuggees connected. */
+    private final List<Session> sessions;
+    /** The connector accepting the debuggees, if listening. */
+    private ListeningConnector connector;
+    /** Arguments for the listening connector. */
+    private Map<String, ? extends Connector.Argument> connectorArgs;
+    /** Address on which the hub is listening. */
+    private String address;
+    /** Session from which new sessions are copied. */
+    private Session template;
+    /** Number of debuggees accepted so far. */
+    private int accepted;
+
+    /**
+     * Creates a new instance of ListeningHub.
+     */
+    private ListeningHub() {
+        sessions = new ArrayList<Session>();
+    }
+
+    /**
+     * Copies the breakpoints of one session to another, by way of the
+     * same persistence mechanism used to save the breakpoints. The groups
+     * are not copied, only the breakpoints within them.
+     *
+     * @param  source  session whose breakpoints are copied.
+     * @param  target  session to receive the copies.
+     */
+    private static void copyBreakpoints(Session source, Session target) {
+        BreakpointManager sbm = BreakpointProvider.getBreakpointManager(source);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        XMLEncoder encoder = new XMLEncoder(baos);
+        encoder.writeObject(sbm.getDefaultGroup());
+        encoder.close();
+
+        XMLDecoder decoder = new XMLDecoder(
+                new ByteArrayInputStream(baos.toByteArray()), null,
+                new ExceptionListener() {
+                    @Override
+                    public void exceptionThrown(Exception e) {
+                        logger.log(Level.WARNING, null, e);
+                    }
+                }, ListeningHub.class.getClassLoader());
+        BreakpointGroup group = (BreakpointGroup) decoder.readObject();
+        decoder.close();
+
+        BreakpointManager tbm = BreakpointProvider.getBreakpointManager(target);
+        List<Breakpoint> copies = new ArrayList<Breakpoint>();
+        Iterator<Breakpoint> iter = group.breakpoints(true);
+        while (iter.hasNext()) {
+            Breakpoint bp = iter.next();
+            // The target session already has one of these.
+            if (!(bp instanceof UncaughtExceptionBreakpoint)) {
+                copies.add(bp);
+            }
+        }
+        for (Breakpoint bp : copies) {
+            bp.getBreakpointGroup().removeBreakpoint(bp);
+            tbm.addBreakpoint(bp);
+        }
+    }
+
+    /**
+     * Finds the name of the main class of the debuggee, from the bottom
+     * frame of its main thread.
+     *
+     * @param  vm  the debuggee.
+     * @return  name of the main class, or null if not yet known.
+     */
+    static String findMainClass(VirtualMachine vm) {
+        try {
+            for (ThreadReference thread : vm.allThreads()) {
+                if (thread.name().equals("main") && thread.isSuspended()) {
+                    int count = thread.frameCount();
+                    if (count > 0) {
+                        return thread.frame(count - 1).location().
+                                declaringType().name();
+                    }
+                }
+            }
+        } catch (IncompatibleThreadStateException itse) {
+            // The thread was resumed in the meantime.
+        } catch (VMDisconnectedException vmde) {
+            // Nothing to be named.
+        }
+        return null;
+    }
+
+    /**
+     * Returns the address on which the hub is listening.
+     *
+     * @return  listening address, or null if not listening.
+     */
+    public synchronized String getAddress() {
+        return address;
+    }
+
+    /**
+     * Returns the single instance of this class, creating it if necessary.
+     *
+     * @return  instance of this class.
+     */
+    public static synchronized ListeningHub getDefault() {
+        if (theInstance == null) {
+            theInstance = new ListeningHub();
+        }
+        return theInstance;
+    }
+
+    /**
+     * Returns the sessions created by the hub that are still open, in the
+     * order in which their debuggees connected.
+     *
+     * @return  list of hub sessions.
+     */
+    public List<Session> getSessions() {
+        SessionManager sm = SessionProvider.getSessionManager();
+        List<Session> list = new ArrayList<Session>();
+        synchronized (sessions) {
+            Iterator<Session> iter = sessions.iterator();
+            while (iter.hasNext()) {
+                Session session = iter.next();
+                if (sm.findById(session.getIdentifier()) == null) {
+                    // The session was deleted by the user.
+                    iter.remove();
+                } else {
+                    list.add(session);
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Indicates if the hub is listening for debuggees.
+     *
+     * @return  true if listening, false otherwise.
+     */
+    public synchronized boolean isListening() {
+        return connector != null;
+    }
+
+    @Override
+    public void run() {
+        ListeningConnector conn;
+        Map<String, ? extends Connector.Argument> args;
+        synchronized (this) {
+            conn = connector;
+            args = connectorArgs;
+        }
+        while (true) {
+            final VirtualMachine vm;
+            try {
+                vm = conn.accept(args);
+            } catch (IOException ioe) {
+                // Thrown when the hub stops listening.
+                if (isListening()) {
+                    logger.log(Level.WARNING, null, ioe);
+                    stop();
+                }
+                break;
+            } catch (IllegalConnectorArgumentsException icae) {
+                logger.log(Level.SEVERE, null, icae);
+                stop();
+                break;
+            }
+            final Session source;
+            final int ordinal;
+            synchronized (this) {
+                source = template;
+                accepted++;
+                ordinal = accepted;
+            }
+            final JvmConnection connection = new HubConnection(conn, args, vm);
+            Threads.getThreadPool().submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        setup(source, connection, ordinal);
+                    } catch (VMDisconnectedException vmde) {
+                        // Gone before we could get to it.
+                    } catch (RuntimeException re) {
+                        logger.log(Level.SEVERE, null, re);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Creates and connects the session for a newly accepted debuggee.
+     *
+     * @param  source      session to be copied.
+     * @param  connection  connection to the debuggee.
+     * @param  ordinal     the number of the debuggee.
+     */
+    private void setup(Session source, JvmConnection connection, int ordinal) {
+        VirtualMachine vm = connection.getVM();
+        String main = findMainClass(vm);
+        String name = NbBundle.getMessage(ListeningHub.class,
+                "CTL_Hub_SessionName", main == null ? NbBundle.getMessage(
+                ListeningHub.class, "CTL_Hub_Debuggee") : main,
+                String.valueOf(ordinal));
+        SessionManager sm = SessionProvider.getSessionManager();
+        Session session = sm.copy(source, name);
+        copyBreakpoints(source, session);
+        if (main == null) {
+            session.addSessionListener(new Namer(ordinal));
+        }
+        synchronized (sessions) {
+            sessions.add(session);
+        }
+        session.connect(connection);
+        OutputProvider.getWriter().printOutput(NbBundle.getMessage(
+                ListeningHub.class, "CTL_Hub_Connected", name,
+                session.getIdentifier()));
+    }
+
+    /**
+     * Starts accepting debuggees on the given address. New sessions will
+     * be copies of the given template session.
+     *
+     * @param  transport  either "dt_socket" or "dt_shmem".
+     * @param  host       local address for a socket, or null for any.
+     * @param  addr       port number, or name of the shared memory.
+     * @param  session    session from which the new sessions are copied.
+     * @return  the address on which the hub is listening.
+     * @throws  IllegalConnectorArgumentsException
+     *          if one of the arguments is invalid.
+     * @throws  IllegalStateException
+     *          if the hub is already listening.
+     * @throws  IOException
+     *          if the connector could not start listening.
+     * @throws  NoListeningConnectorException
+     *          if there is no connector for the transport.
+     */
+    public synchronized String start(String transport, String host,
+            String addr, Session session) throws
+            IllegalConnectorArgumentsException, IOException,
+            NoListeningConnectorException {
+        if (connector != null) {
+            throw new IllegalStateException("hub already listening");
+        }
+        ListeningConnector conn =
+                ConnectionProvider.getListeningConnector(transport);
+        if (conn == null) {
+            throw new NoListeningConnectorException(transport);
+        }
+        Map<String, ? extends Connector.Argument> args = conn.defaultArguments();
+        if (transport.equals("dt_socket")) {
+            args.get("port").setValue(addr);
+            if (host != null && host.length() > 0) {
+                args.get("localAddress").setValue(host);
+            }
+        } else {
+            args.get("name").setValue(addr);
+        }
+        // Accept for as long as the hub is running, without a timeout.
+        address = conn.startListening(args);
+        connector = conn;
+        connectorArgs = args;
+        template = session;
+        Thread thread = new Thread(this, "ListeningHub");
+        thread.setDaemon(true);
+        thread.start();
+        return address;
+    }
+
+    /**
+     * Stops accepting debuggees. The sessions already created remain.
+     */
+    public synchronized void stop() {
+        if (connector != null) {
+            ListeningConnector conn = connector;
+            connector = null;
+            address = null;
+            template = null;
+            try {
+                conn.stopListening(connectorArgs);
+            } catch (IOException ioe) {
+                logger.log(Level.WARNING, null, ioe);
+            } catch (IllegalConnectorArgumentsException icae) {
+                logger.log(Level.WARNING, null, icae);
+            }
+        }
+    }
+
+    /**
+     * A connection to a debuggee that has already been accepted.
+     */
+    private static class HubConnection extends AbstractConnection {
+
+        /**
+         * Constructs a new HubConnection.
+         *
+         * @param  connector  the connector that accepted the debuggee.
+         * @param  args       connector arguments.
+         * @param  vm         the debuggee.
+         */
+        HubConnection(Connector connector,
+                Map<String, ? extends Connector.Argument> args,
+                VirtualMachine vm) {
+            super(connector, args);
+            setVM(vm);
+        }
+
+        @Override
+        public void connect() {
+            fireEvent(new ConnectionEvent(this, ConnectionEventType.CONNECTED));
+        }
+    }
+
+    /**
+     * Names a hub session after the main class of its debuggee, once the
+     * debuggee has suspended with its main thread running.
+     */
+    private static class Namer implements SessionListener {
+        /** The number of the debuggee. */
+        private final int ordinal;
+        /** True once the session has been named. */
+        private boolean named;
+
+        /**
+         * Constructs a new Namer.
+         *
+         * @param  ordinal  the number of the debuggee.
+         */
+        Namer(int ordinal) {
+            this.ordinal = ordinal;
+        }
+
+        @Override
+        public void closing(SessionEvent sevt) {
+        }
+
+        @Override
+        public void connected(SessionEvent sevt) {
+        }
+
+        @Override
+        public void disconnected(SessionEvent sevt) {
+        }
+
+        @Override
+        public void opened(Session session) {
+        }
+
+        @Override
+        public void resuming(SessionEvent sevt) {
+        }
+
+        @Override
+        public void suspended(SessionEvent sevt) {
+            if (named) {
+                return;
+            }
+            Session session = sevt.getSession();
+            String main = findMainClass(session.getConnection().getVM());
+            if (main != null) {
+                named = true;
+                session.setProperty(Session.PROP_SESSION_NAME,
+                        NbBundle.getMessage(ListeningHub.class,
+                        "CTL_Hub_SessionName", main, String.valueOf(ordinal)));
+            }
+        }
+    }
+}
@@ -24,7 +24,10 @@ package com.bluemarsh.jswat.core.context;
 
 import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.session.SessionListener;
+import com.sun.jdi.VirtualMachine;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -89,4 +92,33 @@ public class ContextProvider {
             return inst;
         }
     }
+
+    /**
+     * Discards the cached stack frames and values of the snapshots taken
+     * in the given debuggee. This must be called whenever a thread of the
+     * debuggee is resumed to invoke a method, or a variable is assigned a
+     * new value, as the snapshots would otherwise give out stale frames
+     * and values.
+     *
+     * @param  vm  the debuggee whose snapshots are out of date.
+     */
+    public static void invalidateSnapshots(VirtualMachine vm) {
+        List<DebuggingContext> contexts = new ArrayList<DebuggingContext>();
+        synchronized (instanceMap) {
+            for (Map.Entry<Session, DebuggingContext> entry
+                    : instanceMap.entrySet()) {
+                Session session = entry.getKey();
+                if (session.isConnected()
+                        && session.getConnection().getVM() == vm) {
+                    contexts.add(entry.getValue());
+                }
+            }
+        }
+        for (DebuggingContext dc : contexts) {
+            SuspensionSnapshot snapshot = dc.getSnapshot();
+            if (snapshot != null) {
+                snapshot.invalidateFrames();
+            }
+        }
+    }
 }
@@ -80,6 +80,23 @@ public interface DebuggingContext {
                IndexOutOfBoundsException,
                ObjectCollectedException;
 
+    /**
+     * Returns the snapshot of debuggee information for the current thread
+     * in the current suspension epoch. All callers share the same snapshot
+     * until the debuggee is resumed or the current thread changes.
+     *
+     * @return  snapshot for current thread, or null if no current thread.
+     */
+    SuspensionSnapshot getSnapshot();
+
+    /**
+     * Returns the suspension epoch, which is advanced every time the
+     * debuggee is resumed (i.e. whenever the context is reset).
+     *
+     * @return  current suspension epoch.
+     */
+    long getSuspensionEpoch();
+
     /**
      * Returns the current thread.
      *
@@ -96,7 +113,9 @@ public interface DebuggingContext {
 
     /**
      * Clear the context in preparation for connecting or disconnecting
-     * from the debuggee. This must not send out any context events.
+     * from the debuggee, or resuming the debuggee. This advances the
+     * suspension epoch and discards the snapshot. This must not send out
+     * any context events.
      */
     void reset();
 
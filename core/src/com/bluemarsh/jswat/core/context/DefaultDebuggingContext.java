@@ -42,6 +42,10 @@ public class DefaultDebuggingContext extends AbstractDebuggingContext {
     private volatile ThreadReference currentThread;
     /** Zero-based index of the current stack frame. */
     private volatile int currentFrame;
+    /** Incremented each time the debuggee resumes. */
+    private long suspensionEpoch;
+    /** Snapshot of the current thread, created on demand. */
+    private SuspensionSnapshot currentSnapshot;
 
     /**
      * Constructs a new DebuggingContext object.
@@ -60,8 +64,9 @@ public class DefaultDebuggingContext extends AbstractDebuggingContext {
         try {
             if (currentThread != null) {
                 // Always derive the location because Location and StackFrame
-                // objects can become stale after hotswap operations.
-                loc = currentThread.frame(currentFrame).location();
+                // objects can become stale after hotswap operations; the
+                // snapshot is discarded whenever the thread is reset.
+                loc = getSnapshot().getFrame(currentFrame).location();
             }
             //
             // Catch the specific exceptions that we know can occur, and
@@ -82,12 +87,29 @@ public class DefaultDebuggingContext extends AbstractDebuggingContext {
             IncompatibleThreadStateException, IndexOutOfBoundsException,
             ObjectCollectedException {
         if (currentThread != null) {
-            return currentThread.frame(currentFrame);
+            return getSnapshot().getFrame(currentFrame);
         } else {
             return null;
         }
     }
 
+    @Override
+    public synchronized SuspensionSnapshot getSnapshot() {
+        if (currentThread == null) {
+            return null;
+        }
+        if (currentSnapshot == null) {
+            currentSnapshot = new SuspensionSnapshot(currentThread,
+                    suspensionEpoch);
+        }
+        return currentSnapshot;
+    }
+
+    @Override
+    public synchronized long getSuspensionEpoch() {
+        return suspensionEpoch;
+    }
+
     @Override
     public synchronized ThreadReference getThread() {
         return currentThread;
@@ -97,6 +119,8 @@ public class DefaultDebuggingContext extends AbstractDebuggingContext {
     public synchronized void reset() {
         currentThread = null;
         currentFrame = 0;
+        currentSnapshot = null;
+        suspensionEpoch++;
     }
 
     @Override
@@ -109,7 +133,7 @@ public class DefaultDebuggingContext extends AbstractDebuggingContext {
             throw new IllegalStateException("current thread not set");
         }
         if (currentThread.isSuspended()) {
-            if (frame >= currentThread.frameCount()) {
+            if (frame >= getSnapshot().getFrameCount()) {
                 throw new IndexOutOfBoundsException("frame > frame count");
             }
         } else {
@@ -127,6 +151,7 @@ public class DefaultDebuggingContext extends AbstractDebuggingContext {
     @Override
     public synchronized void setLocation(LocatableEvent le, boolean suspending) {
         currentFrame = 0;
+        currentSnapshot = null;
         if (le != null) {
             currentThread = le.thread();
         } else {
@@ -138,8 +163,10 @@ public class DefaultDebuggingContext extends AbstractDebuggingContext {
     @Override
     public synchronized void setThread(ThreadReference thread, boolean suspending) {
         currentThread = thread;
-        // If thread changes, stack frame is reset to zero.
+        // If thread changes, stack frame is reset to zero. The snapshot is
+        // discarded as well, since the frames may have been popped.
         currentFrame = 0;
+        currentSnapshot = null;
         fireChange(ContextEventType.THREAD, suspending);
     }
 }
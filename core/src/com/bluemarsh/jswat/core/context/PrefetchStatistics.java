@@ -0,0 +1,144 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.context;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class PrefetchStatistics counts how often the information requested
+ * from a SuspensionSnapshot had already been retrieved by the prefetcher
+ * (a hit), and how often it had to be fetched on demand (a miss). The
+ * hit rate is useful in tuning the prefetch depth and budget.
+ *
+ * @author  Nathan Fiedler
+ */
+public class PrefetchStatistics {
+    /** Number of requests satisfied by prefetched information. */
+    private final AtomicLong hits;
+    /** Number of requests that had to query the debuggee. */
+    private final AtomicLong misses;
+    /** Number of times the prefetcher was started. */
+    private final AtomicLong prefetches;
+    /** Number of prefetches that did not finish within the budget. */
+    private final AtomicLong overruns;
+
+    /**
+     * Constructs a new PrefetchStatistics with all counts at zero.
+     */
+    public PrefetchStatistics() {
+        hits = new AtomicLong();
+        misses = new AtomicLong();
+        prefetches = new AtomicLong();
+        overruns = new AtomicLong();
+    }
+
+    /**
+     * Returns the ratio of hits to the total number of requests.
+     *
+     * @return  hit rate between 0.0 and 1.0; zero if there were no requests.
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /**
+     * Returns the number of requests satisfied by prefetched information.
+     *
+     * @return  hit count.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of requests that had to query the debuggee.
+     *
+     * @return  miss count.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of prefetches that exceeded their time budget.
+     *
+     * @return  overrun count.
+     */
+    public long getOverruns() {
+        return overruns.get();
+    }
+
+    /**
+     * Returns the number of times the prefetcher was started.
+     *
+     * @return  prefetch count.
+     */
+    public long getPrefetches() {
+        return prefetches.get();
+    }
+
+    /**
+     * Records a request satisfied by prefetched information.
+     */
+    void hit() {
+        hits.incrementAndGet();
+    }
+
+    /**
+     * Records a request that had to query the debuggee.
+     */
+    void miss() {
+        misses.incrementAndGet();
+    }
+
+    /**
+     * Records a prefetch that did not finish within its budget.
+     */
+    void overrun() {
+        overruns.incrementAndGet();
+    }
+
+    /**
+     * Records the start of a prefetch.
+     */
+    void prefetched() {
+        prefetches.incrementAndGet();
+    }
+
+    /**
+     * Resets all of the counts to zero.
+     */
+    public void reset() {
+        hits.set(0);
+        misses.set(0);
+        prefetches.set(0);
+        overruns.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + hits.get() + ", misses=" + misses.get()
+                + ", prefetches=" + prefetches.get()
+                + ", overruns=" + overruns.get();
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.context;
+
+import com.bluemarsh.jswat.core.CoreSettings;
+import com.bluemarsh.jswat.core.path.PathManager;
+import com.bluemarsh.jswat.core.path.PathProvider;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.util.Threads;
+import com.sun.jdi.AbsentInformationException;
+import com.sun.jdi.IncompatibleThreadStateException;
+import com.sun.jdi.InvalidStackFrameException;
+import com.sun.jdi.ObjectCollectedException;
+import com.sun.jdi.VMDisconnectedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class SnapshotPrefetcher speculatively fills in the SuspensionSnapshot
+ * of the current thread as soon as the debuggee suspends, so that the
+ * views and commands find the information already waiting for them. The
+ * topmost frames are retrieved first, after which the local variables,
+ * the fields of <code>this</code>, and the source file of the top frame
+ * are all retrieved in parallel.
+ *
+ * <p>The number of frames retrieved and the time allowed for prefetching
+ * are governed by the <code>prefetchDepth</code> and
+ * <code>prefetchBudget</code> core settings. Any work that is still
+ * outstanding when the budget runs out is abandoned, as is all of the work
+ * if the debuggee resumes in the meantime.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class SnapshotPrefetcher {
+    /** Logger for gracefully reporting unexpected errors. */
+    private static final Logger logger = Logger.getLogger(
+            SnapshotPrefetcher.class.getName());
+    /** The singleton instance of this class. */
+    private static SnapshotPrefetcher theInstance;
+    /** Hit and miss counts for all of the prefetched snapshots. */
+    private final PrefetchStatistics statistics;
+
+    /**
+     * Creates a new instance of SnapshotPrefetcher.
+     */
+    private SnapshotPrefetcher() {
+        statistics = new PrefetchStatistics();
+    }
+
+    /**
+     * Returns the single instance of this class, creating it if necessary.
+     *
+     * @return  instance of this class.
+     */
+    public static synchronized SnapshotPrefetcher getDefault() {
+        if (theInstance == null) {
+            theInstance = new SnapshotPrefetcher();
+        }
+        return theInstance;
+    }
+
+    /**
+     * Returns the statistics for the snapshots prefetched so far.
+     *
+     * @return  prefetch statistics.
+     */
+    public PrefetchStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Begins prefetching the snapshot of the current thread for the given
+     * session. This method returns immediately, the work being performed
+     * on a background thread.
+     *
+     * @param  session  the newly suspended session.
+     */
+    public void prefetch(Session session) {
+        CoreSettings cs = CoreSettings.getDefault();
+        int depth = cs.getPrefetchDepth();
+        if (depth <= 0) {
+            return;
+        }
+        DebuggingContext dc = ContextProvider.getContext(session);
+        SuspensionSnapshot snapshot = dc.getSnapshot();
+        if (snapshot == null) {
+            return;
+        }
+        snapshot.setStatistics(statistics);
+        statistics.prefetched();
+        PathManager pm = PathProvider.getPathManager(session);
+        Threads.getThreadPool().submit(new Coordinator(dc, snapshot, pm,
+                depth, cs.getPrefetchBudget()));
+    }
+
+    /**
+     * Performs the prefetching of a single snapshot.
+     */
+    private class Coordinator implements Runnable {
+        /** Context to which the snapshot belongs. */
+        private final DebuggingContext context;
+        /** The snapshot to be filled in. */
+        private final SuspensionSnapshot snapshot;
+        /** Used to find the source file. */
+        private final PathManager pathManager;
+        /** Number of frames to retrieve. */
+        private final int depth;
+        /** Time allowed for prefetching, in milliseconds. */
+        private final long budget;
+
+        /**
+         * Constructs a new Coordinator.
+         *
+         * @param  context      debugging context.
+         * @param  snapshot     snapshot to be filled in.
+         * @param  pathManager  used to find source files.
+         * @param  depth        number of frames to retrieve.
+         * @param  budget       time allowed, in milliseconds.
+         */
+        Coordinator(DebuggingContext context, SuspensionSnapshot snapshot,
+                PathManager pathManager, int depth, long budget) {
+            this.context = context;
+            this.snapshot = snapshot;
+            this.pathManager = pathManager;
+            this.depth = depth;
+            this.budget = budget;
+        }
+
+        /**
+         * Indicates if the snapshot still belongs to the current
+         * suspension of the debuggee.
+         *
+         * @return  true if still current, false if the debuggee resumed.
+         */
+        private boolean isCurrent() {
+            return context.getSuspensionEpoch() == snapshot.getEpoch();
+        }
+
+        /**
+         * Indicates if the given exception is to be expected when the
+         * debuggee state changes during prefetching, or when the method
+         * lacks debugging information.
+         *
+         * @param  t  exception thrown by a prefetch task.
+         * @return  true if expected, false if it is worth reporting.
+         */
+        private boolean isExpected(Throwable t) {
+            return t instanceof AbsentInformationException
+                    || t instanceof IncompatibleThreadStateException
+                    || t instanceof InvalidStackFrameException
+                    || t instanceof ObjectCollectedException
+                    || t instanceof VMDisconnectedException;
+        }
+
+        @Override
+        public void run() {
+            long deadline = System.currentTimeMillis() + budget;
+            try {
+                // Everything else depends on the frames.
+                snapshot.prefetchFrames(depth);
+            } catch (IncompatibleThreadStateException itse) {
+                return;
+            } catch (ObjectCollectedException oce) {
+                return;
+            } catch (VMDisconnectedException vmde) {
+                return;
+            }
+            if (!isCurrent()) {
+                return;
+            }
+
+            List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(3);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    if (isCurrent()) {
+                        snapshot.prefetchValues(0);
+                    }
+                    return null;
+                }
+            });
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    if (isCurrent()) {
+                        snapshot.prefetchFieldValues(0);
+                    }
+                    return null;
+                }
+            });
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    if (isCurrent()) {
+                        snapshot.prefetchSource(0, pathManager);
+                    }
+                    return null;
+                }
+            });
+            ExecutorService pool = Threads.getThreadPool();
+            List<Future<Void>> futures = new ArrayList<Future<Void>>(3);
+            for (Callable<Void> task : tasks) {
+                futures.add(pool.submit(task));
+            }
+
+            boolean overrun = false;
+            for (Future<Void> future : futures) {
+                long remaining = deadline - System.currentTimeMillis();
+                try {
+                    future.get(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException te) {
+                    // Do not interrupt the thread while it is in JDI.
+                    future.cancel(false);
+                    overrun = true;
+                } catch (ExecutionException ee) {
+                    Throwable cause = ee.getCause();
+                    if (!isExpected(cause)) {
+                        logger.log(Level.WARNING, null, cause);
+                    }
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+            if (overrun) {
+                statistics.overrun();
+            }
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine("prefetch complete: " + statistics);
+            }
+        }
+    }
+}
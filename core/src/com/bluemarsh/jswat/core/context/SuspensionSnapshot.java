@@ -0,0 +1,894 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.context;
+
+import com.bluemarsh.jswat.core.path.PathEntry;
+import com.bluemarsh.jswat.core.path.PathManager;
+import com.sun.jdi.AbsentInformationException;
+import com.sun.jdi.Field;
+import com.sun.jdi.IncompatibleThreadStateException;
+import com.sun.jdi.InvalidStackFrameException;
+import com.sun.jdi.LocalVariable;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.StackFrame;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.Value;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class SuspensionSnapshot holds the information retrieved from the
+ * debuggee for one thread while it remains suspended. Each piece of
+ * information (the stack frames, and for each frame the <code>this</code>
+ * object, its fields, the visible variables and their values, and the
+ * source file) is fetched at most once, the first time it is requested,
+ * and shared by all of the views and commands that ask for it.
+ *
+ * <p>A snapshot belongs to a single suspension epoch of the session; the
+ * epoch is advanced whenever the debuggee resumes, at which point the
+ * DebuggingContext discards the snapshot. Instances are acquired from
+ * <code>DebuggingContext.getSnapshot()</code>.</p>
+ *
+ * <p>Stack frames are retrieved a page at a time, so that a thread with
+ * thousands of frames does not have its entire stack transferred merely
+ * to display the top few frames.</p>
+ *
+ * <p>The debuggee is never queried while holding the lock on the snapshot,
+ * so that the <code>SnapshotPrefetcher</code> may fill in several parts of
+ * the snapshot in parallel. If two callers happen to fetch the same
+ * information at the same time, the first result to arrive is kept.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class SuspensionSnapshot {
+    /** Number of frames retrieved at a time when one is needed. */
+    public static final int PAGE_SIZE = 64;
+    /** The suspended thread. */
+    private final ThreadReference thread;
+    /** The suspension epoch in which this snapshot was taken. */
+    private final long epoch;
+    /** The stack frames retrieved so far (null elements for those not yet
+     * retrieved), or null if none have been retrieved. */
+    private StackFrame[] frames;
+    /** Number of frames in the thread, or -1 if not yet retrieved. */
+    private int frameCount;
+    /** Advanced each time the frames are invalidated, such that frames
+     * and values fetched before then are not cached. */
+    private long generation;
+    /** Data for the individual frames, keyed by frame index. */
+    private final Map<Integer, FrameData> frameData;
+    /** Where the prefetch hits and misses are recorded, may be null. */
+    private PrefetchStatistics statistics;
+    /** Keys of the items that were filled in by prefetching. */
+    private final Set<String> prefetched;
+    /** Keys of the items that have been requested by consumers. */
+    private final Set<String> accessed;
+
+    /**
+     * Constructs a new SuspensionSnapshot for the given thread.
+     *
+     * @param  thread  the suspended thread.
+     * @param  epoch   the suspension epoch of the session.
+     */
+    public SuspensionSnapshot(ThreadReference thread, long epoch) {
+        if (thread == null) {
+            throw new IllegalArgumentException("thread must be non-null");
+        }
+        this.thread = thread;
+        this.epoch = epoch;
+        frameCount = -1;
+        frameData = new HashMap<Integer, FrameData>();
+        prefetched = new HashSet<String>();
+        accessed = new HashSet<String>();
+    }
+
+    /**
+     * Returns the suspension epoch in which this snapshot was taken.
+     *
+     * @return  suspension epoch.
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns the values of the fields visible in the given frame. If the
+     * frame has a <code>this</code> object, these are the visible fields
+     * of that object, otherwise they are the static fields of the class
+     * declaring the method.
+     *
+     * @param  index  zero-based index of the frame.
+     * @return  unmodifiable map of fields to their values.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    public Map<Field, Value> getFieldValues(int index)
+            throws IncompatibleThreadStateException {
+        synchronized (this) {
+            FrameData data = getFrameData(index);
+            recordAccess("fields:" + index, data.fieldValues != null);
+        }
+        return fetchFieldValues(index);
+    }
+
+    /**
+     * Returns the stack frame at the given index.
+     *
+     * @param  index  zero-based index of the frame.
+     * @return  the stack frame.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     * @throws  IndexOutOfBoundsException
+     *          if index is outside the range of frames.
+     */
+    public StackFrame getFrame(int index)
+            throws IncompatibleThreadStateException {
+        synchronized (this) {
+            recordAccess("frame:" + index, hasFrame(index));
+        }
+        return fetchFrame(index);
+    }
+
+    /**
+     * Returns the number of stack frames in the thread.
+     *
+     * @return  frame count.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    public int getFrameCount() throws IncompatibleThreadStateException {
+        synchronized (this) {
+            recordAccess("count", frameCount >= 0);
+        }
+        return fetchFrameCount();
+    }
+
+    /**
+     * Returns all of the stack frames of the thread, retrieving them
+     * from the debuggee if they have not already been fetched.
+     *
+     * @return  unmodifiable list of stack frames.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    public List<StackFrame> getFrames()
+            throws IncompatibleThreadStateException {
+        synchronized (this) {
+            recordAccess("frames", frameCount >= 0
+                    && hasFrames(0, frameCount));
+        }
+        return fetchFrames(0, fetchFrameCount());
+    }
+
+    /**
+     * Returns a range of the stack frames of the thread, retrieving from
+     * the debuggee only those frames not already fetched. The range is
+     * clipped to the frames that actually exist.
+     *
+     * @param  start   zero-based index of the first frame.
+     * @param  length  number of frames to return.
+     * @return  unmodifiable list of stack frames.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     * @throws  IndexOutOfBoundsException
+     *          if start or length is negative.
+     */
+    public List<StackFrame> getFrames(int start, int length)
+            throws IncompatibleThreadStateException {
+        if (start < 0) {
+            throw new IndexOutOfBoundsException("start: " + start);
+        }
+        if (length < 0) {
+            throw new IndexOutOfBoundsException("length: " + length);
+        }
+        int count = fetchFrameCount();
+        int end = Math.min(count, start + length);
+        if (start >= end) {
+            return Collections.emptyList();
+        }
+        synchronized (this) {
+            for (int ii = start; ii < end; ii++) {
+                recordAccess("frame:" + ii, hasFrame(ii));
+            }
+        }
+        return fetchFrames(start, end - start);
+    }
+
+    /**
+     * Returns the source file for the location of the given frame.
+     *
+     * @param  index  zero-based index of the frame.
+     * @param  pm     path manager with which to find the source.
+     * @return  source file, or null if it could not be found.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    public PathEntry getSource(int index, PathManager pm)
+            throws IncompatibleThreadStateException {
+        synchronized (this) {
+            FrameData data = getFrameData(index);
+            recordAccess("source:" + index, data.sourceFetched);
+        }
+        return fetchSource(index, pm);
+    }
+
+    /**
+     * Returns the <code>this</code> object of the given frame.
+     *
+     * @param  index  zero-based index of the frame.
+     * @return  this object, or null if the method is static or native.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    public ObjectReference getThisObject(int index)
+            throws IncompatibleThreadStateException {
+        synchronized (this) {
+            FrameData data = getFrameData(index);
+            recordAccess("this:" + index, data.thisFetched);
+        }
+        return fetchThisObject(index);
+    }
+
+    /**
+     * Returns the suspended thread for which this snapshot was taken.
+     *
+     * @return  thread reference.
+     */
+    public ThreadReference getThread() {
+        return thread;
+    }
+
+    /**
+     * Returns the value of the given local variable in the given frame.
+     *
+     * @param  index  zero-based index of the frame.
+     * @param  var    a visible variable of that frame.
+     * @return  value of the variable.
+     * @throws  AbsentInformationException
+     *          if the method lacks local variable information.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    public Value getValue(int index, LocalVariable var)
+            throws AbsentInformationException,
+                   IncompatibleThreadStateException {
+        Map<LocalVariable, Value> values = getValues(index);
+        if (values.containsKey(var)) {
+            return values.get(var);
+        }
+        // Not one of the visible variables, ask the frame directly.
+        try {
+            return fetchFrame(index).getValue(var);
+        } catch (InvalidStackFrameException isfe) {
+            return refetchFrame(index).getValue(var);
+        }
+    }
+
+    /**
+     * Returns the values of all visible variables in the given frame. The
+     * values are retrieved from the debuggee in a single request.
+     *
+     * @param  index  zero-based index of the frame.
+     * @return  unmodifiable map of variables to their values.
+     * @throws  AbsentInformationException
+     *          if the method lacks local variable information.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    public Map<LocalVariable, Value> getValues(int index)
+            throws AbsentInformationException,
+                   IncompatibleThreadStateException {
+        synchronized (this) {
+            FrameData data = getFrameData(index);
+            recordAccess("values:" + index,
+                    data.values != null || data.absentInfo != null);
+        }
+        return fetchValues(index);
+    }
+
+    /**
+     * Finds the visible variable in the given frame that has the given name.
+     *
+     * @param  index  zero-based index of the frame.
+     * @param  name   name of the variable.
+     * @return  the variable, or null if there is no such visible variable.
+     * @throws  AbsentInformationException
+     *          if the method lacks local variable information.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    public LocalVariable getVisibleVariableByName(int index, String name)
+            throws AbsentInformationException,
+                   IncompatibleThreadStateException {
+        // Like StackFrame.visibleVariableByName(), the innermost variable
+        // of the given name is the one visible, and it comes last.
+        List<LocalVariable> vars = getVisibleVariables(index);
+        for (int ii = vars.size() - 1; ii >= 0; ii--) {
+            LocalVariable var = vars.get(ii);
+            if (var.name().equals(name)) {
+                return var;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the visible local variables of the given frame.
+     *
+     * @param  index  zero-based index of the frame.
+     * @return  unmodifiable list of visible variables.
+     * @throws  AbsentInformationException
+     *          if the method lacks local variable information.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    public List<LocalVariable> getVisibleVariables(int index)
+            throws AbsentInformationException,
+                   IncompatibleThreadStateException {
+        synchronized (this) {
+            FrameData data = getFrameData(index);
+            recordAccess("variables:" + index,
+                    data.variables != null || data.absentInfo != null);
+        }
+        return fetchVisibleVariables(index);
+    }
+
+    /**
+     * Discards the cached stack frames, which become invalid whenever the
+     * thread is resumed to invoke a method, along with the cached values
+     * of variables and fields, which the method may have changed. The
+     * <code>this</code> objects, variables, and source files remain valid
+     * and are retained.
+     */
+    public synchronized void invalidateFrames() {
+        generation++;
+        frames = null;
+        for (FrameData data : frameData.values()) {
+            data.values = null;
+            data.fieldValues = null;
+        }
+        Iterator<String> iter = prefetched.iterator();
+        while (iter.hasNext()) {
+            String key = iter.next();
+            if (key.startsWith("frame") || key.startsWith("values:")
+                    || key.startsWith("fields:")) {
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * Retrieves the count of frames, and the topmost frames of the thread,
+     * up to the given depth.
+     *
+     * @param  depth  maximum number of frames to retrieve.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    void prefetchFrames(int depth) throws IncompatibleThreadStateException {
+        int count = fetchFrameCount();
+        List<StackFrame> list = fetchFrames(0, Math.min(depth, count));
+        synchronized (this) {
+            prefetched.add("count");
+            if (list.size() == count) {
+                prefetched.add("frames");
+            }
+            for (int ii = 0; ii < list.size(); ii++) {
+                prefetched.add("frame:" + ii);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the <code>this</code> object of the given frame, and the
+     * values of the visible fields.
+     *
+     * @param  index  zero-based index of the frame.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    void prefetchFieldValues(int index)
+            throws IncompatibleThreadStateException {
+        fetchFieldValues(index);
+        synchronized (this) {
+            prefetched.add("this:" + index);
+            prefetched.add("fields:" + index);
+        }
+    }
+
+    /**
+     * Finds the source file for the location of the given frame.
+     *
+     * @param  index  zero-based index of the frame.
+     * @param  pm     path manager with which to find the source.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    void prefetchSource(int index, PathManager pm)
+            throws IncompatibleThreadStateException {
+        fetchSource(index, pm);
+        synchronized (this) {
+            prefetched.add("source:" + index);
+        }
+    }
+
+    /**
+     * Retrieves the visible variables of the given frame and their values.
+     *
+     * @param  index  zero-based index of the frame.
+     * @throws  AbsentInformationException
+     *          if the method lacks local variable information.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    void prefetchValues(int index) throws AbsentInformationException,
+            IncompatibleThreadStateException {
+        try {
+            fetchValues(index);
+        } finally {
+            // The absence of variable information is worth knowing too.
+            synchronized (this) {
+                prefetched.add("variables:" + index);
+                prefetched.add("values:" + index);
+            }
+        }
+    }
+
+    /**
+     * Sets the object in which the prefetch hits and misses of this
+     * snapshot are to be recorded.
+     *
+     * @param  statistics  prefetch statistics.
+     */
+    synchronized void setStatistics(PrefetchStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Retrieves the field values for the given frame, if not already cached.
+     *
+     * @param  index  zero-based index of the frame.
+     * @return  unmodifiable map of fields to their values.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    private Map<Field, Value> fetchFieldValues(int index)
+            throws IncompatibleThreadStateException {
+        FrameData data;
+        long gen;
+        synchronized (this) {
+            data = getFrameData(index);
+            if (data.fieldValues != null) {
+                return data.fieldValues;
+            }
+            gen = generation;
+        }
+        ObjectReference obj = fetchThisObject(index);
+        Map<Field, Value> values;
+        if (obj != null) {
+            values = obj.getValues(obj.referenceType().visibleFields());
+        } else {
+            ReferenceType clazz;
+            try {
+                clazz = fetchFrame(index).location().declaringType();
+            } catch (InvalidStackFrameException isfe) {
+                clazz = refetchFrame(index).location().declaringType();
+            }
+            List<Field> statics = new ArrayList<Field>();
+            for (Field field : clazz.visibleFields()) {
+                if (field.isStatic()) {
+                    statics.add(field);
+                }
+            }
+            values = clazz.getValues(statics);
+        }
+        synchronized (this) {
+            if (gen != generation) {
+                // Invalidated while fetching, do not cache the values.
+                return Collections.unmodifiableMap(values);
+            }
+            if (data.fieldValues == null) {
+                data.fieldValues = Collections.unmodifiableMap(values);
+            }
+            return data.fieldValues;
+        }
+    }
+
+    /**
+     * Retrieves the frame at the given index, fetching all of the frames
+     * if the index lies beyond those already retrieved.
+     *
+     * @param  index  zero-based index of the frame.
+     * @return  the stack frame.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    private StackFrame fetchFrame(int index)
+            throws IncompatibleThreadStateException {
+        StackFrame cached = null;
+        synchronized (this) {
+            if (hasFrame(index)) {
+                cached = frames[index];
+            }
+        }
+        if (cached != null) {
+            try {
+                // Checks the validity of the frame without a round trip.
+                cached.location();
+                return cached;
+            } catch (InvalidStackFrameException isfe) {
+                // The thread was resumed without us being told.
+                invalidateFrames();
+            }
+        }
+        int count = fetchFrameCount();
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("frame " + index
+                    + " of " + count);
+        }
+        // Retrieve the entire page in which the frame resides.
+        int start = index - index % PAGE_SIZE;
+        List<StackFrame> list = fetchFrames(start,
+                Math.min(PAGE_SIZE, count - start));
+        return list.get(index - start);
+    }
+
+    /**
+     * Retrieves the number of frames, if not already cached.
+     *
+     * @return  frame count.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    private int fetchFrameCount() throws IncompatibleThreadStateException {
+        synchronized (this) {
+            if (frameCount >= 0) {
+                return frameCount;
+            }
+        }
+        int count = thread.frameCount();
+        synchronized (this) {
+            frameCount = count;
+            return count;
+        }
+    }
+
+    /**
+     * Retrieves a range of frames, querying the debuggee for only those
+     * frames within the range that have not yet been retrieved.
+     *
+     * @param  start   zero-based index of first frame.
+     * @param  length  number of frames, which must exist.
+     * @return  unmodifiable list of the frames in the range.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    private List<StackFrame> fetchFrames(int start, int length)
+            throws IncompatibleThreadStateException {
+        if (length == 0) {
+            return Collections.emptyList();
+        }
+        while (true) {
+            int first;
+            int last;
+            long gen;
+            synchronized (this) {
+                // Find the smallest range that covers the missing frames.
+                first = start;
+                last = start + length - 1;
+                while (first <= last && hasFrame(first)) {
+                    first++;
+                }
+                while (last >= first && hasFrame(last)) {
+                    last--;
+                }
+                gen = generation;
+            }
+            List<StackFrame> list = null;
+            if (first <= last) {
+                list = thread.frames(first, last - first + 1);
+            }
+            synchronized (this) {
+                if (gen != generation) {
+                    // The frames were invalidated while fetching, and
+                    // those we have may be stale, so start over.
+                    continue;
+                }
+                if (list != null) {
+                    if (frames == null) {
+                        frames = new StackFrame[frameCount];
+                    }
+                    for (int ii = 0; ii < list.size(); ii++) {
+                        if (frames[first + ii] == null) {
+                            frames[first + ii] = list.get(ii);
+                        }
+                    }
+                }
+                StackFrame[] range = new StackFrame[length];
+                System.arraycopy(frames, start, range, 0, length);
+                return Collections.unmodifiableList(Arrays.asList(range));
+            }
+        }
+    }
+
+    /**
+     * Finds the source file for the given frame, if not already cached.
+     *
+     * @param  index  zero-based index of the frame.
+     * @param  pm     path manager with which to find the source.
+     * @return  source file, or null if not found.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    private PathEntry fetchSource(int index, PathManager pm)
+            throws IncompatibleThreadStateException {
+        FrameData data;
+        synchronized (this) {
+            data = getFrameData(index);
+            if (data.sourceFetched) {
+                return data.source;
+            }
+        }
+        PathEntry source;
+        try {
+            source = pm.findSource(fetchFrame(index).location());
+        } catch (InvalidStackFrameException isfe) {
+            source = pm.findSource(refetchFrame(index).location());
+        }
+        synchronized (this) {
+            if (!data.sourceFetched) {
+                data.source = source;
+                data.sourceFetched = true;
+            }
+            return data.source;
+        }
+    }
+
+    /**
+     * Retrieves the this object of the given frame, if not already cached.
+     *
+     * @param  index  zero-based index of the frame.
+     * @return  this object, or null if static or native.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    private ObjectReference fetchThisObject(int index)
+            throws IncompatibleThreadStateException {
+        FrameData data;
+        synchronized (this) {
+            data = getFrameData(index);
+            if (data.thisFetched) {
+                return data.thisObject;
+            }
+        }
+        ObjectReference obj;
+        try {
+            obj = fetchFrame(index).thisObject();
+        } catch (InvalidStackFrameException isfe) {
+            obj = refetchFrame(index).thisObject();
+        }
+        synchronized (this) {
+            if (!data.thisFetched) {
+                data.thisObject = obj;
+                data.thisFetched = true;
+            }
+            return data.thisObject;
+        }
+    }
+
+    /**
+     * Retrieves the variable values of the given frame, if not already
+     * cached.
+     *
+     * @param  index  zero-based index of the frame.
+     * @return  unmodifiable map of variables to their values.
+     * @throws  AbsentInformationException
+     *          if the method lacks local variable information.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    private Map<LocalVariable, Value> fetchValues(int index)
+            throws AbsentInformationException,
+                   IncompatibleThreadStateException {
+        FrameData data;
+        long gen;
+        synchronized (this) {
+            data = getFrameData(index);
+            if (data.values != null) {
+                return data.values;
+            }
+            gen = generation;
+        }
+        List<LocalVariable> vars = fetchVisibleVariables(index);
+        Map<LocalVariable, Value> values;
+        try {
+            values = fetchFrame(index).getValues(vars);
+        } catch (InvalidStackFrameException isfe) {
+            values = refetchFrame(index).getValues(vars);
+        }
+        synchronized (this) {
+            if (gen != generation) {
+                // Invalidated while fetching, do not cache the values.
+                return Collections.unmodifiableMap(values);
+            }
+            if (data.values == null) {
+                data.values = Collections.unmodifiableMap(values);
+            }
+            return data.values;
+        }
+    }
+
+    /**
+     * Retrieves the visible variables of the given frame, if not already
+     * cached.
+     *
+     * @param  index  zero-based index of the frame.
+     * @return  unmodifiable list of visible variables.
+     * @throws  AbsentInformationException
+     *          if the method lacks local variable information.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    private List<LocalVariable> fetchVisibleVariables(int index)
+            throws AbsentInformationException,
+                   IncompatibleThreadStateException {
+        FrameData data;
+        synchronized (this) {
+            data = getFrameData(index);
+            if (data.absentInfo != null) {
+                throw data.absentInfo;
+            }
+            if (data.variables != null) {
+                return data.variables;
+            }
+        }
+        List<LocalVariable> vars;
+        try {
+            try {
+                vars = fetchFrame(index).visibleVariables();
+            } catch (InvalidStackFrameException isfe) {
+                vars = refetchFrame(index).visibleVariables();
+            }
+        } catch (AbsentInformationException aie) {
+            // Remember this so we do not ask again.
+            synchronized (this) {
+                data.absentInfo = aie;
+            }
+            throw aie;
+        }
+        synchronized (this) {
+            if (data.variables == null) {
+                data.variables = Collections.unmodifiableList(vars);
+            }
+            return data.variables;
+        }
+    }
+
+    /**
+     * Indicates if the given frame has been retrieved.
+     *
+     * @param  index  zero-based index of the frame.
+     * @return  true if frame is available, false otherwise.
+     */
+    private boolean hasFrame(int index) {
+        // Caller must hold the lock on this object.
+        return frames != null && index >= 0 && index < frames.length
+                && frames[index] != null;
+    }
+
+    /**
+     * Indicates if all of the frames in the range have been retrieved.
+     *
+     * @param  start   zero-based index of first frame.
+     * @param  length  number of frames.
+     * @return  true if all are available, false otherwise.
+     */
+    private boolean hasFrames(int start, int length) {
+        // Caller must hold the lock on this object.
+        for (int ii = start + length - 1; ii >= start; ii--) {
+            if (!hasFrame(ii)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves the data holder for the given frame, creating it if needed.
+     *
+     * @param  index  zero-based index of the frame.
+     * @return  frame data holder.
+     */
+    private FrameData getFrameData(int index) {
+        // Caller must hold the lock on this object.
+        FrameData data = frameData.get(index);
+        if (data == null) {
+            data = new FrameData();
+            frameData.put(index, data);
+        }
+        return data;
+    }
+
+    /**
+     * Records the first request for an item by a consumer as either a hit
+     * (the item was prefetched) or a miss (the item must be fetched now).
+     *
+     * @param  key     identifies the item being requested.
+     * @param  cached  true if the item has already been retrieved.
+     */
+    private void recordAccess(String key, boolean cached) {
+        // Caller must hold the lock on this object.
+        if (statistics != null && accessed.add(key)) {
+            if (prefetched.contains(key)) {
+                statistics.hit();
+            } else if (!cached) {
+                statistics.miss();
+            }
+        }
+    }
+
+    /**
+     * Discards the cached frames and retrieves the frame at the given
+     * index once more. This is used when a cached frame turns out to have
+     * been invalidated by the thread resuming (e.g. to invoke a method)
+     * without the snapshot having been told.
+     *
+     * @param  index  zero-based index of the frame.
+     * @return  the stack frame.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    private StackFrame refetchFrame(int index)
+            throws IncompatibleThreadStateException {
+        invalidateFrames();
+        return fetchFrame(index);
+    }
+
+    /**
+     * Holds the information retrieved for a single stack frame.
+     */
+    private static class FrameData {
+        /** True if the this object has been retrieved. */
+        private boolean thisFetched;
+        /** The this object, if retrieved. */
+        private ObjectReference thisObject;
+        /** Values of the visible fields, if retrieved. */
+        private Map<Field, Value> fieldValues;
+        /** Visible variables, if retrieved. */
+        private List<LocalVariable> variables;
+        /** Set if the variables could not be retrieved. */
+        private AbsentInformationException absentInfo;
+        /** Values of the visible variables, if retrieved. */
+        private Map<LocalVariable, Value> values;
+        /** True if the source file has been looked for. */
+        private boolean sourceFetched;
+        /** The source file, if found. */
+        private PathEntry source;
+    }
+}
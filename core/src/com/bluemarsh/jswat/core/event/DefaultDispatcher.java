@@ -56,11 +56,19 @@ public class DefaultDispatcher implements Dispatcher, Runnable {
     private Runnable stoppedCallback;
     /** Invoked if the debuggee is suspended by an event. */
     private DispatcherListener suspendedCallback;
+    /** Counts and timings of the delivered events. */
+    private final DispatcherStatistics statistics;
 
     /**
      * Constructs a new instance of DefaultDispatcher.
      */
     public DefaultDispatcher() {
+        statistics = new DispatcherStatistics();
+    }
+
+    @Override
+    public DispatcherStatistics getStatistics() {
+        return statistics;
     }
 
     @Override
@@ -76,11 +84,14 @@ public class DefaultDispatcher implements Dispatcher, Runnable {
             try {
                 // Wait for JDI events to occur.
                 EventSet set = eventQueue.remove();
+                long setStart = System.nanoTime();
                 EventIterator iter = set.eventIterator();
                 boolean resume = true;
                 Event suspendEvent = null;
                 while (iter.hasNext()) {
                     Event event = iter.nextEvent();
+                    DispatcherListener listener = null;
+                    long start = System.nanoTime();
 
                     // Notify the appropriate listeners of the event.
                     if (event instanceof VMDisconnectEvent) {
@@ -88,12 +99,13 @@ public class DefaultDispatcher implements Dispatcher, Runnable {
                         stop = true;
                     } else if (event instanceof VMStartEvent) {
                         if (startedCallback != null) {
+                            listener = startedCallback;
                             resume &= startedCallback.eventOccurred(event);
                         }
                     } else {
                         EventRequest request = event.request();
                         if (request != null) {
-                            DispatcherListener listener = (DispatcherListener)
+                            listener = (DispatcherListener)
                                     request.getProperty(PROP_LISTENER);
                             if (listener != null) {
                                 resume &= listener.eventOccurred(event);
@@ -103,13 +115,18 @@ public class DefaultDispatcher implements Dispatcher, Runnable {
                             }
                         }
                     }
+                    statistics.eventDispatched(DispatcherStatistics.typeOf(event),
+                            listener, System.nanoTime() - start);
                 }
                 if (resume) {
                     // Resume only if everyone said it was okay to do so.
+                    long start = System.nanoTime();
                     set.resume();
+                    statistics.resumed(System.nanoTime() - start);
                 } else if (suspendedCallback != null) {
                     suspendedCallback.eventOccurred(suspendEvent);
                 }
+                statistics.eventSetProcessed(System.nanoTime() - setStart);
             } catch (InterruptedException ie) {
                 // Nothing left to do but leave.
                 break;
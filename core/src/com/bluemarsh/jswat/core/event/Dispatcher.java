@@ -45,6 +45,14 @@ public interface Dispatcher {
      */
     void register(DispatcherListener listener, EventRequest request);
 
+    /**
+     * Returns the counts and timings of the events delivered by this
+     * dispatcher.
+     *
+     * @return  dispatcher statistics.
+     */
+    DispatcherStatistics getStatistics();
+
     /**
      * Start the event handling thread to process JDI events. Optional
      * listeners may be provided, which are invoked in special cases for
@@ -0,0 +1,267 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.event;
+
+import com.bluemarsh.jswat.core.util.LatencyStatistics;
+import com.sun.jdi.event.Event;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class DispatcherStatistics counts the events delivered by a Dispatcher
+ * and the time taken to deliver them, so that it is possible to tell
+ * whether the debugger is keeping up with the debuggee. The time spent in
+ * each listener is recorded separately, which reveals the breakpoints that
+ * are costly to process. Resuming the debuggee after an event set is a
+ * round trip to the debuggee, and its duration is a fair measure of the
+ * latency of the JDWP connection.
+ *
+ * @author  Nathan Fiedler
+ */
+public class DispatcherStatistics {
+    /** Names of the JDI event interfaces, keyed by implementation class. */
+    private static final ConcurrentMap<Class<?>, String> typeNames =
+            new ConcurrentHashMap<Class<?>, String>();
+    /** Number of event sets received. */
+    private final AtomicLong eventSets;
+    /** Number of events received, keyed by the event type. */
+    private final ConcurrentMap<String, AtomicLong> eventCounts;
+    /** Time spent in all of the listeners. */
+    private final LatencyStatistics listenerTime;
+    /** Time spent in each listener; listeners may be garbage collected. */
+    private final Map<DispatcherListener, LatencyStatistics> listenerTimes;
+    /** Time taken to resume the debuggee after each event set. */
+    private final LatencyStatistics resumeTime;
+    /** Time spent processing event sets, in nanoseconds. */
+    private final AtomicLong busyTime;
+    /** When the counts were last reset, from System.nanoTime(). */
+    private volatile long startTime;
+
+    /**
+     * Constructs a new DispatcherStatistics with all counts at zero.
+     */
+    public DispatcherStatistics() {
+        eventSets = new AtomicLong();
+        eventCounts = new ConcurrentHashMap<String, AtomicLong>();
+        listenerTime = new LatencyStatistics();
+        listenerTimes = new WeakHashMap<DispatcherListener, LatencyStatistics>();
+        resumeTime = new LatencyStatistics();
+        busyTime = new AtomicLong();
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Records the processing of an event set.
+     *
+     * @param  nanos  time taken to process the set, in nanoseconds.
+     */
+    public void eventSetProcessed(long nanos) {
+        eventSets.incrementAndGet();
+        busyTime.addAndGet(nanos);
+    }
+
+    /**
+     * Records the delivery of an event.
+     *
+     * @param  type      type of the event (see typeOf()).
+     * @param  listener  listener that received the event, or null if none.
+     * @param  nanos     time spent in the listener, in nanoseconds.
+     */
+    public void eventDispatched(String type, DispatcherListener listener,
+            long nanos) {
+        AtomicLong counter = eventCounts.get(type);
+        if (counter == null) {
+            AtomicLong fresh = new AtomicLong();
+            counter = eventCounts.putIfAbsent(type, fresh);
+            if (counter == null) {
+                counter = fresh;
+            }
+        }
+        counter.incrementAndGet();
+        if (listener != null) {
+            listenerTime.record(nanos);
+            LatencyStatistics stats;
+            synchronized (listenerTimes) {
+                stats = listenerTimes.get(listener);
+                if (stats == null) {
+                    stats = new LatencyStatistics();
+                    listenerTimes.put(listener, stats);
+                }
+            }
+            stats.record(nanos);
+        }
+    }
+
+    /**
+     * Returns the time since the counts were last reset.
+     *
+     * @return  elapsed time in milliseconds.
+     */
+    public long getElapsedMillis() {
+        return (System.nanoTime() - startTime) / 1000000;
+    }
+
+    /**
+     * Returns the number of events received, by event type.
+     *
+     * @return  event counts keyed by type, sorted by type.
+     */
+    public Map<String, Long> getEventCounts() {
+        Map<String, Long> counts = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : eventCounts.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the total number of events received.
+     *
+     * @return  event count.
+     */
+    public long getEvents() {
+        long total = 0;
+        for (AtomicLong counter : eventCounts.values()) {
+            total += counter.get();
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of event sets received.
+     *
+     * @return  event set count.
+     */
+    public long getEventSets() {
+        return eventSets.get();
+    }
+
+    /**
+     * Returns the time spent in all of the listeners.
+     *
+     * @return  listener time.
+     */
+    public LatencyStatistics getListenerTime() {
+        return listenerTime;
+    }
+
+    /**
+     * Returns the time spent in each of the listeners that have received
+     * an event since the counts were last reset.
+     *
+     * @return  copy of the listener times, keyed by listener.
+     */
+    public Map<DispatcherListener, LatencyStatistics> getListenerTimes() {
+        synchronized (listenerTimes) {
+            return new HashMap<DispatcherListener, LatencyStatistics>(
+                    listenerTimes);
+        }
+    }
+
+    /**
+     * Returns the time taken to resume the debuggee after each event set,
+     * which is a round trip over the JDWP connection.
+     *
+     * @return  resume time.
+     */
+    public LatencyStatistics getResumeTime() {
+        return resumeTime;
+    }
+
+    /**
+     * Returns the fraction of the time since the counts were last reset
+     * that was spent processing events. A value approaching one means the
+     * dispatcher is falling behind the debuggee.
+     *
+     * @return  utilization between 0.0 and 1.0.
+     */
+    public double getUtilization() {
+        long elapsed = System.nanoTime() - startTime;
+        return elapsed <= 0 ? 0.0 : Math.min(1.0,
+                (double) busyTime.get() / elapsed);
+    }
+
+    /**
+     * Returns the rate at which the given number of things occurred since
+     * the counts were last reset.
+     *
+     * @param  count  number of occurrences.
+     * @return  occurrences per second.
+     */
+    public double perSecond(long count) {
+        long elapsed = System.nanoTime() - startTime;
+        return elapsed <= 0 ? 0.0 : count * 1000000000.0 / elapsed;
+    }
+
+    /**
+     * Records the resumption of the debuggee after an event set.
+     *
+     * @param  nanos  time taken to resume, in nanoseconds.
+     */
+    public void resumed(long nanos) {
+        resumeTime.record(nanos);
+    }
+
+    /**
+     * Resets all of the counts to zero.
+     */
+    public void reset() {
+        eventSets.set(0);
+        eventCounts.clear();
+        listenerTime.reset();
+        synchronized (listenerTimes) {
+            listenerTimes.clear();
+        }
+        resumeTime.reset();
+        busyTime.set(0);
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Returns the type of the given event, which is the name of the JDI
+     * event interface it implements (e.g. "BreakpointEvent").
+     *
+     * @param  event  JDI event.
+     * @return  event type.
+     */
+    public static String typeOf(Event event) {
+        Class<?> clazz = event.getClass();
+        String name = typeNames.get(clazz);
+        if (name == null) {
+            name = clazz.getSimpleName();
+            String pkg = Event.class.getPackage().getName();
+            for (Class<?> iface : clazz.getInterfaces()) {
+                if (iface.getPackage() != null
+                        && iface.getPackage().getName().equals(pkg)) {
+                    name = iface.getSimpleName();
+                    break;
+                }
+            }
+            typeNames.put(clazz, name);
+        }
+        return name;
+    }
+}
@@ -23,6 +23,7 @@
 package com.bluemarsh.jswat.core.expr;
 
 import com.bluemarsh.jswat.parser.node.Token;
+import com.bluemarsh.jswat.core.context.ContextProvider;
 import com.bluemarsh.jswat.core.util.Types;
 import com.sun.jdi.ArrayReference;
 import com.sun.jdi.ClassNotLoadedException;
@@ -188,6 +189,8 @@ class AssignOperatorNode extends BinaryOperatorNode {
             throw new EvaluationException(NbBundle.getMessage(
                     AssignOperatorNode.class, "error.assign.exception", ite));
         }
+        // Any snapshot of the thread now holds the old value.
+        ContextProvider.invalidateSnapshots(vm);
         return mirror;
     }
 
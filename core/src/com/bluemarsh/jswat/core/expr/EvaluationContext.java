@@ -22,10 +22,15 @@
  */
 package com.bluemarsh.jswat.core.expr;
 
+import com.bluemarsh.jswat.core.context.SuspensionSnapshot;
+import com.sun.jdi.AbsentInformationException;
 import com.sun.jdi.IncompatibleThreadStateException;
+import com.sun.jdi.LocalVariable;
 import com.sun.jdi.Location;
+import com.sun.jdi.ObjectReference;
 import com.sun.jdi.StackFrame;
 import com.sun.jdi.ThreadReference;
+import com.sun.jdi.Value;
 
 /**
  * Class EvaluationContext encapsulates the information pertaining
@@ -45,6 +50,8 @@ class EvaluationContext {
     private ThreadReference thread;
     /** Thread stack frame index. */
     private int frame;
+    /** Shared snapshot of the suspended thread, may be null. */
+    private SuspensionSnapshot snapshot;
 
     /**
      * Constructs a EvaluationContext with the given information.
@@ -62,6 +69,21 @@ class EvaluationContext {
         this.frame = frame;
     }
 
+    /**
+     * Constructs a EvaluationContext that retrieves debuggee information
+     * by way of the given snapshot, sharing it with other consumers.
+     *
+     * @param  expr      original expression.
+     * @param  root      parsed AST root node.
+     * @param  snapshot  snapshot of the suspended thread.
+     * @param  frame     stack frame index.
+     */
+    EvaluationContext(String expr, RootNode root,
+            SuspensionSnapshot snapshot, int frame) {
+        this(expr, root, snapshot.getThread(), frame);
+        this.snapshot = snapshot;
+    }
+
     /**
      * Returns the original expression.
      *
@@ -88,7 +110,7 @@ class EvaluationContext {
      *          if thread is not suspended properly.
      */
     public Location getLocation() throws IncompatibleThreadStateException {
-        return thread.frame(frame).location();
+        return getStackFrame().location();
     }
 
     /**
@@ -108,9 +130,65 @@ class EvaluationContext {
      *          if thread is not suspended properly.
      */
     public StackFrame getStackFrame() throws IncompatibleThreadStateException {
+        if (snapshot != null) {
+            return snapshot.getFrame(frame);
+        }
         return thread.frame(frame);
     }
 
+    /**
+     * Returns the 'this' object of the stack frame.
+     *
+     * @return  this object, or null if static or native method.
+     * @throws  IncompatibleThreadStateException
+     *          if thread is not suspended properly.
+     */
+    public ObjectReference getThisObject()
+            throws IncompatibleThreadStateException {
+        if (snapshot != null) {
+            return snapshot.getThisObject(frame);
+        }
+        return getStackFrame().thisObject();
+    }
+
+    /**
+     * Returns the value of the local variable in the stack frame.
+     *
+     * @param  var  visible local variable.
+     * @return  value of the variable.
+     * @throws  AbsentInformationException
+     *          if local variable information is missing.
+     * @throws  IncompatibleThreadStateException
+     *          if thread is not suspended properly.
+     */
+    public Value getValue(LocalVariable var)
+            throws AbsentInformationException,
+                   IncompatibleThreadStateException {
+        if (snapshot != null) {
+            return snapshot.getValue(frame, var);
+        }
+        return getStackFrame().getValue(var);
+    }
+
+    /**
+     * Finds the visible local variable of the given name.
+     *
+     * @param  name  name of the variable.
+     * @return  the variable, or null if not found.
+     * @throws  AbsentInformationException
+     *          if local variable information is missing.
+     * @throws  IncompatibleThreadStateException
+     *          if thread is not suspended properly.
+     */
+    public LocalVariable getVisibleVariable(String name)
+            throws AbsentInformationException,
+                   IncompatibleThreadStateException {
+        if (snapshot != null) {
+            return snapshot.getVisibleVariableByName(frame, name);
+        }
+        return getStackFrame().visibleVariableByName(name);
+    }
+
     /**
      * Returns the thread reference.
      *
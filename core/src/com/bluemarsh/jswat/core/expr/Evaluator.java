@@ -22,7 +22,9 @@
  */
 package com.bluemarsh.jswat.core.expr;
 
+import com.bluemarsh.jswat.core.context.SuspensionSnapshot;
 import com.bluemarsh.jswat.core.util.Classes;
+import com.bluemarsh.jswat.core.util.LatencyStatistics;
 import com.bluemarsh.jswat.core.util.Strings;
 import com.bluemarsh.jswat.parser.node.Token;
 import com.bluemarsh.jswat.parser.lexer.Lexer;
@@ -58,6 +60,9 @@ public class Evaluator {
     /** Logger for gracefully reporting unexpected errors. */
     private static final Logger logger = Logger.getLogger(
             Evaluator.class.getName());
+    /** Time taken by all of the evaluations. */
+    private static final LatencyStatistics evaluationTime =
+            new LatencyStatistics();
     /** The expression to evaluate. */
     private String expression;
     /** Root of the parsed abstract syntax tree. */
@@ -143,14 +148,74 @@ public class Evaluator {
         }
         EvaluationContext context = new EvaluationContext(
                 expression, root, thread, frame);
-        Object val = root.evaluate(context);
-        // Check that the final result is not something erroneous.
-        if (val instanceof ClassnamePart) {
-            // This indicates a reference to a non-existent variable.
-            String msg = NbBundle.getMessage(getClass(), "error.var.cnamepart", val);
-            throw new UnknownReferenceException(msg);
+        return evaluate(context);
+    }
+
+    /**
+     * Evaluates the expression and returns the result. The debuggee
+     * information is retrieved by way of the given snapshot, which avoids
+     * repeatedly fetching the same frames and variables when evaluating
+     * several expressions during the same suspension.
+     *
+     * @param  snapshot  snapshot of the suspended thread; may be null if
+     *                   no active debuggee available.
+     * @param  frame     stack frame used to access debuggee information;
+     *                   ignored if snapshot is null.
+     * @return  result of evaluation; null if expression was null or
+     *          the empty string.
+     * @throws  EvaluationException
+     *          if the expression could not be evaluated.
+     */
+    public Object evaluate(SuspensionSnapshot snapshot, int frame)
+            throws EvaluationException {
+        if (snapshot == null) {
+            return evaluate((ThreadReference) null, frame);
+        }
+        if (root == null) {
+            if (expression == null) {
+                // Simple base case: no expression whatsoever.
+                return null;
+            } else {
+                root = buildTree();
+            }
         }
-        return val;
+        EvaluationContext context = new EvaluationContext(
+                expression, root, snapshot, frame);
+        return evaluate(context);
+    }
+
+    /**
+     * Evaluates the parsed expression within the given context.
+     *
+     * @param  context  evaluation context.
+     * @return  result of evaluation.
+     * @throws  EvaluationException
+     *          if the expression could not be evaluated.
+     */
+    private Object evaluate(EvaluationContext context)
+            throws EvaluationException {
+        long start = System.nanoTime();
+        try {
+            Object val = root.evaluate(context);
+            // Check that the final result is not something erroneous.
+            if (val instanceof ClassnamePart) {
+                // This indicates a reference to a non-existent variable.
+                String msg = NbBundle.getMessage(getClass(), "error.var.cnamepart", val);
+                throw new UnknownReferenceException(msg);
+            }
+            return val;
+        } finally {
+            evaluationTime.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the time taken by the evaluations of all expressions.
+     *
+     * @return  evaluation statistics.
+     */
+    public static LatencyStatistics getStatistics() {
+        return evaluationTime;
     }
 
     /**
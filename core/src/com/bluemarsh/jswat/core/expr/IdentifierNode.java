@@ -87,8 +87,15 @@ class IdentifierNode extends AbstractNode implements JoinableNode, VariableNode
         Location location = frame.location();
 
         // Could it be 'this'?
+        ObjectReference thiso;
+        try {
+            thiso = context.getThisObject();
+        } catch (IncompatibleThreadStateException itse) {
+            throw new MissingContextException(NbBundle.getMessage(
+                    IdentifierNode.class, "error.thread.state"));
+        }
         if (identifierName.equals("this")) {
-            ObjectReference obj = frame.thisObject();
+            ObjectReference obj = thiso;
             if (obj == null) {
                 throw new UnknownReferenceException(NbBundle.getMessage(
                         IdentifierNode.class, "error.ident.this.none"));
@@ -101,9 +108,12 @@ class IdentifierNode extends AbstractNode implements JoinableNode, VariableNode
         Field field = clazz.fieldByName(identifierName);
         LocalVariable localVar = null;
         try {
-            localVar = frame.visibleVariableByName(identifierName);
+            localVar = context.getVisibleVariable(identifierName);
         } catch (AbsentInformationException aie) {
             // Missing local variable info is not a fatal scenario.
+        } catch (IncompatibleThreadStateException itse) {
+            throw new MissingContextException(NbBundle.getMessage(
+                    IdentifierNode.class, "error.thread.state"));
         }
         if (localVar == null && field == null) {
             // Maybe it is a classname, or part of one.
@@ -128,10 +138,17 @@ class IdentifierNode extends AbstractNode implements JoinableNode, VariableNode
         } else if (localVar != null) {
             // Locals shadow fields so handle them first.
             valueContainer = localVar;
-            return frame.getValue(localVar);
+            try {
+                return context.getValue(localVar);
+            } catch (AbsentInformationException aie) {
+                // Cannot happen, we found the variable already.
+                return frame.getValue(localVar);
+            } catch (IncompatibleThreadStateException itse) {
+                throw new MissingContextException(NbBundle.getMessage(
+                        IdentifierNode.class, "error.thread.state"));
+            }
 
         } else {
-            ObjectReference thiso = frame.thisObject();
             if (!field.isStatic() && thiso == null) {
                 String mname = location.method().name();
                 String msg = NbBundle.getMessage(IdentifierNode.class,
@@ -35,7 +35,6 @@ import com.sun.jdi.Location;
 import com.sun.jdi.Method;
 import com.sun.jdi.ObjectReference;
 import com.sun.jdi.ReferenceType;
-import com.sun.jdi.StackFrame;
 import com.sun.jdi.ThreadReference;
 import com.sun.jdi.Value;
 import com.sun.jdi.VirtualMachine;
@@ -94,7 +93,6 @@ class MethodNode extends OperatorNode implements JoinableNode {
             throw new EvaluationException(
                     NbBundle.getMessage(MethodNode.class, "error.method.thread.set"));
         }
-        int frameIdx = context.getFrame();
         VirtualMachine vm = thread.virtualMachine();
 
         // Get the object or class on which to invoke the method.
@@ -108,8 +106,7 @@ class MethodNode extends OperatorNode implements JoinableNode {
                     throw new EvaluationException(
                             NbBundle.getMessage(MethodNode.class, "error.method.thread.stack"));
                 }
-                StackFrame frame = thread.frame(frameIdx);
-                object = frame.thisObject();
+                object = context.getThisObject();
 
                 if (object == null) {
                     Location location = context.getLocation();
@@ -0,0 +1,91 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.heap;
+
+/**
+ * Class ClassCount is one row of a heap histogram: the number of instances
+ * of a class, and the change in that number since an earlier snapshot.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ClassCount {
+    /** Index of the class in the heap snapshots. */
+    private final int index;
+    /** Name of the class. */
+    private final String name;
+    /** Number of instances. */
+    private final long count;
+    /** Change in the number of instances. */
+    private final long change;
+
+    /**
+     * Constructs a new ClassCount.
+     *
+     * @param  index   index of the class in the heap snapshots.
+     * @param  name    name of the class.
+     * @param  count   number of instances.
+     * @param  change  change since the earlier snapshot.
+     */
+    public ClassCount(int index, String name, long count, long change) {
+        this.index = index;
+        this.name = name;
+        this.count = count;
+        this.change = change;
+    }
+
+    /**
+     * Returns the change in the number of instances since the earlier
+     * snapshot.
+     *
+     * @return  instance count change (negative if fewer).
+     */
+    public long getChange() {
+        return change;
+    }
+
+    /**
+     * Returns the number of instances of the class.
+     *
+     * @return  instance count.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the index of the class, by which its count may be found in
+     * any heap snapshot of the same session.
+     *
+     * @return  class index.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the name of the class.
+     *
+     * @return  class name.
+     */
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.heap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class ClassTable assigns each class a permanent index, by which the
+ * instance counts are stored in the heap snapshots. The table only ever
+ * grows, so a snapshot remains valid no matter how many classes are
+ * added after it was taken.
+ *
+ * @author  Nathan Fiedler
+ */
+class ClassTable {
+    /** Names of the classes, by index. */
+    private final List<String> names;
+
+    /**
+     * Constructs a new, empty ClassTable.
+     */
+    ClassTable() {
+        names = new ArrayList<String>();
+    }
+
+    /**
+     * Adds a class to the table.
+     *
+     * @param  name  name of the class.
+     * @return  index assigned to the class.
+     */
+    synchronized int add(String name) {
+        names.add(name);
+        return names.size() - 1;
+    }
+
+    /**
+     * Returns the name of the class with the given index.
+     *
+     * @param  index  class index.
+     * @return  class name.
+     */
+    synchronized String getName(int index) {
+        return names.get(index);
+    }
+
+    /**
+     * Returns the number of classes in the table.
+     *
+     * @return  class count.
+     */
+    synchronized int size() {
+        return names.size();
+    }
+}
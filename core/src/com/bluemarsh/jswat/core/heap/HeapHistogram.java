@@ -0,0 +1,254 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.heap;
+
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.bluemarsh.jswat.core.util.Names;
+import com.bluemarsh.jswat.core.util.Threads;
+import com.sun.jdi.InterfaceType;
+import com.sun.jdi.Location;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.VMDisconnectedException;
+import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.event.Event;
+import com.sun.jdi.event.LocatableEvent;
+import com.sun.jdi.event.StepEvent;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class HeapHistogram takes snapshots of the number of instances of each
+ * loaded class in the debuggee, using <code>instanceCounts()</code> on
+ * the loaded classes in large batches. The most recent snapshots are
+ * retained so that the growth of each class between stops can be shown.
+ * Optionally, a snapshot is taken automatically each time the debuggee
+ * stops at a breakpoint.
+ *
+ * @author  Nathan Fiedler
+ */
+public class HeapHistogram implements SessionListener {
+    /** Logger for gracefully reporting unexpected errors. */
+    private static final Logger logger = Logger.getLogger(
+            HeapHistogram.class.getName());
+    /** Number of classes passed to each instanceCounts() call. */
+    private static final int BATCH_SIZE = 1000;
+    /** Maximum number of snapshots retained. */
+    private static final int MAX_SNAPSHOTS = 50;
+    /** Names of the classes, by index. */
+    private ClassTable classTable;
+    /** Index of each class in the class table (guarded by itself). */
+    private final Map<ReferenceType, Integer> classIndex;
+    /** The retained snapshots, oldest first (guarded by itself). */
+    private final LinkedList<HeapSnapshot> snapshots;
+    /** True to take a snapshot at every breakpoint stop. */
+    private volatile boolean autoSnapshot;
+    /** The session we are associated with. */
+    private Session session;
+
+    /**
+     * Constructs a new HeapHistogram.
+     */
+    public HeapHistogram() {
+        classTable = new ClassTable();
+        classIndex = new HashMap<ReferenceType, Integer>();
+        snapshots = new LinkedList<HeapSnapshot>();
+    }
+
+    /**
+     * Discards all of the snapshots.
+     */
+    public void clear() {
+        synchronized (snapshots) {
+            snapshots.clear();
+        }
+    }
+
+    @Override
+    public void closing(SessionEvent sevt) {
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+    }
+
+    @Override
+    public void disconnected(SessionEvent sevt) {
+        // The class mirrors are no longer of any use.
+        synchronized (classIndex) {
+            classIndex.clear();
+            classTable = new ClassTable();
+        }
+        clear();
+    }
+
+    /**
+     * Returns the most recent snapshot.
+     *
+     * @return  latest snapshot, or null if none.
+     */
+    public HeapSnapshot getLatest() {
+        synchronized (snapshots) {
+            return snapshots.isEmpty() ? null : snapshots.getLast();
+        }
+    }
+
+    /**
+     * Returns the snapshot taken before the most recent one.
+     *
+     * @return  previous snapshot, or null if fewer than two.
+     */
+    public HeapSnapshot getPrevious() {
+        synchronized (snapshots) {
+            int size = snapshots.size();
+            return size < 2 ? null : snapshots.get(size - 2);
+        }
+    }
+
+    /**
+     * Returns the retained snapshots, oldest first.
+     *
+     * @return  list of snapshots.
+     */
+    public List<HeapSnapshot> getSnapshots() {
+        synchronized (snapshots) {
+            return new ArrayList<HeapSnapshot>(snapshots);
+        }
+    }
+
+    /**
+     * Indicates if a snapshot is taken at every breakpoint stop.
+     *
+     * @return  true if automatic, false otherwise.
+     */
+    public boolean isAutoSnapshot() {
+        return autoSnapshot;
+    }
+
+    @Override
+    public void opened(Session session) {
+        this.session = session;
+    }
+
+    @Override
+    public void resuming(SessionEvent sevt) {
+    }
+
+    /**
+     * Sets whether a snapshot is taken at every breakpoint stop.
+     *
+     * @param  auto  true to take snapshots automatically.
+     */
+    public void setAutoSnapshot(boolean auto) {
+        autoSnapshot = auto;
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
+        Event event = sevt.getEvent();
+        // Only breakpoint stops, not stepping or a user pause.
+        if (!autoSnapshot || event == null || event instanceof StepEvent) {
+            return;
+        }
+        final String label = event instanceof LocatableEvent
+                ? Names.getLocationName(
+                        ((LocatableEvent) event).location()) : null;
+        Threads.getThreadPool().submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    takeSnapshot(label);
+                } catch (UnsupportedOperationException uoe) {
+                    // Debuggee cannot count instances, nothing to do.
+                } catch (VMDisconnectedException vmde) {
+                    // Too late to count anything.
+                } catch (Exception e) {
+                    logger.log(Level.WARNING, null, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Counts the instances of every loaded class in the debuggee, and
+     * retains the result as the most recent snapshot.
+     *
+     * @param  label  describes when the snapshot was taken (may be null).
+     * @return  the new snapshot.
+     * @throws  IllegalStateException
+     *          if the session is not connected.
+     * @throws  UnsupportedOperationException
+     *          if the debuggee cannot count instances.
+     */
+    public HeapSnapshot takeSnapshot(String label) {
+        if (session == null || !session.isConnected()) {
+            throw new IllegalStateException("session not connected");
+        }
+        VirtualMachine vm = session.getConnection().getVM();
+        if (!vm.canGetInstanceInfo()) {
+            throw new UnsupportedOperationException("instance info not supported");
+        }
+        List<ReferenceType> classes = new ArrayList<ReferenceType>();
+        for (ReferenceType type : vm.allClasses()) {
+            // Interfaces never have instances of their own.
+            if (!(type instanceof InterfaceType)) {
+                classes.add(type);
+            }
+        }
+        HeapSnapshot snapshot;
+        synchronized (classIndex) {
+            int size = classes.size();
+            int[] indices = new int[size];
+            for (int ii = 0; ii < size; ii++) {
+                ReferenceType type = classes.get(ii);
+                Integer index = classIndex.get(type);
+                if (index == null) {
+                    index = Integer.valueOf(classTable.add(type.name()));
+                    classIndex.put(type, index);
+                }
+                indices[ii] = index.intValue();
+            }
+            long[] counts = new long[classTable.size()];
+            for (int start = 0; start < size; start += BATCH_SIZE) {
+                int end = Math.min(start + BATCH_SIZE, size);
+                long[] batch = vm.instanceCounts(classes.subList(start, end));
+                for (int ii = 0; ii < batch.length; ii++) {
+                    counts[indices[start + ii]] = batch[ii];
+                }
+            }
+            snapshot = new HeapSnapshot(classTable, counts,
+                    System.currentTimeMillis(), label);
+        }
+        synchronized (snapshots) {
+            snapshots.add(snapshot);
+            if (snapshots.size() > MAX_SNAPSHOTS) {
+                snapshots.removeFirst();
+            }
+        }
+        return snapshot;
+    }
+}
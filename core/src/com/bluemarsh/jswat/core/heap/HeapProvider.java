@@ -0,0 +1,66 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.heap;
+
+import com.bluemarsh.jswat.core.session.Session;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class HeapProvider manages a set of HeapHistogram instances, one for
+ * each unique Session passed to the <code>getHeapHistogram()</code>
+ * method.
+ *
+ * @author  Nathan Fiedler
+ */
+public class HeapProvider {
+    /** Map of HeapHistogram instances, keyed by Session instance. */
+    private static final Map<Session, HeapHistogram> instanceMap;
+
+    static {
+        instanceMap = new HashMap<Session, HeapHistogram>();
+    }
+
+    /**
+     * Creates a new instance of HeapProvider.
+     */
+    private HeapProvider() {
+    }
+
+    /**
+     * Retrieve the HeapHistogram instance for the given Session, creating
+     * one if necessary.
+     *
+     * @param  session  Session for which to get HeapHistogram.
+     * @return  heap histogram instance.
+     */
+    public static HeapHistogram getHeapHistogram(Session session) {
+        synchronized (instanceMap) {
+            HeapHistogram inst = instanceMap.get(session);
+            if (inst == null) {
+                inst = new HeapHistogram();
+                instanceMap.put(session, inst);
+                session.addSessionListener(inst);
+            }
+            return inst;
+        }
+    }
+}
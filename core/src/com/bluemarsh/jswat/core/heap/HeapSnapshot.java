@@ -0,0 +1,194 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.heap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Class HeapSnapshot holds the number of instances of every loaded class
+ * at one moment. The counts are kept in a single array, indexed by the
+ * class index assigned by the heap histogram, so that many snapshots can
+ * be retained cheaply and compared class by class.
+ *
+ * @author  Nathan Fiedler
+ */
+public class HeapSnapshot {
+    /** Orders the rows by decreasing instance count. */
+    private static final Comparator<ClassCount> BY_COUNT =
+            new Comparator<ClassCount>() {
+        @Override
+        public int compare(ClassCount o1, ClassCount o2) {
+            return compareLongs(o2.getCount(), o1.getCount());
+        }
+    };
+    /** Orders the rows by decreasing change in instance count. */
+    private static final Comparator<ClassCount> BY_CHANGE =
+            new Comparator<ClassCount>() {
+        @Override
+        public int compare(ClassCount o1, ClassCount o2) {
+            return compareLongs(o2.getChange(), o1.getChange());
+        }
+    };
+    /** Names of the classes, by index. */
+    private final ClassTable classTable;
+    /** Instance counts, by class index. */
+    private final long[] counts;
+    /** Time the snapshot was taken, in milliseconds. */
+    private final long time;
+    /** Describes when the snapshot was taken (e.g. a location). */
+    private final String label;
+
+    /**
+     * Constructs a new HeapSnapshot.
+     *
+     * @param  classTable  names of the classes, by index.
+     * @param  counts      instance counts, by class index.
+     * @param  time        time the snapshot was taken.
+     * @param  label       description of when it was taken (may be null).
+     */
+    HeapSnapshot(ClassTable classTable, long[] counts, long time, String label) {
+        this.classTable = classTable;
+        this.counts = counts;
+        this.time = time;
+        this.label = label;
+    }
+
+    /**
+     * Compares two long values.
+     *
+     * @param  a  first value.
+     * @param  b  second value.
+     * @return  negative, zero, or positive as a is less than, equal to,
+     *          or greater than b.
+     */
+    private static int compareLongs(long a, long b) {
+        return a < b ? -1 : (a == b ? 0 : 1);
+    }
+
+    /**
+     * Returns the number of classes covered by this snapshot.
+     *
+     * @return  class count.
+     */
+    public int getClassCount() {
+        return counts.length;
+    }
+
+    /**
+     * Returns the number of instances of the class with the given index.
+     *
+     * @param  index  class index.
+     * @return  instance count, zero if the class was not yet loaded.
+     */
+    public long getCount(int index) {
+        return index < counts.length ? counts[index] : 0;
+    }
+
+    /**
+     * Returns the instance counts of the classes that have instances, or
+     * whose count changed, largest count first.
+     *
+     * @param  earlier  snapshot against which the changes are computed,
+     *                  or null to report no changes.
+     * @return  list of class counts.
+     */
+    public List<ClassCount> getCounts(HeapSnapshot earlier) {
+        List<ClassCount> list = listCounts(earlier);
+        Collections.sort(list, BY_COUNT);
+        return list;
+    }
+
+    /**
+     * Returns the instance counts of the classes that have instances, or
+     * whose count changed, largest increase first.
+     *
+     * @param  earlier  snapshot against which the changes are computed.
+     * @return  list of class counts.
+     */
+    public List<ClassCount> getGrowth(HeapSnapshot earlier) {
+        List<ClassCount> list = listCounts(earlier);
+        Collections.sort(list, BY_CHANGE);
+        return list;
+    }
+
+    /**
+     * Returns the description of when the snapshot was taken.
+     *
+     * @return  snapshot label, or null if none.
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Returns the name of the class with the given index.
+     *
+     * @param  index  class index.
+     * @return  class name.
+     */
+    public String getName(int index) {
+        return classTable.getName(index);
+    }
+
+    /**
+     * Returns the time at which the snapshot was taken.
+     *
+     * @return  time in milliseconds since the epoch.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the total number of instances of all classes.
+     *
+     * @return  total instance count.
+     */
+    public long getTotal() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Builds the unsorted list of class counts.
+     *
+     * @param  earlier  snapshot against which the changes are computed,
+     *                  or null to report no changes.
+     * @return  list of class counts.
+     */
+    private List<ClassCount> listCounts(HeapSnapshot earlier) {
+        List<ClassCount> list = new ArrayList<ClassCount>();
+        for (int ii = 0; ii < counts.length; ii++) {
+            long count = counts[ii];
+            long change = earlier == null ? 0 : count - earlier.getCount(ii);
+            if (count != 0 || change != 0) {
+                list.add(new ClassCount(ii, classTable.getName(ii), count, change));
+            }
+        }
+        return list;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.heap;
+
+import com.sun.jdi.ObjectReference;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class RetentionPath is a chain of references from a garbage collection
+ * root to the object that a RetentionSearch was looking for, which
+ * explains why that object is still alive.
+ *
+ * @author  Nathan Fiedler
+ */
+public class RetentionPath {
+    /** The kind of root at which the path starts. */
+    private final Kind kind;
+    /** The links from the root to the target, in that order. */
+    private final List<Link> links;
+
+    /**
+     * The kinds of root at which a path may start.
+     */
+    public static enum Kind {
+        /** A class object, holding the rest of the path in a static field. */
+        CLASS,
+        /** A thread object. */
+        THREAD,
+        /** An object with no referrers, held by a stack frame or native code. */
+        UNREFERENCED
+    }
+
+    /**
+     * Constructs a new RetentionPath.
+     *
+     * @param  kind   kind of root.
+     * @param  links  links from the root to the target.
+     */
+    RetentionPath(Kind kind, List<Link> links) {
+        this.kind = kind;
+        this.links = Collections.unmodifiableList(links);
+    }
+
+    /**
+     * Returns the kind of root at which this path starts.
+     *
+     * @return  root kind.
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the links of this path, starting with the root object and
+     * ending with the target object.
+     *
+     * @return  path links.
+     */
+    public List<Link> getLinks() {
+        return links;
+    }
+
+    /**
+     * Returns the number of references between the root and the target.
+     *
+     * @return  path length.
+     */
+    public int length() {
+        return links.size() - 1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(kind.toString());
+        for (Link link : links) {
+            sb.append(" -> ");
+            sb.append(link);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A Link is one object along a retention path, along with the means
+     * by which it refers to the next object in the path.
+     */
+    public static class Link {
+        /** The object. */
+        private final ObjectReference object;
+        /** The field or array element referring to the next object. */
+        private final String reference;
+
+        /**
+         * Constructs a new Link.
+         *
+         * @param  object     the object.
+         * @param  reference  how it refers to the next object, or null.
+         */
+        Link(ObjectReference object, String reference) {
+            this.object = object;
+            this.reference = reference;
+        }
+
+        /**
+         * Returns the object at this point in the path.
+         *
+         * @return  object reference.
+         */
+        public ObjectReference getObject() {
+            return object;
+        }
+
+        /**
+         * Returns the name of the field (e.g. <code>table</code>) or the
+         * array element (e.g. <code>[12]</code>) of this object that
+         * refers to the next object in the path.
+         *
+         * @return  field name or array index; null for the target object,
+         *          or if the reference could not be found.
+         */
+        public String getReference() {
+            return reference;
+        }
+
+        @Override
+        public String toString() {
+            String type = object.referenceType().name();
+            String s = type + " #" + object.uniqueID();
+            return reference == null ? s : s + " ." + reference;
+        }
+    }
+}
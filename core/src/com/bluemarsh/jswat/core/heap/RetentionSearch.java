@@ -0,0 +1,382 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.heap;
+
+import com.sun.jdi.ArrayReference;
+import com.sun.jdi.ClassObjectReference;
+import com.sun.jdi.ClassType;
+import com.sun.jdi.Field;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.Value;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class RetentionSearch finds the shortest chains of references that keep
+ * an object alive, by walking the referring objects breadth-first from
+ * the object outwards until it reaches a class object (i.e. a static
+ * field), a thread, or an object that nothing else refers to (i.e. one
+ * held by a stack frame or by native code).
+ *
+ * <p>The walk visits each object at most once, and is bounded in both
+ * depth and the total number of objects visited, as a large heap can
+ * otherwise make the search run for a very long time. References from
+ * the <code>referent</code> field of weak, soft, and phantom references
+ * are ignored, since they do not prevent garbage collection. The names
+ * of the fields along each path are found only once the path is known,
+ * reading all of the fields of each object in a single request.</p>
+ *
+ * <p>The search must be performed while the debuggee is suspended, or
+ * the results will be unreliable. It may be cancelled from another
+ * thread, in which case the paths found so far are returned.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class RetentionSearch {
+    /** Name of the class whose referent field is not a strong reference. */
+    private static final String REFERENCE_CLASS = "java.lang.ref.Reference";
+    /** Arrays longer than this are not scanned for the referring index. */
+    private static final int MAX_ARRAY_SCAN = 100000;
+    /** Number of objects to expand between progress reports. */
+    private static final int PROGRESS_INTERVAL = 50;
+    /** The object whose retention is to be explained. */
+    private final ObjectReference target;
+    /** Maximum number of references between a root and the target. */
+    private final int maxDepth;
+    /** Maximum number of objects to visit. */
+    private final int maxObjects;
+    /** Maximum number of paths to find. */
+    private final int maxPaths;
+    /** Caches whether a type is a subclass of java.lang.ref.Reference. */
+    private final Map<ReferenceType, Boolean> referenceTypes;
+    /** Receives progress reports, if not null. */
+    private volatile Listener listener;
+    /** True if the search has been cancelled. */
+    private volatile boolean cancelled;
+    /** True if the search stopped because it reached one of its bounds. */
+    private volatile boolean exhausted;
+
+    /**
+     * Constructs a new RetentionSearch.
+     *
+     * @param  target      object whose retention is to be explained.
+     * @param  maxDepth    maximum length of a path.
+     * @param  maxObjects  maximum number of objects to visit.
+     * @param  maxPaths    maximum number of paths to find.
+     */
+    public RetentionSearch(ObjectReference target, int maxDepth,
+            int maxObjects, int maxPaths) {
+        if (maxDepth < 1 || maxObjects < 1 || maxPaths < 1) {
+            throw new IllegalArgumentException("bounds must be positive");
+        }
+        this.target = target;
+        this.maxDepth = maxDepth;
+        this.maxObjects = maxObjects;
+        this.maxPaths = maxPaths;
+        referenceTypes = new HashMap<ReferenceType, Boolean>();
+    }
+
+    /**
+     * Constructs the path that ends with the given step.
+     *
+     * @param  kind  kind of root at which the path starts.
+     * @param  root  the step for the root object.
+     * @return  new retention path.
+     */
+    private RetentionPath buildPath(RetentionPath.Kind kind, Step root) {
+        List<RetentionPath.Link> links = new ArrayList<RetentionPath.Link>();
+        Step step = root;
+        while (step.next != null) {
+            String ref = findReference(step.object, step.next.object);
+            links.add(new RetentionPath.Link(step.object, ref));
+            step = step.next;
+        }
+        links.add(new RetentionPath.Link(step.object, null));
+        return new RetentionPath(kind, links);
+    }
+
+    /**
+     * Stops the search at the next opportunity. The paths found so far
+     * are returned from <code>search()</code>.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Finds the instance field of the holder that refers to the held
+     * object, reading all of the fields in one request.
+     *
+     * @param  holder  object that refers to the other.
+     * @param  held    the object referred to.
+     * @return  the referring field, or null if none.
+     */
+    private static Field findField(ObjectReference holder,
+            ObjectReference held) {
+        List<Field> fields = new ArrayList<Field>();
+        for (Field field : holder.referenceType().allFields()) {
+            if (!field.isStatic()) {
+                fields.add(field);
+            }
+        }
+        Map<Field, Value> values = holder.getValues(fields);
+        for (Field field : fields) {
+            if (held.equals(values.get(field))) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the means by which one object refers to another.
+     *
+     * @param  holder  object that refers to the other.
+     * @param  held    the object referred to.
+     * @return  field name or array index, or null if not found.
+     */
+    private static String findReference(ObjectReference holder, ObjectReference held) {
+        if (holder instanceof ArrayReference) {
+            ArrayReference array = (ArrayReference) holder;
+            if (array.length() > MAX_ARRAY_SCAN) {
+                return null;
+            }
+            List<Value> values = array.getValues();
+            int index = values.indexOf(held);
+            return index < 0 ? null : "[" + index + "]";
+        }
+        if (holder instanceof ClassObjectReference) {
+            ReferenceType type = ((ClassObjectReference) holder).reflectedType();
+            List<Field> fields = new ArrayList<Field>();
+            for (Field field : type.fields()) {
+                if (field.isStatic()) {
+                    fields.add(field);
+                }
+            }
+            Map<Field, Value> values = type.getValues(fields);
+            for (Field field : fields) {
+                if (held.equals(values.get(field))) {
+                    return field.name();
+                }
+            }
+            // Otherwise it is a field of the Class instance itself.
+        }
+        Field field = findField(holder, held);
+        return field == null ? null : field.name();
+    }
+
+    /**
+     * Indicates if the search stopped because it reached the maximum
+     * depth or the maximum number of objects, in which case there may
+     * be other paths that were not found.
+     *
+     * @return  true if a bound was reached.
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * Indicates if the search was cancelled.
+     *
+     * @return  true if cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Determines if the type is java.lang.ref.Reference or a subclass.
+     *
+     * @param  type  type to be checked.
+     * @return  true if a reference type, false otherwise.
+     */
+    private boolean isReferenceType(ReferenceType type) {
+        Boolean result = referenceTypes.get(type);
+        if (result == null) {
+            result = Boolean.FALSE;
+            if (type instanceof ClassType) {
+                ClassType ct = (ClassType) type;
+                while (ct != null) {
+                    if (ct.name().equals(REFERENCE_CLASS)) {
+                        result = Boolean.TRUE;
+                        break;
+                    }
+                    ct = ct.superclass();
+                }
+            }
+            referenceTypes.put(type, result);
+        }
+        return result.booleanValue();
+    }
+
+    /**
+     * Determines if the holder refers to the held object only weakly,
+     * by way of the referent field of java.lang.ref.Reference.
+     *
+     * @param  holder  object that refers to the other.
+     * @param  held    the object referred to.
+     * @return  true if the reference is weak.
+     */
+    private boolean isWeak(ObjectReference holder, ObjectReference held) {
+        if (!isReferenceType(holder.referenceType())) {
+            return false;
+        }
+        Field field = findField(holder, held);
+        return field != null && field.name().equals("referent")
+                && field.declaringType().name().equals(REFERENCE_CLASS);
+    }
+
+    /**
+     * Performs the search, returning the shortest paths that were found,
+     * shortest first.
+     *
+     * @return  retention paths; empty if none were found.
+     */
+    public List<RetentionPath> search() {
+        List<RetentionPath> paths = new ArrayList<RetentionPath>();
+        Map<Long, Step> visited = new HashMap<Long, Step>();
+        Step start = new Step(target, null);
+        visited.put(target.uniqueID(), start);
+        List<Step> level = Collections.singletonList(start);
+        int depth = 0;
+        int expanded = 0;
+        search:
+        while (!level.isEmpty()) {
+            if (depth >= maxDepth) {
+                exhausted = true;
+                break;
+            }
+            depth++;
+            List<Step> nextLevel = new LinkedList<Step>();
+            for (Step step : level) {
+                if (cancelled || paths.size() >= maxPaths) {
+                    break search;
+                }
+                int room = maxObjects - visited.size();
+                if (room <= 0) {
+                    exhausted = true;
+                    break search;
+                }
+                List<ObjectReference> referrers =
+                        step.object.referringObjects(room);
+                boolean held = false;
+                for (ObjectReference referrer : referrers) {
+                    if (isWeak(referrer, step.object)) {
+                        continue;
+                    }
+                    held = true;
+                    Long id = Long.valueOf(referrer.uniqueID());
+                    if (visited.containsKey(id)) {
+                        continue;
+                    }
+                    Step s = new Step(referrer, step);
+                    visited.put(id, s);
+                    // Stop at the roots rather than walking beyond them.
+                    if (referrer instanceof ClassObjectReference) {
+                        paths.add(buildPath(RetentionPath.Kind.CLASS, s));
+                    } else if (referrer instanceof ThreadReference) {
+                        paths.add(buildPath(RetentionPath.Kind.THREAD, s));
+                    } else {
+                        nextLevel.add(s);
+                    }
+                    if (paths.size() >= maxPaths) {
+                        break search;
+                    }
+                }
+                if (!held) {
+                    paths.add(buildPath(RetentionPath.Kind.UNREFERENCED, step));
+                }
+                expanded++;
+                Listener l = listener;
+                if (l != null && expanded % PROGRESS_INTERVAL == 0) {
+                    l.progress(visited.size(), depth);
+                }
+            }
+            level = nextLevel;
+        }
+        Listener l = listener;
+        if (l != null) {
+            l.progress(visited.size(), depth);
+        }
+        // Paths to unreferenced objects may be found out of order.
+        Collections.sort(paths, new Comparator<RetentionPath>() {
+            @Override
+            public int compare(RetentionPath o1, RetentionPath o2) {
+                return o1.length() - o2.length();
+            }
+        });
+        return paths;
+    }
+
+    /**
+     * Sets the listener to receive progress reports during the search.
+     *
+     * @param  listener  progress listener, or null for none.
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * A Listener is notified of the progress of a search, on the thread
+     * performing the search.
+     */
+    public static interface Listener {
+
+        /**
+         * Reports the progress of the search.
+         *
+         * @param  visited  number of objects visited so far.
+         * @param  depth    current distance from the target object.
+         */
+        void progress(int visited, int depth);
+    }
+
+    /**
+     * A Step records an object visited by the search, and the object it
+     * refers to on the way to the target.
+     */
+    private static class Step {
+        /** The visited object. */
+        private final ObjectReference object;
+        /** Step for the object referred to, or null for the target. */
+        private final Step next;
+
+        /**
+         * Constructs a new Step.
+         *
+         * @param  object  visited object.
+         * @param  next    step for the object it refers to.
+         */
+        Step(ObjectReference object, Step next) {
+            this.object = object;
+            this.next = next;
+        }
+    }
+}
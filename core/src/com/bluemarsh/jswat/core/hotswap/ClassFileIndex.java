@@ -0,0 +1,252 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.hotswap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class ClassFileIndex keeps track of the class files found in a set of
+ * directories, mapping each class name to its file, along with the time
+ * stamp and size of the file as last seen, and a digest of the byte code
+ * known to be loaded in the debuggee. Comparing time stamps makes it
+ * cheap to find the files that may have changed, while the digests weed
+ * out the files that were rewritten with the same content.
+ *
+ * @author  Nathan Fiedler
+ */
+class ClassFileIndex {
+    /** The directories containing class files. */
+    private final List<File> roots;
+    /** The class files, keyed by class name. */
+    private final Map<String, Entry> entries;
+
+    /**
+     * Constructs a new ClassFileIndex.
+     *
+     * @param  roots  directories to be indexed, in classpath order.
+     */
+    ClassFileIndex(List<File> roots) {
+        this.roots = roots;
+        entries = new HashMap<String, Entry>();
+    }
+
+    /**
+     * Computes the digest of the given byte code.
+     *
+     * @param  data  byte code.
+     * @return  digest of the data.
+     */
+    static byte[] digest(byte[] data) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(data);
+        } catch (NoSuchAlgorithmException nsae) {
+            // Every Java platform is required to support MD5.
+            throw new IllegalStateException(nsae);
+        }
+    }
+
+    /**
+     * Returns the digest of the byte code known to be loaded for the
+     * named class.
+     *
+     * @param  name  name of the class.
+     * @return  digest, or null if not known.
+     */
+    byte[] getDigest(String name) {
+        Entry entry = entries.get(name);
+        return entry == null ? null : entry.digest;
+    }
+
+    /**
+     * Returns the file for the named class.
+     *
+     * @param  name  name of the class.
+     * @return  class file, or null if not in the index.
+     */
+    File getFile(String name) {
+        Entry entry = entries.get(name);
+        return entry == null ? null : entry.file;
+    }
+
+    /**
+     * Returns the names of all of the indexed classes.
+     *
+     * @return  set of class names.
+     */
+    Set<String> getNames() {
+        return entries.keySet();
+    }
+
+    /**
+     * Reads the entire contents of the given file.
+     *
+     * @param  file  file to be read.
+     * @return  contents of the file.
+     * @throws  IOException
+     *          if the file could not be read.
+     */
+    static byte[] read(File file) throws IOException {
+        InputStream is = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(
+                    (int) file.length());
+            byte[] buffer = new byte[8192];
+            int n = is.read(buffer);
+            while (n > 0) {
+                baos.write(buffer, 0, n);
+                n = is.read(buffer);
+            }
+            return baos.toByteArray();
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Scans the directories for class files, returning the names of the
+     * classes whose files were added or modified since the last scan.
+     * Classes whose files have been deleted are dropped from the index.
+     *
+     * @return  names of the changed classes; empty on the first scan.
+     */
+    Set<String> scan() {
+        boolean first = entries.isEmpty();
+        Set<String> seen = new HashSet<String>();
+        Set<String> changed = new HashSet<String>();
+        for (File root : roots) {
+            scan(root, root.getPath().length() + 1, seen, changed);
+        }
+        Iterator<String> iter = entries.keySet().iterator();
+        while (iter.hasNext()) {
+            if (!seen.contains(iter.next())) {
+                iter.remove();
+            }
+        }
+        if (first) {
+            changed.clear();
+        }
+        return changed;
+    }
+
+    /**
+     * Scans the given directory for class files, recursively.
+     *
+     * @param  dir      directory to scan.
+     * @param  prefix   length of the root directory path, plus one.
+     * @param  seen     receives the names of the classes found.
+     * @param  changed  receives the names of the classes changed.
+     */
+    private void scan(File dir, int prefix, Set<String> seen,
+            Set<String> changed) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String path = file.getPath();
+            if (file.isDirectory()) {
+                scan(file, prefix, seen, changed);
+            } else if (path.endsWith(".class")) {
+                String name = path.substring(prefix, path.length() - 6).
+                        replace(File.separatorChar, '.');
+                if (!seen.add(name)) {
+                    // Hidden by an earlier directory in the classpath.
+                    continue;
+                }
+                long modified = file.lastModified();
+                long length = file.length();
+                Entry entry = entries.get(name);
+                if (entry == null) {
+                    entries.put(name, new Entry(file, modified, length));
+                    changed.add(name);
+                } else if (entry.modified != modified
+                        || entry.length != length) {
+                    entry.modified = modified;
+                    entry.length = length;
+                    changed.add(name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the digest of the byte code known to be loaded for the named
+     * class.
+     *
+     * @param  name    name of the class.
+     * @param  digest  digest of the byte code.
+     */
+    void setDigest(String name, byte[] digest) {
+        Entry entry = entries.get(name);
+        if (entry != null) {
+            entry.digest = digest;
+        }
+    }
+
+    /**
+     * Returns the roots of the index.
+     *
+     * @return  indexed directories.
+     */
+    List<File> getRoots() {
+        return new ArrayList<File>(roots);
+    }
+
+    /**
+     * An Entry describes a single class file.
+     */
+    private static class Entry {
+        /** The class file. */
+        private final File file;
+        /** Time the file was last modified. */
+        private long modified;
+        /** Size of the file. */
+        private long length;
+        /** Digest of the loaded byte code, if known. */
+        private byte[] digest;
+
+        /**
+         * Constructs a new Entry.
+         *
+         * @param  file      the class file.
+         * @param  modified  time the file was last modified.
+         * @param  length    size of the file.
+         */
+        Entry(File file, long modified, long length) {
+            this.file = file;
+            this.modified = modified;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.hotswap;
+
+import com.bluemarsh.jswat.core.session.Session;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class HotSwapProvider manages a set of HotSwapWatcher instances, one for
+ * each unique Session passed to the <code>getHotSwapWatcher()</code>
+ * method.
+ *
+ * @author  Nathan Fiedler
+ */
+public class HotSwapProvider {
+    /** Map of HotSwapWatcher instances, keyed by Session instance. */
+    private static final Map<Session, HotSwapWatcher> instanceMap;
+
+    static {
+        instanceMap = new HashMap<Session, HotSwapWatcher>();
+    }
+
+    /**
+     * Creates a new instance of HotSwapProvider.
+     */
+    private HotSwapProvider() {
+    }
+
+    /**
+     * Retrieve the HotSwapWatcher instance for the given Session, creating
+     * one if necessary.
+     *
+     * @param  session  Session for which to get HotSwapWatcher.
+     * @return  hot swap watcher instance.
+     */
+    public static HotSwapWatcher getHotSwapWatcher(Session session) {
+        synchronized (instanceMap) {
+            HotSwapWatcher inst = instanceMap.get(session);
+            if (inst == null) {
+                inst = new HotSwapWatcher();
+                instanceMap.put(session, inst);
+                session.addSessionListener(inst);
+            }
+            return inst;
+        }
+    }
+}
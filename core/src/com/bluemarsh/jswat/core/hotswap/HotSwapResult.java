@@ -0,0 +1,77 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.hotswap;
+
+/**
+ * Class HotSwapResult is an immutable record of the outcome of
+ * redefining a single class.
+ *
+ * @author  Nathan Fiedler
+ */
+public class HotSwapResult {
+    /** Name of the class. */
+    private final String name;
+    /** The reason the redefinition failed, or null if it succeeded. */
+    private final String error;
+
+    /**
+     * Constructs a new HotSwapResult.
+     *
+     * @param  name   name of the class.
+     * @param  error  reason for failure, or null if successful.
+     */
+    public HotSwapResult(String name, String error) {
+        this.name = name;
+        this.error = error;
+    }
+
+    /**
+     * Returns the reason the redefinition failed.
+     *
+     * @return  error message, or null if successful.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Returns the name of the class.
+     *
+     * @return  class name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Indicates if the class was redefined.
+     *
+     * @return  true if successful, false otherwise.
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return error == null ? name : name + ": " + error;
+    }
+}
@@ -0,0 +1,441 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.hotswap;
+
+import com.bluemarsh.jswat.core.breakpoint.RedefinitionResolver;
+import com.bluemarsh.jswat.core.output.OutputProvider;
+import com.bluemarsh.jswat.core.output.OutputWriter;
+import com.bluemarsh.jswat.core.path.PathManager;
+import com.bluemarsh.jswat.core.path.PathProvider;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.VMDisconnectedException;
+import com.sun.jdi.VirtualMachine;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.NbBundle;
+
+/**
+ * Class HotSwapWatcher watches the directories of compiled classes on the
+ * classpath of the session, and redefines the loaded classes in the
+ * debuggee whenever their class files change. The directories are polled
+ * for modified files, and redefinition waits until the files have stopped
+ * changing for a moment, so that the whole output of a build is redefined
+ * together. Files rewritten with the same content are ignored, by way of
+ * a digest of the byte code last known to be loaded.
+ *
+ * <p>All of the changed classes are redefined in a single operation. If
+ * that fails, which it does as a whole, each class is redefined on its
+ * own to find which of them are at fault (typically because of a schema
+ * change the debuggee does not support). The outcome for each class is
+ * written to the output window.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class HotSwapWatcher implements SessionListener {
+    /** Logger for gracefully reporting unexpected errors. */
+    private static final Logger logger = Logger.getLogger(
+            HotSwapWatcher.class.getName());
+    /** Milliseconds between scans of the directories. */
+    private static final long POLL_INTERVAL = 1000;
+    /** Milliseconds the files must be unchanged before redefining. */
+    private static final long QUIET_PERIOD = 500;
+    /** The session we are associated with. */
+    private Session session;
+    /** The watcher in progress, if any. */
+    private volatile Watcher watcher;
+    /** Outcome of the most recent redefinition. */
+    private volatile List<HotSwapResult> results;
+
+    /**
+     * Constructs a new HotSwapWatcher.
+     */
+    public HotSwapWatcher() {
+        results = Collections.emptyList();
+    }
+
+    @Override
+    public void closing(SessionEvent sevt) {
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+    }
+
+    /**
+     * Describes the failure to redefine a class.
+     *
+     * @param  t  the exception thrown by the debuggee.
+     * @return  description of the failure.
+     */
+    private static String describe(Throwable t) {
+        if (t instanceof UnsupportedOperationException) {
+            return NbBundle.getMessage(HotSwapWatcher.class,
+                    "ERR_HotSwap_Unsupported", t.getMessage());
+        }
+        return t.toString();
+    }
+
+    @Override
+    public void disconnected(SessionEvent sevt) {
+        stop();
+    }
+
+    /**
+     * Returns the directories being watched.
+     *
+     * @return  watched directories, empty if not watching.
+     */
+    public List<File> getDirectories() {
+        Watcher w = watcher;
+        if (w == null) {
+            return Collections.emptyList();
+        }
+        return w.index.getRoots();
+    }
+
+    /**
+     * Returns the outcome of the most recent redefinition, one result
+     * for each class.
+     *
+     * @return  list of results.
+     */
+    public List<HotSwapResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Indicates if the class directories are being watched.
+     *
+     * @return  true if watching, false otherwise.
+     */
+    public boolean isWatching() {
+        return watcher != null;
+    }
+
+    @Override
+    public void opened(Session session) {
+        this.session = session;
+    }
+
+    /**
+     * Redefines the given classes, all at once if possible, otherwise one
+     * by one, and records the outcome for each.
+     *
+     * @param  vm       the debuggee.
+     * @param  classes  the byte code of each class, keyed by type.
+     * @return  the result for each class.
+     */
+    static List<HotSwapResult> redefine(VirtualMachine vm,
+            Map<ReferenceType, byte[]> classes) {
+        List<HotSwapResult> list = new ArrayList<HotSwapResult>(classes.size());
+        try {
+            vm.redefineClasses(classes);
+            for (ReferenceType type : classes.keySet()) {
+                list.add(new HotSwapResult(type.name(), null));
+            }
+            return list;
+        } catch (UnsupportedOperationException uoe) {
+            if (classes.size() == 1) {
+                list.add(new HotSwapResult(classes.keySet().iterator().
+                        next().name(), describe(uoe)));
+                return list;
+            }
+        } catch (LinkageError le) {
+            if (classes.size() == 1) {
+                list.add(new HotSwapResult(classes.keySet().iterator().
+                        next().name(), describe(le)));
+                return list;
+            }
+        }
+        // Nothing was redefined, find out which classes are at fault.
+        Map<ReferenceType, byte[]> single = new HashMap<ReferenceType, byte[]>(1);
+        for (Map.Entry<ReferenceType, byte[]> entry : classes.entrySet()) {
+            single.clear();
+            single.put(entry.getKey(), entry.getValue());
+            String error = null;
+            try {
+                vm.redefineClasses(single);
+            } catch (UnsupportedOperationException uoe) {
+                error = describe(uoe);
+            } catch (LinkageError le) {
+                error = describe(le);
+            }
+            list.add(new HotSwapResult(entry.getKey().name(), error));
+        }
+        return list;
+    }
+
+    @Override
+    public void resuming(SessionEvent sevt) {
+    }
+
+    /**
+     * Starts watching the given directories, or the directories on the
+     * classpath of the session if none are given.
+     *
+     * @param  dirs  directories to watch, or null for the classpath.
+     * @throws  IllegalStateException
+     *          if not connected, or already watching.
+     * @throws  UnsupportedOperationException
+     *          if the debuggee cannot redefine classes.
+     */
+    public synchronized void start(List<File> dirs) {
+        if (watcher != null) {
+            throw new IllegalStateException("already watching");
+        }
+        if (session == null || !session.isConnected()) {
+            throw new IllegalStateException("session not connected");
+        }
+        VirtualMachine vm = session.getConnection().getVM();
+        if (!vm.canRedefineClasses()) {
+            throw new UnsupportedOperationException("cannot redefine classes");
+        }
+        List<File> roots = new ArrayList<File>();
+        if (dirs == null) {
+            PathManager pm = PathProvider.getPathManager(session);
+            List<String> classpath = pm.getClassPath();
+            if (classpath != null) {
+                for (String path : classpath) {
+                    File dir = new File(path);
+                    // Archives are not watched, only directories.
+                    if (dir.isDirectory()) {
+                        roots.add(dir);
+                    }
+                }
+            }
+        } else {
+            roots.addAll(dirs);
+        }
+        Watcher w = new Watcher(vm, new ClassFileIndex(roots));
+        watcher = w;
+        w.thread.start();
+    }
+
+    /**
+     * Stops watching the class directories. The watcher thread is not
+     * interrupted, as it may be talking to the debuggee; it finishes what
+     * it is doing and then exits.
+     */
+    public synchronized void stop() {
+        Watcher w = watcher;
+        if (w != null) {
+            watcher = null;
+            w.shutdown();
+        }
+    }
+
+    /**
+     * Called by the watcher thread as it exits, whether it was stopped or
+     * the debuggee went away, so that watching can be started again.
+     *
+     * @param  w  the watcher that has finished.
+     */
+    private synchronized void finished(Watcher w) {
+        if (watcher == w) {
+            watcher = null;
+        }
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
+    }
+
+    /**
+     * Polls the directories and redefines the changed classes.
+     */
+    private class Watcher implements Runnable {
+        /** The debuggee. */
+        private final VirtualMachine vm;
+        /** The class files being watched. */
+        private final ClassFileIndex index;
+        /** Polls the directories. */
+        private final Thread thread;
+        /** False once the watcher has been stopped. */
+        private volatile boolean running;
+
+        /**
+         * Constructs a new Watcher.
+         *
+         * @param  vm     the debuggee.
+         * @param  index  the class files to watch.
+         */
+        Watcher(VirtualMachine vm, ClassFileIndex index) {
+            this.vm = vm;
+            this.index = index;
+            running = true;
+            thread = new Thread(this, "HotSwapWatcher");
+            thread.setDaemon(true);
+        }
+
+        /**
+         * Signals the watcher thread to exit, waking it if it is waiting
+         * to poll the directories again.
+         */
+        synchronized void shutdown() {
+            running = false;
+            notifyAll();
+        }
+
+        /**
+         * Records the digests of the class files of the loaded classes,
+         * which are presumed to be what the debuggee loaded.
+         */
+        private void baseline() {
+            Set<String> loaded = new HashSet<String>();
+            for (ReferenceType type : vm.allClasses()) {
+                loaded.add(type.name());
+            }
+            for (String name : index.getNames()) {
+                if (loaded.contains(name)) {
+                    try {
+                        byte[] code = ClassFileIndex.read(index.getFile(name));
+                        index.setDigest(name, ClassFileIndex.digest(code));
+                    } catch (IOException ioe) {
+                        // Will be read again if it changes.
+                    }
+                }
+            }
+        }
+
+        /**
+         * Redefines the classes whose byte code differs from what was
+         * last loaded, and reports the outcome.
+         *
+         * @param  names  names of the classes whose files changed.
+         */
+        private void process(Set<String> names) {
+            Map<ReferenceType, byte[]> classes =
+                    new LinkedHashMap<ReferenceType, byte[]>();
+            Map<String, byte[]> digests = new HashMap<String, byte[]>();
+            List<HotSwapResult> list = new ArrayList<HotSwapResult>();
+            for (String name : names) {
+                File file = index.getFile(name);
+                if (file == null) {
+                    // The file has since been deleted.
+                    continue;
+                }
+                byte[] code;
+                try {
+                    code = ClassFileIndex.read(file);
+                } catch (IOException ioe) {
+                    list.add(new HotSwapResult(name, ioe.toString()));
+                    continue;
+                }
+                byte[] digest = ClassFileIndex.digest(code);
+                if (Arrays.equals(digest, index.getDigest(name))) {
+                    // Same content as what is already loaded.
+                    continue;
+                }
+                List<ReferenceType> types = vm.classesByName(name);
+                if (types.isEmpty()) {
+                    // Not loaded, so the new code will be loaded later.
+                    index.setDigest(name, digest);
+                    continue;
+                }
+                for (ReferenceType type : types) {
+                    classes.put(type, code);
+                }
+                digests.put(name, digest);
+            }
+            List<ReferenceType> redefined = new ArrayList<ReferenceType>();
+            if (!classes.isEmpty()) {
+                for (HotSwapResult result : redefine(vm, classes)) {
+                    if (result.isSuccess()) {
+                        index.setDigest(result.getName(),
+                                digests.get(result.getName()));
+                        redefined.addAll(vm.classesByName(result.getName()));
+                    }
+                    list.add(result);
+                }
+            }
+            if (list.isEmpty()) {
+                return;
+            }
+            results = Collections.unmodifiableList(list);
+            OutputWriter writer = OutputProvider.getWriter();
+            for (HotSwapResult result : list) {
+                if (result.isSuccess()) {
+                    writer.printOutput(NbBundle.getMessage(
+                            HotSwapWatcher.class, "CTL_HotSwap_Redefined",
+                            result.getName()));
+                } else {
+                    writer.printError(NbBundle.getMessage(
+                            HotSwapWatcher.class, "ERR_HotSwap_Failed",
+                            result.getName(), result.getError()));
+                }
+            }
+            RedefinitionResolver.classesRedefined(session, redefined);
+        }
+
+        @Override
+        public void run() {
+            try {
+                index.scan();
+                baseline();
+                Set<String> pending = new HashSet<String>();
+                long lastChange = 0;
+                while (running) {
+                    synchronized (this) {
+                        if (running) {
+                            wait(POLL_INTERVAL);
+                        }
+                    }
+                    if (!running) {
+                        break;
+                    }
+                    Set<String> changed = index.scan();
+                    long now = System.currentTimeMillis();
+                    if (!changed.isEmpty()) {
+                        // Wait for the build to finish writing files.
+                        pending.addAll(changed);
+                        lastChange = now;
+                    } else if (!pending.isEmpty()
+                            && now - lastChange >= QUIET_PERIOD && running) {
+                        process(pending);
+                        pending.clear();
+                    }
+                }
+            } catch (InterruptedException ie) {
+                // Stop watching.
+            } catch (VMDisconnectedException vmde) {
+                // Nothing more can be done.
+            } catch (Exception e) {
+                logger.log(Level.WARNING, null, e);
+            } finally {
+                finished(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.management;
+
+import com.bluemarsh.jswat.core.context.PrefetchStatistics;
+import com.bluemarsh.jswat.core.context.SnapshotPrefetcher;
+import com.bluemarsh.jswat.core.event.DispatcherStatistics;
+import com.bluemarsh.jswat.core.expr.Evaluator;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionManager;
+import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.bluemarsh.jswat.core.util.Classes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Class DebuggerBean implements the DebuggerMXBean, totalling the counters
+ * of all the sessions known to the session manager.
+ *
+ * @author  Nathan Fiedler
+ */
+class DebuggerBean implements DebuggerMXBean {
+
+    /**
+     * Constructs a new DebuggerBean.
+     */
+    DebuggerBean() {
+    }
+
+    @Override
+    public String[] dumpSlowestBreakpoints(int count) {
+        List<SessionBean.BreakpointTime> times =
+                new ArrayList<SessionBean.BreakpointTime>();
+        for (Session session : sessions()) {
+            times.addAll(SessionBean.breakpointTimes(session));
+        }
+        return SessionBean.dumpSlowest(times, count);
+    }
+
+    @Override
+    public double getAverageEvaluationMillis() {
+        return Evaluator.getStatistics().getAverageMillis();
+    }
+
+    @Override
+    public double getAverageInvocationMillis() {
+        return Classes.getInvocationStatistics().getAverageMillis();
+    }
+
+    @Override
+    public int getConnectedSessions() {
+        int count = 0;
+        for (Session session : sessions()) {
+            if (session.isConnected()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long getEvaluations() {
+        return Evaluator.getStatistics().getCount();
+    }
+
+    @Override
+    public long getEvents() {
+        long total = 0;
+        for (Session session : sessions()) {
+            total += SessionBean.statistics(session).getEvents();
+        }
+        return total;
+    }
+
+    @Override
+    public double getEventsPerSecond() {
+        double total = 0.0;
+        for (Session session : sessions()) {
+            DispatcherStatistics stats = SessionBean.statistics(session);
+            total += stats.perSecond(stats.getEvents());
+        }
+        return total;
+    }
+
+    @Override
+    public long getInvocations() {
+        return Classes.getInvocationStatistics().getCount();
+    }
+
+    @Override
+    public double getMaximumEvaluationMillis() {
+        return Evaluator.getStatistics().getMaximumMillis();
+    }
+
+    @Override
+    public double getMaximumInvocationMillis() {
+        return Classes.getInvocationStatistics().getMaximumMillis();
+    }
+
+    @Override
+    public int getPendingInvocations() {
+        return Classes.getPendingInvocations();
+    }
+
+    @Override
+    public double getPrefetchHitRate() {
+        return prefetchStatistics().getHitRate();
+    }
+
+    @Override
+    public long getPrefetchHits() {
+        return prefetchStatistics().getHits();
+    }
+
+    @Override
+    public long getPrefetchMisses() {
+        return prefetchStatistics().getMisses();
+    }
+
+    @Override
+    public long getPrefetchOverruns() {
+        return prefetchStatistics().getOverruns();
+    }
+
+    /**
+     * Returns the statistics of the snapshot prefetcher.
+     *
+     * @return  prefetch statistics.
+     */
+    private static PrefetchStatistics prefetchStatistics() {
+        return SnapshotPrefetcher.getDefault().getStatistics();
+    }
+
+    @Override
+    public int getSessions() {
+        return sessions().size();
+    }
+
+    @Override
+    public void resetCounters() {
+        Evaluator.getStatistics().reset();
+        Classes.getInvocationStatistics().reset();
+        prefetchStatistics().reset();
+        for (Session session : sessions()) {
+            SessionBean.statistics(session).reset();
+        }
+    }
+
+    /**
+     * Returns the sessions known to the session manager.
+     *
+     * @return  list of sessions.
+     */
+    private static List<Session> sessions() {
+        SessionManager sm = SessionProvider.getSessionManager();
+        List<Session> list = new ArrayList<Session>();
+        Iterator<Session> iter = sm.iterateSessions();
+        while (iter.hasNext()) {
+            list.add(iter.next());
+        }
+        return list;
+    }
+}
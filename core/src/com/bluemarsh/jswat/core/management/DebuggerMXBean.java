@@ -0,0 +1,157 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.management;
+
+/**
+ * Interface DebuggerMXBean exposes the overall workload of the debugger
+ * to JMX clients, such as jconsole. The event counts are the totals of
+ * all sessions, while the expression evaluations and method invocations
+ * are counted for the debugger as a whole.
+ *
+ * @author  Nathan Fiedler
+ */
+public interface DebuggerMXBean {
+
+    /**
+     * Returns the average time taken to evaluate an expression.
+     *
+     * @return  average evaluation time in milliseconds.
+     */
+    double getAverageEvaluationMillis();
+
+    /**
+     * Returns the average time taken to invoke a method in the debuggee.
+     *
+     * @return  average invocation time in milliseconds.
+     */
+    double getAverageInvocationMillis();
+
+    /**
+     * Returns the number of sessions that are connected to a debuggee.
+     *
+     * @return  connected session count.
+     */
+    int getConnectedSessions();
+
+    /**
+     * Returns the number of expressions evaluated.
+     *
+     * @return  evaluation count.
+     */
+    long getEvaluations();
+
+    /**
+     * Returns the number of events received by all of the sessions.
+     *
+     * @return  event count.
+     */
+    long getEvents();
+
+    /**
+     * Returns the rate at which events were received by all of the
+     * sessions.
+     *
+     * @return  events per second.
+     */
+    double getEventsPerSecond();
+
+    /**
+     * Returns the number of methods invoked in the debuggee.
+     *
+     * @return  invocation count.
+     */
+    long getInvocations();
+
+    /**
+     * Returns the longest time taken to evaluate an expression.
+     *
+     * @return  maximum evaluation time in milliseconds.
+     */
+    double getMaximumEvaluationMillis();
+
+    /**
+     * Returns the longest time taken to invoke a method in the debuggee.
+     *
+     * @return  maximum invocation time in milliseconds.
+     */
+    double getMaximumInvocationMillis();
+
+    /**
+     * Returns the number of method invocations in the debuggee that have
+     * yet to return.
+     *
+     * @return  pending invocation count.
+     */
+    int getPendingInvocations();
+
+    /**
+     * Returns the ratio of the snapshot requests satisfied by prefetched
+     * information to all requests, which is useful in tuning the prefetch
+     * depth and budget.
+     *
+     * @return  hit rate between 0.0 and 1.0.
+     */
+    double getPrefetchHitRate();
+
+    /**
+     * Returns the number of snapshot requests satisfied by prefetched
+     * information.
+     *
+     * @return  prefetch hit count.
+     */
+    long getPrefetchHits();
+
+    /**
+     * Returns the number of snapshot requests that had to query the
+     * debuggee.
+     *
+     * @return  prefetch miss count.
+     */
+    long getPrefetchMisses();
+
+    /**
+     * Returns the number of prefetches that ran out of time.
+     *
+     * @return  prefetch overrun count.
+     */
+    long getPrefetchOverruns();
+
+    /**
+     * Returns the number of sessions.
+     *
+     * @return  session count.
+     */
+    int getSessions();
+
+    /**
+     * Describes the breakpoints, of all sessions, that took the longest,
+     * on average, to process an event.
+     *
+     * @param  count  largest number of breakpoints to describe.
+     * @return  one line per breakpoint, slowest first.
+     */
+    String[] dumpSlowestBreakpoints(int count);
+
+    /**
+     * Resets the counters of the debugger and all of the sessions to zero.
+     */
+    void resetCounters();
+}
@@ -0,0 +1,220 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.management;
+
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionManager;
+import com.bluemarsh.jswat.core.session.SessionManagerEvent;
+import com.bluemarsh.jswat.core.session.SessionManagerListener;
+import com.bluemarsh.jswat.core.session.SessionProvider;
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Class ManagementProvider registers the debugger MBeans with the platform
+ * MBean server, so that tools such as jconsole can watch the debugger at
+ * work. One MBean is registered for the debugger as a whole, and one for
+ * each session, the latter being added and removed as the sessions come
+ * and go.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ManagementProvider {
+    /** Logger for gracefully reporting unexpected errors. */
+    private static final Logger logger = Logger.getLogger(
+            ManagementProvider.class.getName());
+    /** Domain of the MBean object names. */
+    private static final String DOMAIN = "com.bluemarsh.jswat";
+    /** Keeps the session MBeans in step with the sessions, if installed. */
+    private static Registrar registrar;
+
+    /**
+     * Creates a new instance of ManagementProvider.
+     */
+    private ManagementProvider() {
+    }
+
+    /**
+     * Returns the object name of the debugger MBean.
+     *
+     * @return  debugger object name.
+     * @throws  JMException
+     *          if the name is malformed.
+     */
+    public static ObjectName getDebuggerName() throws JMException {
+        return new ObjectName(DOMAIN + ":type=Debugger");
+    }
+
+    /**
+     * Returns the object name of the MBean for the given session.
+     *
+     * @param  session  the session.
+     * @return  session object name.
+     * @throws  JMException
+     *          if the name is malformed.
+     */
+    public static ObjectName getSessionName(Session session)
+            throws JMException {
+        return new ObjectName(DOMAIN + ":type=Session,id="
+                + ObjectName.quote(session.getIdentifier()));
+    }
+
+    /**
+     * Registers the debugger MBean, and an MBean for each of the current
+     * and future sessions. Does nothing if already installed. Any MBeans
+     * left registered by an earlier instance of this class, such as
+     * before the module was reloaded, are replaced.
+     */
+    public static synchronized void install() {
+        if (registrar != null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = getDebuggerName();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(new DebuggerBean(), name);
+        } catch (JMException jme) {
+            logger.log(Level.WARNING, null, jme);
+            return;
+        }
+        registrar = new Registrar(server);
+        SessionManager sm = SessionProvider.getSessionManager();
+        sm.addSessionManagerListener(registrar);
+        Iterator<Session> iter = sm.iterateSessions();
+        while (iter.hasNext()) {
+            registrar.register(iter.next());
+        }
+    }
+
+    /**
+     * Unregisters all of the MBeans registered by install(). This must be
+     * called when the module is closed or uninstalled, since the platform
+     * MBean server outlives the module.
+     */
+    public static synchronized void uninstall() {
+        if (registrar == null) {
+            return;
+        }
+        SessionManager sm = SessionProvider.getSessionManager();
+        sm.removeSessionManagerListener(registrar);
+        Iterator<Session> iter = sm.iterateSessions();
+        while (iter.hasNext()) {
+            registrar.unregister(iter.next());
+        }
+        registrar.unregisterDebugger();
+        registrar = null;
+    }
+
+    /**
+     * Registers and unregisters the session MBeans as the sessions are
+     * added to and removed from the session manager.
+     */
+    private static class Registrar implements SessionManagerListener {
+        /** Server with which the MBeans are registered. */
+        private final MBeanServer server;
+
+        /**
+         * Constructs a new Registrar.
+         *
+         * @param  server  server with which to register the MBeans.
+         */
+        Registrar(MBeanServer server) {
+            this.server = server;
+        }
+
+        /**
+         * Registers the MBean for the given session, replacing any that
+         * is already registered under the same name.
+         *
+         * @param  session  the session.
+         */
+        void register(Session session) {
+            try {
+                ObjectName name = getSessionName(session);
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+                server.registerMBean(new SessionBean(session), name);
+            } catch (JMException jme) {
+                logger.log(Level.WARNING, null, jme);
+            }
+        }
+
+        @Override
+        public void sessionAdded(SessionManagerEvent e) {
+            register(e.getSession());
+        }
+
+        @Override
+        public void sessionRemoved(SessionManagerEvent e) {
+            unregister(e.getSession());
+        }
+
+        @Override
+        public void sessionSetCurrent(SessionManagerEvent e) {
+        }
+
+        /**
+         * Unregisters the MBean for the given session.
+         *
+         * @param  session  the session.
+         */
+        void unregister(Session session) {
+            try {
+                unregister(getSessionName(session));
+            } catch (JMException jme) {
+                logger.log(Level.WARNING, null, jme);
+            }
+        }
+
+        /**
+         * Unregisters the MBean with the given name, if it is registered.
+         *
+         * @param  name  name of the MBean.
+         * @throws  JMException
+         *          if the MBean could not be unregistered.
+         */
+        private void unregister(ObjectName name) throws JMException {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        }
+
+        /**
+         * Unregisters the debugger MBean.
+         */
+        void unregisterDebugger() {
+            try {
+                unregister(getDebuggerName());
+            } catch (JMException jme) {
+                logger.log(Level.WARNING, null, jme);
+            }
+        }
+    }
+}
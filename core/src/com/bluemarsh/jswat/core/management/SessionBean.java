@@ -0,0 +1,255 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.management;
+
+import com.bluemarsh.jswat.core.breakpoint.Breakpoint;
+import com.bluemarsh.jswat.core.event.DispatcherListener;
+import com.bluemarsh.jswat.core.event.DispatcherProvider;
+import com.bluemarsh.jswat.core.event.DispatcherStatistics;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.util.LatencyStatistics;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.openide.util.NbBundle;
+
+/**
+ * Class SessionBean implements the SessionMXBean for a single session,
+ * reading the counters from the event dispatcher of the session.
+ *
+ * @author  Nathan Fiedler
+ */
+class SessionBean implements SessionMXBean {
+    /** The session being exposed. */
+    private final Session session;
+
+    /**
+     * Constructs a new SessionBean for the given session.
+     *
+     * @param  session  the session to expose.
+     */
+    SessionBean(Session session) {
+        this.session = session;
+    }
+
+    /**
+     * Returns the time spent in each of the breakpoints of the given
+     * session, for the events received since the counters were reset.
+     *
+     * @param  session  session whose breakpoints are wanted.
+     * @return  breakpoint times, in no particular order.
+     */
+    static List<BreakpointTime> breakpointTimes(Session session) {
+        DispatcherStatistics stats = statistics(session);
+        Map<DispatcherListener, LatencyStatistics> times =
+                stats.getListenerTimes();
+        List<BreakpointTime> results = new ArrayList<BreakpointTime>();
+        for (Map.Entry<DispatcherListener, LatencyStatistics> entry
+                : times.entrySet()) {
+            if (entry.getKey() instanceof Breakpoint) {
+                results.add(new BreakpointTime(
+                        (Breakpoint) entry.getKey(), entry.getValue()));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public String[] dumpSlowestBreakpoints(int count) {
+        return dumpSlowest(breakpointTimes(session), count);
+    }
+
+    /**
+     * Describes the slowest of the given breakpoints.
+     *
+     * @param  times  the breakpoint times.
+     * @param  count  largest number of breakpoints to describe.
+     * @return  one line per breakpoint, slowest first.
+     */
+    static String[] dumpSlowest(List<BreakpointTime> times, int count) {
+        Collections.sort(times, new Comparator<BreakpointTime>() {
+            @Override
+            public int compare(BreakpointTime o1, BreakpointTime o2) {
+                return Double.compare(o2.getStatistics().getAverageMillis(),
+                        o1.getStatistics().getAverageMillis());
+            }
+        });
+        int n = Math.max(0, Math.min(count, times.size()));
+        String[] lines = new String[n];
+        for (int ii = 0; ii < n; ii++) {
+            BreakpointTime bt = times.get(ii);
+            LatencyStatistics ls = bt.getStatistics();
+            lines[ii] = NbBundle.getMessage(SessionBean.class,
+                    "CTL_Management_Slowest", bt.getName(),
+                    String.valueOf(ls.getCount()),
+                    String.format("%.3f", ls.getAverageMillis()),
+                    String.format("%.3f", ls.getMaximumMillis()),
+                    String.format("%.3f", ls.getTotalMillis()));
+        }
+        return lines;
+    }
+
+    @Override
+    public double getAverageListenerMillis() {
+        return statistics(session).getListenerTime().getAverageMillis();
+    }
+
+    @Override
+    public double getAverageRoundTripMillis() {
+        return statistics(session).getResumeTime().getAverageMillis();
+    }
+
+    @Override
+    public Map<String, Long> getBreakpointHits() {
+        Map<String, Long> hits = new TreeMap<String, Long>();
+        for (BreakpointTime bt : breakpointTimes(session)) {
+            hits.put(bt.getName(), bt.getStatistics().getCount());
+        }
+        return hits;
+    }
+
+    @Override
+    public Map<String, Double> getBreakpointHitRates() {
+        DispatcherStatistics stats = statistics(session);
+        Map<String, Double> rates = new TreeMap<String, Double>();
+        for (BreakpointTime bt : breakpointTimes(session)) {
+            rates.put(bt.getName(),
+                    stats.perSecond(bt.getStatistics().getCount()));
+        }
+        return rates;
+    }
+
+    @Override
+    public double getDispatcherUtilization() {
+        return statistics(session).getUtilization();
+    }
+
+    @Override
+    public Map<String, Long> getEventCounts() {
+        return statistics(session).getEventCounts();
+    }
+
+    @Override
+    public Map<String, Double> getEventRates() {
+        DispatcherStatistics stats = statistics(session);
+        Map<String, Double> rates = new TreeMap<String, Double>();
+        for (Map.Entry<String, Long> entry : stats.getEventCounts().entrySet()) {
+            rates.put(entry.getKey(), stats.perSecond(entry.getValue()));
+        }
+        return rates;
+    }
+
+    @Override
+    public long getEventSets() {
+        return statistics(session).getEventSets();
+    }
+
+    @Override
+    public double getEventsPerSecond() {
+        DispatcherStatistics stats = statistics(session);
+        return stats.perSecond(stats.getEvents());
+    }
+
+    @Override
+    public String getIdentifier() {
+        return session.getIdentifier();
+    }
+
+    @Override
+    public double getMaximumListenerMillis() {
+        return statistics(session).getListenerTime().getMaximumMillis();
+    }
+
+    @Override
+    public double getMaximumRoundTripMillis() {
+        return statistics(session).getResumeTime().getMaximumMillis();
+    }
+
+    @Override
+    public String getName() {
+        return session.getProperty(Session.PROP_SESSION_NAME);
+    }
+
+    @Override
+    public String getState() {
+        return session.getState();
+    }
+
+    @Override
+    public void resetCounters() {
+        statistics(session).reset();
+    }
+
+    /**
+     * Returns the dispatcher statistics for the given session.
+     *
+     * @param  session  session for which to get statistics.
+     * @return  dispatcher statistics.
+     */
+    static DispatcherStatistics statistics(Session session) {
+        return DispatcherProvider.getDispatcher(session).getStatistics();
+    }
+
+    /**
+     * The time spent in a single breakpoint.
+     */
+    static class BreakpointTime {
+        /** Name of the breakpoint. */
+        private final String name;
+        /** Time spent processing the events of the breakpoint. */
+        private final LatencyStatistics statistics;
+
+        /**
+         * Constructs a new BreakpointTime.
+         *
+         * @param  bp     the breakpoint.
+         * @param  stats  time spent in the breakpoint.
+         */
+        BreakpointTime(Breakpoint bp, LatencyStatistics stats) {
+            Object number = bp.getProperty(Breakpoint.PROP_NUMBER);
+            name = NbBundle.getMessage(SessionBean.class,
+                    "CTL_Management_Breakpoint", String.valueOf(number),
+                    bp.getDescription());
+            statistics = stats;
+        }
+
+        /**
+         * Returns the name of the breakpoint, with its number.
+         *
+         * @return  breakpoint name.
+         */
+        String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the time spent processing the events of the breakpoint.
+         *
+         * @return  breakpoint time.
+         */
+        LatencyStatistics getStatistics() {
+            return statistics;
+        }
+    }
+}
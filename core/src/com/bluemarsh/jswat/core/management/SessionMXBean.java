@@ -0,0 +1,149 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.management;
+
+import java.util.Map;
+
+/**
+ * Interface SessionMXBean exposes the event processing of a single
+ * session to JMX clients, such as jconsole. The counts and rates cover
+ * the period since the counters were last reset.
+ *
+ * @author  Nathan Fiedler
+ */
+public interface SessionMXBean {
+
+    /**
+     * Returns the time spent in the listeners, averaged over the events.
+     *
+     * @return  average listener time in milliseconds.
+     */
+    double getAverageListenerMillis();
+
+    /**
+     * Returns the average time taken to resume the debuggee after an
+     * event set, which is a round trip over the JDWP connection.
+     *
+     * @return  average round trip time in milliseconds.
+     */
+    double getAverageRoundTripMillis();
+
+    /**
+     * Returns the number of times each breakpoint received an event.
+     *
+     * @return  hit counts keyed by breakpoint.
+     */
+    Map<String, Long> getBreakpointHits();
+
+    /**
+     * Returns the rate at which each breakpoint received events.
+     *
+     * @return  hits per second keyed by breakpoint.
+     */
+    Map<String, Double> getBreakpointHitRates();
+
+    /**
+     * Returns the fraction of time the dispatcher was busy processing
+     * events. A value approaching one means the debugger is not keeping
+     * up with the debuggee.
+     *
+     * @return  utilization between 0.0 and 1.0.
+     */
+    double getDispatcherUtilization();
+
+    /**
+     * Returns the number of events received, by event type.
+     *
+     * @return  event counts keyed by type.
+     */
+    Map<String, Long> getEventCounts();
+
+    /**
+     * Returns the rate at which events were received, by event type.
+     *
+     * @return  events per second keyed by type.
+     */
+    Map<String, Double> getEventRates();
+
+    /**
+     * Returns the number of event sets received, each of which is one
+     * suspension (or potential suspension) of the debuggee.
+     *
+     * @return  event set count.
+     */
+    long getEventSets();
+
+    /**
+     * Returns the rate at which events were received.
+     *
+     * @return  events per second.
+     */
+    double getEventsPerSecond();
+
+    /**
+     * Returns the unique identifier of the session.
+     *
+     * @return  session identifier.
+     */
+    String getIdentifier();
+
+    /**
+     * Returns the longest time spent in a listener for a single event.
+     *
+     * @return  maximum listener time in milliseconds.
+     */
+    double getMaximumListenerMillis();
+
+    /**
+     * Returns the longest time taken to resume the debuggee.
+     *
+     * @return  maximum round trip time in milliseconds.
+     */
+    double getMaximumRoundTripMillis();
+
+    /**
+     * Returns the name of the session.
+     *
+     * @return  session name.
+     */
+    String getName();
+
+    /**
+     * Returns the state of the session, such as whether it is connected.
+     *
+     * @return  session state.
+     */
+    String getState();
+
+    /**
+     * Describes the breakpoints that took the longest, on average, to
+     * process an event.
+     *
+     * @param  count  largest number of breakpoints to describe.
+     * @return  one line per breakpoint, slowest first.
+     */
+    String[] dumpSlowestBreakpoints(int count);
+
+    /**
+     * Resets the counters of this session to zero.
+     */
+    void resetCounters();
+}
@@ -26,6 +26,7 @@ package com.bluemarsh.jswat.core.session;
 import com.bluemarsh.jswat.core.connect.JvmConnection;
 import com.bluemarsh.jswat.core.context.ContextProvider;
 import com.bluemarsh.jswat.core.context.DebuggingContext;
+import com.bluemarsh.jswat.core.context.SnapshotPrefetcher;
 import com.bluemarsh.jswat.core.event.DispatcherProvider;
 import com.bluemarsh.jswat.core.event.DispatcherListener;
 import com.sun.jdi.ObjectCollectedException;
@@ -123,6 +124,8 @@ public class DefaultSession extends AbstractSession {
                     ThreadReference th = ((ThreadDeathEvent) event).thread();
                     dc.setThread(th, true);
                 }
+                // Start fetching what the listeners are likely to want.
+                SnapshotPrefetcher.getDefault().prefetch(DefaultSession.this);
                 fireEvent(new SessionEvent(DefaultSession.this,
                         SessionEventType.SUSPENDED, event));
                 return false;
@@ -112,6 +112,15 @@ public abstract class AbstractStepper implements SessionListener, Stepper {
     public void disconnected(SessionEvent sevt) {
     }
 
+    /**
+     * Returns the Session this stepper belongs to.
+     *
+     * @return  owning Session.
+     */
+    protected Session getSession() {
+        return owningSession;
+    }
+
     @Override
     public void opened(Session session) {
         owningSession = session;
@@ -24,10 +24,17 @@
 package com.bluemarsh.jswat.core.stepping;
 
 import com.bluemarsh.jswat.core.CoreSettings;
+import com.bluemarsh.jswat.core.context.ContextProvider;
+import com.bluemarsh.jswat.core.context.DebuggingContext;
 import com.bluemarsh.jswat.core.event.DispatcherListener;
+import com.bluemarsh.jswat.core.expr.EvaluationException;
+import com.bluemarsh.jswat.core.expr.Evaluator;
 import com.bluemarsh.jswat.core.output.OutputProvider;
 import com.bluemarsh.jswat.core.output.OutputWriter;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
 import com.bluemarsh.jswat.core.util.Strings;
+import com.sun.jdi.BooleanValue;
 import com.sun.jdi.IncompatibleThreadStateException;
 import com.sun.jdi.ThreadReference;
 import com.sun.jdi.VMDisconnectedException;
@@ -54,6 +61,8 @@ public class DefaultStepper extends AbstractStepper implements DispatcherListene
     /** Logger for gracefully reporting unexpected errors. */
     private static final Logger logger = Logger.getLogger(
             DefaultStepper.class.getName());
+    /** The series of steps in progress, if any. */
+    private volatile Series series;
 
     /**
      * Creates a new instance of DefaultStepper.
@@ -61,10 +70,80 @@ public class DefaultStepper extends AbstractStepper implements DispatcherListene
     public DefaultStepper() {
     }
 
+    /**
+     * Creates a step request in the given thread.
+     *
+     * @param  vm      virtual machine in which to create request.
+     * @param  thread  thread in which to step.
+     * @param  size    how much to step (one of the StepRequest constants).
+     * @param  depth   how to step (one of the StepRequest constants).
+     * @param  once    true to make the request fire just once, false to
+     *                 have it fire until it is deleted.
+     * @return  the new step request, initially disabled; null if error.
+     */
+    private StepRequest createRequest(VirtualMachine vm, ThreadReference thread,
+            int size, int depth, boolean once) {
+        try {
+            // Clear any previously set step requests on this thread.
+            clearPreviousStep(vm, thread);
+            EventRequestManager mgr = vm.eventRequestManager();
+
+            if (once && depth == StepRequest.STEP_OUT
+                    && vm.canGetMethodReturnValues()) {
+                // If the VM supports method exit return values, set up
+                // a request to get the next method exit event for this
+                // class on this thread so we can display it.
+                MethodExitRequest mer = mgr.createMethodExitRequest();
+                mer.addThreadFilter(thread);
+                mer.addClassFilter(thread.frame(0).location().declaringType());
+                // Make this a one-off event, so it self terminates.
+                mer.addCountFilter(1);
+                register(mer);
+                mer.enable();
+            }
+
+            // Ask the event request manager to create a step request.
+            StepRequest request = mgr.createStepRequest(thread, size, depth);
+
+            // Add class exclusions set by the user.
+            CoreSettings cs = CoreSettings.getDefault();
+            List<String> excludes = cs.getSteppingExcludes();
+            Iterator<String> iter = excludes.iterator();
+            while (iter.hasNext()) {
+                String excl = iter.next();
+                request.addClassExclusionFilter(excl);
+            }
+
+            if (once) {
+                // Make this a one-off event, so it self terminates.
+                request.addCountFilter(1);
+            }
+            register(request);
+            return request;
+        } catch (IncompatibleThreadStateException itse) {
+            // This cannot be possible.
+            logger.log(Level.SEVERE, null, itse);
+        } catch (VMDisconnectedException vmde) {
+            // This is unusual and there's no sense reporting it.
+        }
+        return null;
+    }
+
+    @Override
+    public void disconnected(SessionEvent sevt) {
+        super.disconnected(sevt);
+        // The request went away with the debuggee.
+        series = null;
+    }
+
     @Override
     public boolean eventOccurred(Event event) {
         VirtualMachine vm = event.virtualMachine();
         if (event instanceof StepEvent) {
+            Series s = series;
+            if (s != null && event.request() == s.request) {
+                return s.stepped((StepEvent) event);
+            }
             if (vm.canGetSyntheticAttribute()) {
                 CoreSettings cs = CoreSettings.getDefault();
                 // Does the user want to skip stepping into synthetic methods?
@@ -107,46 +186,128 @@ public class DefaultStepper extends AbstractStepper implements DispatcherListene
     @Override
     public StepRequest step(VirtualMachine vm, ThreadReference thread,
             int size, int depth) {
-        try {
-            // Clear any previously set step requests on this thread.
-            clearPreviousStep(vm, thread);
-            EventRequestManager mgr = vm.eventRequestManager();
+        return createRequest(vm, thread, size, depth, true);
+    }
 
-            if (depth == StepRequest.STEP_OUT && vm.canGetMethodReturnValues()) {
-                // If the VM supports method exit return values, set up
-                // a request to get the next method exit event for this
-                // class on this thread so we can display it.
-                MethodExitRequest mer = mgr.createMethodExitRequest();
-                mer.addThreadFilter(thread);
-                mer.addClassFilter(thread.frame(0).location().declaringType());
-                // Make this a one-off event, so it self terminates.
-                mer.addCountFilter(1);
-                register(mer);
-                mer.enable();
-            }
+    @Override
+    public void stepRepeatedly(int depth, int count, String condition)
+            throws SteppingException {
+        if (count <= 0 && condition == null) {
+            throw new IllegalArgumentException("count or condition required");
+        }
+        Session session = getSession();
+        DebuggingContext dc = ContextProvider.getContext(session);
+        ThreadReference thread = dc.getThread();
+        if (thread == null) {
+            String msg = NbBundle.getMessage(getClass(), "CTL_Stepping_NoThread");
+            throw new SteppingException(msg);
+        }
+        VirtualMachine vm = session.getConnection().getVM();
+        StepRequest request = createRequest(vm, thread, StepRequest.STEP_LINE,
+                depth, false);
+        if (request == null) {
+            return;
+        }
+        Evaluator evaluator = condition == null ? null : new Evaluator(condition);
+        series = new Series(request, count, evaluator);
+        request.enable();
+        session.resumeVM();
+    }
 
-            // Ask the event request manager to create a step request.
-            StepRequest request = mgr.createStepRequest(thread, size, depth);
+    @Override
+    public void suspended(SessionEvent sevt) {
+        super.suspended(sevt);
+        Series s = series;
+        if (s != null) {
+            // Stopped for some other reason, such as a breakpoint.
+            s.finish();
+        }
+    }
 
-            // Add class exclusions set by the user.
-            CoreSettings cs = CoreSettings.getDefault();
-            List<String> excludes = cs.getSteppingExcludes();
-            Iterator<String> iter = excludes.iterator();
-            while (iter.hasNext()) {
-                String excl = iter.next();
-                request.addClassExclusionFilter(excl);
+    /**
+     * A Series represents the steps being taken by a single step request
+     * until either the step count is reached or the condition is met.
+     */
+    private class Series {
+        /** The step request, which fires until it is deleted. */
+        private final StepRequest request;
+        /** Maximum number of steps, zero for no limit. */
+        private final int count;
+        /** Evaluates the stop condition, parsed just once; may be null. */
+        private final Evaluator evaluator;
+        /** Number of steps taken so far. */
+        private int steps;
+
+        /**
+         * Constructs a new Series.
+         *
+         * @param  request    the step request.
+         * @param  count      maximum number of steps.
+         * @param  evaluator  stop condition, or null if none.
+         */
+        Series(StepRequest request, int count, Evaluator evaluator) {
+            this.request = request;
+            this.count = count;
+            this.evaluator = evaluator;
+        }
+
+        /**
+         * Deletes the step request, ending the series.
+         */
+        void finish() {
+            series = null;
+            try {
+                request.virtualMachine().eventRequestManager().
+                        deleteEventRequest(request);
+            } catch (VMDisconnectedException vmde) {
+                // The request went away with the debuggee.
             }
+        }
 
-            // Make this a one-off event, so it self terminates.
-            request.addCountFilter(1);
-            register(request);
-            return request;
-        } catch (IncompatibleThreadStateException itse) {
-            // This cannot be possible.
-            logger.log(Level.SEVERE, null, itse);
-        } catch (VMDisconnectedException vmde) {
-            // This is unusual and there's no sense reporting it.
+        /**
+         * Called for each step event, to determine if the series is done.
+         *
+         * @param  event  the step event.
+         * @return  true to resume the debuggee, false to stop here.
+         */
+        boolean stepped(StepEvent event) {
+            VirtualMachine vm = event.virtualMachine();
+            if (vm.canGetSyntheticAttribute()
+                    && CoreSettings.getDefault().getSkipSynthetics()
+                    && event.location().method().isSynthetic()) {
+                // Synthetic code does not count as a step.
+                return true;
+            }
+            steps++;
+            boolean stop = count > 0 && steps >= count;
+            if (!stop && evaluator != null) {
+                String error = null;
+                try {
+                    Object o = evaluator.evaluate(event.thread(), 0);
+                    if (o instanceof BooleanValue) {
+                        stop = ((BooleanValue) o).value();
+                    } else if (o instanceof Boolean) {
+                        stop = ((Boolean) o).booleanValue();
+                    } else {
+                        error = NbBundle.getMessage(DefaultStepper.class,
+                                "CTL_DefaultStepper_NotBoolean");
+                    }
+                } catch (EvaluationException ee) {
+                    error = ee.getMessage();
+                }
+                if (error != null) {
+                    OutputProvider.getWriter().printError(error);
+                    stop = true;
+                }
+            }
+            if (stop) {
+                finish();
+                OutputProvider.getWriter().printOutput(NbBundle.getMessage(
+                        DefaultStepper.class, "CTL_DefaultStepper_Stepped",
+                        String.valueOf(steps)));
+                return false;
+            }
+            return true;
         }
-        return null;
     }
 }
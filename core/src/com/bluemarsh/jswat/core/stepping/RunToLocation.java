@@ -0,0 +1,448 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.stepping;
+
+import com.bluemarsh.jswat.core.event.Dispatcher;
+import com.bluemarsh.jswat.core.event.DispatcherListener;
+import com.bluemarsh.jswat.core.event.DispatcherProvider;
+import com.bluemarsh.jswat.core.output.OutputProvider;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.bluemarsh.jswat.core.util.AmbiguousMethodException;
+import com.bluemarsh.jswat.core.util.Classes;
+import com.bluemarsh.jswat.core.util.Types;
+import com.sun.jdi.AbsentInformationException;
+import com.sun.jdi.ClassNotPreparedException;
+import com.sun.jdi.InvalidTypeException;
+import com.sun.jdi.Location;
+import com.sun.jdi.Method;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.VMDisconnectedException;
+import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.event.ClassPrepareEvent;
+import com.sun.jdi.event.Event;
+import com.sun.jdi.request.BreakpointRequest;
+import com.sun.jdi.request.ClassPrepareRequest;
+import com.sun.jdi.request.EventRequest;
+import com.sun.jdi.request.EventRequestManager;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import org.openide.util.NbBundle;
+
+/**
+ * Class RunToLocation resumes the debuggee until it reaches a given line
+ * or method, as for "run to cursor". Rather than going through the
+ * breakpoint manager, the breakpoint requests are created directly, with
+ * a count filter of one and an optional thread filter, and are deleted as
+ * soon as the debuggee suspends again, whether at the desired location or
+ * for some other reason. Nothing is persisted and no breakpoint listeners
+ * are notified.
+ *
+ * <p>If the class has not yet been loaded, the requests are created when
+ * it is prepared.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class RunToLocation implements DispatcherListener, SessionListener {
+    /** Property set on the requests created by this class. */
+    private static final String PROP_RUN_TO = "runTo";
+    /** The Session instance we belong to. */
+    private Session owningSession;
+    /** The outstanding event requests. */
+    private final List<EventRequest> requests;
+    /** The target awaiting the preparation of its class, if any. */
+    private Target pending;
+    /** Thread filter for the target awaiting its class, if any. */
+    private ThreadReference pendingThread;
+
+    /**
+     * Creates a new instance of RunToLocation.
+     */
+    public RunToLocation() {
+        requests = new ArrayList<EventRequest>();
+    }
+
+    /**
+     * Deletes any outstanding requests, such that the debuggee will no
+     * longer stop at the location given earlier.
+     */
+    public synchronized void cancel() {
+        Dispatcher dispatcher = DispatcherProvider.getDispatcher(owningSession);
+        for (EventRequest request : requests) {
+            dispatcher.unregister(request);
+        }
+        if (!requests.isEmpty()) {
+            try {
+                EventRequestManager erm = requests.get(0).virtualMachine().
+                        eventRequestManager();
+                erm.deleteEventRequests(requests);
+            } catch (VMDisconnectedException vmde) {
+                // The requests went away with the debuggee.
+            }
+            requests.clear();
+        }
+        pending = null;
+        pendingThread = null;
+    }
+
+    @Override
+    public void closing(SessionEvent sevt) {
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+    }
+
+    /**
+     * Adds the filters to the given request. Filters are applied in the
+     * order they are added, so the thread filter must come before the
+     * count filter, otherwise a hit in another thread would use up the
+     * count and the request would never fire in the desired thread.
+     *
+     * @param  request  breakpoint request to be filtered.
+     * @param  thread   thread to stop in, or null for any thread.
+     */
+    static void addFilters(BreakpointRequest request, ThreadReference thread) {
+        if (thread != null) {
+            request.addThreadFilter(thread);
+        }
+        request.addCountFilter(1);
+    }
+
+    /**
+     * Creates the breakpoint requests for the given locations.
+     *
+     * @param  locations  where the debuggee is to stop.
+     * @param  thread     thread to stop in, or null for any thread.
+     */
+    private void createRequests(List<Location> locations,
+            ThreadReference thread) {
+        Dispatcher dispatcher = DispatcherProvider.getDispatcher(owningSession);
+        for (Location location : locations) {
+            EventRequestManager erm = location.virtualMachine().
+                    eventRequestManager();
+            BreakpointRequest request = erm.createBreakpointRequest(location);
+            addFilters(request, thread);
+            request.setSuspendPolicy(EventRequest.SUSPEND_ALL);
+            request.putProperty(PROP_RUN_TO, Boolean.TRUE);
+            dispatcher.register(this, request);
+            requests.add(request);
+            request.enable();
+        }
+    }
+
+    @Override
+    public void disconnected(SessionEvent sevt) {
+        synchronized (this) {
+            // The requests are gone along with the debuggee.
+            requests.clear();
+            pending = null;
+            pendingThread = null;
+        }
+    }
+
+    @Override
+    public boolean eventOccurred(Event event) {
+        if (event instanceof ClassPrepareEvent) {
+            ReferenceType clazz = ((ClassPrepareEvent) event).referenceType();
+            String error = null;
+            synchronized (this) {
+                if (pending != null) {
+                    try {
+                        List<Location> locations = pending.resolve(clazz);
+                        if (locations.isEmpty()) {
+                            error = pending.getNotFoundMessage();
+                        } else {
+                            createRequests(locations, pendingThread);
+                        }
+                    } catch (SteppingException se) {
+                        error = se.getMessage();
+                    }
+                    pending = null;
+                    pendingThread = null;
+                    EventRequest request = event.request();
+                    requests.remove(request);
+                    DispatcherProvider.getDispatcher(owningSession).
+                            unregister(request);
+                    request.virtualMachine().eventRequestManager().
+                            deleteEventRequest(request);
+                }
+            }
+            if (error != null) {
+                OutputProvider.getWriter().printError(error);
+            }
+            // Let the class loading continue.
+            return true;
+        }
+        // Arrived at the location, stop here.
+        cancel();
+        return false;
+    }
+
+    /**
+     * Indicates if the given request was created by a RunToLocation.
+     *
+     * @param  request  event request to check.
+     * @return  true if the request is for running to a location.
+     */
+    public static boolean isRunTo(EventRequest request) {
+        return request != null && request.getProperty(PROP_RUN_TO) != null;
+    }
+
+    /**
+     * Indicates if the debuggee has yet to reach the location given in
+     * the last call to one of the <code>runTo</code> methods.
+     *
+     * @return  true if requests are outstanding, false otherwise.
+     */
+    public synchronized boolean isActive() {
+        return !requests.isEmpty();
+    }
+
+    @Override
+    public void opened(Session session) {
+        owningSession = session;
+    }
+
+    @Override
+    public void resuming(SessionEvent sevt) {
+    }
+
+    /**
+     * Creates the requests for reaching the target in the named class,
+     * or for the preparation of the class if it is not yet loaded.
+     *
+     * @param  className  name of the class.
+     * @param  target     the location within the class.
+     * @param  thread     thread to stop in, or null for any thread.
+     * @throws  SteppingException
+     *          if the target could not be found in the class.
+     */
+    private synchronized void resolve(String className, Target target,
+            ThreadReference thread) throws SteppingException {
+        cancel();
+        VirtualMachine vm = owningSession.getConnection().getVM();
+        List<ReferenceType> classes = vm.classesByName(className);
+        if (classes.isEmpty()) {
+            ClassPrepareRequest request = vm.eventRequestManager().
+                    createClassPrepareRequest();
+            request.addClassFilter(className);
+            request.setSuspendPolicy(EventRequest.SUSPEND_EVENT_THREAD);
+            request.putProperty(PROP_RUN_TO, Boolean.TRUE);
+            DispatcherProvider.getDispatcher(owningSession).register(
+                    this, request);
+            requests.add(request);
+            pending = target;
+            pendingThread = thread;
+            request.enable();
+            return;
+        }
+        List<Location> locations = new ArrayList<Location>();
+        for (ReferenceType clazz : classes) {
+            locations.addAll(target.resolve(clazz));
+        }
+        if (locations.isEmpty()) {
+            throw new SteppingException(target.getNotFoundMessage());
+        }
+        createRequests(locations, thread);
+    }
+
+    /**
+     * Resumes the debuggee until it reaches the given line.
+     *
+     * @param  className  name of the class containing the line (nested
+     *                    classes are searched as well).
+     * @param  line       line number.
+     * @param  thread     thread to stop in, or null for any thread.
+     * @throws  SteppingException
+     *          if the class has no code at the given line.
+     */
+    public void runToLine(String className, int line, ThreadReference thread)
+            throws SteppingException {
+        resolve(className, new LineTarget(line), thread);
+        owningSession.resumeVM();
+    }
+
+    /**
+     * Resumes the debuggee until it enters the given method.
+     *
+     * @param  className   name of the class declaring the method.
+     * @param  methodName  name of the method.
+     * @param  arguments   argument type names; if empty, every method
+     *                     with the given name is a target.
+     * @param  thread      thread to stop in, or null for any thread.
+     * @throws  SteppingException
+     *          if the method could not be found.
+     */
+    public void runToMethod(String className, String methodName,
+            List<String> arguments, ThreadReference thread)
+            throws SteppingException {
+        resolve(className, new MethodTarget(methodName, arguments), thread);
+        owningSession.resumeVM();
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
+        // Stopped for some other reason, forget about the location.
+        cancel();
+    }
+
+    /**
+     * A Target finds the locations at which to stop within a class.
+     */
+    private abstract static class Target {
+
+        /**
+         * Returns the message for when the target is not found.
+         *
+         * @return  error message.
+         */
+        abstract String getNotFoundMessage();
+
+        /**
+         * Finds the locations of the target within the given class.
+         *
+         * @param  clazz  class to search.
+         * @return  list of locations, possibly empty.
+         * @throws  SteppingException
+         *          if the target cannot be resolved.
+         */
+        abstract List<Location> resolve(ReferenceType clazz)
+                throws SteppingException;
+    }
+
+    /**
+     * A LineTarget is the first location of a line of code.
+     */
+    private static class LineTarget extends Target {
+        /** The line number. */
+        private final int line;
+
+        /**
+         * Constructs a new LineTarget.
+         *
+         * @param  line  line number.
+         */
+        LineTarget(int line) {
+            this.line = line;
+        }
+
+        @Override
+        String getNotFoundMessage() {
+            return NbBundle.getMessage(RunToLocation.class,
+                    "ERR_RunTo_NoCode", String.valueOf(line));
+        }
+
+        @Override
+        List<Location> resolve(ReferenceType clazz) throws SteppingException {
+            // The line tables are cached by JDI, so this is cheap after
+            // the first time for each class.
+            List<Location> locs = new ArrayList<Location>(1);
+            try {
+                List<Location> found = clazz.locationsOfLine(line);
+                Iterator<ReferenceType> iter = clazz.nestedTypes().iterator();
+                while (found.isEmpty() && iter.hasNext()) {
+                    found = iter.next().locationsOfLine(line);
+                }
+                if (!found.isEmpty()) {
+                    // The first location for this line is good enough.
+                    locs.add(found.get(0));
+                }
+            } catch (AbsentInformationException aie) {
+                throw new SteppingException(NbBundle.getMessage(
+                        RunToLocation.class, "ERR_RunTo_NoLines",
+                        clazz.name()), aie);
+            } catch (ClassNotPreparedException cnpe) {
+                // Nothing to be found in this class.
+            }
+            return locs;
+        }
+    }
+
+    /**
+     * A MethodTarget is the entry of one or more methods.
+     */
+    private static class MethodTarget extends Target {
+        /** Name of the method. */
+        private final String name;
+        /** Argument type names, possibly empty. */
+        private final List<String> arguments;
+
+        /**
+         * Constructs a new MethodTarget.
+         *
+         * @param  name       method name.
+         * @param  arguments  argument type names.
+         */
+        MethodTarget(String name, List<String> arguments) {
+            this.name = name;
+            this.arguments = arguments;
+        }
+
+        @Override
+        String getNotFoundMessage() {
+            return NbBundle.getMessage(RunToLocation.class,
+                    "ERR_RunTo_NoMethod", name);
+        }
+
+        @Override
+        List<Location> resolve(ReferenceType clazz) throws SteppingException {
+            List<Method> methods;
+            if (arguments.isEmpty()) {
+                methods = clazz.methodsByName(name);
+            } else {
+                List<String> types = Types.typeNamesToJNI(arguments);
+                // Replace unresolved typenames with '*'.
+                ListIterator<String> liter = types.listIterator();
+                while (liter.hasNext()) {
+                    String type = liter.next();
+                    if (type == null || type.equals("L*;")) {
+                        liter.set("*");
+                    }
+                }
+                methods = new ArrayList<Method>(1);
+                try {
+                    methods.add(Classes.findMethod(clazz, name, types,
+                            false, false));
+                } catch (AmbiguousMethodException ame) {
+                    throw new SteppingException(ame.getMessage(), ame);
+                } catch (InvalidTypeException ite) {
+                    throw new SteppingException(ite.getMessage(), ite);
+                } catch (NoSuchMethodException nsme) {
+                    // Report as not found.
+                }
+            }
+            List<Location> locs = new ArrayList<Location>(methods.size());
+            for (Method method : methods) {
+                Location location = method.location();
+                // Abstract and native methods have no location.
+                if (location != null) {
+                    locs.add(location);
+                }
+            }
+            return locs;
+        }
+    }
+}
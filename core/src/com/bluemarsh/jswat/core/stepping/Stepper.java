@@ -57,6 +57,24 @@ public interface Stepper {
      */
     void step(int size, int depth) throws SteppingException;
 
+    /**
+     * Performs a series of line steps in the Session associated with this
+     * instance, using a single step request, until the given number of
+     * steps have been taken, or the condition evaluates to true, whichever
+     * comes first. The debuggee is suspended only at the end of the
+     * series, so the context and views are updated just once. The request
+     * will be enabled and the session resumed.
+     *
+     * @param  depth      how to step (StepRequest.STEP_INTO or STEP_OVER).
+     * @param  count      maximum number of steps; zero for no limit.
+     * @param  condition  boolean expression evaluated after each step in
+     *                    the stepping thread, or null for none.
+     * @throws  SteppingException
+     *          if there is no current thread in the DebuggingContext.
+     */
+    void stepRepeatedly(int depth, int count, String condition)
+            throws SteppingException;
+
     /**
      * Creates a single-step-by-line request, stepping into method calls.
      * The request will be enabled and the session resumed.
@@ -31,8 +31,9 @@ import java.util.logging.Logger;
 import org.openide.util.Lookup;
 
 /**
- * Class SteppingProvider manages a set of Stepper instances, one for each
- * unique Session passed to the <code>getStepper()</code> method.
+ * Class SteppingProvider manages a set of Stepper and RunToLocation
+ * instances, one of each for each unique Session passed to the
+ * <code>getStepper()</code> and <code>getRunToLocation()</code> methods.
  *
  * @author Nathan Fiedler
  */
@@ -43,9 +44,12 @@ public class SteppingProvider {
             SteppingProvider.class.getName());
     /** Map of Stepper instances, keyed by Session instance. */
     private static final Map<Session, Stepper> instanceMap;
+    /** Map of RunToLocation instances, keyed by Session instance. */
+    private static final Map<Session, RunToLocation> runToMap;
 
     static {
         instanceMap = new HashMap<Session, Stepper>();
+        runToMap = new HashMap<Session, RunToLocation>();
     }
 
     /**
@@ -54,6 +58,25 @@ public class SteppingProvider {
     private SteppingProvider() {
     }
 
+    /**
+     * Retrieve the RunToLocation instance for the given Session, creating
+     * one if necessary.
+     *
+     * @param  session  Session for which to get RunToLocation.
+     * @return  RunToLocation instance.
+     */
+    public static RunToLocation getRunToLocation(Session session) {
+        synchronized (runToMap) {
+            RunToLocation inst = runToMap.get(session);
+            if (inst == null) {
+                inst = new RunToLocation();
+                runToMap.put(session, inst);
+                session.addSessionListener(inst);
+            }
+            return inst;
+        }
+    }
+
     /**
      * Retrieve the Stepper instance for the given Session, creating
      * one if necessary.
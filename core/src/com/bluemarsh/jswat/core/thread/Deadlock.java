@@ -0,0 +1,54 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.thread;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class Deadlock describes a cycle of threads, each of which is blocked
+ * on a monitor held by the next thread in the cycle (the last thread
+ * being blocked by the first).
+ *
+ * @author  Nathan Fiedler
+ */
+public class Deadlock {
+    /** The threads in the cycle, in wait-for order. */
+    private final List<DeadlockedThread> threads;
+
+    /**
+     * Constructs a new Deadlock.
+     *
+     * @param  threads  the threads in the cycle, in wait-for order.
+     */
+    public Deadlock(List<DeadlockedThread> threads) {
+        this.threads = Collections.unmodifiableList(threads);
+    }
+
+    /**
+     * Returns the threads in the cycle, each one blocked by the next.
+     *
+     * @return  list of deadlocked threads.
+     */
+    public List<DeadlockedThread> getThreads() {
+        return threads;
+    }
+}
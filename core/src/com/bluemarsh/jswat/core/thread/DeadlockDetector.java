@@ -0,0 +1,311 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.thread;
+
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.util.Names;
+import com.bluemarsh.jswat.core.util.Threads;
+import com.sun.jdi.IncompatibleThreadStateException;
+import com.sun.jdi.Location;
+import com.sun.jdi.MonitorInfo;
+import com.sun.jdi.ObjectCollectedException;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.StackFrame;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.VirtualMachine;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Class DeadlockDetector finds the threads in the debuggee that are
+ * deadlocked on monitors. The debuggee is suspended once, for as short a
+ * time as possible, while the contended monitors and their owners are
+ * retrieved for all of the threads in parallel batches. From that a
+ * wait-for graph is built, in which each blocked thread points to the
+ * owner of the monitor it is blocked on, and every cycle in that graph
+ * is a deadlock.
+ *
+ * <p>Since a blocked thread waits for exactly one other thread, the graph
+ * has at most one edge leaving each thread, and the cycles are found in
+ * a single pass over the threads. The stack frames and owned monitors are
+ * then retrieved only for the threads that are in a cycle.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class DeadlockDetector {
+    /** Number of threads examined by each background task. */
+    private static final int BATCH_SIZE = 64;
+    /** Number of frames reported when the depth of the held monitor is
+     * not known. */
+    private static final int DEFAULT_FRAMES = 10;
+    /** Maximum number of frames reported for each thread. */
+    private static final int MAX_FRAMES = 50;
+
+    /**
+     * Creates a new instance of DeadlockDetector.
+     */
+    private DeadlockDetector() {
+    }
+
+    /**
+     * Retrieves the monitors and frames of a thread in a cycle, and
+     * builds its description.
+     *
+     * @param  thread     the deadlocked thread.
+     * @param  edge       what the thread is blocked on.
+     * @param  wanted     monitor held by this thread that the previous
+     *                    thread in the cycle is blocked on.
+     * @param  frameInfo  true if the owned monitor frames can be retrieved.
+     * @return  description of the thread.
+     * @throws  IncompatibleThreadStateException
+     *          if the thread is not suspended.
+     */
+    private static DeadlockedThread describe(ThreadReference thread,
+            WaitEdge edge, ObjectReference wanted, boolean frameInfo)
+            throws IncompatibleThreadStateException {
+        int heldDepth = -1;
+        if (frameInfo) {
+            for (MonitorInfo mi : thread.ownedMonitorsAndFrames()) {
+                if (mi.monitor().equals(wanted)) {
+                    heldDepth = mi.stackDepth();
+                    break;
+                }
+            }
+        }
+        int count = thread.frameCount();
+        int length = heldDepth < 0 ? DEFAULT_FRAMES : heldDepth + 1;
+        length = Math.min(Math.min(length, MAX_FRAMES), count);
+        List<String> frames = new ArrayList<String>(length);
+        if (length > 0) {
+            for (StackFrame frame : thread.frames(0, length)) {
+                frames.add(Names.getLocationName(frame.location()));
+            }
+        }
+        return new DeadlockedThread(thread, edge.name, edge.monitor.toString(),
+                Threads.getIdentifier(edge.owner), wanted.toString(),
+                heldDepth, Collections.unmodifiableList(frames));
+    }
+
+    /**
+     * Finds the monitor deadlocks in the debuggee of the given session.
+     * The deadlocked threads are also marked as such in the ThreadModel of
+     * the session, replacing the results of any previous detection. This
+     * method communicates extensively with the debuggee and must not be
+     * called on the AWT event dispatching thread.
+     *
+     * @param  session  session whose debuggee is to be examined.
+     * @return  the deadlocks found, possibly none.
+     * @throws  ExecutionException
+     *          if retrieving the thread information failed.
+     * @throws  InterruptedException
+     *          if interrupted while waiting for the background tasks.
+     * @throws  UnsupportedOperationException
+     *          if the debuggee cannot report on monitor ownership.
+     */
+    public static List<Deadlock> detect(Session session)
+            throws ExecutionException, InterruptedException {
+        VirtualMachine vm = session.getConnection().getVM();
+        if (!vm.canGetCurrentContendedMonitor() || !vm.canGetMonitorInfo()) {
+            throw new UnsupportedOperationException("monitor info not supported");
+        }
+        boolean frameInfo = vm.canGetMonitorFrameInfo();
+        ExecutorService pool = Threads.getThreadPool();
+        List<Deadlock> deadlocks = new ArrayList<Deadlock>();
+        vm.suspend();
+        try {
+            // Find what every blocked thread is waiting for.
+            List<ThreadReference> threads = vm.allThreads();
+            List<Future<List<WaitEdge>>> futures =
+                    new ArrayList<Future<List<WaitEdge>>>();
+            for (int ii = 0; ii < threads.size(); ii += BATCH_SIZE) {
+                final List<ThreadReference> batch = threads.subList(ii,
+                        Math.min(ii + BATCH_SIZE, threads.size()));
+                futures.add(pool.submit(new Callable<List<WaitEdge>>() {
+                    @Override
+                    public List<WaitEdge> call() throws Exception {
+                        return findEdges(batch);
+                    }
+                }));
+            }
+            Map<ThreadReference, WaitEdge> edges =
+                    new LinkedHashMap<ThreadReference, WaitEdge>();
+            Map<ThreadReference, ThreadReference> waitsFor =
+                    new LinkedHashMap<ThreadReference, ThreadReference>();
+            for (Future<List<WaitEdge>> future : futures) {
+                for (WaitEdge edge : future.get()) {
+                    edges.put(edge.thread, edge);
+                    waitsFor.put(edge.thread, edge.owner);
+                }
+            }
+
+            // Describe the threads in each cycle, while still suspended.
+            for (final List<ThreadReference> cycle : findCycles(waitsFor)) {
+                List<Future<DeadlockedThread>> described =
+                        new ArrayList<Future<DeadlockedThread>>(cycle.size());
+                int size = cycle.size();
+                for (int ii = 0; ii < size; ii++) {
+                    final ThreadReference thread = cycle.get(ii);
+                    final WaitEdge edge = edges.get(thread);
+                    // The previous thread wants a monitor this one holds.
+                    final ObjectReference wanted = edges.get(
+                            cycle.get((ii + size - 1) % size)).monitor;
+                    final boolean withFrames = frameInfo;
+                    described.add(pool.submit(new Callable<DeadlockedThread>() {
+                        @Override
+                        public DeadlockedThread call() throws Exception {
+                            return describe(thread, edge, wanted, withFrames);
+                        }
+                    }));
+                }
+                List<DeadlockedThread> list = new ArrayList<DeadlockedThread>(size);
+                for (Future<DeadlockedThread> future : described) {
+                    list.add(future.get());
+                }
+                deadlocks.add(new Deadlock(list));
+            }
+        } finally {
+            vm.resume();
+        }
+
+        Set<ThreadReference> deadlocked = new LinkedHashSet<ThreadReference>();
+        for (Deadlock deadlock : deadlocks) {
+            for (DeadlockedThread dt : deadlock.getThreads()) {
+                deadlocked.add(dt.getThread());
+            }
+        }
+        ThreadModelProvider.getThreadModel(session).setDeadlocked(deadlocked);
+        return deadlocks;
+    }
+
+    /**
+     * Finds the cycles in the given wait-for graph, in which each key
+     * waits for its value. Since each node has at most one successor,
+     * every node is visited just once.
+     *
+     * @param  <T>       type of the graph nodes.
+     * @param  waitsFor  the wait-for graph.
+     * @return  the cycles, each listing its nodes in wait-for order.
+     */
+    static <T> List<List<T>> findCycles(Map<T, T> waitsFor) {
+        List<List<T>> cycles = new ArrayList<List<T>>();
+        // The walk in which each node was first visited.
+        Map<T, Integer> visited = new HashMap<T, Integer>();
+        int walk = 0;
+        for (T start : waitsFor.keySet()) {
+            if (visited.containsKey(start)) {
+                continue;
+            }
+            walk++;
+            Integer stamp = Integer.valueOf(walk);
+            T node = start;
+            while (node != null && !visited.containsKey(node)) {
+                visited.put(node, stamp);
+                node = waitsFor.get(node);
+            }
+            if (node != null && stamp.equals(visited.get(node))) {
+                // Came back to a node of this walk, which is a new cycle.
+                List<T> cycle = new ArrayList<T>();
+                T member = node;
+                do {
+                    cycle.add(member);
+                    member = waitsFor.get(member);
+                } while (!member.equals(node));
+                cycles.add(cycle);
+            }
+        }
+        return cycles;
+    }
+
+    /**
+     * Finds the monitors the given threads are blocked on, and the owners
+     * of those monitors.
+     *
+     * @param  threads  threads to be examined.
+     * @return  an edge for each blocked thread whose monitor has an owner.
+     * @throws  IncompatibleThreadStateException
+     *          if a thread is not suspended.
+     */
+    private static List<WaitEdge> findEdges(List<ThreadReference> threads)
+            throws IncompatibleThreadStateException {
+        List<WaitEdge> edges = new ArrayList<WaitEdge>();
+        for (ThreadReference thread : threads) {
+            try {
+                // Threads in Object.wait() are waiting to be notified,
+                // which is not something a cycle of owners can prevent.
+                if (thread.status() != ThreadReference.THREAD_STATUS_MONITOR) {
+                    continue;
+                }
+                ObjectReference monitor = thread.currentContendedMonitor();
+                if (monitor == null) {
+                    continue;
+                }
+                ThreadReference owner = monitor.owningThread();
+                if (owner != null) {
+                    edges.add(new WaitEdge(thread, Threads.getIdentifier(thread),
+                            monitor, owner));
+                }
+            } catch (ObjectCollectedException oce) {
+                // The thread has terminated, it cannot be deadlocked.
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * An edge in the wait-for graph.
+     */
+    private static class WaitEdge {
+        /** The blocked thread. */
+        private final ThreadReference thread;
+        /** Name of the blocked thread. */
+        private final String name;
+        /** The monitor the thread is blocked on. */
+        private final ObjectReference monitor;
+        /** The owner of the monitor. */
+        private final ThreadReference owner;
+
+        /**
+         * Constructs a new WaitEdge.
+         *
+         * @param  thread   the blocked thread.
+         * @param  name     name of the blocked thread.
+         * @param  monitor  monitor the thread is blocked on.
+         * @param  owner    owner of the monitor.
+         */
+        WaitEdge(ThreadReference thread, String name, ObjectReference monitor,
+                ThreadReference owner) {
+            this.thread = thread;
+            this.name = name;
+            this.monitor = monitor;
+            this.owner = owner;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.thread;
+
+import com.sun.jdi.ThreadReference;
+import java.util.List;
+
+/**
+ * Class DeadlockedThread describes one of the threads in a deadlock: the
+ * monitor it is blocked on, the thread holding that monitor, and the
+ * stack frames leading up to where the thread acquired the monitor the
+ * previous thread in the cycle is blocked on.
+ *
+ * @author  Nathan Fiedler
+ */
+public class DeadlockedThread {
+    /** The blocked thread. */
+    private final ThreadReference thread;
+    /** Name of the blocked thread. */
+    private final String name;
+    /** Description of the monitor the thread is blocked on. */
+    private final String monitor;
+    /** Name of the thread that owns the monitor. */
+    private final String ownerName;
+    /** Description of the monitor held by this thread that is wanted
+     * by the previous thread in the cycle. */
+    private final String heldMonitor;
+    /** Index of the frame that acquired the held monitor, or -1. */
+    private final int heldDepth;
+    /** Descriptions of the topmost stack frames. */
+    private final List<String> frames;
+
+    /**
+     * Constructs a new DeadlockedThread.
+     *
+     * @param  thread       the blocked thread.
+     * @param  name         name of the thread.
+     * @param  monitor      monitor the thread is blocked on.
+     * @param  ownerName    name of the thread owning the monitor.
+     * @param  heldMonitor  monitor held that another thread wants.
+     * @param  heldDepth    frame that acquired the held monitor, or -1.
+     * @param  frames       descriptions of the topmost stack frames.
+     */
+    public DeadlockedThread(ThreadReference thread, String name,
+            String monitor, String ownerName, String heldMonitor,
+            int heldDepth, List<String> frames) {
+        this.thread = thread;
+        this.name = name;
+        this.monitor = monitor;
+        this.ownerName = ownerName;
+        this.heldMonitor = heldMonitor;
+        this.heldDepth = heldDepth;
+        this.frames = frames;
+    }
+
+    /**
+     * Returns the descriptions of the topmost stack frames of the thread,
+     * up to and including the frame that acquired the held monitor, if
+     * that is known.
+     *
+     * @return  frame descriptions, topmost first.
+     */
+    public List<String> getFrames() {
+        return frames;
+    }
+
+    /**
+     * Returns the index of the stack frame in which the held monitor was
+     * acquired.
+     *
+     * @return  frame index, or -1 if not known.
+     */
+    public int getHeldDepth() {
+        return heldDepth;
+    }
+
+    /**
+     * Returns the monitor held by this thread, on which the previous
+     * thread in the cycle is blocked.
+     *
+     * @return  monitor description.
+     */
+    public String getHeldMonitor() {
+        return heldMonitor;
+    }
+
+    /**
+     * Returns the monitor on which the thread is blocked.
+     *
+     * @return  monitor description.
+     */
+    public String getMonitor() {
+        return monitor;
+    }
+
+    /**
+     * Returns the name of the thread.
+     *
+     * @return  thread name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the name of the thread owning the monitor on which this
+     * thread is blocked.
+     *
+     * @return  owner thread name.
+     */
+    public String getOwnerName() {
+        return ownerName;
+    }
+
+    /**
+     * Returns the blocked thread.
+     *
+     * @return  thread reference.
+     */
+    public ThreadReference getThread() {
+        return thread;
+    }
+}
@@ -0,0 +1,538 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.thread;
+
+import com.bluemarsh.jswat.core.event.Dispatcher;
+import com.bluemarsh.jswat.core.event.DispatcherListener;
+import com.bluemarsh.jswat.core.event.DispatcherProvider;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.sun.jdi.ObjectCollectedException;
+import com.sun.jdi.ThreadGroupReference;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.VMDisconnectedException;
+import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.event.Event;
+import com.sun.jdi.event.ThreadDeathEvent;
+import com.sun.jdi.event.ThreadStartEvent;
+import com.sun.jdi.request.EventRequest;
+import com.sun.jdi.request.EventRequestManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Class DefaultThreadModel is the default implementation of ThreadModel.
+ * It listens for thread start and death events (without suspending the
+ * debuggee) to keep the model current, such that the cost of keeping the
+ * model up to date is proportional to the number of threads that come
+ * and go, rather than the total number of threads.
+ *
+ * @author  Nathan Fiedler
+ */
+public class DefaultThreadModel implements ThreadModel, SessionListener,
+        DispatcherListener {
+    /** Set of unique thread model listeners. */
+    private final Set<ThreadModelListener> listeners;
+    /** Guards all of the model state. */
+    private final Object lock;
+    /** Thread entries, keyed by thread, in the order they became known. */
+    private final Map<ThreadReference, ThreadEntry> threads;
+    /** Thread group information, keyed by thread group. */
+    private final Map<ThreadGroupReference, GroupEntry> groups;
+    /** The top-level thread groups. */
+    private final List<ThreadGroupReference> topGroups;
+    /** Threads that started while the model was being loaded. */
+    private final List<ThreadReference> pendingStarts;
+    /** Threads that died while the model was being loaded. */
+    private final List<ThreadReference> pendingDeaths;
+    /** The session we are associated with. */
+    private volatile Session session;
+    /** True if the model has been loaded. */
+    private boolean loaded;
+    /** True if the model is being loaded. */
+    private boolean loading;
+
+    /**
+     * Creates a new instance of DefaultThreadModel.
+     */
+    public DefaultThreadModel() {
+        listeners = new CopyOnWriteArraySet<ThreadModelListener>();
+        lock = new Object();
+        threads = new LinkedHashMap<ThreadReference, ThreadEntry>();
+        groups = new HashMap<ThreadGroupReference, GroupEntry>();
+        topGroups = new ArrayList<ThreadGroupReference>();
+        pendingStarts = new LinkedList<ThreadReference>();
+        pendingDeaths = new LinkedList<ThreadReference>();
+    }
+
+    @Override
+    public void addThreadModelListener(ThreadModelListener listener) {
+        if (listener != null) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * Discards the contents of the model (caller must hold the lock).
+     */
+    private void clear() {
+        threads.clear();
+        groups.clear();
+        topGroups.clear();
+        pendingStarts.clear();
+        pendingDeaths.clear();
+        loaded = false;
+    }
+
+    @Override
+    public void closing(SessionEvent sevt) {
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+        // Watch the threads come and go without stopping the debuggee.
+        Session s = sevt.getSession();
+        VirtualMachine vm = s.getConnection().getVM();
+        EventRequestManager erm = vm.eventRequestManager();
+        Dispatcher dispatcher = DispatcherProvider.getDispatcher(s);
+        EventRequest startRequest = erm.createThreadStartRequest();
+        startRequest.setSuspendPolicy(EventRequest.SUSPEND_NONE);
+        dispatcher.register(this, startRequest);
+        startRequest.enable();
+        EventRequest deathRequest = erm.createThreadDeathRequest();
+        deathRequest.setSuspendPolicy(EventRequest.SUSPEND_NONE);
+        dispatcher.register(this, deathRequest);
+        deathRequest.enable();
+    }
+
+    @Override
+    public void disconnected(SessionEvent sevt) {
+        // The event requests are gone along with the debuggee.
+        synchronized (lock) {
+            clear();
+        }
+        fireEvent(new ThreadModelEvent(this));
+    }
+
+    @Override
+    public boolean eventOccurred(Event event) {
+        if (event instanceof ThreadStartEvent) {
+            threadStarted(((ThreadStartEvent) event).thread());
+        } else if (event instanceof ThreadDeathEvent) {
+            threadDied(((ThreadDeathEvent) event).thread());
+        }
+        // Never suspend the debuggee for these events.
+        return true;
+    }
+
+    /**
+     * Sends the given event to all of the registered listeners.
+     *
+     * @param  event  event to be dispatched.
+     */
+    private void fireEvent(ThreadModelEvent event) {
+        for (ThreadModelListener l : listeners) {
+            l.threadsChanged(event);
+        }
+    }
+
+    @Override
+    public ThreadEntry getEntry(ThreadReference thread) {
+        synchronized (lock) {
+            return threads.get(thread);
+        }
+    }
+
+    @Override
+    public List<ThreadGroupReference> getGroups(ThreadGroupReference group) {
+        synchronized (lock) {
+            if (group == null) {
+                return new ArrayList<ThreadGroupReference>(topGroups);
+            }
+            GroupEntry ge = groups.get(group);
+            if (ge == null) {
+                return Collections.emptyList();
+            }
+            return new ArrayList<ThreadGroupReference>(ge.groups);
+        }
+    }
+
+    @Override
+    public String getGroupName(ThreadGroupReference group) {
+        synchronized (lock) {
+            GroupEntry ge = groups.get(group);
+            return ge == null ? null : ge.name;
+        }
+    }
+
+    @Override
+    public ThreadGroupReference getParent(ThreadGroupReference group) {
+        synchronized (lock) {
+            GroupEntry ge = groups.get(group);
+            return ge == null ? null : ge.parent;
+        }
+    }
+
+    @Override
+    public List<ThreadEntry> getThreads(ThreadGroupReference group) {
+        synchronized (lock) {
+            GroupEntry ge = groups.get(group);
+            if (ge == null) {
+                return Collections.emptyList();
+            }
+            List<ThreadEntry> list = new ArrayList<ThreadEntry>(ge.threads.size());
+            for (ThreadReference thread : ge.threads) {
+                list.add(threads.get(thread));
+            }
+            return list;
+        }
+    }
+
+    @Override
+    public boolean isLoaded() {
+        synchronized (lock) {
+            return loaded;
+        }
+    }
+
+    @Override
+    public void load() {
+        Session s = session;
+        synchronized (lock) {
+            if (loaded || loading || s == null || !s.isConnected()) {
+                return;
+            }
+            loading = true;
+        }
+        Map<ThreadReference, ThreadEntry> newThreads =
+                new LinkedHashMap<ThreadReference, ThreadEntry>();
+        Map<ThreadGroupReference, GroupEntry> newGroups =
+                new HashMap<ThreadGroupReference, GroupEntry>();
+        List<ThreadGroupReference> newTop = new ArrayList<ThreadGroupReference>();
+        List<ThreadReference> started;
+        boolean complete = false;
+        try {
+            VirtualMachine vm = s.getConnection().getVM();
+            for (ThreadGroupReference group : vm.topLevelThreadGroups()) {
+                newTop.add(group);
+                loadGroup(group, null, newGroups, newThreads);
+            }
+            complete = true;
+        } finally {
+            synchronized (lock) {
+                loading = false;
+                if (complete && s.isConnected()) {
+                    threads.putAll(newThreads);
+                    groups.putAll(newGroups);
+                    topGroups.addAll(newTop);
+                    loaded = true;
+                }
+                // Apply the changes that happened while loading.
+                for (ThreadReference thread : pendingDeaths) {
+                    removeThread(thread);
+                }
+                pendingDeaths.clear();
+                started = new ArrayList<ThreadReference>(pendingStarts);
+                pendingStarts.clear();
+            }
+        }
+        fireEvent(new ThreadModelEvent(this));
+        for (ThreadReference thread : started) {
+            threadStarted(thread);
+        }
+    }
+
+    /**
+     * Retrieves the given thread group, its subgroups, and their threads.
+     *
+     * @param  group       thread group to load.
+     * @param  parent      parent of the thread group.
+     * @param  newGroups   receives the thread group entries.
+     * @param  newThreads  receives the thread entries.
+     */
+    private void loadGroup(ThreadGroupReference group,
+            ThreadGroupReference parent,
+            Map<ThreadGroupReference, GroupEntry> newGroups,
+            Map<ThreadReference, ThreadEntry> newThreads) {
+        GroupEntry ge = new GroupEntry(group.name(), parent);
+        newGroups.put(group, ge);
+        for (ThreadGroupReference subgroup : group.threadGroups()) {
+            ge.groups.add(subgroup);
+            loadGroup(subgroup, group, newGroups, newThreads);
+        }
+        for (ThreadReference thread : group.threads()) {
+            try {
+                ThreadEntry entry = new ThreadEntry(thread, thread.name(),
+                        group, thread.status(), thread.isSuspended(),
+                        thread.type().name());
+                ge.threads.add(thread);
+                newThreads.put(thread, entry);
+            } catch (ObjectCollectedException oce) {
+                // Thread is gone, ignore it.
+            }
+        }
+    }
+
+    @Override
+    public void opened(Session session) {
+        this.session = session;
+    }
+
+    @Override
+    public void refresh(Collection<ThreadReference> list) {
+        List<ThreadEntry> changed = new ArrayList<ThreadEntry>();
+        List<ThreadEntry> removed = new ArrayList<ThreadEntry>();
+        for (ThreadReference thread : list) {
+            ThreadEntry old = getEntry(thread);
+            if (old == null) {
+                continue;
+            }
+            try {
+                ThreadEntry entry = new ThreadEntry(thread, thread.name(),
+                        old.getGroup(), thread.status(), thread.isSuspended(),
+                        old.getTypeName(), old.isDeadlocked());
+                if (entry.differs(old)) {
+                    synchronized (lock) {
+                        if (threads.get(thread) == old) {
+                            threads.put(thread, entry);
+                            changed.add(entry);
+                        }
+                    }
+                }
+            } catch (ObjectCollectedException oce) {
+                synchronized (lock) {
+                    ThreadEntry entry = removeThread(thread);
+                    if (entry != null) {
+                        removed.add(entry);
+                    }
+                }
+            } catch (VMDisconnectedException vmde) {
+                return;
+            }
+        }
+        if (!changed.isEmpty() || !removed.isEmpty()) {
+            List<ThreadEntry> added = Collections.emptyList();
+            List<ThreadGroupReference> addedGroups = Collections.emptyList();
+            fireEvent(new ThreadModelEvent(this, added, removed, changed,
+                    addedGroups));
+        }
+    }
+
+    @Override
+    public void reload() {
+        synchronized (lock) {
+            if (loading) {
+                return;
+            }
+            clear();
+        }
+        load();
+    }
+
+    /**
+     * Removes the given thread from the model (caller must hold the lock).
+     *
+     * @param  thread  thread to be removed.
+     * @return  the entry of the removed thread, or null if not known.
+     */
+    private ThreadEntry removeThread(ThreadReference thread) {
+        ThreadEntry entry = threads.remove(thread);
+        if (entry != null) {
+            GroupEntry ge = groups.get(entry.getGroup());
+            if (ge != null) {
+                ge.threads.remove(thread);
+            }
+        }
+        return entry;
+    }
+
+    @Override
+    public void removeThreadModelListener(ThreadModelListener listener) {
+        if (listener != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    @Override
+    public void resuming(SessionEvent sevt) {
+    }
+
+    @Override
+    public void setDeadlocked(Collection<ThreadReference> deadlocked) {
+        Set<ThreadReference> set = new HashSet<ThreadReference>(deadlocked);
+        List<ThreadEntry> changed = new ArrayList<ThreadEntry>();
+        synchronized (lock) {
+            for (Map.Entry<ThreadReference, ThreadEntry> me : threads.entrySet()) {
+                ThreadEntry old = me.getValue();
+                boolean flag = set.contains(me.getKey());
+                if (old.isDeadlocked() != flag) {
+                    ThreadEntry entry = old.deadlocked(flag);
+                    me.setValue(entry);
+                    changed.add(entry);
+                }
+            }
+        }
+        if (!changed.isEmpty()) {
+            List<ThreadEntry> none = Collections.emptyList();
+            List<ThreadGroupReference> noGroups = Collections.emptyList();
+            fireEvent(new ThreadModelEvent(this, none, none, changed, noGroups));
+        }
+    }
+
+    @Override
+    public int size() {
+        synchronized (lock) {
+            return threads.size();
+        }
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
+    }
+
+    /**
+     * Removes the thread that has died from the model.
+     *
+     * @param  thread  thread that died.
+     */
+    private void threadDied(ThreadReference thread) {
+        ThreadEntry entry;
+        synchronized (lock) {
+            if (loading) {
+                pendingDeaths.add(thread);
+                return;
+            }
+            entry = removeThread(thread);
+        }
+        if (entry != null) {
+            List<ThreadEntry> none = Collections.emptyList();
+            List<ThreadGroupReference> noGroups = Collections.emptyList();
+            fireEvent(new ThreadModelEvent(this, none,
+                    Collections.singletonList(entry), none, noGroups));
+        }
+    }
+
+    /**
+     * Adds the newly started thread to the model, along with any groups
+     * that were not already known.
+     *
+     * @param  thread  thread that started.
+     */
+    private void threadStarted(ThreadReference thread) {
+        synchronized (lock) {
+            if (loading) {
+                pendingStarts.add(thread);
+                return;
+            }
+            if (!loaded || threads.containsKey(thread)) {
+                // Will be picked up when the model is loaded.
+                return;
+            }
+        }
+        ThreadEntry entry;
+        // Collect the unknown groups, from the innermost outward.
+        List<ThreadGroupReference> chain = new ArrayList<ThreadGroupReference>();
+        List<GroupEntry> chainEntries = new ArrayList<GroupEntry>();
+        try {
+            entry = ThreadEntry.create(thread);
+            ThreadGroupReference group = entry.getGroup();
+            while (group != null && getGroupName(group) == null) {
+                ThreadGroupReference parent = group.parent();
+                chain.add(group);
+                chainEntries.add(new GroupEntry(group.name(), parent));
+                group = parent;
+            }
+        } catch (ObjectCollectedException oce) {
+            return;
+        } catch (VMDisconnectedException vmde) {
+            return;
+        }
+        List<ThreadGroupReference> addedGroups = new ArrayList<ThreadGroupReference>();
+        synchronized (lock) {
+            if (!loaded || threads.containsKey(thread)) {
+                return;
+            }
+            for (int ii = chain.size() - 1; ii >= 0; ii--) {
+                ThreadGroupReference group = chain.get(ii);
+                if (groups.containsKey(group)) {
+                    continue;
+                }
+                GroupEntry ge = chainEntries.get(ii);
+                groups.put(group, ge);
+                if (ge.parent == null) {
+                    topGroups.add(group);
+                } else {
+                    GroupEntry pe = groups.get(ge.parent);
+                    if (pe != null) {
+                        pe.groups.add(group);
+                    }
+                }
+                addedGroups.add(group);
+            }
+            GroupEntry ge = groups.get(entry.getGroup());
+            if (ge != null) {
+                ge.threads.add(thread);
+            }
+            threads.put(thread, entry);
+        }
+        List<ThreadEntry> none = Collections.emptyList();
+        fireEvent(new ThreadModelEvent(this, Collections.singletonList(entry),
+                none, none, addedGroups));
+    }
+
+    /**
+     * What the model knows about a thread group.
+     */
+    private static class GroupEntry {
+        /** Name of the thread group. */
+        private final String name;
+        /** Parent of the thread group, or null if top-level. */
+        private final ThreadGroupReference parent;
+        /** The subgroups of the thread group. */
+        private final List<ThreadGroupReference> groups;
+        /** The threads in the thread group. */
+        private final Set<ThreadReference> threads;
+
+        /**
+         * Constructs a new GroupEntry.
+         *
+         * @param  name    name of the thread group.
+         * @param  parent  parent group, or null if top-level.
+         */
+        GroupEntry(String name, ThreadGroupReference parent) {
+            this.name = name;
+            this.parent = parent;
+            groups = new ArrayList<ThreadGroupReference>();
+            threads = new LinkedHashSet<ThreadReference>();
+        }
+    }
+}
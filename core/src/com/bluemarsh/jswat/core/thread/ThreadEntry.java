@@ -0,0 +1,207 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.thread;
+
+import com.sun.jdi.ThreadGroupReference;
+import com.sun.jdi.ThreadReference;
+
+/**
+ * Class ThreadEntry is an immutable record of what was last learned about
+ * a thread in the debuggee. Reading the entry never involves the debuggee,
+ * which makes it safe to use while painting the interface.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ThreadEntry {
+    /** The thread this entry describes. */
+    private final ThreadReference thread;
+    /** The name of the thread. */
+    private final String name;
+    /** The group to which the thread belongs (may be null). */
+    private final ThreadGroupReference group;
+    /** The status of the thread (one of the ThreadReference constants). */
+    private final int status;
+    /** True if the thread was suspended. */
+    private final boolean suspended;
+    /** Name of the type of the thread. */
+    private final String typeName;
+    /** True if the thread was found to be deadlocked. */
+    private final boolean deadlocked;
+
+    /**
+     * Constructs a new ThreadEntry.
+     *
+     * @param  thread     the thread.
+     * @param  name       name of the thread.
+     * @param  group      group of the thread (may be null).
+     * @param  status     status of the thread.
+     * @param  suspended  true if the thread is suspended.
+     * @param  typeName   name of the type of the thread.
+     */
+    public ThreadEntry(ThreadReference thread, String name,
+            ThreadGroupReference group, int status, boolean suspended,
+            String typeName) {
+        this(thread, name, group, status, suspended, typeName, false);
+    }
+
+    /**
+     * Constructs a new ThreadEntry.
+     *
+     * @param  thread      the thread.
+     * @param  name        name of the thread.
+     * @param  group       group of the thread (may be null).
+     * @param  status      status of the thread.
+     * @param  suspended   true if the thread is suspended.
+     * @param  typeName    name of the type of the thread.
+     * @param  deadlocked  true if the thread is deadlocked.
+     */
+    public ThreadEntry(ThreadReference thread, String name,
+            ThreadGroupReference group, int status, boolean suspended,
+            String typeName, boolean deadlocked) {
+        this.thread = thread;
+        this.name = name;
+        this.group = group;
+        this.status = status;
+        this.suspended = suspended;
+        this.typeName = typeName;
+        this.deadlocked = deadlocked;
+    }
+
+    /**
+     * Retrieves everything about the given thread from the debuggee.
+     *
+     * @param  thread  the thread to be described.
+     * @return  new thread entry.
+     * @throws  com.sun.jdi.ObjectCollectedException
+     *          if the thread has been garbage collected.
+     */
+    public static ThreadEntry create(ThreadReference thread) {
+        return new ThreadEntry(thread, thread.name(), thread.threadGroup(),
+                thread.status(), thread.isSuspended(), thread.type().name());
+    }
+
+    /**
+     * Returns a copy of this entry with the given deadlocked state.
+     *
+     * @param  flag  true if the thread is deadlocked.
+     * @return  new thread entry.
+     */
+    public ThreadEntry deadlocked(boolean flag) {
+        return new ThreadEntry(thread, name, group, status, suspended,
+                typeName, flag);
+    }
+
+    /**
+     * Returns the group to which the thread belongs.
+     *
+     * @return  thread group, or null if the thread has terminated.
+     */
+    public ThreadGroupReference getGroup() {
+        return group;
+    }
+
+    /**
+     * Returns the name of the thread.
+     *
+     * @return  thread name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the status of the thread, as one of the THREAD_STATUS
+     * constants defined in ThreadReference.
+     *
+     * @return  thread status.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the thread this entry describes.
+     *
+     * @return  thread reference.
+     */
+    public ThreadReference getThread() {
+        return thread;
+    }
+
+    /**
+     * Returns the name of the type of the thread.
+     *
+     * @return  type name.
+     */
+    public String getTypeName() {
+        return typeName;
+    }
+
+    /**
+     * Indicates if the thread has yet to start, or has terminated.
+     *
+     * @return  true if the thread is not alive, false otherwise.
+     */
+    public boolean isDead() {
+        return status == ThreadReference.THREAD_STATUS_NOT_STARTED
+                || status == ThreadReference.THREAD_STATUS_ZOMBIE;
+    }
+
+    /**
+     * Indicates if the thread was part of a deadlock the last time the
+     * debuggee was examined for deadlocks.
+     *
+     * @return  true if deadlocked, false otherwise.
+     */
+    public boolean isDeadlocked() {
+        return deadlocked;
+    }
+
+    /**
+     * Indicates if the thread was suspended.
+     *
+     * @return  true if suspended, false otherwise.
+     */
+    public boolean isSuspended() {
+        return suspended;
+    }
+
+    /**
+     * Indicates if this entry differs from the given one in any way that
+     * would be visible to the user.
+     *
+     * @param  other  entry to compare against.
+     * @return  true if the entries differ, false if the same.
+     */
+    public boolean differs(ThreadEntry other) {
+        return other == null || status != other.status
+                || suspended != other.suspended
+                || deadlocked != other.deadlocked
+                || !name.equals(other.name);
+    }
+
+    @Override
+    public String toString() {
+        return "ThreadEntry=[name=" + name + ", status=" + status
+                + ", suspended=" + suspended
+                + ", deadlocked=" + deadlocked + "]";
+    }
+}
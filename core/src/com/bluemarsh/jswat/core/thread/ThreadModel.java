@@ -0,0 +1,144 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.thread;
+
+import com.sun.jdi.ThreadGroupReference;
+import com.sun.jdi.ThreadReference;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A ThreadModel maintains a picture of the thread groups and threads in
+ * the debuggee, kept up to date from thread start and death events rather
+ * than by querying the debuggee each time it is needed. Only the initial
+ * load, and explicit calls to <code>refresh()</code>, communicate with the
+ * debuggee; all other methods read from the model alone.
+ *
+ * <p>The status of a thread is only as current as the last refresh of
+ * that thread. Clients are expected to refresh the threads that are of
+ * interest to the user (e.g. those visible on screen).</p>
+ *
+ * <p>Concrete implementations of this interface are acquired from the
+ * <code>ThreadModelProvider</code> class.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public interface ThreadModel {
+
+    /**
+     * Adds the given listener to be notified of changes to the model.
+     *
+     * @param  listener  listener to be added.
+     */
+    void addThreadModelListener(ThreadModelListener listener);
+
+    /**
+     * Returns the entry for the given thread.
+     *
+     * @param  thread  thread of interest.
+     * @return  thread entry, or null if the thread is not known.
+     */
+    ThreadEntry getEntry(ThreadReference thread);
+
+    /**
+     * Returns the groups contained directly within the given group.
+     *
+     * @param  group  parent thread group, or null for the top-level groups.
+     * @return  list of thread groups (never null).
+     */
+    List<ThreadGroupReference> getGroups(ThreadGroupReference group);
+
+    /**
+     * Returns the name of the given thread group.
+     *
+     * @param  group  thread group.
+     * @return  group name, or null if the group is not known.
+     */
+    String getGroupName(ThreadGroupReference group);
+
+    /**
+     * Returns the parent of the given thread group.
+     *
+     * @param  group  thread group.
+     * @return  parent group, or null if a top-level or unknown group.
+     */
+    ThreadGroupReference getParent(ThreadGroupReference group);
+
+    /**
+     * Returns the entries of the threads contained directly within the
+     * given group, in the order in which they became known.
+     *
+     * @param  group  thread group.
+     * @return  list of thread entries (never null).
+     */
+    List<ThreadEntry> getThreads(ThreadGroupReference group);
+
+    /**
+     * Indicates if the model has been loaded from the debuggee.
+     *
+     * @return  true if loaded, false if not connected or not yet loaded.
+     */
+    boolean isLoaded();
+
+    /**
+     * Loads the model from the debuggee, if it has not already been
+     * loaded. This queries every thread and group in the debuggee, and
+     * thus should not be called on the AWT event dispatching thread.
+     */
+    void load();
+
+    /**
+     * Re-fetches the name and status of the given threads, notifying the
+     * listeners of those that changed with a single event. Threads not
+     * known to the model are ignored.
+     *
+     * @param  threads  threads to be refreshed.
+     */
+    void refresh(Collection<ThreadReference> threads);
+
+    /**
+     * Discards the model and loads it again from the debuggee.
+     */
+    void reload();
+
+    /**
+     * Removes the given listener from the list of model listeners.
+     *
+     * @param  listener  listener to be removed.
+     */
+    void removeThreadModelListener(ThreadModelListener listener);
+
+    /**
+     * Marks the given threads as deadlocked, and all others as not,
+     * notifying the listeners of the threads whose state changed. This
+     * is typically called by the DeadlockDetector.
+     *
+     * @param  deadlocked  the deadlocked threads.
+     */
+    void setDeadlocked(Collection<ThreadReference> deadlocked);
+
+    /**
+     * Returns the number of threads in the model.
+     *
+     * @return  thread count.
+     */
+    int size();
+}
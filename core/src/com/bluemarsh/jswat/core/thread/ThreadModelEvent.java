@@ -0,0 +1,137 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.thread;
+
+import com.sun.jdi.ThreadGroupReference;
+import java.util.Collections;
+import java.util.EventObject;
+import java.util.List;
+
+/**
+ * An event which describes a batch of changes to a thread model. When the
+ * model has been reloaded in its entirety, the lists are all empty and
+ * <code>isReloaded()</code> returns true.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ThreadModelEvent extends EventObject {
+    /** silence the compiler warnings */
+    private static final long serialVersionUID = 1L;
+    /** Threads that have started. */
+    private final transient List<ThreadEntry> added;
+    /** Threads that have terminated. */
+    private final transient List<ThreadEntry> removed;
+    /** Threads whose name or status changed. */
+    private final transient List<ThreadEntry> changed;
+    /** Thread groups that were seen for the first time. */
+    private final transient List<ThreadGroupReference> addedGroups;
+    /** True if the model was rebuilt from scratch. */
+    private final boolean reloaded;
+
+    /**
+     * Constructs a ThreadModelEvent for an incremental change.
+     *
+     * @param  model        the thread model (source of the event).
+     * @param  added        threads that started.
+     * @param  removed      threads that terminated.
+     * @param  changed      threads whose name or status changed.
+     * @param  addedGroups  thread groups seen for the first time.
+     */
+    public ThreadModelEvent(ThreadModel model, List<ThreadEntry> added,
+            List<ThreadEntry> removed, List<ThreadEntry> changed,
+            List<ThreadGroupReference> addedGroups) {
+        super(model);
+        this.added = Collections.unmodifiableList(added);
+        this.removed = Collections.unmodifiableList(removed);
+        this.changed = Collections.unmodifiableList(changed);
+        this.addedGroups = Collections.unmodifiableList(addedGroups);
+        reloaded = false;
+    }
+
+    /**
+     * Constructs a ThreadModelEvent indicating the model was reloaded.
+     *
+     * @param  model  the thread model (source of the event).
+     */
+    public ThreadModelEvent(ThreadModel model) {
+        super(model);
+        added = Collections.emptyList();
+        removed = Collections.emptyList();
+        changed = Collections.emptyList();
+        addedGroups = Collections.emptyList();
+        reloaded = true;
+    }
+
+    /**
+     * Returns the threads that started.
+     *
+     * @return  list of new thread entries.
+     */
+    public List<ThreadEntry> getAdded() {
+        return added;
+    }
+
+    /**
+     * Returns the thread groups that were seen for the first time.
+     *
+     * @return  list of new thread groups.
+     */
+    public List<ThreadGroupReference> getAddedGroups() {
+        return addedGroups;
+    }
+
+    /**
+     * Returns the threads whose name or status changed.
+     *
+     * @return  list of updated thread entries.
+     */
+    public List<ThreadEntry> getChanged() {
+        return changed;
+    }
+
+    /**
+     * Returns the thread model that changed.
+     *
+     * @return  thread model.
+     */
+    public ThreadModel getModel() {
+        return (ThreadModel) getSource();
+    }
+
+    /**
+     * Returns the threads that terminated.
+     *
+     * @return  list of former thread entries.
+     */
+    public List<ThreadEntry> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Indicates if the model was rebuilt from scratch, in which case the
+     * listener should discard everything it knows about the model.
+     *
+     * @return  true if reloaded, false if an incremental change.
+     */
+    public boolean isReloaded() {
+        return reloaded;
+    }
+}
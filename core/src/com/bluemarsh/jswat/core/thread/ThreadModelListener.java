@@ -0,0 +1,39 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.thread;
+
+import java.util.EventListener;
+
+/**
+ * The listener interface for receiving changes to a thread model.
+ *
+ * @author  Nathan Fiedler
+ */
+public interface ThreadModelListener extends EventListener {
+
+    /**
+     * Invoked after threads have been added, removed or changed. This may
+     * be called on any thread, typically the JDI event dispatcher.
+     *
+     * @param  event  describes the batch of changes.
+     */
+    void threadsChanged(ThreadModelEvent event);
+}
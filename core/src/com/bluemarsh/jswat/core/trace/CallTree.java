@@ -0,0 +1,326 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Class CallTree aggregates method entry and exit records into a call
+ * tree for each thread, as the records arrive. Each node of the tree
+ * counts the invocations of one call path, and the inclusive and
+ * exclusive time spent along that path. The tree can be summarized as a
+ * list of the hottest methods, or exported in the "collapsed stacks"
+ * format read by flame graph tools.
+ *
+ * <p>Exit records without a matching entry (i.e. for methods that were
+ * already running when the recording started) are ignored, as are the
+ * methods still running when the recording stopped.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class CallTree implements TraceConsumer {
+    /** Method names, indexed by identifier. */
+    private final List<String> methods;
+    /** Call trees, indexed by thread identifier. */
+    private final List<ThreadTree> threads;
+
+    /**
+     * Constructs an empty CallTree.
+     */
+    public CallTree() {
+        methods = new ArrayList<String>();
+        threads = new ArrayList<ThreadTree>();
+    }
+
+    @Override
+    public void close(long dropped) {
+    }
+
+    @Override
+    public synchronized void defineMethod(int id, String name) {
+        methods.add(name);
+    }
+
+    @Override
+    public synchronized void defineThread(int id, String name) {
+        threads.add(new ThreadTree(name));
+    }
+
+    /**
+     * Returns the methods that consumed the most time in their own code,
+     * across all threads, in order of decreasing exclusive time.
+     *
+     * @param  limit  maximum number of methods to return.
+     * @return  list of method profiles.
+     */
+    public synchronized List<MethodProfile> getHotMethods(int limit) {
+        int size = methods.size();
+        long[] counts = new long[size];
+        long[] inclusive = new long[size];
+        long[] exclusive = new long[size];
+        int[] active = new int[size];
+        for (ThreadTree tree : threads) {
+            summarize(tree.root, counts, inclusive, exclusive, active);
+        }
+        List<MethodProfile> list = new ArrayList<MethodProfile>();
+        for (int ii = 0; ii < size; ii++) {
+            if (counts[ii] > 0) {
+                list.add(new MethodProfile(methods.get(ii), counts[ii],
+                        inclusive[ii], exclusive[ii]));
+            }
+        }
+        Collections.sort(list, new Comparator<MethodProfile>() {
+            @Override
+            public int compare(MethodProfile o1, MethodProfile o2) {
+                long t1 = o1.getExclusiveTime();
+                long t2 = o2.getExclusiveTime();
+                return t1 < t2 ? 1 : (t1 == t2 ? 0 : -1);
+            }
+        });
+        if (list.size() > limit) {
+            list = new ArrayList<MethodProfile>(list.subList(0, limit));
+        }
+        return list;
+    }
+
+    /**
+     * Returns the deepest call depth reached in the given thread.
+     *
+     * @param  thread  thread identifier.
+     * @return  maximum call depth.
+     */
+    public synchronized int getMaxDepth(int thread) {
+        return threads.get(thread).maxDepth;
+    }
+
+    /**
+     * Returns the name of the given method.
+     *
+     * @param  method  method identifier.
+     * @return  method description.
+     */
+    public synchronized String getMethodName(int method) {
+        return methods.get(method);
+    }
+
+    /**
+     * Returns the root of the call tree of the given thread. The tree
+     * must not be examined while records are still being added.
+     *
+     * @param  thread  thread identifier.
+     * @return  root node, which represents no method.
+     */
+    public synchronized CallTreeNode getRoot(int thread) {
+        return threads.get(thread).root;
+    }
+
+    /**
+     * Returns the number of threads in the call tree.
+     *
+     * @return  thread count.
+     */
+    public synchronized int getThreadCount() {
+        return threads.size();
+    }
+
+    /**
+     * Returns the name of the given thread.
+     *
+     * @param  thread  thread identifier.
+     * @return  thread name.
+     */
+    public synchronized String getThreadName(int thread) {
+        return threads.get(thread).name;
+    }
+
+    @Override
+    public synchronized void record(byte kind, int method, int thread,
+            long time) {
+        ThreadTree tree = threads.get(thread);
+        if (kind == METHOD_ENTRY) {
+            tree.enter(method, time);
+        } else if (kind == METHOD_EXIT) {
+            tree.exit(method, time);
+        }
+    }
+
+    /**
+     * Adds the counts and times of the given subtree to the totals for
+     * each method. Inclusive time is only added for the outermost
+     * invocation of a method on each path, so recursion is not counted
+     * more than once.
+     *
+     * @param  node       subtree to summarize.
+     * @param  counts     invocation counts, by method.
+     * @param  inclusive  inclusive times, by method.
+     * @param  exclusive  exclusive times, by method.
+     * @param  active     number of times each method is on the current path.
+     */
+    private static void summarize(CallTreeNode node, long[] counts,
+            long[] inclusive, long[] exclusive, int[] active) {
+        int method = node.getMethod();
+        if (method >= 0) {
+            counts[method] += node.getCount();
+            exclusive[method] += node.getExclusiveTime();
+            if (active[method] == 0) {
+                inclusive[method] += node.getInclusiveTime();
+            }
+            active[method]++;
+        }
+        for (CallTreeNode child : node.getChildren()) {
+            summarize(child, counts, inclusive, exclusive, active);
+        }
+        if (method >= 0) {
+            active[method]--;
+        }
+    }
+
+    /**
+     * Writes the call trees in the collapsed stacks format: one line for
+     * each call path, consisting of the thread name and the methods from
+     * outermost to innermost, separated by semicolons, followed by a
+     * space and the exclusive time of the path in microseconds.
+     *
+     * @param  writer  where the stacks are written.
+     * @throws  IOException
+     *          if an I/O error occurs.
+     */
+    public synchronized void writeCollapsed(Writer writer) throws IOException {
+        for (ThreadTree tree : threads) {
+            StringBuilder path = new StringBuilder(tree.name.replace(';', '_'));
+            for (CallTreeNode child : tree.root.getChildren()) {
+                writeCollapsed(writer, child, path);
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes the collapsed stacks for the given subtree.
+     *
+     * @param  writer  where the stacks are written.
+     * @param  node    subtree to be written.
+     * @param  path    call path leading to the node.
+     * @throws  IOException
+     *          if an I/O error occurs.
+     */
+    private void writeCollapsed(Writer writer, CallTreeNode node,
+            StringBuilder path) throws IOException {
+        int length = path.length();
+        path.append(';');
+        path.append(methods.get(node.getMethod()).replace(';', '_'));
+        long micros = node.getExclusiveTime() / 1000;
+        if (micros > 0) {
+            writer.write(path.toString());
+            writer.write(' ');
+            writer.write(String.valueOf(micros));
+            writer.write('\n');
+        }
+        for (CallTreeNode child : node.getChildren()) {
+            writeCollapsed(writer, child, path);
+        }
+        path.setLength(length);
+    }
+
+    /**
+     * The call tree of a single thread, along with the current position
+     * within that tree.
+     */
+    private static class ThreadTree {
+        /** Name of the thread. */
+        private final String name;
+        /** Root of the call tree. */
+        private final CallTreeNode root;
+        /** The node of the method currently executing. */
+        private CallTreeNode current;
+        /** Entry times of the methods on the current path. */
+        private long[] entryTimes;
+        /** Current call depth. */
+        private int depth;
+        /** Maximum call depth reached. */
+        private int maxDepth;
+
+        /**
+         * Constructs a new ThreadTree.
+         *
+         * @param  name  name of the thread.
+         */
+        ThreadTree(String name) {
+            this.name = name;
+            root = new CallTreeNode(-1, null);
+            current = root;
+            entryTimes = new long[64];
+        }
+
+        /**
+         * Records the entry of a method.
+         *
+         * @param  method  method identifier.
+         * @param  time    time of entry.
+         */
+        void enter(int method, long time) {
+            current = current.enter(method);
+            if (depth == entryTimes.length) {
+                long[] times = new long[depth * 2];
+                System.arraycopy(entryTimes, 0, times, 0, depth);
+                entryTimes = times;
+            }
+            entryTimes[depth] = time;
+            depth++;
+            if (depth > maxDepth) {
+                maxDepth = depth;
+            }
+        }
+
+        /**
+         * Records the exit of a method.
+         *
+         * @param  method  method identifier.
+         * @param  time    time of exit.
+         */
+        void exit(int method, long time) {
+            // Find the matching entry; if an exit event was dropped, the
+            // method may be further up the path.
+            CallTreeNode node = current;
+            int level = depth;
+            while (level > 0 && node.getMethod() != method) {
+                node = node.getParent();
+                level--;
+            }
+            if (level == 0) {
+                // Entered before the recording started, or the entry
+                // event was dropped; either way we cannot match it.
+                return;
+            }
+            // Unwind to the matching node, ending each invocation now.
+            while (depth >= level) {
+                depth--;
+                current.addTime(time - entryTimes[depth]);
+                current = current.getParent();
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A CallTreeNode represents one method invocation path in a call tree,
+ * accumulating the number of invocations and the time spent along that
+ * path. The children are kept in an open-addressing table keyed directly
+ * by method identifier, so finding the child for a method entry involves
+ * no boxing and no allocation.
+ *
+ * @author  Nathan Fiedler
+ */
+public class CallTreeNode {
+    /** Initial size of the child table (a power of two). */
+    private static final int INITIAL_SLOTS = 4;
+    /** Method identifier, or -1 for the root node. */
+    private final int method;
+    /** The parent node, or null for the root node. */
+    private final CallTreeNode parent;
+    /** Method identifiers of the children; unused slots hold -1. */
+    private int[] childKeys;
+    /** Child nodes, parallel to childKeys. */
+    private CallTreeNode[] childNodes;
+    /** Number of children. */
+    private int childCount;
+    /** Number of invocations. */
+    private long count;
+    /** Total time spent in this node, including its children. */
+    private long inclusiveTime;
+    /** Total time spent in the children of this node. */
+    private long childTime;
+
+    /**
+     * Constructs a new CallTreeNode.
+     *
+     * @param  method  method identifier, or -1 for a root node.
+     * @param  parent  parent node, or null for a root node.
+     */
+    CallTreeNode(int method, CallTreeNode parent) {
+        this.method = method;
+        this.parent = parent;
+    }
+
+    /**
+     * Records the completion of an invocation of this node.
+     *
+     * @param  elapsed  time spent in the invocation.
+     */
+    void addTime(long elapsed) {
+        inclusiveTime += elapsed;
+        if (parent != null) {
+            parent.childTime += elapsed;
+        }
+    }
+
+    /**
+     * Returns the child node for the given method, creating it if needed,
+     * and counts the invocation.
+     *
+     * @param  id  method identifier.
+     * @return  child node.
+     */
+    CallTreeNode enter(int id) {
+        if (childKeys == null) {
+            childKeys = newKeys(INITIAL_SLOTS);
+            childNodes = new CallTreeNode[INITIAL_SLOTS];
+        }
+        int mask = childKeys.length - 1;
+        int slot = hash(id) & mask;
+        while (childKeys[slot] != -1) {
+            if (childKeys[slot] == id) {
+                CallTreeNode child = childNodes[slot];
+                child.count++;
+                return child;
+            }
+            slot = (slot + 1) & mask;
+        }
+        CallTreeNode child = new CallTreeNode(id, this);
+        child.count = 1;
+        childKeys[slot] = id;
+        childNodes[slot] = child;
+        childCount++;
+        if (childCount * 2 > childKeys.length) {
+            grow();
+        }
+        return child;
+    }
+
+    /**
+     * Returns the child nodes.
+     *
+     * @return  list of children, in no particular order.
+     */
+    public List<CallTreeNode> getChildren() {
+        if (childCount == 0) {
+            return Collections.emptyList();
+        }
+        List<CallTreeNode> list = new ArrayList<CallTreeNode>(childCount);
+        for (CallTreeNode child : childNodes) {
+            if (child != null) {
+                list.add(child);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Returns the number of invocations along this path.
+     *
+     * @return  invocation count.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the time spent in this node, excluding its children.
+     *
+     * @return  exclusive time in nanoseconds.
+     */
+    public long getExclusiveTime() {
+        return inclusiveTime - childTime;
+    }
+
+    /**
+     * Returns the time spent in this node, including its children.
+     *
+     * @return  inclusive time in nanoseconds.
+     */
+    public long getInclusiveTime() {
+        return inclusiveTime;
+    }
+
+    /**
+     * Returns the identifier of the method this node represents.
+     *
+     * @return  method identifier, or -1 for the root node.
+     */
+    public int getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the parent of this node.
+     *
+     * @return  parent node, or null if this is the root node.
+     */
+    public CallTreeNode getParent() {
+        return parent;
+    }
+
+    /**
+     * Doubles the size of the child table.
+     */
+    private void grow() {
+        int[] oldKeys = childKeys;
+        CallTreeNode[] oldNodes = childNodes;
+        childKeys = newKeys(oldKeys.length * 2);
+        childNodes = new CallTreeNode[oldKeys.length * 2];
+        int mask = childKeys.length - 1;
+        for (int ii = 0; ii < oldKeys.length; ii++) {
+            if (oldKeys[ii] != -1) {
+                int slot = hash(oldKeys[ii]) & mask;
+                while (childKeys[slot] != -1) {
+                    slot = (slot + 1) & mask;
+                }
+                childKeys[slot] = oldKeys[ii];
+                childNodes[slot] = oldNodes[ii];
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of the method identifier, since identifiers are
+     * assigned sequentially.
+     *
+     * @param  id  method identifier.
+     * @return  hash value.
+     */
+    private static int hash(int id) {
+        return id * 0x9E3779B9 >>> 16 ^ id;
+    }
+
+    /**
+     * Creates an empty key table.
+     *
+     * @param  size  number of slots.
+     * @return  key table with every slot unused.
+     */
+    private static int[] newKeys(int size) {
+        int[] keys = new int[size];
+        Arrays.fill(keys, -1);
+        return keys;
+    }
+}
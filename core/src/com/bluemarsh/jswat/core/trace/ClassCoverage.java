@@ -0,0 +1,148 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import java.util.BitSet;
+
+/**
+ * Class ClassCoverage holds the executable lines of a class, and those of
+ * them which have been executed, as recorded by a CoverageRecorder.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ClassCoverage {
+    /** Name of the class. */
+    private final String name;
+    /** The executable lines of the class. */
+    private final BitSet lines;
+    /** The lines that have been executed. */
+    private final BitSet hits;
+
+    /**
+     * Constructs a new ClassCoverage with no lines.
+     *
+     * @param  name  name of the class.
+     */
+    public ClassCoverage(String name) {
+        this.name = name;
+        lines = new BitSet();
+        hits = new BitSet();
+    }
+
+    /**
+     * Adds an executable line.
+     *
+     * @param  line  line number.
+     */
+    synchronized void addLine(int line) {
+        lines.set(line);
+    }
+
+    /**
+     * Returns the number of lines that have been executed.
+     *
+     * @return  executed line count.
+     */
+    public synchronized int getHitCount() {
+        return hits.cardinality();
+    }
+
+    /**
+     * Returns the lines that have been executed.
+     *
+     * @return  copy of the executed lines.
+     */
+    public synchronized BitSet getHits() {
+        return (BitSet) hits.clone();
+    }
+
+    /**
+     * Returns the number of executable lines.
+     *
+     * @return  line count.
+     */
+    public synchronized int getLineCount() {
+        return lines.cardinality();
+    }
+
+    /**
+     * Returns the executable lines.
+     *
+     * @return  copy of the executable lines.
+     */
+    public synchronized BitSet getLines() {
+        return (BitSet) lines.clone();
+    }
+
+    /**
+     * Returns the executable lines that have not been executed.
+     *
+     * @return  the missed lines.
+     */
+    public synchronized BitSet getMissed() {
+        BitSet missed = (BitSet) lines.clone();
+        missed.andNot(hits);
+        return missed;
+    }
+
+    /**
+     * Returns the name of the class.
+     *
+     * @return  class name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records the execution of a line.
+     *
+     * @param  line  line number.
+     */
+    synchronized void hit(int line) {
+        hits.set(line);
+    }
+
+    /**
+     * Formats the set bits as a comma-separated list of line numbers and
+     * ranges, e.g. "3, 7-9, 12".
+     *
+     * @param  bits  set of line numbers.
+     * @return  list of lines.
+     */
+    public static String toRanges(BitSet bits) {
+        StringBuilder sb = new StringBuilder();
+        int start = bits.nextSetBit(0);
+        while (start >= 0) {
+            int end = bits.nextClearBit(start) - 1;
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(start);
+            if (end > start) {
+                sb.append('-');
+                sb.append(end);
+            }
+            start = bits.nextSetBit(end + 1);
+        }
+        return sb.toString();
+    }
+}
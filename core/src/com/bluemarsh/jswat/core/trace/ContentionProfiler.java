@@ -0,0 +1,516 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import com.bluemarsh.jswat.core.event.Dispatcher;
+import com.bluemarsh.jswat.core.event.DispatcherListener;
+import com.bluemarsh.jswat.core.event.DispatcherProvider;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.bluemarsh.jswat.core.util.Names;
+import com.sun.jdi.Location;
+import com.sun.jdi.ObjectCollectedException;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.VMDisconnectedException;
+import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.event.Event;
+import com.sun.jdi.event.MonitorContendedEnterEvent;
+import com.sun.jdi.event.MonitorContendedEnteredEvent;
+import com.sun.jdi.event.MonitorWaitEvent;
+import com.sun.jdi.event.MonitorWaitedEvent;
+import com.sun.jdi.request.EventRequest;
+import com.sun.jdi.request.EventRequestManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class ContentionProfiler measures how long threads spend blocked while
+ * entering contended monitors, and waiting in <code>Object.wait()</code>,
+ * using the monitor events of JDI with a suspend policy of none. The
+ * times are aggregated by the class of the monitor object, and by the
+ * code location at which the monitor was acquired or waited on.
+ *
+ * <p>The dispatcher thread does no more than note the time, thread,
+ * monitor and location of each event, and queue it; the events are
+ * paired and aggregated on a separate thread, which is also where the
+ * monitor classes are retrieved from the debuggee. This keeps the event
+ * queue moving as quickly as possible.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class ContentionProfiler implements DispatcherListener, SessionListener {
+    /** Logger for gracefully reporting unexpected errors. */
+    private static final Logger logger = Logger.getLogger(
+            ContentionProfiler.class.getName());
+    /** Milliseconds the aggregator waits for more events. */
+    private static final long POLL_INTERVAL = 100;
+    /** Orders the statistics by decreasing total time. */
+    private static final Comparator<ContentionStatistic> BY_TIME =
+            new Comparator<ContentionStatistic>() {
+        @Override
+        public int compare(ContentionStatistic o1, ContentionStatistic o2) {
+            long t1 = o1.getTotalTime();
+            long t2 = o2.getTotalTime();
+            return t1 < t2 ? 1 : (t1 == t2 ? 0 : -1);
+        }
+    };
+    /** Event kind for a thread blocking on a contended monitor. */
+    static final byte ENTER = 1;
+    /** Event kind for a thread acquiring a contended monitor. */
+    static final byte ENTERED = 2;
+    /** Event kind for a thread starting to wait. */
+    static final byte WAIT = 3;
+    /** Event kind for a thread finishing waiting. */
+    static final byte WAITED = 4;
+    /** Most monitor objects whose class names are cached at one time. */
+    static final int MONITOR_CACHE_SIZE = 4096;
+    /** The session we are associated with. */
+    private Session session;
+    /** The profile in progress, if any. */
+    private volatile Profile profile;
+    /** The statistics, keyed by monitor class, site and kind. */
+    private final Map<String, Accumulator> statistics;
+    /** Number of events queued by the current or last profile. */
+    private volatile long eventCount;
+
+    /**
+     * Constructs a new ContentionProfiler.
+     */
+    public ContentionProfiler() {
+        statistics = new LinkedHashMap<String, Accumulator>();
+    }
+
+    @Override
+    public void closing(SessionEvent sevt) {
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+    }
+
+    @Override
+    public void disconnected(SessionEvent sevt) {
+        stop();
+    }
+
+    @Override
+    public boolean eventOccurred(Event event) {
+        Profile p = profile;
+        if (p == null) {
+            return true;
+        }
+        long time = System.nanoTime();
+        byte kind;
+        ThreadReference thread;
+        ObjectReference monitor;
+        Location location;
+        boolean timedOut = false;
+        if (event instanceof MonitorContendedEnterEvent) {
+            MonitorContendedEnterEvent e = (MonitorContendedEnterEvent) event;
+            kind = ENTER;
+            thread = e.thread();
+            monitor = e.monitor();
+            location = e.location();
+        } else if (event instanceof MonitorContendedEnteredEvent) {
+            MonitorContendedEnteredEvent e = (MonitorContendedEnteredEvent) event;
+            kind = ENTERED;
+            thread = e.thread();
+            monitor = e.monitor();
+            location = e.location();
+        } else if (event instanceof MonitorWaitEvent) {
+            MonitorWaitEvent e = (MonitorWaitEvent) event;
+            kind = WAIT;
+            thread = e.thread();
+            monitor = e.monitor();
+            location = e.location();
+        } else if (event instanceof MonitorWaitedEvent) {
+            MonitorWaitedEvent e = (MonitorWaitedEvent) event;
+            kind = WAITED;
+            thread = e.thread();
+            monitor = e.monitor();
+            location = e.location();
+            timedOut = e.timedout();
+        } else {
+            return true;
+        }
+        p.queue.offer(new Record(kind, thread, monitor, location, time, timedOut));
+        eventCount++;
+        return true;
+    }
+
+    /**
+     * Returns the number of monitor events received by the current or
+     * last profile.
+     *
+     * @return  event count.
+     */
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Returns the statistics collected so far, ordered by decreasing
+     * total time.
+     *
+     * @param  byClass  true to sum the statistics of all locations for
+     *                  each monitor class.
+     * @return  list of statistics.
+     */
+    public List<ContentionStatistic> getStatistics(boolean byClass) {
+        Map<String, Accumulator> merged = new LinkedHashMap<String, Accumulator>();
+        synchronized (statistics) {
+            for (Accumulator acc : statistics.values()) {
+                if (byClass) {
+                    String key = acc.monitorClass + '|' + acc.waiting;
+                    Accumulator sum = merged.get(key);
+                    if (sum == null) {
+                        sum = new Accumulator(acc.monitorClass, null, acc.waiting);
+                        merged.put(key, sum);
+                    }
+                    sum.count += acc.count;
+                    sum.totalTime += acc.totalTime;
+                    sum.maxTime = Math.max(sum.maxTime, acc.maxTime);
+                } else {
+                    merged.put(acc.monitorClass + '|' + acc.site + '|'
+                            + acc.waiting, acc.copy());
+                }
+            }
+        }
+        List<ContentionStatistic> list = new ArrayList<ContentionStatistic>(
+                merged.size());
+        for (Accumulator acc : merged.values()) {
+            list.add(new ContentionStatistic(acc.monitorClass, acc.site,
+                    acc.waiting, acc.count, acc.totalTime, acc.maxTime));
+        }
+        Collections.sort(list, BY_TIME);
+        return list;
+    }
+
+    /**
+     * Indicates if profiling is in progress.
+     *
+     * @return  true if profiling, false otherwise.
+     */
+    public boolean isProfiling() {
+        return profile != null;
+    }
+
+    @Override
+    public void opened(Session session) {
+        this.session = session;
+    }
+
+    /**
+     * Discards the statistics collected so far.
+     */
+    public void reset() {
+        synchronized (statistics) {
+            statistics.clear();
+        }
+        eventCount = 0;
+    }
+
+    @Override
+    public void resuming(SessionEvent sevt) {
+    }
+
+    /**
+     * Starts profiling monitor contention. The statistics are added to
+     * those collected previously, unless reset() is called.
+     *
+     * @throws  IllegalStateException
+     *          if not connected, or already profiling.
+     * @throws  UnsupportedOperationException
+     *          if the debuggee cannot generate monitor events.
+     */
+    public synchronized void start() {
+        if (profile != null) {
+            throw new IllegalStateException("already profiling");
+        }
+        if (session == null || !session.isConnected()) {
+            throw new IllegalStateException("session not connected");
+        }
+        VirtualMachine vm = session.getConnection().getVM();
+        if (!vm.canRequestMonitorEvents()) {
+            throw new UnsupportedOperationException("monitor events not supported");
+        }
+        EventRequestManager erm = vm.eventRequestManager();
+        List<EventRequest> requests = new ArrayList<EventRequest>(4);
+        requests.add(erm.createMonitorContendedEnterRequest());
+        requests.add(erm.createMonitorContendedEnteredRequest());
+        requests.add(erm.createMonitorWaitRequest());
+        requests.add(erm.createMonitorWaitedRequest());
+        Profile p = new Profile(requests);
+        profile = p;
+        p.aggregator.start();
+        Dispatcher dispatcher = DispatcherProvider.getDispatcher(session);
+        for (EventRequest request : requests) {
+            request.setSuspendPolicy(EventRequest.SUSPEND_NONE);
+            dispatcher.register(this, request);
+            request.enable();
+        }
+    }
+
+    /**
+     * Stops profiling, waiting for the queued events to be aggregated.
+     */
+    public synchronized void stop() {
+        Profile p = profile;
+        if (p == null) {
+            return;
+        }
+        profile = null;
+        Dispatcher dispatcher = DispatcherProvider.getDispatcher(session);
+        for (EventRequest request : p.requests) {
+            dispatcher.unregister(request);
+            try {
+                request.virtualMachine().eventRequestManager().
+                        deleteEventRequest(request);
+            } catch (VMDisconnectedException vmde) {
+                // This happens all the time.
+            }
+        }
+        p.running = false;
+        try {
+            p.aggregator.join();
+            // Let go of the monitor objects right away.
+            p.monitorClasses.clear();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
+    }
+
+    /**
+     * Accumulates the times for one monitor class, site and kind.
+     */
+    private static class Accumulator {
+        /** Name of the class of the monitor objects. */
+        private final String monitorClass;
+        /** Code location, or null if summarized by class. */
+        private final String site;
+        /** True if waiting, false if blocked on entry. */
+        private final boolean waiting;
+        /** Number of times a thread blocked or waited. */
+        private long count;
+        /** Total time in nanoseconds. */
+        private long totalTime;
+        /** Longest time in nanoseconds. */
+        private long maxTime;
+
+        /**
+         * Constructs a new Accumulator.
+         *
+         * @param  monitorClass  name of the class of the monitor objects.
+         * @param  site          code location, or null if summarized.
+         * @param  waiting       true if waiting, false if blocked.
+         */
+        Accumulator(String monitorClass, String site, boolean waiting) {
+            this.monitorClass = monitorClass;
+            this.site = site;
+            this.waiting = waiting;
+        }
+
+        /**
+         * Adds one period of blocking or waiting.
+         *
+         * @param  elapsed  time in nanoseconds.
+         */
+        void add(long elapsed) {
+            count++;
+            totalTime += elapsed;
+            if (elapsed > maxTime) {
+                maxTime = elapsed;
+            }
+        }
+
+        /**
+         * Returns a copy of this accumulator.
+         *
+         * @return  new accumulator.
+         */
+        Accumulator copy() {
+            Accumulator acc = new Accumulator(monitorClass, site, waiting);
+            acc.count = count;
+            acc.totalTime = totalTime;
+            acc.maxTime = maxTime;
+            return acc;
+        }
+    }
+
+    /**
+     * A monitor event, as queued by the dispatcher thread.
+     */
+    static class Record {
+        /** The kind of event. */
+        private final byte kind;
+        /** The thread that blocked or waited. */
+        private final ThreadReference thread;
+        /** The monitor object. */
+        private final ObjectReference monitor;
+        /** Where the event occurred. */
+        private final Location location;
+        /** Time the event was received. */
+        private final long time;
+        /** True if a wait ended by timing out. */
+        private final boolean timedOut;
+
+        /**
+         * Constructs a new Record.
+         *
+         * @param  kind      kind of event.
+         * @param  thread    thread that blocked or waited.
+         * @param  monitor   the monitor object.
+         * @param  location  where the event occurred.
+         * @param  time      time the event was received.
+         * @param  timedOut  true if a wait timed out.
+         */
+        Record(byte kind, ThreadReference thread, ObjectReference monitor,
+                Location location, long time, boolean timedOut) {
+            this.kind = kind;
+            this.thread = thread;
+            this.monitor = monitor;
+            this.location = location;
+            this.time = time;
+            this.timedOut = timedOut;
+        }
+    }
+
+    /**
+     * The state of a single profile, and the thread that pairs and
+     * aggregates the queued events.
+     */
+    class Profile implements Runnable {
+        /** The monitor event requests. */
+        private final List<EventRequest> requests;
+        /** Events waiting to be aggregated. */
+        private final BlockingQueue<Record> queue;
+        /** Aggregates the events. */
+        private final Thread aggregator;
+        /** The blocking or waiting event of each thread, not yet ended. */
+        private final Map<ThreadReference, Record> pending;
+        /** Names of the monitor classes, by monitor object. */
+        private final Map<ObjectReference, String> monitorClasses;
+        /** Descriptions of the locations. */
+        private final Map<Location, String> sites;
+        /** False once the profile has been stopped. */
+        private volatile boolean running;
+
+        /**
+         * Constructs a new Profile.
+         *
+         * @param  requests  the monitor event requests.
+         */
+        Profile(List<EventRequest> requests) {
+            this.requests = requests;
+            queue = new LinkedBlockingQueue<Record>();
+            pending = new HashMap<ThreadReference, Record>();
+            monitorClasses = new HashMap<ObjectReference, String>();
+            sites = new HashMap<Location, String>();
+            running = true;
+            aggregator = new Thread(this, "ContentionProfiler");
+            aggregator.setDaemon(true);
+        }
+
+        /**
+         * Pairs the given event with the pending event of the same thread,
+         * adding the elapsed time to the statistics.
+         *
+         * @param  record  event to be aggregated.
+         */
+        void aggregate(Record record) {
+            if (record.kind == ENTER || record.kind == WAIT) {
+                pending.put(record.thread, record);
+                return;
+            }
+            Record start = pending.remove(record.thread);
+            byte expected = record.kind == ENTERED ? ENTER : WAIT;
+            if (start == null || start.kind != expected
+                    || !start.monitor.equals(record.monitor)) {
+                // Began before profiling started; nothing to measure.
+                return;
+            }
+            String monitorClass = monitorClasses.get(record.monitor);
+            if (monitorClass == null) {
+                try {
+                    monitorClass = record.monitor.referenceType().name();
+                } catch (ObjectCollectedException oce) {
+                    monitorClass = "?";
+                }
+                if (monitorClasses.size() >= MONITOR_CACHE_SIZE) {
+                    // Monitor objects come and go, start afresh rather
+                    // than hold on to every one ever seen.
+                    monitorClasses.clear();
+                }
+                monitorClasses.put(record.monitor, monitorClass);
+            }
+            // Attribute the time to where the thread blocked or waited.
+            String site = sites.get(start.location);
+            if (site == null) {
+                site = Names.getLocationName(start.location);
+                sites.put(start.location, site);
+            }
+            boolean waiting = record.kind == WAITED;
+            String key = monitorClass + '|' + site + '|' + waiting;
+            synchronized (statistics) {
+                Accumulator acc = statistics.get(key);
+                if (acc == null) {
+                    acc = new Accumulator(monitorClass, site, waiting);
+                    statistics.put(key, acc);
+                }
+                acc.add(record.time - start.time);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running || !queue.isEmpty()) {
+                    Record record = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                    if (record != null) {
+                        aggregate(record);
+                    }
+                }
+            } catch (InterruptedException ie) {
+                // Stop aggregating.
+            } catch (VMDisconnectedException vmde) {
+                // Nothing more can be learned.
+            } catch (Exception e) {
+                logger.log(Level.WARNING, null, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+/**
+ * Class ContentionStatistic summarizes the time threads spent blocked on,
+ * or waiting for, the monitors of one class at one code location (or, when
+ * summarized by class, at all locations).
+ *
+ * @author  Nathan Fiedler
+ */
+public class ContentionStatistic {
+    /** Name of the class of the monitor objects. */
+    private final String monitorClass;
+    /** Where the monitor was acquired or waited on, or null if summarized. */
+    private final String site;
+    /** True if waiting in Object.wait(), false if blocked on entry. */
+    private final boolean waiting;
+    /** Number of times a thread blocked or waited. */
+    private final long count;
+    /** Total time spent blocked or waiting. */
+    private final long totalTime;
+    /** Longest time spent blocked or waiting. */
+    private final long maxTime;
+
+    /**
+     * Constructs a new ContentionStatistic.
+     *
+     * @param  monitorClass  name of the class of the monitor objects.
+     * @param  site          code location, or null if summarized by class.
+     * @param  waiting       true if waiting, false if blocked on entry.
+     * @param  count         number of times a thread blocked or waited.
+     * @param  totalTime     total time in nanoseconds.
+     * @param  maxTime       longest time in nanoseconds.
+     */
+    public ContentionStatistic(String monitorClass, String site,
+            boolean waiting, long count, long totalTime, long maxTime) {
+        this.monitorClass = monitorClass;
+        this.site = site;
+        this.waiting = waiting;
+        this.count = count;
+        this.totalTime = totalTime;
+        this.maxTime = maxTime;
+    }
+
+    /**
+     * Returns the number of times a thread blocked or waited.
+     *
+     * @return  event count.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the longest time a thread spent blocked or waiting.
+     *
+     * @return  maximum time in nanoseconds.
+     */
+    public long getMaxTime() {
+        return maxTime;
+    }
+
+    /**
+     * Returns the name of the class of the monitor objects.
+     *
+     * @return  monitor class name.
+     */
+    public String getMonitorClass() {
+        return monitorClass;
+    }
+
+    /**
+     * Returns the code location at which the monitor was acquired, or
+     * waited on.
+     *
+     * @return  code location, or null if summarized by class.
+     */
+    public String getSite() {
+        return site;
+    }
+
+    /**
+     * Returns the total time threads spent blocked or waiting.
+     *
+     * @return  total time in nanoseconds.
+     */
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    /**
+     * Indicates if this is the time spent waiting in Object.wait(), as
+     * opposed to blocked while entering the monitor.
+     *
+     * @return  true if waiting, false if blocked.
+     */
+    public boolean isWaiting() {
+        return waiting;
+    }
+}
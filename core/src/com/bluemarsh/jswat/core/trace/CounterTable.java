@@ -0,0 +1,144 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import java.util.Arrays;
+
+/**
+ * Class CounterTable counts occurrences of long keys, using an
+ * open-addressing table of primitive keys and counts so that counting
+ * neither boxes nor allocates (other than when the table grows). The
+ * table is safe for use by multiple threads.
+ *
+ * @author  Nathan Fiedler
+ */
+class CounterTable {
+    /** Marks an unused slot; keys must never have this value. */
+    static final long EMPTY = -1L;
+    /** The keys, or EMPTY for unused slots. */
+    private long[] keys;
+    /** The counts, parallel to keys. */
+    private long[] counts;
+    /** Number of keys in the table. */
+    private int size;
+
+    /**
+     * Constructs an empty CounterTable.
+     */
+    CounterTable() {
+        keys = new long[64];
+        Arrays.fill(keys, EMPTY);
+        counts = new long[64];
+    }
+
+    /**
+     * Removes all of the keys from the table.
+     */
+    synchronized void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(counts, 0);
+        size = 0;
+    }
+
+    /**
+     * Doubles the size of the table.
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        counts = new long[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int ii = 0; ii < oldKeys.length; ii++) {
+            if (oldKeys[ii] != EMPTY) {
+                int slot = hash(oldKeys[ii]) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[ii];
+                counts[slot] = oldCounts[ii];
+            }
+        }
+    }
+
+    /**
+     * Mixes the bits of the key.
+     *
+     * @param  key  key to hash.
+     * @return  hash code.
+     */
+    private static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    /**
+     * Adds one to the count for the given key.
+     *
+     * @param  key  key to be counted (must not be EMPTY).
+     */
+    synchronized void increment(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                counts[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        counts[slot] = 1;
+        size++;
+        if (size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    /**
+     * Returns the number of keys in the table.
+     *
+     * @return  key count.
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Copies the keys and their counts into a new array, each key being
+     * followed immediately by its count.
+     *
+     * @return  array of key and count pairs.
+     */
+    synchronized long[] toArray() {
+        long[] pairs = new long[size * 2];
+        int index = 0;
+        for (int ii = 0; ii < keys.length; ii++) {
+            if (keys[ii] != EMPTY) {
+                pairs[index] = keys[ii];
+                pairs[index + 1] = counts[ii];
+                index += 2;
+            }
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,443 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import com.bluemarsh.jswat.core.event.Dispatcher;
+import com.bluemarsh.jswat.core.event.DispatcherListener;
+import com.bluemarsh.jswat.core.event.DispatcherProvider;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.bluemarsh.jswat.core.util.Classes;
+import com.sun.jdi.AbsentInformationException;
+import com.sun.jdi.ClassNotPreparedException;
+import com.sun.jdi.Location;
+import com.sun.jdi.ObjectCollectedException;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.VMDisconnectedException;
+import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.event.BreakpointEvent;
+import com.sun.jdi.event.ClassPrepareEvent;
+import com.sun.jdi.event.Event;
+import com.sun.jdi.request.BreakpointRequest;
+import com.sun.jdi.request.ClassPrepareRequest;
+import com.sun.jdi.request.EventRequest;
+import com.sun.jdi.request.EventRequestManager;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class CoverageRecorder finds which lines of code are executed in the
+ * debuggee, without needing to instrument the code. For every class that
+ * matches one of the given filters, a breakpoint request is created for
+ * each executable line, with a suspend policy of none and a count filter
+ * of one, such that each line is reported at most once. Each request is
+ * deleted after it has been hit, so lines that have been executed cost
+ * nothing thereafter.
+ *
+ * <p>Creating thousands of requests takes time, so the classes are handed
+ * off to a separate thread which creates the requests in batches, and
+ * which also deletes the requests that have been hit, many at a time. The
+ * class prepare events do not suspend the debuggee, so class loading is
+ * never held up, at the cost of missing lines executed before the
+ * requests for their class were created (typically the static
+ * initializer).</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class CoverageRecorder implements DispatcherListener, SessionListener {
+    /** Logger for gracefully reporting unexpected errors. */
+    private static final Logger logger = Logger.getLogger(
+            CoverageRecorder.class.getName());
+    /** Maximum number of queued items processed at one time. */
+    private static final int BATCH_SIZE = 500;
+    /** Milliseconds the worker waits for more work. */
+    private static final long POLL_INTERVAL = 100;
+    /** Request property holding the ClassCoverage of a line breakpoint. */
+    private static final String PROP_COVERAGE = "coverage";
+    /** Request property holding the line number of a line breakpoint. */
+    private static final String PROP_LINE = "coverageLine";
+    /** The session we are associated with. */
+    private Session session;
+    /** The recording in progress, if any. */
+    private volatile Recording recording;
+    /** The coverage of each class, keyed by class name. */
+    private final Map<String, ClassCoverage> coverage;
+    /** Class filters of the current or last recording. */
+    private List<String> filters;
+
+    /**
+     * Constructs a new CoverageRecorder.
+     */
+    public CoverageRecorder() {
+        coverage = new TreeMap<String, ClassCoverage>();
+        filters = Collections.emptyList();
+    }
+
+    @Override
+    public void closing(SessionEvent sevt) {
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+    }
+
+    @Override
+    public void disconnected(SessionEvent sevt) {
+        stop();
+    }
+
+    @Override
+    public boolean eventOccurred(Event event) {
+        Recording r = recording;
+        if (r == null) {
+            return true;
+        }
+        if (event instanceof BreakpointEvent) {
+            EventRequest request = event.request();
+            ClassCoverage cc = (ClassCoverage) request.getProperty(PROP_COVERAGE);
+            Integer line = (Integer) request.getProperty(PROP_LINE);
+            if (cc != null && line != null) {
+                cc.hit(line.intValue());
+                r.queue.offer(request);
+            }
+        } else if (event instanceof ClassPrepareEvent) {
+            r.queue.offer(((ClassPrepareEvent) event).referenceType());
+        }
+        return true;
+    }
+
+    /**
+     * Returns the coverage of the classes seen so far, ordered by name.
+     *
+     * @return  list of class coverage.
+     */
+    public List<ClassCoverage> getCoverage() {
+        synchronized (coverage) {
+            return new ArrayList<ClassCoverage>(coverage.values());
+        }
+    }
+
+    /**
+     * Returns the class filters of the current or last recording.
+     *
+     * @return  list of class filters.
+     */
+    public synchronized List<String> getFilters() {
+        return filters;
+    }
+
+    /**
+     * Returns the number of line breakpoints that have been created and
+     * not yet hit.
+     *
+     * @return  number of outstanding requests.
+     */
+    public int getPendingCount() {
+        Recording r = recording;
+        return r == null ? 0 : r.requests.size();
+    }
+
+    /**
+     * Indicates if coverage is being recorded.
+     *
+     * @return  true if recording, false otherwise.
+     */
+    public boolean isRecording() {
+        return recording != null;
+    }
+
+    @Override
+    public void opened(Session session) {
+        this.session = session;
+    }
+
+    /**
+     * Discards the coverage recorded so far. If recording is in progress,
+     * the classes already seen are not seen again.
+     */
+    public void reset() {
+        synchronized (coverage) {
+            coverage.clear();
+        }
+    }
+
+    @Override
+    public void resuming(SessionEvent sevt) {
+    }
+
+    /**
+     * Starts recording the coverage of the classes that match the given
+     * filters, including those that are already loaded. The coverage is
+     * added to that recorded previously, unless reset() is called.
+     *
+     * @param  classFilters  class name patterns, which may begin or end
+     *                       with an asterisk (e.g. com.example.*).
+     * @throws  IllegalStateException
+     *          if not connected, or already recording.
+     */
+    public synchronized void start(List<String> classFilters) {
+        if (recording != null) {
+            throw new IllegalStateException("already recording");
+        }
+        if (session == null || !session.isConnected()) {
+            throw new IllegalStateException("session not connected");
+        }
+        VirtualMachine vm = session.getConnection().getVM();
+        EventRequestManager erm = vm.eventRequestManager();
+        List<ClassPrepareRequest> prepares =
+                new ArrayList<ClassPrepareRequest>(classFilters.size());
+        for (String filter : classFilters) {
+            ClassPrepareRequest cpr = erm.createClassPrepareRequest();
+            cpr.addClassFilter(filter);
+            cpr.setSuspendPolicy(EventRequest.SUSPEND_NONE);
+            prepares.add(cpr);
+        }
+        Recording r = new Recording(vm, prepares);
+        filters = Collections.unmodifiableList(
+                new ArrayList<String>(classFilters));
+        recording = r;
+        Dispatcher dispatcher = DispatcherProvider.getDispatcher(session);
+        for (ClassPrepareRequest cpr : prepares) {
+            dispatcher.register(this, cpr);
+            cpr.enable();
+        }
+        // Cover the classes that were loaded before we started.
+        for (String filter : classFilters) {
+            for (ReferenceType type : Classes.findClasses(vm, filter)) {
+                r.queue.offer(type);
+            }
+        }
+        r.worker.start();
+    }
+
+    /**
+     * Stops recording coverage, deleting all of the outstanding requests.
+     * The coverage recorded so far remains available.
+     */
+    public synchronized void stop() {
+        Recording r = recording;
+        if (r == null) {
+            return;
+        }
+        recording = null;
+        r.running = false;
+        try {
+            r.worker.join();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        Dispatcher dispatcher = DispatcherProvider.getDispatcher(session);
+        List<EventRequest> requests = new ArrayList<EventRequest>(r.requests);
+        requests.addAll(r.prepares);
+        for (EventRequest request : requests) {
+            dispatcher.unregister(request);
+        }
+        try {
+            r.vm.eventRequestManager().deleteEventRequests(requests);
+        } catch (VMDisconnectedException vmde) {
+            // This happens all the time.
+        }
+        r.requests.clear();
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
+    }
+
+    /**
+     * Writes a plain text report of the coverage recorded so far: a line
+     * for each class giving the number of executed and executable lines,
+     * followed by the line numbers that were not executed.
+     *
+     * @param  writer  where the report is written.
+     * @throws  IOException
+     *          if writing fails.
+     */
+    public void writeReport(Writer writer) throws IOException {
+        int totalLines = 0;
+        int totalHits = 0;
+        for (ClassCoverage cc : getCoverage()) {
+            int lines = cc.getLineCount();
+            int hits = cc.getHitCount();
+            totalLines += lines;
+            totalHits += hits;
+            writer.write(String.format("%s %d/%d %.1f%%%n", cc.getName(),
+                    hits, lines, percent(hits, lines)));
+            if (hits < lines) {
+                writer.write("  missed: ");
+                writer.write(ClassCoverage.toRanges(cc.getMissed()));
+                writer.write(String.format("%n"));
+            }
+        }
+        writer.write(String.format("total %d/%d %.1f%%%n", totalHits,
+                totalLines, percent(totalHits, totalLines)));
+        writer.flush();
+    }
+
+    /**
+     * Computes the percentage of lines executed.
+     *
+     * @param  hits   number of lines executed.
+     * @param  lines  number of executable lines.
+     * @return  percentage, zero if there are no lines.
+     */
+    public static double percent(int hits, int lines) {
+        return lines == 0 ? 0.0 : hits * 100.0 / lines;
+    }
+
+    /**
+     * The state of a single recording, and the thread that creates and
+     * deletes the line breakpoints.
+     */
+    private class Recording implements Runnable {
+        /** The virtual machine being covered. */
+        private final VirtualMachine vm;
+        /** The class prepare requests. */
+        private final List<ClassPrepareRequest> prepares;
+        /** Classes to be covered, and requests to be deleted. */
+        private final BlockingQueue<Object> queue;
+        /** The line breakpoints that have not yet been hit. */
+        private final Set<EventRequest> requests;
+        /** Creates and deletes the line breakpoints. */
+        private final Thread worker;
+        /** False once the recording has been stopped. */
+        private volatile boolean running;
+
+        /**
+         * Constructs a new Recording.
+         *
+         * @param  vm        the virtual machine.
+         * @param  prepares  the class prepare requests.
+         */
+        Recording(VirtualMachine vm, List<ClassPrepareRequest> prepares) {
+            this.vm = vm;
+            this.prepares = prepares;
+            queue = new LinkedBlockingQueue<Object>();
+            requests = Collections.newSetFromMap(
+                    new ConcurrentHashMap<EventRequest, Boolean>());
+            running = true;
+            worker = new Thread(this, "CoverageRecorder");
+            worker.setDaemon(true);
+        }
+
+        /**
+         * Creates the line breakpoints for the given class.
+         *
+         * @param  type  class to be covered.
+         * @param  erm   the event request manager.
+         */
+        private void cover(ReferenceType type, EventRequestManager erm) {
+            String name = type.name();
+            ClassCoverage cc;
+            synchronized (coverage) {
+                if (coverage.containsKey(name)) {
+                    // Already covered (e.g. loaded and then prepared).
+                    return;
+                }
+                cc = new ClassCoverage(name);
+                coverage.put(name, cc);
+            }
+            List<Location> locations;
+            try {
+                locations = type.allLineLocations();
+            } catch (AbsentInformationException aie) {
+                return;
+            } catch (ClassNotPreparedException cnpe) {
+                return;
+            }
+            Dispatcher dispatcher = DispatcherProvider.getDispatcher(session);
+            BitSet seen = new BitSet();
+            for (Location location : locations) {
+                int line = location.lineNumber();
+                if (line <= 0 || seen.get(line)) {
+                    // The first location of a line is enough.
+                    continue;
+                }
+                seen.set(line);
+                cc.addLine(line);
+                BreakpointRequest request = erm.createBreakpointRequest(location);
+                request.setSuspendPolicy(EventRequest.SUSPEND_NONE);
+                request.addCountFilter(1);
+                request.putProperty(PROP_COVERAGE, cc);
+                request.putProperty(PROP_LINE, Integer.valueOf(line));
+                dispatcher.register(CoverageRecorder.this, request);
+                requests.add(request);
+                request.enable();
+            }
+        }
+
+        @Override
+        public void run() {
+            EventRequestManager erm = vm.eventRequestManager();
+            List<Object> batch = new ArrayList<Object>(BATCH_SIZE);
+            List<EventRequest> hits = new ArrayList<EventRequest>(BATCH_SIZE);
+            try {
+                while (running) {
+                    Object item = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                    if (item == null) {
+                        continue;
+                    }
+                    batch.add(item);
+                    queue.drainTo(batch, BATCH_SIZE - 1);
+                    for (Object o : batch) {
+                        if (o instanceof EventRequest) {
+                            EventRequest request = (EventRequest) o;
+                            if (requests.remove(request)) {
+                                hits.add(request);
+                            }
+                        } else if (running) {
+                            try {
+                                cover((ReferenceType) o, erm);
+                            } catch (ObjectCollectedException oce) {
+                                // The class was unloaded.
+                            }
+                        }
+                    }
+                    if (!hits.isEmpty()) {
+                        erm.deleteEventRequests(hits);
+                        hits.clear();
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException ie) {
+                // Stop working.
+            } catch (VMDisconnectedException vmde) {
+                // Nothing more can be done.
+            } catch (Exception e) {
+                logger.log(Level.WARNING, null, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+/**
+ * Class ExceptionCount is the number of times exceptions of one type were
+ * thrown from one location and caught at another, or, when summarizing
+ * by type, the number of times exceptions of one type were thrown.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ExceptionCount {
+    /** Identifies the type and locations within the histogram. */
+    private final long key;
+    /** Name of the exception type. */
+    private final String type;
+    /** Where the exception was thrown, or null if summarized by type. */
+    private final String thrownAt;
+    /** Where the exception was caught, or null if uncaught or summarized. */
+    private final String caughtAt;
+    /** Number of exceptions. */
+    private final long count;
+
+    /**
+     * Constructs a new ExceptionCount.
+     *
+     * @param  key       identifies the type and locations.
+     * @param  type      name of the exception type.
+     * @param  thrownAt  where thrown, or null if summarized by type.
+     * @param  caughtAt  where caught, or null if uncaught or summarized.
+     * @param  count     number of exceptions.
+     */
+    ExceptionCount(long key, String type, String thrownAt, String caughtAt,
+            long count) {
+        this.key = key;
+        this.type = type;
+        this.thrownAt = thrownAt;
+        this.caughtAt = caughtAt;
+        this.count = count;
+    }
+
+    /**
+     * Returns where the exceptions were caught.
+     *
+     * @return  catch location, or null if uncaught or summarized by type.
+     */
+    public String getCaughtAt() {
+        return caughtAt;
+    }
+
+    /**
+     * Returns the number of exceptions.
+     *
+     * @return  exception count.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the key identifying the type and locations.
+     *
+     * @return  histogram key.
+     */
+    long getKey() {
+        return key;
+    }
+
+    /**
+     * Returns where the exceptions were thrown.
+     *
+     * @return  throw location, or null if summarized by type.
+     */
+    public String getThrownAt() {
+        return thrownAt;
+    }
+
+    /**
+     * Returns the name of the exception type.
+     *
+     * @return  exception type name.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Returns a copy of this count with a different count.
+     *
+     * @param  newCount  the new count.
+     * @return  new exception count.
+     */
+    ExceptionCount withCount(long newCount) {
+        return new ExceptionCount(key, type, thrownAt, caughtAt, newCount);
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import com.bluemarsh.jswat.core.event.Dispatcher;
+import com.bluemarsh.jswat.core.event.DispatcherListener;
+import com.bluemarsh.jswat.core.event.DispatcherProvider;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.bluemarsh.jswat.core.util.Names;
+import com.sun.jdi.Location;
+import com.sun.jdi.ObjectCollectedException;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.VMDisconnectedException;
+import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.event.Event;
+import com.sun.jdi.event.ExceptionEvent;
+import com.sun.jdi.request.EventRequest;
+import com.sun.jdi.request.EventRequestManager;
+import com.sun.jdi.request.ExceptionRequest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class ExceptionHistogram counts the exceptions thrown in the debuggee,
+ * by exception type, throw location and catch location, without ever
+ * suspending the debuggee. This makes it possible to diagnose a storm
+ * of exceptions at full speed, where an exception breakpoint would stop
+ * on each one.
+ *
+ * <p>The types and locations are interned to small integers when first
+ * seen, and the three identifiers are packed into a single long key that
+ * is counted in a primitive table. Note that the type of each exception
+ * must still be retrieved from the debuggee, as the exception event does
+ * not carry it.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class ExceptionHistogram implements DispatcherListener, SessionListener {
+    /** Bits of the key holding the catch location. */
+    private static final int LOCATION_BITS = 22;
+    /** Position of the throw location within the key. */
+    private static final int THROWN_SHIFT = LOCATION_BITS;
+    /** Position of the exception type within the key. */
+    static final int TYPE_SHIFT = LOCATION_BITS * 2;
+    /** Largest number of distinct locations that can be counted. */
+    private static final int MAX_LOCATIONS = (1 << LOCATION_BITS) - 1;
+    /** Largest number of distinct types that can be counted. */
+    private static final int MAX_TYPES = (1 << (63 - TYPE_SHIFT)) - 1;
+    /** The session we are associated with. */
+    private Session session;
+    /** The exception request, if collecting. */
+    private volatile ExceptionRequest request;
+    /** Counts by packed type and locations. */
+    private final CounterTable counters;
+    /** The exception types seen so far. */
+    private final MirrorTable<ReferenceType> types;
+    /** The throw and catch locations seen so far. */
+    private final MirrorTable<Location> locations;
+    /** Exceptions not counted because they were already collected. */
+    private volatile long missedCount;
+    /** Nanoseconds of collection in previous runs. */
+    private long collectedTime;
+    /** Value of System.nanoTime() when the current run started. */
+    private long startTime;
+    /** Snapshot saved by mark(), if any. */
+    private volatile ExceptionSnapshot markedSnapshot;
+
+    /**
+     * Constructs a new ExceptionHistogram.
+     */
+    public ExceptionHistogram() {
+        counters = new CounterTable();
+        types = new MirrorTable<ReferenceType>();
+        locations = new MirrorTable<Location>();
+        // Identifier zero stands for an uncaught exception.
+        locations.add(null, null);
+    }
+
+    @Override
+    public void closing(SessionEvent sevt) {
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+    }
+
+    @Override
+    public void disconnected(SessionEvent sevt) {
+        stop();
+    }
+
+    @Override
+    public boolean eventOccurred(Event event) {
+        if (request == null || !(event instanceof ExceptionEvent)) {
+            return true;
+        }
+        ExceptionEvent ee = (ExceptionEvent) event;
+        ReferenceType type;
+        try {
+            type = ee.exception().referenceType();
+        } catch (ObjectCollectedException oce) {
+            missedCount++;
+            return true;
+        }
+        int tid = types.find(type);
+        if (tid < 0) {
+            if (types.size() >= MAX_TYPES) {
+                missedCount++;
+                return true;
+            }
+            tid = types.add(type, type.name());
+        }
+        int thrown = intern(ee.location());
+        Location catchLocation = ee.catchLocation();
+        int caught = catchLocation == null ? 0 : intern(catchLocation);
+        if (thrown < 0 || caught < 0) {
+            missedCount++;
+            return true;
+        }
+        counters.increment(((long) tid << TYPE_SHIFT)
+                | ((long) thrown << THROWN_SHIFT) | caught);
+        // Never suspend the debuggee for these events.
+        return true;
+    }
+
+    /**
+     * Returns the time spent collecting, over all runs since the last
+     * reset.
+     *
+     * @return  elapsed time in nanoseconds.
+     */
+    private synchronized long getElapsedTime() {
+        long elapsed = collectedTime;
+        if (request != null) {
+            elapsed += System.nanoTime() - startTime;
+        }
+        return elapsed;
+    }
+
+    /**
+     * Returns the snapshot saved by the last call to mark().
+     *
+     * @return  marked snapshot, or null if none.
+     */
+    public ExceptionSnapshot getMark() {
+        return markedSnapshot;
+    }
+
+    /**
+     * Returns the number of exceptions that could not be counted, either
+     * because the exception object was collected before its type could
+     * be retrieved, or because there were too many distinct locations.
+     *
+     * @return  number of missed exceptions.
+     */
+    public long getMissedCount() {
+        return missedCount;
+    }
+
+    /**
+     * Returns a copy of the counts collected so far.
+     *
+     * @return  snapshot of the counts.
+     */
+    public ExceptionSnapshot getSnapshot() {
+        long elapsed = getElapsedTime();
+        long[] pairs = counters.toArray();
+        List<ExceptionCount> list = new ArrayList<ExceptionCount>(pairs.length / 2);
+        for (int ii = 0; ii < pairs.length; ii += 2) {
+            long key = pairs[ii];
+            int tid = (int) (key >>> TYPE_SHIFT);
+            int thrown = (int) (key >>> THROWN_SHIFT) & MAX_LOCATIONS;
+            int caught = (int) key & MAX_LOCATIONS;
+            list.add(new ExceptionCount(key, types.getName(tid),
+                    locations.getName(thrown), locations.getName(caught),
+                    pairs[ii + 1]));
+        }
+        return new ExceptionSnapshot(list, elapsed);
+    }
+
+    /**
+     * Returns the identifier of the given location, interning it if
+     * necessary.
+     *
+     * @param  location  location to look up.
+     * @return  location identifier, or -1 if there are too many.
+     */
+    private int intern(Location location) {
+        int id = locations.find(location);
+        if (id < 0) {
+            if (locations.size() >= MAX_LOCATIONS) {
+                return -1;
+            }
+            id = locations.add(location, Names.getLocationName(location));
+        }
+        return id;
+    }
+
+    /**
+     * Indicates if exceptions are being counted.
+     *
+     * @return  true if collecting, false otherwise.
+     */
+    public boolean isCollecting() {
+        return request != null;
+    }
+
+    /**
+     * Saves a snapshot of the counts so far, against which later
+     * snapshots may be compared.
+     *
+     * @return  the saved snapshot.
+     */
+    public ExceptionSnapshot mark() {
+        ExceptionSnapshot snapshot = getSnapshot();
+        markedSnapshot = snapshot;
+        return snapshot;
+    }
+
+    @Override
+    public void opened(Session session) {
+        this.session = session;
+    }
+
+    /**
+     * Discards all of the counts collected so far, as well as the mark.
+     */
+    public synchronized void reset() {
+        counters.clear();
+        missedCount = 0;
+        collectedTime = 0;
+        startTime = System.nanoTime();
+        markedSnapshot = null;
+    }
+
+    @Override
+    public void resuming(SessionEvent sevt) {
+    }
+
+    /**
+     * Starts counting the exceptions thrown in the debuggee. The counts
+     * are added to those collected previously, unless reset() is called.
+     *
+     * @param  exclusions  class name patterns of the throwing locations
+     *                     to be ignored (may be empty).
+     * @throws  IllegalStateException
+     *          if not connected, or already collecting.
+     */
+    public synchronized void start(List<String> exclusions) {
+        if (request != null) {
+            throw new IllegalStateException("already collecting");
+        }
+        if (session == null || !session.isConnected()) {
+            throw new IllegalStateException("session not connected");
+        }
+        VirtualMachine vm = session.getConnection().getVM();
+        EventRequestManager erm = vm.eventRequestManager();
+        ExceptionRequest er = erm.createExceptionRequest(null, true, true);
+        for (String exclusion : exclusions) {
+            er.addClassExclusionFilter(exclusion);
+        }
+        er.setSuspendPolicy(EventRequest.SUSPEND_NONE);
+        startTime = System.nanoTime();
+        request = er;
+        DispatcherProvider.getDispatcher(session).register(this, er);
+        er.enable();
+    }
+
+    /**
+     * Stops counting exceptions. The counts collected so far remain
+     * available.
+     */
+    public synchronized void stop() {
+        ExceptionRequest er = request;
+        if (er == null) {
+            return;
+        }
+        request = null;
+        collectedTime += System.nanoTime() - startTime;
+        Dispatcher dispatcher = DispatcherProvider.getDispatcher(session);
+        dispatcher.unregister(er);
+        try {
+            er.virtualMachine().eventRequestManager().deleteEventRequest(er);
+        } catch (VMDisconnectedException vmde) {
+            // This happens all the time.
+        }
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
+    }
+}
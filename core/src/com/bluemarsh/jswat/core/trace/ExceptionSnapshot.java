@@ -0,0 +1,150 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class ExceptionSnapshot is an immutable copy of the counts collected by
+ * an ExceptionHistogram at one moment. Two snapshots can be compared to
+ * find the exceptions thrown in the time between them.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ExceptionSnapshot {
+    /** Orders the counts from largest to smallest. */
+    private static final Comparator<ExceptionCount> BY_COUNT =
+            new Comparator<ExceptionCount>() {
+        @Override
+        public int compare(ExceptionCount o1, ExceptionCount o2) {
+            long c1 = o1.getCount();
+            long c2 = o2.getCount();
+            return c1 < c2 ? 1 : (c1 == c2 ? 0 : -1);
+        }
+    };
+    /** Counts by type and location, largest first. */
+    private final List<ExceptionCount> counts;
+    /** Total number of exceptions. */
+    private final long total;
+    /** Nanoseconds of collection covered by the snapshot. */
+    private final long elapsed;
+
+    /**
+     * Constructs a new ExceptionSnapshot.
+     *
+     * @param  counts   counts by type and location, in any order.
+     * @param  elapsed  nanoseconds of collection covered by the snapshot.
+     */
+    ExceptionSnapshot(List<ExceptionCount> counts, long elapsed) {
+        List<ExceptionCount> list = new ArrayList<ExceptionCount>(counts);
+        Collections.sort(list, BY_COUNT);
+        this.counts = Collections.unmodifiableList(list);
+        long sum = 0;
+        for (ExceptionCount ec : list) {
+            sum += ec.getCount();
+        }
+        total = sum;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * Returns the exceptions thrown since the given, earlier, snapshot.
+     *
+     * @param  earlier  snapshot taken earlier from the same histogram.
+     * @return  snapshot of the differences.
+     */
+    public ExceptionSnapshot delta(ExceptionSnapshot earlier) {
+        Map<Long, ExceptionCount> before = new HashMap<Long, ExceptionCount>();
+        for (ExceptionCount ec : earlier.counts) {
+            before.put(Long.valueOf(ec.getKey()), ec);
+        }
+        List<ExceptionCount> list = new ArrayList<ExceptionCount>();
+        for (ExceptionCount ec : counts) {
+            ExceptionCount old = before.get(Long.valueOf(ec.getKey()));
+            long diff = old == null ? ec.getCount()
+                    : ec.getCount() - old.getCount();
+            if (diff > 0) {
+                list.add(ec.withCount(diff));
+            }
+        }
+        return new ExceptionSnapshot(list, elapsed - earlier.elapsed);
+    }
+
+    /**
+     * Returns the counts by exception type and location.
+     *
+     * @return  counts, largest first.
+     */
+    public List<ExceptionCount> getCounts() {
+        return counts;
+    }
+
+    /**
+     * Returns the time of collection covered by this snapshot.
+     *
+     * @return  elapsed time in nanoseconds.
+     */
+    public long getElapsedTime() {
+        return elapsed;
+    }
+
+    /**
+     * Returns the total number of exceptions.
+     *
+     * @return  exception count.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the counts summarized by exception type, without regard to
+     * where the exceptions were thrown or caught.
+     *
+     * @return  counts by type, largest first.
+     */
+    public List<ExceptionCount> getTypeCounts() {
+        Map<String, Long> sums = new LinkedHashMap<String, Long>();
+        Map<String, Long> keys = new HashMap<String, Long>();
+        for (ExceptionCount ec : counts) {
+            String type = ec.getType();
+            Long sum = sums.get(type);
+            sums.put(type, Long.valueOf(sum == null ? ec.getCount()
+                    : sum.longValue() + ec.getCount()));
+            if (!keys.containsKey(type)) {
+                keys.put(type, Long.valueOf(ec.getKey() >>> ExceptionHistogram.TYPE_SHIFT));
+            }
+        }
+        List<ExceptionCount> list = new ArrayList<ExceptionCount>(sums.size());
+        for (Map.Entry<String, Long> entry : sums.entrySet()) {
+            list.add(new ExceptionCount(keys.get(entry.getKey()).longValue(),
+                    entry.getKey(), null, null, entry.getValue().longValue()));
+        }
+        Collections.sort(list, BY_COUNT);
+        return list;
+    }
+}
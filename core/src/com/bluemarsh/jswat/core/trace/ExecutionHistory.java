@@ -0,0 +1,322 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import com.bluemarsh.jswat.core.context.ContextProvider;
+import com.bluemarsh.jswat.core.context.DebuggingContext;
+import com.bluemarsh.jswat.core.context.SuspensionSnapshot;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.sun.jdi.AbsentInformationException;
+import com.sun.jdi.Field;
+import com.sun.jdi.IncompatibleThreadStateException;
+import com.sun.jdi.InvalidStackFrameException;
+import com.sun.jdi.LocalVariable;
+import com.sun.jdi.Location;
+import com.sun.jdi.ObjectCollectedException;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.StackFrame;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.VMDisconnectedException;
+import com.sun.jdi.Value;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Class ExecutionHistory records the state of the debuggee each time it
+ * stops, whether after a single step or at a breakpoint, so that earlier
+ * states can be examined without running the program again. Each state
+ * holds the location of the current frame, the values of its visible
+ * local variables, and the fields of <code>this</code>, retrieved via the
+ * SuspensionSnapshot of the debugging context, which batches the requests
+ * (and may well have them prefetched already).
+ *
+ * <p>Recording is off until enabled, and the states are kept in a ring
+ * buffer, such that only the most recent states are retained.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class ExecutionHistory implements SessionListener {
+    /** Default number of states retained. */
+    public static final int DEFAULT_CAPACITY = 100;
+    /** The recorded states, in a ring buffer. */
+    private ExecutionState[] states;
+    /** Index at which the next state is stored. */
+    private int head;
+    /** Number of states in the buffer. */
+    private int size;
+    /** Sequence number of the most recent state. */
+    private long sequence;
+    /** True if states are being recorded. */
+    private volatile boolean enabled;
+    /** Names of the threads, cached to avoid asking again. */
+    private final Map<ThreadReference, String> threadNames;
+
+    /**
+     * Constructs a new ExecutionHistory with the default capacity.
+     */
+    public ExecutionHistory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new ExecutionHistory.
+     *
+     * @param  capacity  number of states retained.
+     */
+    public ExecutionHistory(int capacity) {
+        states = new ExecutionState[capacity];
+        threadNames = new HashMap<ThreadReference, String>();
+    }
+
+    /**
+     * Adds a state to the history, discarding the oldest if full.
+     *
+     * @param  thread    name of the thread.
+     * @param  location  where the thread stopped.
+     * @param  locals    local variable values.
+     * @param  fields    field values.
+     * @return  the new state.
+     */
+    synchronized ExecutionState add(String thread, String location,
+            Map<String, String> locals, Map<String, String> fields) {
+        sequence++;
+        ExecutionState state = new ExecutionState(sequence,
+                System.currentTimeMillis(), thread, location, locals, fields);
+        states[head] = state;
+        head = (head + 1) % states.length;
+        if (size < states.length) {
+            size++;
+        }
+        return state;
+    }
+
+    /**
+     * Captures the state of the current frame of the given session.
+     *
+     * @param  session  the suspended session.
+     */
+    private void capture(Session session) {
+        DebuggingContext dc = ContextProvider.getContext(session);
+        SuspensionSnapshot snapshot = dc.getSnapshot();
+        if (snapshot == null) {
+            return;
+        }
+        int frame = dc.getFrame();
+        try {
+            StackFrame sf = snapshot.getFrame(frame);
+            Location location = sf.location();
+            String where = location.declaringType().name() + '.'
+                    + location.method().name() + ':' + location.lineNumber();
+            Map<String, String> locals = new TreeMap<String, String>();
+            try {
+                Map<LocalVariable, Value> values = snapshot.getValues(frame);
+                for (Map.Entry<LocalVariable, Value> entry : values.entrySet()) {
+                    LocalVariable var = entry.getKey();
+                    locals.put(var.name(), format(var.typeName(),
+                            entry.getValue()));
+                }
+            } catch (AbsentInformationException aie) {
+                // Compiled without local variable information.
+            }
+            Map<String, String> fields = new TreeMap<String, String>();
+            Map<Field, Value> values = snapshot.getFieldValues(frame);
+            for (Map.Entry<Field, Value> entry : values.entrySet()) {
+                Field field = entry.getKey();
+                fields.put(field.name(), format(field.typeName(),
+                        entry.getValue()));
+            }
+            add(describe(snapshot.getThread()), where, locals, fields);
+        } catch (IncompatibleThreadStateException itse) {
+            // The thread is no longer suspended.
+        } catch (IndexOutOfBoundsException ioobe) {
+            // The thread has no frames.
+        } catch (InvalidStackFrameException isfe) {
+            // The thread has been resumed.
+        } catch (ObjectCollectedException oce) {
+            // The thread or object is gone.
+        } catch (VMDisconnectedException vmde) {
+            // Nothing to be recorded.
+        }
+    }
+
+    /**
+     * Discards all of the recorded states.
+     */
+    public synchronized void clear() {
+        for (int ii = 0; ii < states.length; ii++) {
+            states[ii] = null;
+        }
+        head = 0;
+        size = 0;
+    }
+
+    @Override
+    public void closing(SessionEvent sevt) {
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+    }
+
+    /**
+     * Returns the name of the given thread.
+     *
+     * @param  thread  thread to describe.
+     * @return  thread name.
+     */
+    private String describe(ThreadReference thread) {
+        String name = threadNames.get(thread);
+        if (name == null) {
+            name = thread.name();
+            threadNames.put(thread, name);
+        }
+        return name;
+    }
+
+    @Override
+    public void disconnected(SessionEvent sevt) {
+        threadNames.clear();
+    }
+
+    /**
+     * Formats the given value compactly, without querying the debuggee.
+     * Objects are shown as the declared type and unique identifier.
+     *
+     * @param  type   declared type of the variable or field.
+     * @param  value  the value, possibly null.
+     * @return  formatted value.
+     */
+    static String format(String type, Value value) {
+        if (value == null) {
+            return "null";
+        } else if (value instanceof ObjectReference) {
+            return type + '#' + ((ObjectReference) value).uniqueID();
+        } else {
+            return value.toString();
+        }
+    }
+
+    /**
+     * Returns the number of states that are retained.
+     *
+     * @return  capacity of the history.
+     */
+    public synchronized int getCapacity() {
+        return states.length;
+    }
+
+    /**
+     * Returns the number of states currently in the history.
+     *
+     * @return  number of states.
+     */
+    public synchronized int getCount() {
+        return size;
+    }
+
+    /**
+     * Returns the state that was recorded the given number of stops
+     * before the most recent one.
+     *
+     * @param  back  zero for the most recent state, one for the state
+     *               before that, and so on.
+     * @return  the state, or null if there is no such state.
+     */
+    public synchronized ExecutionState getState(int back) {
+        if (back < 0 || back >= size) {
+            return null;
+        }
+        int index = (head - 1 - back + states.length) % states.length;
+        return states[index];
+    }
+
+    /**
+     * Returns the recorded states, oldest first.
+     *
+     * @return  list of states.
+     */
+    public synchronized List<ExecutionState> getStates() {
+        List<ExecutionState> list = new ArrayList<ExecutionState>(size);
+        for (int ii = size - 1; ii >= 0; ii--) {
+            list.add(getState(ii));
+        }
+        return list;
+    }
+
+    /**
+     * Indicates if states are being recorded.
+     *
+     * @return  true if recording, false otherwise.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void opened(Session session) {
+    }
+
+    @Override
+    public void resuming(SessionEvent sevt) {
+    }
+
+    /**
+     * Changes the number of states retained, keeping the most recent.
+     *
+     * @param  capacity  number of states to retain.
+     */
+    public synchronized void setCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        List<ExecutionState> list = getStates();
+        int skip = Math.max(0, list.size() - capacity);
+        states = new ExecutionState[capacity];
+        head = 0;
+        size = 0;
+        for (ExecutionState state : list.subList(skip, list.size())) {
+            states[head] = state;
+            head = (head + 1) % capacity;
+            size++;
+        }
+    }
+
+    /**
+     * Enables or disables the recording of states.
+     *
+     * @param  enabled  true to record states, false to stop.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
+        if (enabled) {
+            capture(sevt.getSession());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Class ExecutionState is an immutable record of where the debuggee was
+ * stopped, and the values of the local variables and the fields of
+ * <code>this</code> at the time, as captured by an ExecutionHistory.
+ * Values are kept as strings: primitives as their value, and objects as
+ * the declared type and the unique object identifier.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ExecutionState {
+    /** Sequence number of the state, starting with one. */
+    private final long sequence;
+    /** Time at which the state was captured, in milliseconds. */
+    private final long time;
+    /** Name of the thread that was stopped. */
+    private final String thread;
+    /** Where the thread was stopped. */
+    private final String location;
+    /** Local variable values, keyed by name. */
+    private final Map<String, String> locals;
+    /** Field values of the this object, keyed by name. */
+    private final Map<String, String> fields;
+
+    /**
+     * Constructs a new ExecutionState.
+     *
+     * @param  sequence  sequence number.
+     * @param  time      time of capture.
+     * @param  thread    name of the thread.
+     * @param  location  where the thread was stopped.
+     * @param  locals    local variable values (not copied).
+     * @param  fields    field values (not copied).
+     */
+    public ExecutionState(long sequence, long time, String thread,
+            String location, Map<String, String> locals,
+            Map<String, String> fields) {
+        this.sequence = sequence;
+        this.time = time;
+        this.thread = thread;
+        this.location = location;
+        this.locals = Collections.unmodifiableMap(locals);
+        this.fields = Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * Returns the values of the fields of the this object, or of the
+     * static fields if the method was static.
+     *
+     * @return  unmodifiable map of field names to values.
+     */
+    public Map<String, String> getFields() {
+        return fields;
+    }
+
+    /**
+     * Returns the values of the visible local variables.
+     *
+     * @return  unmodifiable map of variable names to values.
+     */
+    public Map<String, String> getLocals() {
+        return locals;
+    }
+
+    /**
+     * Returns the location at which the thread was stopped.
+     *
+     * @return  location description.
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Returns the sequence number of this state.
+     *
+     * @return  sequence number.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the name of the thread that was stopped.
+     *
+     * @return  thread name.
+     */
+    public String getThread() {
+        return thread;
+    }
+
+    /**
+     * Returns the time at which this state was captured.
+     *
+     * @return  time in milliseconds.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    @Override
+    public String toString() {
+        return sequence + " " + thread + " " + location;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+/**
+ * Class FieldChange represents a single modification of a field, as
+ * recorded in a FieldHistory.
+ *
+ * @author  Nathan Fiedler
+ */
+public class FieldChange {
+    /** Position of the change in the history, starting with one. */
+    private final long sequence;
+    /** Time of the change, in milliseconds since the epoch. */
+    private final long time;
+    /** Name of the thread that changed the field. */
+    private final String thread;
+    /** Where the change was made. */
+    private final String location;
+    /** The new value of the field. */
+    private final String value;
+
+    /**
+     * Constructs a new FieldChange.
+     *
+     * @param  sequence  position of the change in the history.
+     * @param  time      time of the change.
+     * @param  thread    name of the thread.
+     * @param  location  where the change was made.
+     * @param  value     the new value.
+     */
+    public FieldChange(long sequence, long time, String thread,
+            String location, String value) {
+        this.sequence = sequence;
+        this.time = time;
+        this.thread = thread;
+        this.location = location;
+        this.value = value;
+    }
+
+    /**
+     * Returns the location at which the field was changed.
+     *
+     * @return  class, method and line number.
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Returns the position of this change in the history, the first
+     * change being number one.
+     *
+     * @return  sequence number.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the name of the thread that changed the field.
+     *
+     * @return  thread name.
+     */
+    public String getThread() {
+        return thread;
+    }
+
+    /**
+     * Returns the time at which the field was changed.
+     *
+     * @return  milliseconds since the epoch.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the description of the value given to the field.
+     *
+     * @return  new value.
+     */
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return sequence + "\t" + time + '\t' + thread + '\t' + location
+                + '\t' + value;
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class FieldHistory keeps the most recent modifications of a field in a
+ * ring buffer of fixed capacity. The changes are stored compactly, in
+ * parallel arrays, with the thread names and locations (which tend to
+ * repeat) stored only once and referred to by index.
+ *
+ * <p>Changes that are pushed out of the buffer are lost, unless a spill
+ * file has been set, in which case they are appended to that file, one
+ * per line, as tab-separated sequence number, time, thread, location and
+ * value.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class FieldHistory {
+    /** Logger for gracefully reporting unexpected errors. */
+    private static final Logger logger = Logger.getLogger(
+            FieldHistory.class.getName());
+    /** Name of the field, including the class and any instance. */
+    private final String name;
+    /** Times of the changes. */
+    private final long[] times;
+    /** Indices of the thread names in the string table. */
+    private final int[] threads;
+    /** Indices of the locations in the string table. */
+    private final int[] locations;
+    /** The new values. */
+    private final String[] values;
+    /** Thread names and locations, referred to by index. */
+    private final List<String> strings;
+    /** Indices of the entries in the string table. */
+    private final Map<String, Integer> stringIndex;
+    /** Total number of changes recorded. */
+    private long count;
+    /** Number of changes written to the spill file. */
+    private long spilled;
+    /** The spill file, or null if none. */
+    private File spillFile;
+    /** Writes to the spill file, if any. */
+    private Writer spillWriter;
+    /** True while changes are being recorded. */
+    private volatile boolean active;
+
+    /**
+     * Constructs a new FieldHistory.
+     *
+     * @param  name      name of the field.
+     * @param  capacity  number of changes to retain.
+     */
+    public FieldHistory(String name, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.name = name;
+        times = new long[capacity];
+        threads = new int[capacity];
+        locations = new int[capacity];
+        values = new String[capacity];
+        strings = new ArrayList<String>();
+        stringIndex = new HashMap<String, Integer>();
+        active = true;
+    }
+
+    /**
+     * Records a change to the field.
+     *
+     * @param  time      time of the change.
+     * @param  thread    name of the thread.
+     * @param  location  where the change was made.
+     * @param  value     the new value.
+     */
+    public synchronized void add(long time, String thread, String location,
+            String value) {
+        int slot = (int) (count % times.length);
+        if (count >= times.length && spillWriter != null) {
+            spill(count - times.length + 1, slot);
+        }
+        times[slot] = time;
+        threads[slot] = intern(thread);
+        locations[slot] = intern(location);
+        values[slot] = value;
+        count++;
+    }
+
+    /**
+     * Discards all of the changes recorded so far. The spill file, if
+     * any, is left as it is.
+     */
+    public synchronized void clear() {
+        count = 0;
+        spilled = 0;
+        strings.clear();
+        stringIndex.clear();
+        Arrays.fill(values, null);
+    }
+
+    /**
+     * Stops recording, closing the spill file, if any.
+     */
+    public synchronized void close() {
+        active = false;
+        closeSpill();
+    }
+
+    /**
+     * Closes the spill file, if open.
+     */
+    private void closeSpill() {
+        if (spillWriter != null) {
+            try {
+                spillWriter.close();
+            } catch (IOException ioe) {
+                logger.log(Level.WARNING, null, ioe);
+            }
+            spillWriter = null;
+        }
+    }
+
+    /**
+     * Returns the number of changes that the buffer retains.
+     *
+     * @return  capacity of the buffer.
+     */
+    public int getCapacity() {
+        return times.length;
+    }
+
+    /**
+     * Returns the most recent changes, oldest first.
+     *
+     * @param  max  maximum number of changes to return (zero for all).
+     * @return  list of changes.
+     */
+    public synchronized List<FieldChange> getChanges(int max) {
+        int size = (int) Math.min(count, times.length);
+        if (max > 0 && max < size) {
+            size = max;
+        }
+        List<FieldChange> list = new ArrayList<FieldChange>(size);
+        for (long seq = count - size; seq < count; seq++) {
+            list.add(toChange(seq + 1, (int) (seq % times.length)));
+        }
+        return list;
+    }
+
+    /**
+     * Returns the total number of changes recorded, including those that
+     * are no longer in the buffer.
+     *
+     * @return  change count.
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of changes that were pushed out of the buffer
+     * without being written to a spill file.
+     *
+     * @return  number of lost changes.
+     */
+    public synchronized long getDropped() {
+        return Math.max(count - times.length, 0) - spilled;
+    }
+
+    /**
+     * Returns the name of the field, including its declaring class, and
+     * the object to which recording is limited, if any.
+     *
+     * @return  field name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the file to which changes are spilled.
+     *
+     * @return  spill file, or null if none.
+     */
+    public synchronized File getSpillFile() {
+        return spillFile;
+    }
+
+    /**
+     * Adds the string to the string table, if not already present.
+     *
+     * @param  s  string to be added.
+     * @return  index of the string.
+     */
+    private int intern(String s) {
+        Integer index = stringIndex.get(s);
+        if (index == null) {
+            index = Integer.valueOf(strings.size());
+            strings.add(s);
+            stringIndex.put(s, index);
+        }
+        return index.intValue();
+    }
+
+    /**
+     * Indicates if changes are still being recorded.
+     *
+     * @return  true if recording, false if stopped.
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Sets the file to which the changes pushed out of the buffer are to
+     * be appended. Any previous spill file is closed.
+     *
+     * @param  file  spill file, or null to stop spilling.
+     * @throws  IOException
+     *          if the file could not be opened.
+     */
+    public synchronized void setSpillFile(File file) throws IOException {
+        closeSpill();
+        spillFile = file;
+        if (file != null) {
+            spillWriter = new BufferedWriter(new FileWriter(file, true));
+        }
+    }
+
+    /**
+     * Writes the change in the given slot to the spill file.
+     *
+     * @param  sequence  sequence number of the change.
+     * @param  slot      position of the change in the buffer.
+     */
+    private void spill(long sequence, int slot) {
+        try {
+            spillWriter.write(toChange(sequence, slot).toString());
+            spillWriter.write('\n');
+            spilled++;
+        } catch (IOException ioe) {
+            // Give up spilling rather than fail with every change.
+            logger.log(Level.WARNING, null, ioe);
+            closeSpill();
+        }
+    }
+
+    /**
+     * Creates the FieldChange for the given slot.
+     *
+     * @param  sequence  sequence number of the change.
+     * @param  slot      position of the change in the buffer.
+     * @return  field change.
+     */
+    private FieldChange toChange(long sequence, int slot) {
+        return new FieldChange(sequence, times[slot],
+                strings.get(threads[slot]), strings.get(locations[slot]),
+                values[slot]);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
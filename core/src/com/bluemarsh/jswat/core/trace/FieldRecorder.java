@@ -0,0 +1,288 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import com.bluemarsh.jswat.core.event.Dispatcher;
+import com.bluemarsh.jswat.core.event.DispatcherListener;
+import com.bluemarsh.jswat.core.event.DispatcherProvider;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.bluemarsh.jswat.core.util.Names;
+import com.bluemarsh.jswat.core.util.Strings;
+import com.sun.jdi.Field;
+import com.sun.jdi.Location;
+import com.sun.jdi.ObjectCollectedException;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.StringReference;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.VMDisconnectedException;
+import com.sun.jdi.Value;
+import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.event.Event;
+import com.sun.jdi.event.ModificationWatchpointEvent;
+import com.sun.jdi.request.EventRequest;
+import com.sun.jdi.request.ModificationWatchpointRequest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class FieldRecorder records the history of the values taken by a field,
+ * along with where and by which thread each change was made. It uses
+ * modification watchpoints with a suspend policy of none, so recording
+ * hardly slows the debuggee, and the changes are kept in a FieldHistory
+ * for each field. A field may be recorded for all instances of its class,
+ * or only for a single object, which is much cheaper for fields of a
+ * class with many instances.
+ *
+ * <p>The histories remain available after the session disconnects, until
+ * they are removed.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class FieldRecorder implements DispatcherListener, SessionListener {
+    /** Default number of changes retained for each field. */
+    public static final int DEFAULT_CAPACITY = 1000;
+    /** Maximum length of a recorded string value. */
+    private static final int MAX_STRING = 80;
+    /** The session we are associated with. */
+    private Session session;
+    /** The histories being recorded, keyed by their event request. */
+    private final Map<EventRequest, FieldHistory> active;
+    /** All of the histories, in the order they were created. */
+    private final List<FieldHistory> histories;
+    /** Names of the threads, cached to avoid asking again. */
+    private final Map<ThreadReference, String> threadNames;
+    /** Descriptions of the locations, cached to avoid asking again. */
+    private final Map<Location, String> sites;
+
+    /**
+     * Constructs a new FieldRecorder.
+     */
+    public FieldRecorder() {
+        active = new ConcurrentHashMap<EventRequest, FieldHistory>();
+        histories = new ArrayList<FieldHistory>();
+        threadNames = new HashMap<ThreadReference, String>();
+        sites = new HashMap<Location, String>();
+    }
+
+    @Override
+    public void closing(SessionEvent sevt) {
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+    }
+
+    /**
+     * Returns the description of the given location, caching it for
+     * the next modification made at the same place.
+     *
+     * @param  location  location to describe.
+     * @return  class name, method name and line number.
+     */
+    private String describe(Location location) {
+        String site = sites.get(location);
+        if (site == null) {
+            site = Names.getLocationName(location);
+            sites.put(location, site);
+        }
+        return site;
+    }
+
+    /**
+     * Returns the name of the given thread.
+     *
+     * @param  thread  thread to describe.
+     * @return  thread name.
+     */
+    private String describe(ThreadReference thread) {
+        String name = threadNames.get(thread);
+        if (name == null) {
+            try {
+                name = thread.name();
+            } catch (ObjectCollectedException oce) {
+                name = "#" + thread.uniqueID();
+            }
+            threadNames.put(thread, name);
+        }
+        return name;
+    }
+
+    /**
+     * Builds a brief description of the given value, without invoking
+     * any methods in the debuggee.
+     *
+     * @param  value  value to describe.
+     * @return  description of value.
+     */
+    private static String describe(Value value) {
+        if (value == null) {
+            return "null";
+        } else if (value instanceof StringReference) {
+            try {
+                String s = ((StringReference) value).value();
+                return '"' + Strings.cleanForPrinting(s, MAX_STRING) + '"';
+            } catch (ObjectCollectedException oce) {
+                return "\"?\"";
+            }
+        } else if (value instanceof ObjectReference) {
+            ObjectReference obj = (ObjectReference) value;
+            return obj.referenceType().name() + " #" + obj.uniqueID();
+        } else {
+            return value.toString();
+        }
+    }
+
+    @Override
+    public void disconnected(SessionEvent sevt) {
+        synchronized (this) {
+            for (FieldHistory history : active.values()) {
+                history.close();
+            }
+            active.clear();
+        }
+        threadNames.clear();
+        sites.clear();
+    }
+
+    @Override
+    public boolean eventOccurred(Event event) {
+        if (event instanceof ModificationWatchpointEvent) {
+            FieldHistory history = active.get(event.request());
+            if (history != null) {
+                ModificationWatchpointEvent mwe = (ModificationWatchpointEvent) event;
+                long time = System.currentTimeMillis();
+                history.add(time, describe(mwe.thread()),
+                        describe(mwe.location()), describe(mwe.valueToBe()));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns all of the field histories, including those no longer
+     * being recorded, in the order in which they were started.
+     *
+     * @return  list of histories.
+     */
+    public synchronized List<FieldHistory> getHistories() {
+        return new ArrayList<FieldHistory>(histories);
+    }
+
+    @Override
+    public void opened(Session session) {
+        this.session = session;
+    }
+
+    /**
+     * Starts recording the changes made to the given field.
+     *
+     * @param  field     the field to be recorded.
+     * @param  instance  object to which recording is limited, or null to
+     *                   record the field of all instances (or a static).
+     * @param  capacity  number of changes to retain.
+     * @return  the new field history.
+     * @throws  IllegalStateException
+     *          if not connected.
+     * @throws  UnsupportedOperationException
+     *          if the debuggee cannot watch field modification, or
+     *          cannot filter by instance when an instance is given.
+     */
+    public synchronized FieldHistory record(Field field,
+            ObjectReference instance, int capacity) {
+        if (session == null || !session.isConnected()) {
+            throw new IllegalStateException("session not connected");
+        }
+        VirtualMachine vm = session.getConnection().getVM();
+        if (!vm.canWatchFieldModification()) {
+            throw new UnsupportedOperationException(
+                    "field modification not supported");
+        }
+        if (instance != null && !vm.canUseInstanceFilters()) {
+            throw new UnsupportedOperationException(
+                    "instance filters not supported");
+        }
+        String name = field.declaringType().name() + '.' + field.name();
+        if (instance != null) {
+            name = name + " #" + instance.uniqueID();
+        }
+        FieldHistory history = new FieldHistory(name, capacity);
+        ModificationWatchpointRequest request = vm.eventRequestManager().
+                createModificationWatchpointRequest(field);
+        if (instance != null) {
+            request.addInstanceFilter(instance);
+        }
+        request.setSuspendPolicy(EventRequest.SUSPEND_NONE);
+        active.put(request, history);
+        histories.add(history);
+        DispatcherProvider.getDispatcher(session).register(this, request);
+        request.enable();
+        return history;
+    }
+
+    /**
+     * Stops recording the given history, if it is being recorded, and
+     * discards it.
+     *
+     * @param  history  field history to be removed.
+     */
+    public synchronized void remove(FieldHistory history) {
+        stop(history);
+        histories.remove(history);
+    }
+
+    @Override
+    public void resuming(SessionEvent sevt) {
+    }
+
+    /**
+     * Stops recording the given history. The changes recorded so far
+     * remain available.
+     *
+     * @param  history  field history to be stopped.
+     */
+    public synchronized void stop(FieldHistory history) {
+        Dispatcher dispatcher = DispatcherProvider.getDispatcher(session);
+        for (Map.Entry<EventRequest, FieldHistory> entry : active.entrySet()) {
+            if (entry.getValue() == history) {
+                EventRequest request = entry.getKey();
+                active.remove(request);
+                dispatcher.unregister(request);
+                try {
+                    request.virtualMachine().eventRequestManager().
+                            deleteEventRequest(request);
+                } catch (VMDisconnectedException vmde) {
+                    // This happens all the time.
+                }
+                break;
+            }
+        }
+        history.close();
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+/**
+ * Class MethodProfile summarizes the time spent in a single method across
+ * all of the threads of a call tree.
+ *
+ * @author  Nathan Fiedler
+ */
+public class MethodProfile {
+    /** Description of the method. */
+    private final String name;
+    /** Number of invocations. */
+    private final long count;
+    /** Time spent in the method, including its callees. */
+    private final long inclusiveTime;
+    /** Time spent in the method itself. */
+    private final long exclusiveTime;
+
+    /**
+     * Constructs a new MethodProfile.
+     *
+     * @param  name           description of the method.
+     * @param  count          number of invocations.
+     * @param  inclusiveTime  time including callees, in nanoseconds.
+     * @param  exclusiveTime  time excluding callees, in nanoseconds.
+     */
+    public MethodProfile(String name, long count, long inclusiveTime,
+            long exclusiveTime) {
+        this.name = name;
+        this.count = count;
+        this.inclusiveTime = inclusiveTime;
+        this.exclusiveTime = exclusiveTime;
+    }
+
+    /**
+     * Returns the number of invocations of the method.
+     *
+     * @return  invocation count.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the time spent in the method itself.
+     *
+     * @return  exclusive time in nanoseconds.
+     */
+    public long getExclusiveTime() {
+        return exclusiveTime;
+    }
+
+    /**
+     * Returns the time spent in the method, including its callees. Time
+     * spent in recursive invocations is counted only once.
+     *
+     * @return  inclusive time in nanoseconds.
+     */
+    public long getInclusiveTime() {
+        return inclusiveTime;
+    }
+
+    /**
+     * Returns the description of the method.
+     *
+     * @return  method name.
+     */
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class MirrorTable assigns small integer identifiers to JDI mirrors
+ * (e.g. methods and threads), remembering the description of each mirror
+ * so it need only be retrieved from the debuggee once. Identifiers are
+ * assigned sequentially starting from zero.
+ *
+ * @param  <T>  type of mirror.
+ * @author  Nathan Fiedler
+ */
+class MirrorTable<T> {
+    /** Identifiers, keyed by mirror. */
+    private final Map<T, Integer> identifiers;
+    /** Names of the mirrors, indexed by identifier. */
+    private final List<String> names;
+
+    /**
+     * Constructs a new, empty MirrorTable.
+     */
+    MirrorTable() {
+        identifiers = new HashMap<T, Integer>();
+        names = new ArrayList<String>();
+    }
+
+    /**
+     * Returns the identifier of the given mirror, if it has one.
+     *
+     * @param  mirror  mirror to look up.
+     * @return  identifier, or -1 if the mirror is not in the table.
+     */
+    synchronized int find(T mirror) {
+        Integer id = identifiers.get(mirror);
+        return id == null ? -1 : id.intValue();
+    }
+
+    /**
+     * Adds the mirror to the table, if it is not already present.
+     *
+     * @param  mirror  mirror to be added.
+     * @param  name    description of the mirror.
+     * @return  identifier of the mirror.
+     */
+    synchronized int add(T mirror, String name) {
+        Integer id = identifiers.get(mirror);
+        if (id == null) {
+            id = Integer.valueOf(names.size());
+            identifiers.put(mirror, id);
+            names.add(name);
+        }
+        return id.intValue();
+    }
+
+    /**
+     * Returns the name of the mirror with the given identifier.
+     *
+     * @param  id  mirror identifier.
+     * @return  mirror name.
+     */
+    synchronized String getName(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * Returns the number of mirrors in the table.
+     *
+     * @return  mirror count.
+     */
+    synchronized int size() {
+        return names.size();
+    }
+}
@@ -0,0 +1,434 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Class SampleTree aggregates sampled call stacks into a call tree for
+ * each thread. The nodes are held in parallel primitive arrays, and the
+ * children of each node are found through a single open-addressing table
+ * keyed by parent node and method, so adding a sample allocates nothing
+ * once the tree has seen the call path before.
+ *
+ * <p>Each node counts the samples in which its call path was on the stack
+ * (total) and those in which it was the top of the stack (self). Times
+ * are estimated by multiplying the sample counts by the sampling
+ * interval.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class SampleTree {
+    /** Method identifier of the node standing in for truncated frames. */
+    public static final int TRUNCATED = -2;
+    /** Name of the node standing in for truncated frames. */
+    private static final String TRUNCATED_NAME = "...";
+    /** Initial number of nodes (a power of two). */
+    private static final int INITIAL_NODES = 256;
+    /** Interval between samples, in nanoseconds. */
+    private final long interval;
+    /** Method names, indexed by identifier. */
+    private final List<String> methods;
+    /** Thread names, indexed by identifier. */
+    private final List<String> threads;
+    /** Root node of each thread, indexed by thread identifier. */
+    private int[] roots;
+    /** Method identifier of each node (-1 for roots). */
+    private int[] nodeMethods;
+    /** Parent of each node (-1 for roots). */
+    private int[] nodeParents;
+    /** Number of samples in which each node was on the stack. */
+    private long[] nodeTotals;
+    /** Number of samples in which each node was the top of the stack. */
+    private long[] nodeSelves;
+    /** Number of nodes in use. */
+    private int nodeCount;
+    /** Child table keys: parent node in the high word, method in the low. */
+    private long[] childKeys;
+    /** Child table values: the child node index. */
+    private int[] childNodes;
+    /** Number of entries in the child table. */
+    private int childCount;
+    /** Number of samples in which each method was on the stack. */
+    private long[] methodTotals;
+    /** Number of samples in which each method was the top of the stack. */
+    private long[] methodSelves;
+    /** Sample in which each method was last counted. */
+    private long[] methodStamps;
+    /** Number of samples added. */
+    private long sampleCount;
+
+    /**
+     * Constructs an empty SampleTree.
+     *
+     * @param  interval  interval between samples, in nanoseconds.
+     */
+    public SampleTree(long interval) {
+        this.interval = interval;
+        methods = new ArrayList<String>();
+        threads = new ArrayList<String>();
+        roots = new int[16];
+        nodeMethods = new int[INITIAL_NODES];
+        nodeParents = new int[INITIAL_NODES];
+        nodeTotals = new long[INITIAL_NODES];
+        nodeSelves = new long[INITIAL_NODES];
+        childKeys = new long[INITIAL_NODES * 2];
+        Arrays.fill(childKeys, -1L);
+        childNodes = new int[INITIAL_NODES * 2];
+        methodTotals = new long[64];
+        methodSelves = new long[64];
+        methodStamps = new long[64];
+    }
+
+    /**
+     * Adds a sampled call stack of the given thread.
+     *
+     * @param  thread     thread identifier.
+     * @param  stack      method identifiers, from the top of the stack.
+     * @param  depth      number of frames in the stack array.
+     * @param  truncated  true if the stack was deeper than sampled.
+     */
+    public synchronized void addSample(int thread, int[] stack, int depth,
+            boolean truncated) {
+        sampleCount++;
+        int node = roots[thread];
+        nodeTotals[node]++;
+        if (truncated) {
+            node = child(node, TRUNCATED);
+            nodeTotals[node]++;
+        }
+        for (int ii = depth - 1; ii >= 0; ii--) {
+            int method = stack[ii];
+            node = child(node, method);
+            nodeTotals[node]++;
+            if (methodStamps[method] != sampleCount) {
+                // Count recursive methods only once per sample.
+                methodStamps[method] = sampleCount;
+                methodTotals[method]++;
+            }
+        }
+        nodeSelves[node]++;
+        if (depth > 0) {
+            methodSelves[stack[0]]++;
+        }
+    }
+
+    /**
+     * Finds the child of the given node for the given method, creating
+     * it if necessary.
+     *
+     * @param  parent  parent node.
+     * @param  method  method identifier.
+     * @return  child node.
+     */
+    private int child(int parent, int method) {
+        long key = ((long) parent << 32) | (method & 0xFFFFFFFFL);
+        int mask = childKeys.length - 1;
+        int slot = hash(key) & mask;
+        while (childKeys[slot] != -1L) {
+            if (childKeys[slot] == key) {
+                return childNodes[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        int node = newNode(method, parent);
+        childKeys[slot] = key;
+        childNodes[slot] = node;
+        childCount++;
+        if (childCount * 2 > childKeys.length) {
+            growChildren();
+        }
+        return node;
+    }
+
+    /**
+     * Defines the name of a method. Methods must be defined in order of
+     * their identifiers, starting from zero.
+     *
+     * @param  id    method identifier.
+     * @param  name  method description.
+     */
+    public synchronized void defineMethod(int id, String name) {
+        methods.add(name);
+        if (id >= methodTotals.length) {
+            int size = methodTotals.length * 2;
+            methodTotals = copyOf(methodTotals, size);
+            methodSelves = copyOf(methodSelves, size);
+            methodStamps = copyOf(methodStamps, size);
+        }
+    }
+
+    /**
+     * Defines the name of a thread. Threads must be defined in order of
+     * their identifiers, starting from zero.
+     *
+     * @param  id    thread identifier.
+     * @param  name  thread name.
+     */
+    public synchronized void defineThread(int id, String name) {
+        threads.add(name);
+        if (id >= roots.length) {
+            int[] copy = new int[roots.length * 2];
+            System.arraycopy(roots, 0, copy, 0, roots.length);
+            roots = copy;
+        }
+        roots[id] = newNode(-1, -1);
+    }
+
+    /**
+     * Returns the methods that were most often at the top of the stack,
+     * across all threads, in order of decreasing self samples.
+     *
+     * @param  limit  maximum number of methods to return.
+     * @return  list of method profiles; the count is the number of
+     *          samples in which the method was on the stack.
+     */
+    public synchronized List<MethodProfile> getHotMethods(int limit) {
+        List<MethodProfile> list = new ArrayList<MethodProfile>();
+        int size = methods.size();
+        for (int ii = 0; ii < size; ii++) {
+            if (methodTotals[ii] > 0) {
+                list.add(new MethodProfile(methods.get(ii), methodTotals[ii],
+                        methodTotals[ii] * interval,
+                        methodSelves[ii] * interval));
+            }
+        }
+        Collections.sort(list, new Comparator<MethodProfile>() {
+            @Override
+            public int compare(MethodProfile o1, MethodProfile o2) {
+                long t1 = o1.getExclusiveTime();
+                long t2 = o2.getExclusiveTime();
+                return t1 < t2 ? 1 : (t1 == t2 ? 0 : -1);
+            }
+        });
+        if (list.size() > limit) {
+            list = new ArrayList<MethodProfile>(list.subList(0, limit));
+        }
+        return list;
+    }
+
+    /**
+     * Returns the interval between samples.
+     *
+     * @return  sampling interval in nanoseconds.
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Returns the number of distinct call paths in the tree.
+     *
+     * @return  node count, excluding the thread roots.
+     */
+    public synchronized int getPathCount() {
+        return nodeCount - threads.size();
+    }
+
+    /**
+     * Returns the number of samples added to the tree.
+     *
+     * @return  sample count.
+     */
+    public synchronized long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Returns the number of samples taken of the given thread.
+     *
+     * @param  thread  thread identifier.
+     * @return  sample count.
+     */
+    public synchronized long getSampleCount(int thread) {
+        return nodeTotals[roots[thread]];
+    }
+
+    /**
+     * Returns the number of threads in the tree.
+     *
+     * @return  thread count.
+     */
+    public synchronized int getThreadCount() {
+        return threads.size();
+    }
+
+    /**
+     * Returns the name of the given thread.
+     *
+     * @param  thread  thread identifier.
+     * @return  thread name.
+     */
+    public synchronized String getThreadName(int thread) {
+        return threads.get(thread);
+    }
+
+    /**
+     * Doubles the size of the child table.
+     */
+    private void growChildren() {
+        long[] oldKeys = childKeys;
+        int[] oldNodes = childNodes;
+        childKeys = new long[oldKeys.length * 2];
+        Arrays.fill(childKeys, -1L);
+        childNodes = new int[oldKeys.length * 2];
+        int mask = childKeys.length - 1;
+        for (int ii = 0; ii < oldKeys.length; ii++) {
+            if (oldKeys[ii] != -1L) {
+                int slot = hash(oldKeys[ii]) & mask;
+                while (childKeys[slot] != -1L) {
+                    slot = (slot + 1) & mask;
+                }
+                childKeys[slot] = oldKeys[ii];
+                childNodes[slot] = oldNodes[ii];
+            }
+        }
+    }
+
+    /**
+     * Mixes the bits of the child table key.
+     *
+     * @param  key  parent node and method identifier.
+     * @return  hash code.
+     */
+    private static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    /**
+     * Allocates a new node.
+     *
+     * @param  method  method identifier.
+     * @param  parent  parent node, or -1 for a root.
+     * @return  index of the new node.
+     */
+    private int newNode(int method, int parent) {
+        if (nodeCount == nodeMethods.length) {
+            int size = nodeCount * 2;
+            nodeMethods = copyOf(nodeMethods, size);
+            nodeParents = copyOf(nodeParents, size);
+            nodeTotals = copyOf(nodeTotals, size);
+            nodeSelves = copyOf(nodeSelves, size);
+        }
+        int node = nodeCount;
+        nodeCount++;
+        nodeMethods[node] = method;
+        nodeParents[node] = parent;
+        return node;
+    }
+
+    /**
+     * Returns a copy of the array with the given length.
+     *
+     * @param  array   array to copy.
+     * @param  length  length of the new array.
+     * @return  new array.
+     */
+    private static int[] copyOf(int[] array, int length) {
+        int[] copy = new int[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    /**
+     * Returns a copy of the array with the given length.
+     *
+     * @param  array   array to copy.
+     * @param  length  length of the new array.
+     * @return  new array.
+     */
+    private static long[] copyOf(long[] array, int length) {
+        long[] copy = new long[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    /**
+     * Writes the sampled stacks in the collapsed stacks format: one line
+     * for each call path that was at the top of the stack, consisting of
+     * the thread name and the methods from outermost to innermost,
+     * separated by semicolons, followed by a space and the number of
+     * samples.
+     *
+     * @param  writer  where the stacks are written.
+     * @throws  IOException
+     *          if an I/O error occurs.
+     */
+    public synchronized void writeCollapsed(Writer writer) throws IOException {
+        StringBuilder path = new StringBuilder();
+        int[] stack = new int[64];
+        for (int node = 0; node < nodeCount; node++) {
+            if (nodeSelves[node] == 0 || nodeParents[node] < 0) {
+                continue;
+            }
+            // Walk up to the root, then write the path downward.
+            int depth = 0;
+            int n = node;
+            while (nodeParents[n] >= 0) {
+                if (depth == stack.length) {
+                    stack = copyOf(stack, depth * 2);
+                }
+                stack[depth] = n;
+                depth++;
+                n = nodeParents[n];
+            }
+            path.setLength(0);
+            path.append(threads.get(rootThread(n)).replace(';', '_'));
+            for (int ii = depth - 1; ii >= 0; ii--) {
+                path.append(';');
+                int method = nodeMethods[stack[ii]];
+                if (method == TRUNCATED) {
+                    path.append(TRUNCATED_NAME);
+                } else {
+                    path.append(methods.get(method).replace(';', '_'));
+                }
+            }
+            path.append(' ');
+            path.append(nodeSelves[node]);
+            path.append('\n');
+            writer.write(path.toString());
+        }
+        writer.flush();
+    }
+
+    /**
+     * Finds the thread to which the given root node belongs.
+     *
+     * @param  root  root node.
+     * @return  thread identifier.
+     */
+    private int rootThread(int root) {
+        int size = threads.size();
+        for (int ii = 0; ii < size; ii++) {
+            if (roots[ii] == root) {
+                return ii;
+            }
+        }
+        throw new IllegalArgumentException("not a root: " + root);
+    }
+}
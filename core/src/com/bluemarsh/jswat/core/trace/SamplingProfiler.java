@@ -0,0 +1,471 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.bluemarsh.jswat.core.util.Threads;
+import com.sun.jdi.IncompatibleThreadStateException;
+import com.sun.jdi.Method;
+import com.sun.jdi.ObjectCollectedException;
+import com.sun.jdi.StackFrame;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.VMDisconnectedException;
+import com.sun.jdi.VirtualMachine;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class SamplingProfiler periodically suspends the running threads of the
+ * debuggee, captures the topmost frames of each, and resumes them again.
+ * The sampled stacks are aggregated into a SampleTree. Unlike recording
+ * method entry and exit events, the cost of sampling is independent of
+ * how often methods are called, and hence distorts hot code far less.
+ *
+ * <p>Threads are either suspended one at a time, for as long as it takes
+ * to capture the frames of that thread, or the entire debuggee is
+ * suspended while all of the threads are sampled (which yields a
+ * consistent view across threads, at the cost of longer pauses). Only
+ * threads that are running are sampled; sampling is skipped while the
+ * session is suspended. The time spent sampling, and the time the threads
+ * were held suspended, are measured so the overhead can be reported.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class SamplingProfiler implements SessionListener {
+    /** Logger for gracefully reporting unexpected errors. */
+    private static final Logger logger = Logger.getLogger(
+            SamplingProfiler.class.getName());
+    /** Milliseconds between refreshes of the list of threads. */
+    private static final long THREAD_REFRESH = 1000;
+    /** The session we are associated with. */
+    private Session session;
+    /** The sampling in progress, if any. */
+    private volatile Sampler sampler;
+    /** The sampler of the current or last profile. */
+    private volatile Sampler lastSampler;
+
+    @Override
+    public void closing(SessionEvent sevt) {
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+    }
+
+    @Override
+    public void disconnected(SessionEvent sevt) {
+        stop();
+    }
+
+    /**
+     * Returns the time elapsed during the current or last profile.
+     *
+     * @return  elapsed time in nanoseconds.
+     */
+    public long getElapsedTime() {
+        Sampler s = lastSampler;
+        if (s == null) {
+            return 0;
+        }
+        long end = s.endTime == 0 ? System.nanoTime() : s.endTime;
+        return end - s.startTime;
+    }
+
+    /**
+     * Returns the time spent taking samples, including suspending and
+     * resuming the threads, during the current or last profile.
+     *
+     * @return  sampling overhead in nanoseconds.
+     */
+    public long getOverheadTime() {
+        Sampler s = lastSampler;
+        return s == null ? 0 : s.overheadTime;
+    }
+
+    /**
+     * Returns the number of sampling passes, each of which samples every
+     * running thread once, made during the current or last profile.
+     *
+     * @return  number of passes.
+     */
+    public long getPassCount() {
+        Sampler s = lastSampler;
+        return s == null ? 0 : s.passCount;
+    }
+
+    /**
+     * Returns the sample tree of the current or last profile. While
+     * profiling, the tree continues to grow as samples are taken.
+     *
+     * @return  sample tree, or null if nothing has been profiled.
+     */
+    public SampleTree getSampleTree() {
+        Sampler s = lastSampler;
+        return s == null ? null : s.tree;
+    }
+
+    /**
+     * Returns the number of sampling passes skipped because the session
+     * was suspended, during the current or last profile.
+     *
+     * @return  number of skipped passes.
+     */
+    public long getSkippedCount() {
+        Sampler s = lastSampler;
+        return s == null ? 0 : s.skippedCount;
+    }
+
+    /**
+     * Returns the total time the threads were held suspended for sampling
+     * during the current or last profile. When suspending one thread at
+     * a time, this is the sum over all of the sampled threads.
+     *
+     * @return  suspended time in nanoseconds.
+     */
+    public long getSuspendTime() {
+        Sampler s = lastSampler;
+        return s == null ? 0 : s.suspendTime;
+    }
+
+    /**
+     * Indicates if profiling is in progress.
+     *
+     * @return  true if profiling, false otherwise.
+     */
+    public boolean isProfiling() {
+        return sampler != null;
+    }
+
+    @Override
+    public void opened(Session session) {
+        this.session = session;
+    }
+
+    @Override
+    public void resuming(SessionEvent sevt) {
+    }
+
+    /**
+     * Starts sampling the threads of the debuggee.
+     *
+     * @param  interval    milliseconds between samples.
+     * @param  depth       maximum number of frames to capture per sample.
+     * @param  thread      only sample this thread (may be null).
+     * @param  suspendAll  true to suspend the entire debuggee while
+     *                     sampling, false to suspend one thread at a time.
+     * @throws  IllegalArgumentException
+     *          if interval or depth are not positive.
+     * @throws  IllegalStateException
+     *          if not connected, or profiling is already in progress.
+     */
+    public synchronized void start(long interval, int depth,
+            ThreadReference thread, boolean suspendAll) {
+        if (interval <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("interval and depth must be positive");
+        }
+        if (sampler != null) {
+            throw new IllegalStateException("already profiling");
+        }
+        if (session == null || !session.isConnected()) {
+            throw new IllegalStateException("session not connected");
+        }
+        VirtualMachine vm = session.getConnection().getVM();
+        Sampler s = new Sampler(vm, interval, depth, thread, suspendAll);
+        sampler = s;
+        lastSampler = s;
+        s.thread.start();
+    }
+
+    /**
+     * Stops the profiling in progress, if any, waiting for the sampling
+     * thread to finish.
+     */
+    public void stop() {
+        Sampler s;
+        synchronized (this) {
+            s = sampler;
+            if (s == null) {
+                return;
+            }
+            sampler = null;
+        }
+        // Do not interrupt the thread while it is in JDI.
+        s.shutdown();
+        try {
+            s.thread.join();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Called by the sampling thread as it exits, whether it was stopped or
+     * the debuggee went away, so that profiling can be started again.
+     *
+     * @param  s  the sampler that has finished.
+     */
+    private synchronized void finished(Sampler s) {
+        if (sampler == s) {
+            sampler = null;
+        }
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
+    }
+
+    /**
+     * The state of a single profile, and the thread that takes the samples.
+     */
+    private class Sampler implements Runnable {
+        /** The debuggee. */
+        private final VirtualMachine vm;
+        /** Milliseconds between sampling passes. */
+        private final long interval;
+        /** Maximum number of frames to capture. */
+        private final int depth;
+        /** The one thread to be sampled, or null for all. */
+        private final ThreadReference target;
+        /** True to suspend the debuggee, false to suspend each thread. */
+        private final boolean suspendAll;
+        /** Aggregates the samples. */
+        private final SampleTree tree;
+        /** The methods seen so far. */
+        private final MirrorTable<Method> methods;
+        /** The threads seen so far. */
+        private final MirrorTable<ThreadReference> threads;
+        /** Takes the samples. */
+        private final Thread thread;
+        /** Value of System.nanoTime() when the profile started. */
+        private final long startTime;
+        /** Value of System.nanoTime() when the profile stopped. */
+        private volatile long endTime;
+        /** False once the profile has been stopped. */
+        private volatile boolean running;
+        /** Number of sampling passes. */
+        private volatile long passCount;
+        /** Number of passes skipped while the session was suspended. */
+        private volatile long skippedCount;
+        /** Nanoseconds spent sampling. */
+        private volatile long overheadTime;
+        /** Nanoseconds the threads were held suspended. */
+        private volatile long suspendTime;
+        /** Method identifiers of the current sample (sampler only). */
+        private final int[] stack;
+        /** Threads to be sampled (sampler only). */
+        private List<ThreadReference> candidates;
+        /** Time the candidates were last refreshed (sampler only). */
+        private long candidatesTime;
+
+        /**
+         * Constructs a new Sampler.
+         *
+         * @param  vm          the debuggee.
+         * @param  interval    milliseconds between samples.
+         * @param  depth       maximum number of frames to capture.
+         * @param  target      the one thread to sample, or null for all.
+         * @param  suspendAll  true to suspend the debuggee while sampling.
+         */
+        Sampler(VirtualMachine vm, long interval, int depth,
+                ThreadReference target, boolean suspendAll) {
+            this.vm = vm;
+            this.interval = interval;
+            this.depth = depth;
+            this.target = target;
+            this.suspendAll = suspendAll;
+            tree = new SampleTree(interval * 1000000L);
+            methods = new MirrorTable<Method>();
+            threads = new MirrorTable<ThreadReference>();
+            stack = new int[depth];
+            startTime = System.nanoTime();
+            running = true;
+            thread = new Thread(this, "SamplingProfiler");
+            thread.setDaemon(true);
+        }
+
+        /**
+         * Signals the sampling thread to exit, waking it if it is waiting
+         * for the next sampling pass.
+         */
+        synchronized void shutdown() {
+            running = false;
+            notifyAll();
+        }
+
+        /**
+         * Returns the threads to be sampled, refreshing the list of all
+         * threads from time to time.
+         *
+         * @return  threads to be sampled.
+         */
+        private List<ThreadReference> getCandidates() {
+            if (target != null) {
+                if (candidates == null) {
+                    candidates = new ArrayList<ThreadReference>(1);
+                    candidates.add(target);
+                }
+                return candidates;
+            }
+            long now = System.currentTimeMillis();
+            if (candidates == null || now - candidatesTime > THREAD_REFRESH) {
+                candidates = vm.allThreads();
+                candidatesTime = now;
+            }
+            return candidates;
+        }
+
+        /**
+         * Performs one sampling pass over the candidate threads.
+         */
+        private void pass() {
+            List<ThreadReference> list = getCandidates();
+            long begin = System.nanoTime();
+            if (suspendAll) {
+                vm.suspend();
+                try {
+                    for (ThreadReference tr : list) {
+                        sample(tr);
+                    }
+                } finally {
+                    vm.resume();
+                }
+                suspendTime += System.nanoTime() - begin;
+            } else {
+                for (ThreadReference tr : list) {
+                    try {
+                        // Only threads that are running are worth sampling,
+                        // and those suspended by the user must stay put.
+                        if (tr.status() != ThreadReference.THREAD_STATUS_RUNNING
+                                || tr.isSuspended()) {
+                            continue;
+                        }
+                        long held = System.nanoTime();
+                        tr.suspend();
+                        try {
+                            sample(tr);
+                        } finally {
+                            tr.resume();
+                        }
+                        suspendTime += System.nanoTime() - held;
+                    } catch (ObjectCollectedException oce) {
+                        // The thread has ended; skip it.
+                    }
+                }
+            }
+            overheadTime += System.nanoTime() - begin;
+            passCount++;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long next = System.currentTimeMillis();
+                while (running) {
+                    next += interval;
+                    long delay = next - System.currentTimeMillis();
+                    if (delay > 0) {
+                        try {
+                            synchronized (this) {
+                                if (running) {
+                                    wait(delay);
+                                }
+                            }
+                        } catch (InterruptedException ie) {
+                            break;
+                        }
+                    } else {
+                        // Fell behind; do not try to catch up.
+                        next = System.currentTimeMillis();
+                    }
+                    if (!running) {
+                        break;
+                    }
+                    if (session.isSuspended()) {
+                        skippedCount++;
+                        continue;
+                    }
+                    try {
+                        pass();
+                    } catch (VMDisconnectedException vmde) {
+                        break;
+                    } catch (Exception e) {
+                        logger.log(Level.WARNING, null, e);
+                        break;
+                    }
+                }
+            } finally {
+                endTime = System.nanoTime();
+                finished(this);
+            }
+        }
+
+        /**
+         * Captures the topmost frames of the given (suspended) thread
+         * and adds them to the tree.
+         *
+         * @param  tr  thread to sample.
+         */
+        private void sample(ThreadReference tr) {
+            try {
+                if (suspendAll && (tr.status() != ThreadReference.THREAD_STATUS_RUNNING
+                        || tr.suspendCount() > 1)) {
+                    // Not running, or suspended by the user as well.
+                    return;
+                }
+                int count = tr.frameCount();
+                if (count == 0) {
+                    return;
+                }
+                int n = Math.min(count, depth);
+                List<StackFrame> frames = tr.frames(0, n);
+                for (int ii = 0; ii < n; ii++) {
+                    Method method = frames.get(ii).location().method();
+                    int id = methods.find(method);
+                    if (id < 0) {
+                        id = methods.add(method, TraceRecorder.describe(method));
+                        tree.defineMethod(id, methods.getName(id));
+                    }
+                    stack[ii] = id;
+                }
+                int tid = threads.find(tr);
+                if (tid < 0) {
+                    String name;
+                    try {
+                        name = Threads.getIdentifier(tr);
+                    } catch (ObjectCollectedException oce) {
+                        name = String.valueOf(tr.uniqueID());
+                    }
+                    tid = threads.add(tr, name);
+                    tree.defineThread(tid, name);
+                }
+                tree.addSample(tid, stack, n, count > n);
+            } catch (IncompatibleThreadStateException itse) {
+                // The thread was resumed by someone else; skip it.
+            } catch (ObjectCollectedException oce) {
+                // The thread has ended; skip it.
+            }
+        }
+    }
+}
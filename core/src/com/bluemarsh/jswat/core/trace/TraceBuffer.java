@@ -0,0 +1,149 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class TraceBuffer is a fixed-size ring buffer of trace records, stored
+ * in parallel primitive arrays so that appending a record allocates
+ * nothing. The buffer is lock-free for exactly one producer thread (the
+ * JDI event dispatcher) and one consumer thread (the drainer). When the
+ * buffer is full, new records are dropped and counted, rather than
+ * holding up the producer.
+ *
+ * @author  Nathan Fiedler
+ */
+class TraceBuffer {
+    /** Record kinds. */
+    private final byte[] kinds;
+    /** Method identifiers. */
+    private final int[] methods;
+    /** Thread identifiers. */
+    private final int[] threads;
+    /** Timestamps. */
+    private final long[] times;
+    /** Used to wrap the sequence numbers around the arrays. */
+    private final int mask;
+    /** Sequence number of the next record to be written. */
+    private final AtomicLong head;
+    /** Sequence number of the next record to be read. */
+    private final AtomicLong tail;
+    /** Number of records dropped because the buffer was full. */
+    private final AtomicLong dropped;
+
+    /**
+     * Constructs a new TraceBuffer.
+     *
+     * @param  capacity  number of records; must be a power of two.
+     */
+    TraceBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be power of two");
+        }
+        kinds = new byte[capacity];
+        methods = new int[capacity];
+        threads = new int[capacity];
+        times = new long[capacity];
+        mask = capacity - 1;
+        head = new AtomicLong();
+        tail = new AtomicLong();
+        dropped = new AtomicLong();
+    }
+
+    /**
+     * Delivers the waiting records, up to the given sequence number, to
+     * the consumer, in the order they were added. Must only be called by
+     * the consumer thread.
+     *
+     * @param  consumer  receives the records.
+     * @param  limit     sequence number at which to stop, as returned
+     *                   from <code>getHead()</code>.
+     * @return  number of records delivered.
+     * @throws  IOException
+     *          if the consumer fails.
+     */
+    int drain(TraceConsumer consumer, long limit) throws IOException {
+        long t = tail.get();
+        for (long seq = t; seq < limit; seq++) {
+            int i = (int) seq & mask;
+            consumer.record(kinds[i], methods[i], threads[i], times[i]);
+        }
+        // Release the slots to the producer.
+        tail.lazySet(limit);
+        return (int) (limit - t);
+    }
+
+    /**
+     * Returns the number of records dropped because the buffer was full.
+     *
+     * @return  dropped record count.
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns the sequence number of the next record to be written. All
+     * records before this number are available to be drained.
+     *
+     * @return  head sequence number.
+     */
+    long getHead() {
+        return head.get();
+    }
+
+    /**
+     * Indicates if there are records waiting to be drained.
+     *
+     * @return  true if empty, false otherwise.
+     */
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    /**
+     * Appends a record to the buffer. Must only be called by the producer
+     * thread.
+     *
+     * @param  kind    record kind.
+     * @param  method  method identifier.
+     * @param  thread  thread identifier.
+     * @param  time    timestamp.
+     * @return  true if added, false if the buffer was full.
+     */
+    boolean offer(byte kind, int method, int thread, long time) {
+        long h = head.get();
+        if (h - tail.get() > mask) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        int i = (int) h & mask;
+        kinds[i] = kind;
+        methods[i] = method;
+        threads[i] = thread;
+        times[i] = time;
+        // Publish the record to the consumer.
+        head.lazySet(h + 1);
+        return true;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import java.io.IOException;
+
+/**
+ * A TraceConsumer receives the records of a method trace, either as they
+ * are drained from the recording buffer, or as they are read back from a
+ * trace file. Methods and threads are identified by small integers, each
+ * of which is defined exactly once, before the first record that refers
+ * to it.
+ *
+ * @author  Nathan Fiedler
+ */
+public interface TraceConsumer {
+    /** Record kind for a method entry. */
+    byte METHOD_ENTRY = 1;
+    /** Record kind for a method exit. */
+    byte METHOD_EXIT = 2;
+
+    /**
+     * Indicates that no more records will be delivered.
+     *
+     * @param  dropped  number of records that were lost because the
+     *                  recording buffer was full.
+     * @throws  IOException
+     *          if an I/O error occurs.
+     */
+    void close(long dropped) throws IOException;
+
+    /**
+     * Defines the name of a method identifier.
+     *
+     * @param  id    method identifier.
+     * @param  name  method description (class, name and argument types).
+     * @throws  IOException
+     *          if an I/O error occurs.
+     */
+    void defineMethod(int id, String name) throws IOException;
+
+    /**
+     * Defines the name of a thread identifier.
+     *
+     * @param  id    thread identifier.
+     * @param  name  thread name.
+     * @throws  IOException
+     *          if an I/O error occurs.
+     */
+    void defineThread(int id, String name) throws IOException;
+
+    /**
+     * Receives a single trace record.
+     *
+     * @param  kind    either METHOD_ENTRY or METHOD_EXIT.
+     * @param  method  method identifier.
+     * @param  thread  thread identifier.
+     * @param  time    nanoseconds since the recording started.
+     * @throws  IOException
+     *          if an I/O error occurs.
+     */
+    void record(byte kind, int method, int thread, long time)
+            throws IOException;
+}
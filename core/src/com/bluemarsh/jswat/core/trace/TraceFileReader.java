@@ -0,0 +1,129 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Class TraceFileReader reads a trace file written by TraceFileWriter,
+ * replaying its contents to a TraceConsumer.
+ *
+ * @author  Nathan Fiedler
+ */
+public class TraceFileReader {
+    /** The trace file. */
+    private final File traceFile;
+    /** Time the recording started, in milliseconds since the epoch. */
+    private long startTime;
+
+    /**
+     * Constructs a new TraceFileReader.
+     *
+     * @param  file  the trace file to be read.
+     */
+    public TraceFileReader(File file) {
+        traceFile = file;
+    }
+
+    /**
+     * Returns the time the recording started, which is only known after
+     * the file has been read.
+     *
+     * @return  start time in milliseconds since the epoch.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Reads the trace file, passing each entry to the consumer. If the
+     * file lacks the end marker (e.g. the recording was cut short), the
+     * consumer is closed with a dropped count of -1.
+     *
+     * @param  consumer  receives the contents of the file.
+     * @throws  IOException
+     *          if the file could not be read, or is not a trace file.
+     */
+    public void read(TraceConsumer consumer) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(traceFile), 65536));
+        try {
+            if (input.readInt() != TraceFileWriter.MAGIC) {
+                throw new IOException("not a trace file: " + traceFile);
+            }
+            short version = input.readShort();
+            if (version != TraceFileWriter.VERSION) {
+                throw new IOException("unsupported trace file version: "
+                        + version);
+            }
+            startTime = input.readLong();
+            readEntries(input, consumer);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Reads the tagged entries that follow the header.
+     *
+     * @param  input     the input stream.
+     * @param  consumer  receives the contents of the file.
+     * @throws  IOException
+     *          if the file could not be read.
+     */
+    private void readEntries(DataInputStream input, TraceConsumer consumer)
+            throws IOException {
+        try {
+            while (true) {
+                byte tag = input.readByte();
+                switch (tag) {
+                    case TraceFileWriter.TAG_RECORD:
+                        byte kind = input.readByte();
+                        int method = input.readInt();
+                        int thread = input.readInt();
+                        consumer.record(kind, method, thread, input.readLong());
+                        break;
+                    case TraceFileWriter.TAG_METHOD:
+                        int mid = input.readInt();
+                        consumer.defineMethod(mid, input.readUTF());
+                        break;
+                    case TraceFileWriter.TAG_THREAD:
+                        int tid = input.readInt();
+                        consumer.defineThread(tid, input.readUTF());
+                        break;
+                    case TraceFileWriter.TAG_END:
+                        consumer.close(input.readLong());
+                        return;
+                    default:
+                        throw new IOException("corrupt trace file: " + traceFile);
+                }
+            }
+        } catch (EOFException eofe) {
+            // The file was not finished, but what is there is usable.
+            consumer.close(-1);
+        }
+    }
+}
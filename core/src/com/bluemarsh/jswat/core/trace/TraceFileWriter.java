@@ -0,0 +1,103 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Class TraceFileWriter writes trace records to a binary trace file. The
+ * file starts with a header, consisting of the magic number, the format
+ * version, and the time the recording started. That is followed by a
+ * sequence of tagged entries: method and thread definitions, method entry
+ * and exit records, and finally an end marker with the number of records
+ * that were dropped. Use TraceFileReader to read the file.
+ *
+ * @author  Nathan Fiedler
+ */
+public class TraceFileWriter implements TraceConsumer {
+    /** Magic number at the start of every trace file ("JSWT"). */
+    static final int MAGIC = 0x4A535754;
+    /** Version of the trace file format. */
+    static final short VERSION = 1;
+    /** Tag of a method definition. */
+    static final byte TAG_METHOD = 1;
+    /** Tag of a thread definition. */
+    static final byte TAG_THREAD = 2;
+    /** Tag of a trace record (followed by the record kind). */
+    static final byte TAG_RECORD = 3;
+    /** Tag of the end marker. */
+    static final byte TAG_END = 4;
+    /** The output stream. */
+    private final DataOutputStream output;
+
+    /**
+     * Creates the trace file and writes the header.
+     *
+     * @param  file  the file to be written.
+     * @throws  IOException
+     *          if the file could not be created.
+     */
+    public TraceFileWriter(File file) throws IOException {
+        output = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), 65536));
+        output.writeInt(MAGIC);
+        output.writeShort(VERSION);
+        output.writeLong(System.currentTimeMillis());
+    }
+
+    @Override
+    public void close(long dropped) throws IOException {
+        try {
+            output.writeByte(TAG_END);
+            output.writeLong(dropped);
+        } finally {
+            output.close();
+        }
+    }
+
+    @Override
+    public void defineMethod(int id, String name) throws IOException {
+        output.writeByte(TAG_METHOD);
+        output.writeInt(id);
+        output.writeUTF(name);
+    }
+
+    @Override
+    public void defineThread(int id, String name) throws IOException {
+        output.writeByte(TAG_THREAD);
+        output.writeInt(id);
+        output.writeUTF(name);
+    }
+
+    @Override
+    public void record(byte kind, int method, int thread, long time)
+            throws IOException {
+        output.writeByte(TAG_RECORD);
+        output.writeByte(kind);
+        output.writeInt(method);
+        output.writeInt(thread);
+        output.writeLong(time);
+    }
+}
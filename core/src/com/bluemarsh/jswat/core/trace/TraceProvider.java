@@ -0,0 +1,199 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import com.bluemarsh.jswat.core.session.Session;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class TraceProvider manages the TraceRecorder, SamplingProfiler,
+ * ExceptionHistogram, ContentionProfiler, FieldRecorder, CoverageRecorder
+ * and ExecutionHistory instances, one of each for each unique Session
+ * passed to the corresponding <code>get</code> method.
+ *
+ * @author  Nathan Fiedler
+ */
+public class TraceProvider {
+    /** Map of TraceRecorder instances, keyed by Session instance. */
+    private static final Map<Session, TraceRecorder> instanceMap;
+    /** Map of SamplingProfiler instances, keyed by Session instance. */
+    private static final Map<Session, SamplingProfiler> profilerMap;
+    /** Map of ExceptionHistogram instances, keyed by Session instance. */
+    private static final Map<Session, ExceptionHistogram> exceptionMap;
+    /** Map of ContentionProfiler instances, keyed by Session instance. */
+    private static final Map<Session, ContentionProfiler> contentionMap;
+    /** Map of FieldRecorder instances, keyed by Session instance. */
+    private static final Map<Session, FieldRecorder> fieldMap;
+    /** Map of CoverageRecorder instances, keyed by Session instance. */
+    private static final Map<Session, CoverageRecorder> coverageMap;
+    /** Map of ExecutionHistory instances, keyed by Session instance. */
+    private static final Map<Session, ExecutionHistory> historyMap;
+
+    static {
+        instanceMap = new HashMap<Session, TraceRecorder>();
+        profilerMap = new HashMap<Session, SamplingProfiler>();
+        exceptionMap = new HashMap<Session, ExceptionHistogram>();
+        contentionMap = new HashMap<Session, ContentionProfiler>();
+        fieldMap = new HashMap<Session, FieldRecorder>();
+        coverageMap = new HashMap<Session, CoverageRecorder>();
+        historyMap = new HashMap<Session, ExecutionHistory>();
+    }
+
+    /**
+     * Creates a new instance of TraceProvider.
+     */
+    private TraceProvider() {
+    }
+
+    /**
+     * Retrieve the ContentionProfiler instance for the given Session,
+     * creating one if necessary.
+     *
+     * @param  session  Session for which to get ContentionProfiler.
+     * @return  contention profiler instance.
+     */
+    public static ContentionProfiler getContentionProfiler(Session session) {
+        synchronized (contentionMap) {
+            ContentionProfiler inst = contentionMap.get(session);
+            if (inst == null) {
+                inst = new ContentionProfiler();
+                contentionMap.put(session, inst);
+                session.addSessionListener(inst);
+            }
+            return inst;
+        }
+    }
+
+    /**
+     * Retrieve the CoverageRecorder instance for the given Session,
+     * creating one if necessary.
+     *
+     * @param  session  Session for which to get CoverageRecorder.
+     * @return  coverage recorder instance.
+     */
+    public static CoverageRecorder getCoverageRecorder(Session session) {
+        synchronized (coverageMap) {
+            CoverageRecorder inst = coverageMap.get(session);
+            if (inst == null) {
+                inst = new CoverageRecorder();
+                coverageMap.put(session, inst);
+                session.addSessionListener(inst);
+            }
+            return inst;
+        }
+    }
+
+    /**
+     * Retrieve the ExceptionHistogram instance for the given Session,
+     * creating one if necessary.
+     *
+     * @param  session  Session for which to get ExceptionHistogram.
+     * @return  exception histogram instance.
+     */
+    public static ExceptionHistogram getExceptionHistogram(Session session) {
+        synchronized (exceptionMap) {
+            ExceptionHistogram inst = exceptionMap.get(session);
+            if (inst == null) {
+                inst = new ExceptionHistogram();
+                exceptionMap.put(session, inst);
+                session.addSessionListener(inst);
+            }
+            return inst;
+        }
+    }
+
+    /**
+     * Retrieve the ExecutionHistory instance for the given Session,
+     * creating one if necessary.
+     *
+     * @param  session  Session for which to get ExecutionHistory.
+     * @return  execution history instance.
+     */
+    public static ExecutionHistory getExecutionHistory(Session session) {
+        synchronized (historyMap) {
+            ExecutionHistory inst = historyMap.get(session);
+            if (inst == null) {
+                inst = new ExecutionHistory();
+                historyMap.put(session, inst);
+                session.addSessionListener(inst);
+            }
+            return inst;
+        }
+    }
+
+    /**
+     * Retrieve the FieldRecorder instance for the given Session, creating
+     * one if necessary.
+     *
+     * @param  session  Session for which to get FieldRecorder.
+     * @return  field recorder instance.
+     */
+    public static FieldRecorder getFieldRecorder(Session session) {
+        synchronized (fieldMap) {
+            FieldRecorder inst = fieldMap.get(session);
+            if (inst == null) {
+                inst = new FieldRecorder();
+                fieldMap.put(session, inst);
+                session.addSessionListener(inst);
+            }
+            return inst;
+        }
+    }
+
+    /**
+     * Retrieve the SamplingProfiler instance for the given Session,
+     * creating one if necessary.
+     *
+     * @param  session  Session for which to get SamplingProfiler.
+     * @return  sampling profiler instance.
+     */
+    public static SamplingProfiler getSamplingProfiler(Session session) {
+        synchronized (profilerMap) {
+            SamplingProfiler inst = profilerMap.get(session);
+            if (inst == null) {
+                inst = new SamplingProfiler();
+                profilerMap.put(session, inst);
+                session.addSessionListener(inst);
+            }
+            return inst;
+        }
+    }
+
+    /**
+     * Retrieve the TraceRecorder instance for the given Session, creating
+     * one if necessary.
+     *
+     * @param  session  Session for which to get TraceRecorder.
+     * @return  trace recorder instance.
+     */
+    public static TraceRecorder getTraceRecorder(Session session) {
+        synchronized (instanceMap) {
+            TraceRecorder inst = instanceMap.get(session);
+            if (inst == null) {
+                inst = new TraceRecorder();
+                instanceMap.put(session, inst);
+                session.addSessionListener(inst);
+            }
+            return inst;
+        }
+    }
+}
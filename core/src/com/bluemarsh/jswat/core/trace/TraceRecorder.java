@@ -0,0 +1,439 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import com.bluemarsh.jswat.core.event.Dispatcher;
+import com.bluemarsh.jswat.core.event.DispatcherListener;
+import com.bluemarsh.jswat.core.event.DispatcherProvider;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionEvent;
+import com.bluemarsh.jswat.core.session.SessionListener;
+import com.bluemarsh.jswat.core.util.Strings;
+import com.bluemarsh.jswat.core.util.Threads;
+import com.sun.jdi.Method;
+import com.sun.jdi.ObjectCollectedException;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.VMDisconnectedException;
+import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.event.Event;
+import com.sun.jdi.event.LocatableEvent;
+import com.sun.jdi.event.MethodEntryEvent;
+import com.sun.jdi.event.MethodExitEvent;
+import com.sun.jdi.request.EventRequest;
+import com.sun.jdi.request.EventRequestManager;
+import com.sun.jdi.request.MethodEntryRequest;
+import com.sun.jdi.request.MethodExitRequest;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class TraceRecorder records method entry and exit events at high volume.
+ * Unlike a trace breakpoint, which describes and prints every event as it
+ * arrives, the recorder merely notes the method, thread and time of each
+ * event in a ring buffer. The method and thread names are retrieved only
+ * once for each method and thread. The buffer is drained on a separate
+ * thread to a TraceConsumer, typically a TraceFileWriter, and to a
+ * CallTree that profiles the recorded methods.
+ *
+ * <p>Timestamps are taken when the event is received by the debugger,
+ * as JDI events do not carry the time at which they occurred.</p>
+ *
+ * @author  Nathan Fiedler
+ */
+public class TraceRecorder implements DispatcherListener, SessionListener {
+    /** Logger for gracefully reporting unexpected errors. */
+    private static final Logger logger = Logger.getLogger(
+            TraceRecorder.class.getName());
+    /** Number of records the buffer can hold (a power of two). */
+    private static final int BUFFER_CAPACITY = 1 << 16;
+    /** Milliseconds the drainer waits when the buffer is empty. */
+    private static final long DRAIN_INTERVAL = 20;
+    /** The session we are associated with. */
+    private Session session;
+    /** The recording in progress, if any. */
+    private volatile Recording recording;
+    /** Number of records written by the last recording. */
+    private long recordCount;
+    /** Number of records dropped by the last recording. */
+    private long droppedCount;
+    /** Call tree of the current or last recording. */
+    private volatile CallTree callTree;
+
+    @Override
+    public void closing(SessionEvent sevt) {
+    }
+
+    @Override
+    public void connected(SessionEvent sevt) {
+    }
+
+    /**
+     * Builds the description of the given method.
+     *
+     * @param  method  method to describe.
+     * @return  class name, method name and argument types.
+     */
+    static String describe(Method method) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(method.declaringType().name());
+        sb.append('.');
+        sb.append(method.name());
+        sb.append('(');
+        sb.append(Strings.listToString(method.argumentTypeNames()));
+        sb.append(')');
+        return sb.toString();
+    }
+
+    @Override
+    public void disconnected(SessionEvent sevt) {
+        try {
+            stop();
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, null, ioe);
+        }
+    }
+
+    @Override
+    public boolean eventOccurred(Event event) {
+        Recording r = recording;
+        if (r == null || r.failure != null) {
+            return true;
+        }
+        byte kind;
+        if (event instanceof MethodEntryEvent) {
+            kind = TraceConsumer.METHOD_ENTRY;
+        } else if (event instanceof MethodExitEvent) {
+            kind = TraceConsumer.METHOD_EXIT;
+        } else {
+            return true;
+        }
+        long time = System.nanoTime() - r.startTime;
+        LocatableEvent le = (LocatableEvent) event;
+        Method method = le.location().method();
+        int mid = r.methods.find(method);
+        if (mid < 0) {
+            mid = r.methods.add(method, describe(method));
+        }
+        ThreadReference thread = le.thread();
+        int tid = r.threads.find(thread);
+        if (tid < 0) {
+            String name;
+            try {
+                name = Threads.getIdentifier(thread);
+            } catch (ObjectCollectedException oce) {
+                name = String.valueOf(thread.uniqueID());
+            }
+            tid = r.threads.add(thread, name);
+        }
+        r.buffer.offer(kind, mid, tid, time);
+        // Never suspend the debuggee for these events.
+        return true;
+    }
+
+    /**
+     * Returns the call tree built from the current or last recording.
+     * While recording, the tree continues to grow as records arrive.
+     *
+     * @return  call tree, or null if nothing has been recorded.
+     */
+    public CallTree getCallTree() {
+        return callTree;
+    }
+
+    /**
+     * Returns the number of records dropped by the last recording, because
+     * the buffer was full.
+     *
+     * @return  dropped record count.
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Returns the number of records written by the last recording.
+     *
+     * @return  record count.
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Indicates if a recording is in progress.
+     *
+     * @return  true if recording, false otherwise.
+     */
+    public boolean isRecording() {
+        return recording != null;
+    }
+
+    @Override
+    public void opened(Session session) {
+        this.session = session;
+    }
+
+    @Override
+    public void resuming(SessionEvent sevt) {
+    }
+
+    /**
+     * Starts recording the method entry and exit events.
+     *
+     * @param  classFilter  class name pattern to restrict the methods
+     *                      (may be null to record every class).
+     * @param  thread       only record events in this thread (may be null).
+     * @param  consumer     receives the recorded events, in addition to
+     *                      the call tree (may be null).
+     * @throws  IllegalStateException
+     *          if not connected, or a recording is already in progress.
+     */
+    public synchronized void start(String classFilter, ThreadReference thread,
+            TraceConsumer consumer) {
+        if (recording != null) {
+            throw new IllegalStateException("already recording");
+        }
+        if (session == null || !session.isConnected()) {
+            throw new IllegalStateException("session not connected");
+        }
+        VirtualMachine vm = session.getConnection().getVM();
+        EventRequestManager erm = vm.eventRequestManager();
+        MethodEntryRequest entryRequest = erm.createMethodEntryRequest();
+        MethodExitRequest exitRequest = erm.createMethodExitRequest();
+        if (classFilter != null) {
+            entryRequest.addClassFilter(classFilter);
+            exitRequest.addClassFilter(classFilter);
+        }
+        if (thread != null) {
+            entryRequest.addThreadFilter(thread);
+            exitRequest.addThreadFilter(thread);
+        }
+        CallTree tree = new CallTree();
+        TraceConsumer target = consumer == null ? tree : new Tee(consumer, tree);
+        Recording r = new Recording(target, entryRequest, exitRequest);
+        callTree = tree;
+        recording = r;
+        r.drainer.start();
+        Dispatcher dispatcher = DispatcherProvider.getDispatcher(session);
+        for (EventRequest request : new EventRequest[] {
+                entryRequest, exitRequest }) {
+            request.setSuspendPolicy(EventRequest.SUSPEND_NONE);
+            dispatcher.register(this, request);
+            request.enable();
+        }
+    }
+
+    /**
+     * Stops the recording in progress, if any, waiting for the buffer to
+     * be drained and the consumer to be closed.
+     *
+     * @throws  IOException
+     *          if the consumer failed to write the recording.
+     */
+    public synchronized void stop() throws IOException {
+        Recording r = recording;
+        if (r == null) {
+            return;
+        }
+        recording = null;
+        Dispatcher dispatcher = DispatcherProvider.getDispatcher(session);
+        for (EventRequest request : new EventRequest[] {
+                r.entryRequest, r.exitRequest }) {
+            dispatcher.unregister(request);
+            try {
+                request.virtualMachine().eventRequestManager().
+                        deleteEventRequest(request);
+            } catch (VMDisconnectedException vmde) {
+                // This happens all the time.
+            }
+        }
+        r.running = false;
+        try {
+            r.drainer.join();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        recordCount = r.recorded;
+        droppedCount = r.buffer.getDropped();
+        if (r.failure != null) {
+            throw r.failure;
+        }
+    }
+
+    @Override
+    public void suspended(SessionEvent sevt) {
+    }
+
+    /**
+     * Passes the records on to two consumers.
+     */
+    private static class Tee implements TraceConsumer {
+        /** The first consumer. */
+        private final TraceConsumer first;
+        /** The second consumer. */
+        private final TraceConsumer second;
+
+        /**
+         * Constructs a new Tee.
+         *
+         * @param  first   the first consumer.
+         * @param  second  the second consumer.
+         */
+        Tee(TraceConsumer first, TraceConsumer second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void close(long dropped) throws IOException {
+            try {
+                first.close(dropped);
+            } finally {
+                second.close(dropped);
+            }
+        }
+
+        @Override
+        public void defineMethod(int id, String name) throws IOException {
+            first.defineMethod(id, name);
+            second.defineMethod(id, name);
+        }
+
+        @Override
+        public void defineThread(int id, String name) throws IOException {
+            first.defineThread(id, name);
+            second.defineThread(id, name);
+        }
+
+        @Override
+        public void record(byte kind, int method, int thread, long time)
+                throws IOException {
+            first.record(kind, method, thread, time);
+            second.record(kind, method, thread, time);
+        }
+    }
+
+    /**
+     * The state of a single recording.
+     */
+    private static class Recording implements Runnable {
+        /** Holds the records until they are drained. */
+        private final TraceBuffer buffer;
+        /** The methods seen so far. */
+        private final MirrorTable<Method> methods;
+        /** The threads seen so far. */
+        private final MirrorTable<ThreadReference> threads;
+        /** Receives the drained records. */
+        private final TraceConsumer consumer;
+        /** The method entry request. */
+        private final EventRequest entryRequest;
+        /** The method exit request. */
+        private final EventRequest exitRequest;
+        /** Drains the buffer to the consumer. */
+        private final Thread drainer;
+        /** Value of System.nanoTime() when the recording started. */
+        private final long startTime;
+        /** False once the recording has been stopped. */
+        private volatile boolean running;
+        /** The error raised by the consumer, if any. */
+        private volatile IOException failure;
+        /** Number of methods defined to the consumer (drainer only). */
+        private int methodsDefined;
+        /** Number of threads defined to the consumer (drainer only). */
+        private int threadsDefined;
+        /** Number of records delivered to the consumer. */
+        private volatile long recorded;
+
+        /**
+         * Constructs a new Recording.
+         *
+         * @param  consumer      receives the drained records.
+         * @param  entryRequest  the method entry request.
+         * @param  exitRequest   the method exit request.
+         */
+        Recording(TraceConsumer consumer, EventRequest entryRequest,
+                EventRequest exitRequest) {
+            this.consumer = consumer;
+            this.entryRequest = entryRequest;
+            this.exitRequest = exitRequest;
+            buffer = new TraceBuffer(BUFFER_CAPACITY);
+            methods = new MirrorTable<Method>();
+            threads = new MirrorTable<ThreadReference>();
+            startTime = System.nanoTime();
+            running = true;
+            drainer = new Thread(this, "TraceRecorder");
+            drainer.setDaemon(true);
+        }
+
+        /**
+         * Defines to the consumer the methods and threads that have been
+         * added to the tables since the last time.
+         *
+         * @throws  IOException
+         *          if the consumer fails.
+         */
+        private void defineMirrors() throws IOException {
+            int size = methods.size();
+            while (methodsDefined < size) {
+                consumer.defineMethod(methodsDefined,
+                        methods.getName(methodsDefined));
+                methodsDefined++;
+            }
+            size = threads.size();
+            while (threadsDefined < size) {
+                consumer.defineThread(threadsDefined,
+                        threads.getName(threadsDefined));
+                threadsDefined++;
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                boolean last = false;
+                while (!last) {
+                    // Take one more pass after the recording has stopped.
+                    last = !running;
+                    // Every record before the head refers to mirrors that
+                    // are already in the tables, so define those first.
+                    long head = buffer.getHead();
+                    defineMirrors();
+                    int count = buffer.drain(consumer, head);
+                    recorded += count;
+                    if (count == 0 && !last) {
+                        Thread.sleep(DRAIN_INTERVAL);
+                    }
+                }
+                consumer.close(buffer.getDropped());
+            } catch (IOException ioe) {
+                failure = ioe;
+                try {
+                    consumer.close(buffer.getDropped());
+                } catch (IOException ioe2) {
+                    // Already have a failure to report.
+                }
+            } catch (InterruptedException ie) {
+                // Not expected, nothing to do but quit.
+            }
+        }
+    }
+}
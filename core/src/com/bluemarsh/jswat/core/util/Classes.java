@@ -26,6 +26,7 @@ import com.bluemarsh.jswat.core.CoreSettings;
 import com.bluemarsh.jswat.core.breakpoint.BreakpointGroup;
 import com.bluemarsh.jswat.core.breakpoint.BreakpointManager;
 import com.bluemarsh.jswat.core.breakpoint.BreakpointProvider;
+import com.bluemarsh.jswat.core.context.ContextProvider;
 import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.session.SessionProvider;
 import com.sun.jdi.ClassNotLoadedException;
@@ -50,6 +51,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class Classes provides a set of utility functions for dealing with
@@ -58,6 +60,12 @@ import java.util.concurrent.TimeoutException;
  * @author  Nathan Fiedler
  */
 public class Classes {
+    /** Number of method invocations currently in progress. */
+    private static final AtomicInteger pendingInvocations =
+            new AtomicInteger();
+    /** Time taken by the method invocations. */
+    private static final LatencyStatistics invocationTime =
+            new LatencyStatistics();
 
     /**
      * Creates a new instance of Classes.
@@ -273,6 +281,25 @@ public class Classes {
         return superclass == null ? 0 : 1 + getClassDepth(superclass);
     }
 
+    /**
+     * Returns the time taken by the methods invoked via invokeMethod().
+     *
+     * @return  method invocation statistics.
+     */
+    public static LatencyStatistics getInvocationStatistics() {
+        return invocationTime;
+    }
+
+    /**
+     * Returns the number of methods invoked via invokeMethod() that have
+     * yet to return.
+     *
+     * @return  count of pending invocations.
+     */
+    public static int getPendingInvocations() {
+        return pendingInvocations.get();
+    }
+
     /**
      * Perform the hotswap operation on the given class. If anything
      * goes wrong, it will be reported as an exception.
@@ -361,6 +388,7 @@ public class Classes {
         Invoker invoker = new Invoker(object, clazz, thread, method, arguments);
         CoreSettings cs = CoreSettings.getDefault();
         int timeout = cs.getInvocationTimeout();
+        long start = System.nanoTime();
         Future<Value> future = Threads.getThreadPool().submit(invoker);
         Value v = null;
         // Disable all of the breakpoints to avoid hitting them while
@@ -370,6 +398,7 @@ public class Classes {
         BreakpointGroup bg = bm.getDefaultGroup();
         boolean enabled = bg.isEnabled();
         bg.setEnabled(false);
+        pendingInvocations.incrementAndGet();
         try {
             v = future.get(timeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException ie) {
@@ -380,6 +409,11 @@ public class Classes {
             // Re-enable all of the breakpoints, regardless if an
             // exception has occurred or not.
             bg.setEnabled(enabled);
+            // The thread was resumed to invoke the method, which
+            // invalidates any stack frames retrieved earlier.
+            ContextProvider.invalidateSnapshots(thread.virtualMachine());
+            pendingInvocations.decrementAndGet();
+            invocationTime.record(System.nanoTime() - start);
         }
         return v;
     }
@@ -0,0 +1,117 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class LatencyStatistics accumulates the number, total, and maximum
+ * duration of some repeated operation, such as the handling of an event
+ * or the invocation of a method in the debuggee. It is safe for use by
+ * multiple threads without external synchronization.
+ *
+ * @author  Nathan Fiedler
+ */
+public class LatencyStatistics {
+    /** Nanoseconds in a millisecond. */
+    private static final double NANOS_PER_MILLI = 1000000.0;
+    /** Number of operations recorded. */
+    private final AtomicLong count;
+    /** Total duration of the operations, in nanoseconds. */
+    private final AtomicLong total;
+    /** Longest duration of any one operation, in nanoseconds. */
+    private final AtomicLong maximum;
+
+    /**
+     * Constructs a new LatencyStatistics with all counts at zero.
+     */
+    public LatencyStatistics() {
+        count = new AtomicLong();
+        total = new AtomicLong();
+        maximum = new AtomicLong();
+    }
+
+    /**
+     * Returns the average duration of the operations.
+     *
+     * @return  average in milliseconds; zero if nothing was recorded.
+     */
+    public double getAverageMillis() {
+        long n = count.get();
+        return n == 0 ? 0.0 : total.get() / NANOS_PER_MILLI / n;
+    }
+
+    /**
+     * Returns the number of operations recorded.
+     *
+     * @return  operation count.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the longest duration of any one operation.
+     *
+     * @return  maximum in milliseconds.
+     */
+    public double getMaximumMillis() {
+        return maximum.get() / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Returns the total duration of the operations.
+     *
+     * @return  total in milliseconds.
+     */
+    public double getTotalMillis() {
+        return total.get() / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Records an operation that took the given time.
+     *
+     * @param  nanos  duration of the operation, in nanoseconds.
+     */
+    public void record(long nanos) {
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        long max = maximum.get();
+        while (nanos > max && !maximum.compareAndSet(max, nanos)) {
+            max = maximum.get();
+        }
+    }
+
+    /**
+     * Resets all of the counts to zero.
+     */
+    public void reset() {
+        count.set(0);
+        total.set(0);
+        maximum.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count.get() + ", average=" + getAverageMillis()
+                + "ms, max=" + getMaximumMillis() + "ms";
+    }
+}
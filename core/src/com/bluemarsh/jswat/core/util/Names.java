@@ -23,6 +23,8 @@
 package com.bluemarsh.jswat.core.util;
 
 import com.bluemarsh.jswat.core.CoreSettings;
+import com.sun.jdi.Location;
+import com.sun.jdi.Method;
 import java.io.File;
 import java.util.StringTokenizer;
 
@@ -88,6 +90,28 @@ public class Names {
         return filename;
     }
 
+    /**
+     * Builds a short description of the given location, consisting of the
+     * class name, the method name, and the line number if it is known,
+     * such as <code>com.pkg.Class.method:42</code>.
+     *
+     * @param  location  location to describe.
+     * @return  class name, method name and line number.
+     */
+    public static String getLocationName(Location location) {
+        Method method = location.method();
+        StringBuilder sb = new StringBuilder();
+        sb.append(method.declaringType().name());
+        sb.append('.');
+        sb.append(method.name());
+        int line = location.lineNumber();
+        if (line > 0) {
+            sb.append(':');
+            sb.append(line);
+        }
+        return sb.toString();
+    }
+
     /**
      * Returns just the package name of the class.
      *
@@ -0,0 +1,154 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class JdiStubs creates stub implementations of the JDI interfaces, for
+ * unit tests that exercise code against mirrors without a debuggee. Each
+ * method of a stub is answered by name from a map of values.
+ *
+ * @author Nathan Fiedler
+ */
+public class JdiStubs {
+
+    private JdiStubs() {
+    }
+
+    /**
+     * Builds a map of method results from alternating method names and
+     * values.
+     *
+     * @param  keysAndValues  method name followed by its result, repeated.
+     * @return  modifiable map of method results.
+     */
+    public static Map<String, Object> answers(Object... keysAndValues) {
+        Map<String, Object> answers = new HashMap<String, Object>();
+        for (int ii = 0; ii < keysAndValues.length; ii += 2) {
+            answers.put((String) keysAndValues[ii], keysAndValues[ii + 1]);
+        }
+        return answers;
+    }
+
+    /**
+     * Creates a stub implementation of a JDI interface, answering each
+     * method by name from the given map. Invoking a method that has no
+     * answer throws UnsupportedOperationException. Stubs are equal only
+     * to themselves, and their string form is the answer for "name".
+     *
+     * @param  <T>      interface type.
+     * @param  type     interface to implement.
+     * @param  answers  method results, keyed by method name.
+     * @return  stub instance.
+     */
+    public static <T> T stub(Class<T> type, Map<String, Object> answers) {
+        return proxy(type, answers, null);
+    }
+
+    /**
+     * Creates a stub as with {@link #stub(Class, Map)}, answering from
+     * alternating method names and values.
+     *
+     * @param  <T>            interface type.
+     * @param  type           interface to implement.
+     * @param  keysAndValues  method name followed by its result, repeated.
+     * @return  stub instance.
+     */
+    public static <T> T stub(Class<T> type, Object... keysAndValues) {
+        return proxy(type, answers(keysAndValues), null);
+    }
+
+    /**
+     * Creates a stub that adds the name of each method invoked on it to
+     * the given list. Methods without an answer return null.
+     *
+     * @param  <T>      interface type.
+     * @param  type     interface to implement.
+     * @param  answers  method results, keyed by method name.
+     * @param  calls    receives the names of the invoked methods.
+     * @return  stub instance.
+     */
+    public static <T> T recorder(Class<T> type, Map<String, Object> answers,
+            List<String> calls) {
+        return proxy(type, answers, calls);
+    }
+
+    /**
+     * Creates the proxy for the stub and recorder methods.
+     *
+     * @param  <T>      interface type.
+     * @param  type     interface to implement.
+     * @param  answers  method results, keyed by method name.
+     * @param  calls    receives the invoked method names, or null to
+     *                  reject methods without an answer.
+     * @return  stub instance.
+     */
+    private static <T> T proxy(Class<T> type, final Map<String, Object> answers,
+            final List<String> calls) {
+        Object o = Proxy.newProxyInstance(type.getClassLoader(),
+                new Class<?>[] { type }, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("equals")) {
+                    return proxy == args[0];
+                } else if (name.equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                } else if (name.equals("toString")) {
+                    return String.valueOf(answers.get("name"));
+                }
+                if (calls != null) {
+                    calls.add(name);
+                } else if (!answers.containsKey(name)) {
+                    throw new UnsupportedOperationException(name);
+                }
+                Object answer = answers.get(name);
+                if (answer instanceof Answer) {
+                    answer = ((Answer) answer).answer(args);
+                }
+                return answer;
+            }
+        });
+        return type.cast(o);
+    }
+
+    /**
+     * An Answer computes the result of a stubbed method from the
+     * arguments of each invocation, for methods whose result depends on
+     * earlier calls, such as the request properties.
+     */
+    public interface Answer {
+
+        /**
+         * Computes the result of the stubbed method.
+         *
+         * @param  args  method arguments, or null if there are none.
+         * @return  method result.
+         */
+        Object answer(Object[] args);
+    }
+}
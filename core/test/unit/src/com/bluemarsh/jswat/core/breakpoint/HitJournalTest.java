@@ -0,0 +1,192 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.breakpoint;
+
+import com.sun.jdi.Location;
+import com.sun.jdi.Method;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.ThreadReference;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import org.junit.Test;
+import static com.bluemarsh.jswat.core.JdiStubs.stub;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the HitJournal class.
+ *
+ * @author  Nathan Fiedler
+ */
+public class HitJournalTest {
+
+    /**
+     * Creates an empty temporary directory.
+     *
+     * @return  new directory.
+     * @throws  IOException  if the directory could not be created.
+     */
+    private static File createDirectory() throws IOException {
+        File dir = File.createTempFile("journal", "");
+        dir.delete();
+        dir.mkdir();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    /**
+     * Returns the given string quoted as a JSON string.
+     *
+     * @param  s  string to quote.
+     * @return  quoted string.
+     */
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder();
+        HitJournal.quote(sb, s);
+        return sb.toString();
+    }
+
+    @Test
+    public void test_HitJournal_quote() {
+        assertEquals("null", quote(null));
+        assertEquals("\"\"", quote(""));
+        assertEquals("\"a b\"", quote("a b"));
+        assertEquals("\"say \\\"hi\\\"\"", quote("say \"hi\""));
+        assertEquals("\"C:\\\\tmp\"", quote("C:\\tmp"));
+        assertEquals("\"1\\n2\\t3\\r\"", quote("1\n2\t3\r"));
+        assertEquals("\"\\u0001\\u001f\"", quote("\u0001\u001f"));
+        assertEquals("\"\u00e9\"", quote("\u00e9"));
+    }
+
+    @Test
+    public void test_HitJournal_tail() throws IOException {
+        File dir = createDirectory();
+        File file = new File(dir, "hits.jsonl");
+        file.deleteOnExit();
+        JournalWriter writer = new JournalWriter(file, Long.MAX_VALUE, 1);
+        for (int ii = 1; ii <= 20; ii++) {
+            writer.write("{\"line\":" + ii + ",\"thread\":\""
+                    + (ii % 2 == 0 ? "even" : "odd") + "\"}");
+        }
+        writer.flush();
+        assertEquals(20, writer.getWritten());
+        assertEquals(0, writer.getDropped());
+
+        List<String> lines = HitJournal.tail(file, 3, null);
+        assertEquals(3, lines.size());
+        assertEquals("{\"line\":18,\"thread\":\"even\"}", lines.get(0));
+        assertEquals("{\"line\":20,\"thread\":\"even\"}", lines.get(2));
+        lines = HitJournal.tail(file, 2, "odd");
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"line\":17,"));
+        assertTrue(lines.get(1).startsWith("{\"line\":19,"));
+        assertTrue(HitJournal.tail(file, 5, "none").isEmpty());
+
+        // Closing writes out everything, and later lines are dropped.
+        writer.write("{\"line\":21}");
+        writer.close();
+        writer.write("{\"line\":22}");
+        assertEquals(1, writer.getDropped());
+        lines = HitJournal.tail(file, 1, null);
+        assertEquals("{\"line\":21}", lines.get(0));
+        file.delete();
+        dir.delete();
+    }
+
+    @Test
+    public void test_HitJournal_rotate() throws IOException {
+        File dir = createDirectory();
+        File file = new File(dir, "hits.jsonl");
+        File file1 = new File(dir, "hits.jsonl.1");
+        File file2 = new File(dir, "hits.jsonl.2");
+        File file3 = new File(dir, "hits.jsonl.3");
+        file.deleteOnExit();
+        file1.deleteOnExit();
+        file2.deleteOnExit();
+        file3.deleteOnExit();
+        // Each line is 10 bytes, so every file holds two lines.
+        JournalWriter writer = new JournalWriter(file, 20, 3);
+        for (int ii = 0; ii < 7; ii++) {
+            writer.write("line " + ii + "...");
+        }
+        writer.close();
+        assertEquals(7, writer.getWritten());
+        assertFalse(file3.exists());
+        List<String> lines = HitJournal.tail(file2, 5, null);
+        assertEquals(2, lines.size());
+        assertEquals("line 2...", lines.get(0));
+        lines = HitJournal.tail(file1, 5, null);
+        assertEquals(2, lines.size());
+        assertEquals("line 4...", lines.get(0));
+        lines = HitJournal.tail(file, 5, null);
+        assertEquals(1, lines.size());
+        assertEquals("line 6...", lines.get(0));
+        file.delete();
+        file1.delete();
+        file2.delete();
+        dir.delete();
+    }
+
+    @Test
+    public void test_HitJournal_record() throws IOException {
+        File dir = createDirectory();
+        File file = new File(dir, "hits.jsonl");
+        file.deleteOnExit();
+        ReferenceType type = stub(ReferenceType.class, "name", "com.pkg.Main");
+        Method method = stub(Method.class, "name", "run");
+        Location location = stub(Location.class, "declaringType", type,
+                "method", method, "lineNumber", 42,
+                "sourceName", "Main.java");
+        ThreadReference thread = stub(ThreadReference.class, "name", "main");
+        com.sun.jdi.event.BreakpointEvent event = stub(
+                com.sun.jdi.event.BreakpointEvent.class,
+                "thread", thread, "location", location);
+        Breakpoint bp = stub(Breakpoint.class,
+                "getProperty", 3, "getDescription", "Line \"42\"",
+                "getHitCount", 2);
+        BreakpointEvent be = new BreakpointEvent(bp,
+                BreakpointEventType.STOPPED, event);
+        be.addMonitorResult("count", "7");
+        be.addMonitorResult("name", "a\tb");
+
+        HitJournal journal = new HitJournal();
+        journal.start(file);
+        journal.record(be);
+        journal.flush();
+        assertEquals(1, journal.getWritten());
+        journal.stop();
+        List<String> lines = HitJournal.tail(file, 5, null);
+        assertEquals(1, lines.size());
+        String line = lines.get(0);
+        assertTrue(line.startsWith("{\"time\":"));
+        assertTrue(line.endsWith(",\"breakpoint\":3"
+                + ",\"description\":\"Line \\\"42\\\"\""
+                + ",\"thread\":\"main\""
+                + ",\"class\":\"com.pkg.Main\""
+                + ",\"method\":\"run\""
+                + ",\"line\":42"
+                + ",\"source\":\"Main.java\""
+                + ",\"hitCount\":2"
+                + ",\"monitors\":{\"count\":\"7\",\"name\":\"a\\tb\"}}"));
+        file.delete();
+        dir.delete();
+    }
+}
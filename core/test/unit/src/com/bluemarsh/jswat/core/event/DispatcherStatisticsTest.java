@@ -0,0 +1,100 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.event;
+
+import com.bluemarsh.jswat.core.util.LatencyStatistics;
+import com.sun.jdi.event.Event;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the DispatcherStatistics class.
+ *
+ * @author  Nathan Fiedler
+ */
+public class DispatcherStatisticsTest {
+
+    /**
+     * Creates a listener that does nothing.
+     *
+     * @return  new listener.
+     */
+    private static DispatcherListener createListener() {
+        return new DispatcherListener() {
+            @Override
+            public boolean eventOccurred(Event event) {
+                return true;
+            }
+        };
+    }
+
+    @Test
+    public void test_DispatcherStatistics_events() {
+        DispatcherStatistics stats = new DispatcherStatistics();
+        DispatcherListener fast = createListener();
+        DispatcherListener slow = createListener();
+        stats.eventDispatched("BreakpointEvent", fast, 1000000);
+        stats.eventDispatched("BreakpointEvent", slow, 5000000);
+        stats.eventDispatched("StepEvent", slow, 3000000);
+        stats.eventDispatched("VMDeathEvent", null, 0);
+        stats.eventSetProcessed(10000000);
+        stats.eventSetProcessed(2000000);
+        stats.resumed(500000);
+
+        assertEquals(2, stats.getEventSets());
+        assertEquals(4, stats.getEvents());
+        Map<String, Long> counts = stats.getEventCounts();
+        assertEquals(3, counts.size());
+        assertEquals(Long.valueOf(2), counts.get("BreakpointEvent"));
+        assertEquals(Long.valueOf(1), counts.get("StepEvent"));
+        assertEquals(Long.valueOf(1), counts.get("VMDeathEvent"));
+
+        // Events without a listener are not timed.
+        LatencyStatistics all = stats.getListenerTime();
+        assertEquals(3, all.getCount());
+        assertEquals(3.0, all.getAverageMillis(), 0.0001);
+        assertEquals(5.0, all.getMaximumMillis(), 0.0001);
+        assertEquals(9.0, all.getTotalMillis(), 0.0001);
+        Map<DispatcherListener, LatencyStatistics> times =
+                stats.getListenerTimes();
+        assertEquals(2, times.size());
+        assertEquals(1, times.get(fast).getCount());
+        assertEquals(2, times.get(slow).getCount());
+        assertEquals(4.0, times.get(slow).getAverageMillis(), 0.0001);
+        assertEquals(1, stats.getResumeTime().getCount());
+        assertEquals(0.5, stats.getResumeTime().getAverageMillis(), 0.0001);
+
+        double util = stats.getUtilization();
+        assertTrue(util > 0.0 && util <= 1.0);
+        assertTrue(stats.perSecond(stats.getEvents()) > 0.0);
+
+        stats.reset();
+        assertEquals(0, stats.getEventSets());
+        assertEquals(0, stats.getEvents());
+        assertTrue(stats.getEventCounts().isEmpty());
+        assertTrue(stats.getListenerTimes().isEmpty());
+        assertEquals(0, stats.getListenerTime().getCount());
+        assertEquals(0.0, stats.getListenerTime().getAverageMillis(), 0.0);
+        assertEquals(0, stats.getResumeTime().getCount());
+        assertEquals(0.0, stats.getUtilization(), 0.0);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.heap;
+
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the HeapSnapshot class.
+ *
+ * @author  Nathan Fiedler
+ */
+public class HeapSnapshotTest {
+
+    @Test
+    public void test_HeapSnapshot_counts() {
+        ClassTable table = new ClassTable();
+        table.add("A");
+        table.add("B");
+        table.add("C");
+        HeapSnapshot snap = new HeapSnapshot(table, new long[] { 5, 0, 9 }, 0, null);
+        assertEquals(14, snap.getTotal());
+        List<ClassCount> counts = snap.getCounts(null);
+        // Classes without instances are left out.
+        assertEquals(2, counts.size());
+        assertEquals("C", counts.get(0).getName());
+        assertEquals(9, counts.get(0).getCount());
+        assertEquals(0, counts.get(0).getChange());
+        assertEquals("A", counts.get(1).getName());
+    }
+
+    @Test
+    public void test_HeapSnapshot_growth() {
+        ClassTable table = new ClassTable();
+        table.add("A");
+        table.add("B");
+        HeapSnapshot first = new HeapSnapshot(table, new long[] { 10, 3 }, 0, null);
+        // A class loaded after the first snapshot was taken.
+        table.add("C");
+        HeapSnapshot second = new HeapSnapshot(table, new long[] { 4, 0, 7 }, 1, null);
+        assertEquals(0, first.getCount(2));
+        List<ClassCount> growth = second.getGrowth(first);
+        assertEquals(3, growth.size());
+        assertEquals("C", growth.get(0).getName());
+        assertEquals(7, growth.get(0).getChange());
+        assertEquals("B", growth.get(1).getName());
+        assertEquals(-3, growth.get(1).getChange());
+        assertEquals(0, growth.get(1).getCount());
+        assertEquals("A", growth.get(2).getName());
+        assertEquals(-6, growth.get(2).getChange());
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.heap;
+
+import com.sun.jdi.ArrayReference;
+import com.sun.jdi.ClassObjectReference;
+import com.sun.jdi.ClassType;
+import com.sun.jdi.Field;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.Value;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import static com.bluemarsh.jswat.core.JdiStubs.stub;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the RetentionSearch class.
+ *
+ * @author  Nathan Fiedler
+ */
+public class RetentionSearchTest {
+    /** Source of unique identifiers for the stub objects. */
+    private static long nextId = 1;
+
+    private static ClassType type(String name, ClassType superclass,
+            List<Field> fields) {
+        Map<String, Object> answers = new HashMap<String, Object>();
+        answers.put("name", name);
+        answers.put("superclass", superclass);
+        answers.put("allFields", fields);
+        answers.put("fields", fields);
+        return stub(ClassType.class, answers);
+    }
+
+    private static Field field(String name, boolean isStatic, String declarer) {
+        Map<String, Object> answers = new HashMap<String, Object>();
+        answers.put("name", name);
+        answers.put("isStatic", isStatic);
+        answers.put("declaringType", type(declarer, null,
+                Collections.<Field>emptyList()));
+        return stub(Field.class, answers);
+    }
+
+    private static Map<String, Object> object(ClassType type,
+            List<ObjectReference> referrers) {
+        Map<String, Object> answers = new HashMap<String, Object>();
+        answers.put("name", type.name());
+        answers.put("uniqueID", nextId++);
+        answers.put("referenceType", type);
+        answers.put("referringObjects", referrers);
+        answers.put("getValues", Collections.emptyMap());
+        return answers;
+    }
+
+    private static List<ObjectReference> list(ObjectReference... refs) {
+        return new ArrayList<ObjectReference>(Arrays.asList(refs));
+    }
+
+    private static Map<Field, Value> values(Field field, Value value) {
+        Map<Field, Value> map = new HashMap<Field, Value>();
+        map.put(field, value);
+        return map;
+    }
+
+    @Test
+    public void test_RetentionSearch_paths() {
+        List<Field> none = Collections.emptyList();
+        ClassType objectType = type("java.lang.Object", null, none);
+        List<ObjectReference> targetReferrers = list();
+        ObjectReference target = stub(ObjectReference.class,
+                object(objectType, targetReferrers));
+
+        // Referred to by a plain object, held in an array in a static.
+        Field value = field("value", false, "Holder");
+        ClassType holderType = type("Holder", objectType, Arrays.asList(value));
+        List<ObjectReference> holderReferrers = list();
+        Map<String, Object> answers = object(holderType, holderReferrers);
+        answers.put("getValues", values(value, target));
+        ObjectReference holder = stub(ObjectReference.class, answers);
+        targetReferrers.add(holder);
+
+        ClassType arrayType = type("Holder[]", null, none);
+        List<ObjectReference> arrayReferrers = list();
+        answers = object(arrayType, arrayReferrers);
+        answers.put("length", 3);
+        answers.put("getValues", Arrays.asList(null, null, holder));
+        ArrayReference array = stub(ArrayReference.class, answers);
+        holderReferrers.add(array);
+
+        Field cache = field("CACHE", true, "Cache");
+        ClassType cacheType = type("Cache", objectType, Arrays.asList(cache));
+        answers = object(type("java.lang.Class", objectType, none), list());
+        answers.put("reflectedType", stub(ClassType.class, cacheAnswers(
+                cacheType, cache, array)));
+        ClassObjectReference classObj = stub(ClassObjectReference.class, answers);
+        arrayReferrers.add(classObj);
+
+        // Also referred to by an object that nothing refers to.
+        Field next = field("next", false, "Node");
+        ClassType nodeType = type("Node", objectType, Arrays.asList(next));
+        answers = object(nodeType, list());
+        answers.put("getValues", values(next, holder));
+        ObjectReference node = stub(ObjectReference.class, answers);
+        holderReferrers.add(node);
+
+        // And weakly, which does not count.
+        ClassType refType = type("java.lang.ref.Reference", objectType, none);
+        Field referent = field("referent", false, "java.lang.ref.Reference");
+        ClassType weakType = type("java.lang.ref.WeakReference", refType,
+                Arrays.asList(referent));
+        answers = object(weakType, list());
+        answers.put("getValues", values(referent, target));
+        targetReferrers.add(stub(ObjectReference.class, answers));
+
+        RetentionSearch search = new RetentionSearch(target, 10, 100, 10);
+        List<RetentionPath> paths = search.search();
+        assertFalse(search.isExhausted());
+        assertEquals(2, paths.size());
+
+        RetentionPath path = paths.get(0);
+        assertEquals(RetentionPath.Kind.UNREFERENCED, path.getKind());
+        assertEquals(2, path.length());
+        assertTrue(node == path.getLinks().get(0).getObject());
+        assertEquals("next", path.getLinks().get(0).getReference());
+        assertEquals("value", path.getLinks().get(1).getReference());
+        assertTrue(target == path.getLinks().get(2).getObject());
+        assertNull(path.getLinks().get(2).getReference());
+
+        path = paths.get(1);
+        assertEquals(RetentionPath.Kind.CLASS, path.getKind());
+        assertEquals(3, path.length());
+        assertEquals("CACHE", path.getLinks().get(0).getReference());
+        assertEquals("[2]", path.getLinks().get(1).getReference());
+        assertEquals("value", path.getLinks().get(2).getReference());
+    }
+
+    @Test
+    public void test_RetentionSearch_depth() {
+        // A long chain of objects, each referring to the next.
+        List<Field> none = Collections.emptyList();
+        ClassType type = type("Link", null, none);
+        List<ObjectReference> referrers = list();
+        ObjectReference target = stub(ObjectReference.class,
+                object(type, referrers));
+        for (int ii = 0; ii < 20; ii++) {
+            List<ObjectReference> more = list();
+            referrers.add(stub(ObjectReference.class, object(type, more)));
+            referrers = more;
+        }
+        RetentionSearch search = new RetentionSearch(target, 5, 100, 10);
+        assertTrue(search.search().isEmpty());
+        assertTrue(search.isExhausted());
+
+        search = new RetentionSearch(target, 50, 10, 10);
+        assertTrue(search.search().isEmpty());
+        assertTrue(search.isExhausted());
+
+        search = new RetentionSearch(target, 50, 100, 10);
+        List<RetentionPath> paths = search.search();
+        assertFalse(search.isExhausted());
+        assertEquals(1, paths.size());
+        assertEquals(20, paths.get(0).length());
+    }
+
+    private static Map<String, Object> cacheAnswers(ClassType type,
+            Field field, Value value) {
+        Map<String, Object> answers = new HashMap<String, Object>();
+        answers.put("name", type.name());
+        answers.put("fields", Arrays.asList(field));
+        answers.put("getValues", values(field, value));
+        return answers;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.hotswap;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ClassFileIndex class.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ClassFileIndexTest {
+
+    /**
+     * Writes the given content to a file.
+     *
+     * @param  file     file to write.
+     * @param  content  content of the file.
+     * @throws  IOException  if writing fails.
+     */
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            fos.write(content.getBytes("UTF-8"));
+        } finally {
+            fos.close();
+        }
+        file.deleteOnExit();
+    }
+
+    @Test
+    public void test_ClassFileIndex_scan() throws IOException {
+        File root = File.createTempFile("classes", "");
+        root.delete();
+        root.mkdir();
+        root.deleteOnExit();
+        File foo = new File(root, "pkg" + File.separator + "Foo.class");
+        write(foo, "foo");
+        write(new File(root, "pkg" + File.separator + "Foo.java"), "src");
+        ClassFileIndex index = new ClassFileIndex(Collections.singletonList(root));
+        assertTrue(index.scan().isEmpty());
+        assertEquals(Collections.singleton("pkg.Foo"), index.getNames());
+        assertEquals(foo, index.getFile("pkg.Foo"));
+        assertTrue(index.scan().isEmpty());
+
+        // Changed size is detected even within the time stamp resolution.
+        write(foo, "foo2");
+        File bar = new File(root, "Bar.class");
+        write(bar, "bar");
+        Set<String> changed = index.scan();
+        assertEquals(2, changed.size());
+        assertTrue(changed.contains("pkg.Foo"));
+        assertTrue(changed.contains("Bar"));
+
+        byte[] digest = ClassFileIndex.digest(ClassFileIndex.read(foo));
+        index.setDigest("pkg.Foo", digest);
+        assertTrue(Arrays.equals(digest, index.getDigest("pkg.Foo")));
+        assertNull(index.getDigest("Bar"));
+
+        bar.delete();
+        assertTrue(index.scan().isEmpty());
+        assertNull(index.getFile("Bar"));
+    }
+}
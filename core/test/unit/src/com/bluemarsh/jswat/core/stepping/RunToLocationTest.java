@@ -0,0 +1,189 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.stepping;
+
+import com.bluemarsh.jswat.core.JdiStubs.Answer;
+import com.bluemarsh.jswat.core.connect.JvmConnection;
+import com.bluemarsh.jswat.core.session.Session;
+import com.sun.jdi.Location;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.event.BreakpointEvent;
+import com.sun.jdi.request.BreakpointRequest;
+import com.sun.jdi.request.EventRequest;
+import com.sun.jdi.request.EventRequestManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import static com.bluemarsh.jswat.core.JdiStubs.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the RunToLocation class.
+ *
+ * @author Nathan Fiedler
+ */
+public class RunToLocationTest {
+    /** Line of the class that has code. */
+    private static final int LINE = 20;
+    /** The requests created through the stub request manager. */
+    private final List<EventRequest> created = new ArrayList<EventRequest>();
+    /** The requests deleted through the stub request manager. */
+    private final List<EventRequest> deleted = new ArrayList<EventRequest>();
+    /** Methods invoked on the stub session. */
+    private final List<String> sessionCalls = new ArrayList<String>();
+
+    /**
+     * Creates a session whose debuggee has a single class, "Test", with
+     * code at LINE only.
+     */
+    private Session session() {
+        final Map<String, Object> vmAnswers = answers();
+        final VirtualMachine vm = stub(VirtualMachine.class, vmAnswers);
+        final Location location = stub(Location.class, "virtualMachine", vm);
+        final ReferenceType clazz = stub(ReferenceType.class,
+                "name", "Test",
+                "nestedTypes", Collections.emptyList(),
+                "locationsOfLine", new Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                if (args[0].equals(LINE)) {
+                    return Collections.singletonList(location);
+                }
+                return Collections.emptyList();
+            }
+        });
+        vmAnswers.put("classesByName", new Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                if (args[0].equals("Test")) {
+                    return Collections.singletonList(clazz);
+                }
+                return Collections.emptyList();
+            }
+        });
+        Map<String, Object> ermAnswers = answers(
+                "createBreakpointRequest", new Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                final Map<Object, Object> props = new HashMap<Object, Object>();
+                EventRequest request = recorder(BreakpointRequest.class,
+                        answers("virtualMachine", vm,
+                        "putProperty", new Answer() {
+                    @Override
+                    public Object answer(Object[] args) {
+                        return props.put(args[0], args[1]);
+                    }
+                }, "getProperty", new Answer() {
+                    @Override
+                    public Object answer(Object[] args) {
+                        return props.get(args[0]);
+                    }
+                }), new ArrayList<String>());
+                created.add(request);
+                return request;
+            }
+        }, "deleteEventRequests", new Answer() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object answer(Object[] args) {
+                deleted.addAll((List<EventRequest>) args[0]);
+                return null;
+            }
+        });
+        vmAnswers.put("eventRequestManager", recorder(
+                EventRequestManager.class, ermAnswers, new ArrayList<String>()));
+        JvmConnection conn = stub(JvmConnection.class, "getVM", vm);
+        return recorder(Session.class, answers("getConnection", conn),
+                sessionCalls);
+    }
+
+    @Test
+    public void test_RunToLocation_threadFilterFirst() {
+        List<String> calls = new ArrayList<String>();
+        BreakpointRequest request = recorder(BreakpointRequest.class,
+                answers(), calls);
+        ThreadReference thread = recorder(ThreadReference.class,
+                answers(), new ArrayList<String>());
+        RunToLocation.addFilters(request, thread);
+        assertEquals(2, calls.size());
+        assertEquals("addThreadFilter", calls.get(0));
+        assertEquals("addCountFilter", calls.get(1));
+    }
+
+    @Test
+    public void test_RunToLocation_noThread() {
+        List<String> calls = new ArrayList<String>();
+        BreakpointRequest request = recorder(BreakpointRequest.class,
+                answers(), calls);
+        RunToLocation.addFilters(request, null);
+        assertEquals(1, calls.size());
+        assertEquals("addCountFilter", calls.get(0));
+    }
+
+    @Test
+    public void test_RunToLocation_deletedAfterHit() throws SteppingException {
+        RunToLocation rtl = new RunToLocation();
+        rtl.opened(session());
+        rtl.runToLine("Test", LINE, null);
+        assertTrue(rtl.isActive());
+        assertTrue(sessionCalls.contains("resumeVM"));
+        assertEquals(1, created.size());
+        assertTrue(RunToLocation.isRunTo(created.get(0)));
+        assertTrue(deleted.isEmpty());
+        // Arriving at the location stops the debuggee.
+        assertFalse(rtl.eventOccurred(stub(BreakpointEvent.class)));
+        assertFalse(rtl.isActive());
+        assertEquals(created, deleted);
+    }
+
+    @Test
+    public void test_RunToLocation_deletedOnSuspend() throws SteppingException {
+        RunToLocation rtl = new RunToLocation();
+        rtl.opened(session());
+        rtl.runToLine("Test", LINE, null);
+        assertTrue(rtl.isActive());
+        // Stopping for any other reason forgets the location.
+        rtl.suspended(null);
+        assertFalse(rtl.isActive());
+        assertEquals(1, created.size());
+        assertEquals(created, deleted);
+    }
+
+    @Test
+    public void test_RunToLocation_noCode() {
+        RunToLocation rtl = new RunToLocation();
+        rtl.opened(session());
+        try {
+            rtl.runToLine("Test", LINE + 1, null);
+            fail("expected SteppingException");
+        } catch (SteppingException se) {
+            // expected
+        }
+        assertFalse(rtl.isActive());
+        assertTrue(created.isEmpty());
+        assertFalse(sessionCalls.contains("resumeVM"));
+    }
+}
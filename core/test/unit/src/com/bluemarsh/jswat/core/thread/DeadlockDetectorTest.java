@@ -0,0 +1,71 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.thread;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the DeadlockDetector class.
+ *
+ * @author  Nathan Fiedler
+ */
+public class DeadlockDetectorTest {
+
+    @Test
+    public void test_DeadlockDetector_noCycles() {
+        Map<String, String> graph = new LinkedHashMap<String, String>();
+        graph.put("a", "b");
+        graph.put("b", "c");
+        graph.put("d", "b");
+        List<List<String>> cycles = DeadlockDetector.findCycles(graph);
+        assertTrue(cycles.isEmpty());
+    }
+
+    @Test
+    public void test_DeadlockDetector_twoCycles() {
+        Map<String, String> graph = new LinkedHashMap<String, String>();
+        // A thread blocked behind a deadlock is not part of the cycle.
+        graph.put("x", "a");
+        graph.put("a", "b");
+        graph.put("b", "a");
+        graph.put("c", "d");
+        graph.put("d", "e");
+        graph.put("e", "c");
+        List<List<String>> cycles = DeadlockDetector.findCycles(graph);
+        assertEquals(2, cycles.size());
+        assertEquals(Arrays.asList("a", "b"), cycles.get(0));
+        assertEquals(Arrays.asList("c", "d", "e"), cycles.get(1));
+    }
+
+    @Test
+    public void test_DeadlockDetector_selfCycle() {
+        Map<String, String> graph = new LinkedHashMap<String, String>();
+        graph.put("a", "a");
+        List<List<String>> cycles = DeadlockDetector.findCycles(graph);
+        assertEquals(1, cycles.size());
+        assertEquals(Arrays.asList("a"), cycles.get(0));
+    }
+}
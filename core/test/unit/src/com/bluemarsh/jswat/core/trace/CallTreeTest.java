@@ -0,0 +1,107 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the CallTree class.
+ *
+ * @author  Nathan Fiedler
+ */
+public class CallTreeTest {
+
+    /**
+     * Builds a tree in which main() calls foo() twice, and the second
+     * foo() calls itself once.
+     *
+     * @return  new call tree.
+     */
+    private static CallTree buildTree() {
+        CallTree tree = new CallTree();
+        tree.defineThread(0, "main");
+        tree.defineMethod(0, "A.main()");
+        tree.defineMethod(1, "A.foo()");
+        tree.record(TraceConsumer.METHOD_ENTRY, 0, 0, 0);
+        tree.record(TraceConsumer.METHOD_ENTRY, 1, 0, 1000);
+        tree.record(TraceConsumer.METHOD_EXIT, 1, 0, 4000);
+        tree.record(TraceConsumer.METHOD_ENTRY, 1, 0, 5000);
+        tree.record(TraceConsumer.METHOD_ENTRY, 1, 0, 6000);
+        tree.record(TraceConsumer.METHOD_EXIT, 1, 0, 8000);
+        tree.record(TraceConsumer.METHOD_EXIT, 1, 0, 9000);
+        tree.record(TraceConsumer.METHOD_EXIT, 0, 0, 10000);
+        return tree;
+    }
+
+    @Test
+    public void test_CallTree_hotMethods() {
+        CallTree tree = buildTree();
+        List<MethodProfile> hot = tree.getHotMethods(10);
+        assertEquals(2, hot.size());
+        MethodProfile foo = hot.get(0);
+        assertEquals("A.foo()", foo.getName());
+        assertEquals(3, foo.getCount());
+        assertEquals(7000, foo.getExclusiveTime());
+        // The recursive call is already included in the outer call.
+        assertEquals(7000, foo.getInclusiveTime());
+        MethodProfile main = hot.get(1);
+        assertEquals(1, main.getCount());
+        assertEquals(3000, main.getExclusiveTime());
+        assertEquals(10000, main.getInclusiveTime());
+        assertEquals(3, tree.getMaxDepth(0));
+        assertEquals(1, tree.getHotMethods(1).size());
+    }
+
+    @Test
+    public void test_CallTree_collapsed() throws IOException {
+        CallTree tree = new CallTree();
+        tree.defineThread(0, "main");
+        tree.defineMethod(0, "A.main()");
+        tree.defineMethod(1, "A.foo()");
+        tree.record(TraceConsumer.METHOD_ENTRY, 0, 0, 0);
+        tree.record(TraceConsumer.METHOD_ENTRY, 1, 0, 1000);
+        tree.record(TraceConsumer.METHOD_EXIT, 1, 0, 4000);
+        tree.record(TraceConsumer.METHOD_EXIT, 0, 0, 10000);
+        StringWriter sw = new StringWriter();
+        tree.writeCollapsed(sw);
+        assertEquals("main;A.main() 7\nmain;A.main();A.foo() 3\n",
+                sw.toString());
+    }
+
+    @Test
+    public void test_CallTree_missingExit() {
+        CallTree tree = new CallTree();
+        tree.defineThread(0, "main");
+        tree.defineMethod(0, "A.main()");
+        tree.defineMethod(1, "A.foo()");
+        tree.record(TraceConsumer.METHOD_ENTRY, 0, 0, 0);
+        tree.record(TraceConsumer.METHOD_ENTRY, 1, 0, 1000);
+        // The exit from foo() was dropped.
+        tree.record(TraceConsumer.METHOD_EXIT, 0, 0, 5000);
+        CallTreeNode main = tree.getRoot(0).getChildren().get(0);
+        assertEquals(5000, main.getInclusiveTime());
+        assertEquals(1, main.getChildren().size());
+    }
+}
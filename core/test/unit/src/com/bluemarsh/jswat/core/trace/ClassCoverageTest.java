@@ -0,0 +1,63 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import java.util.BitSet;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ClassCoverage class.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ClassCoverageTest {
+
+    @Test
+    public void test_ClassCoverage_missed() {
+        ClassCoverage cc = new ClassCoverage("A");
+        assertEquals(0, cc.getLineCount());
+        assertEquals("", ClassCoverage.toRanges(cc.getMissed()));
+        for (int line : new int[] { 3, 7, 8, 9, 12 }) {
+            cc.addLine(line);
+        }
+        cc.hit(8);
+        cc.hit(8);
+        assertEquals(5, cc.getLineCount());
+        assertEquals(1, cc.getHitCount());
+        assertEquals("3, 7, 9, 12", ClassCoverage.toRanges(cc.getMissed()));
+        cc.hit(3);
+        cc.hit(12);
+        assertEquals("7, 9", ClassCoverage.toRanges(cc.getMissed()));
+        assertEquals("3, 8, 12", ClassCoverage.toRanges(cc.getHits()));
+    }
+
+    @Test
+    public void test_ClassCoverage_toRanges() {
+        BitSet bits = new BitSet();
+        bits.set(3);
+        bits.set(7, 10);
+        bits.set(12);
+        assertEquals("3, 7-9, 12", ClassCoverage.toRanges(bits));
+        bits.set(4);
+        assertEquals("3-4, 7-9, 12", ClassCoverage.toRanges(bits));
+    }
+}
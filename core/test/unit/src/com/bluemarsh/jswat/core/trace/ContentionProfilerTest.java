@@ -0,0 +1,144 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import com.sun.jdi.Location;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.request.EventRequest;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import static com.bluemarsh.jswat.core.JdiStubs.stub;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ContentionProfiler class.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ContentionProfilerTest {
+
+    private static ReferenceType type(String name) {
+        return stub(ReferenceType.class, "name", name);
+    }
+
+    private static ObjectReference monitor(String cname) {
+        return stub(ObjectReference.class, "referenceType", type(cname));
+    }
+
+    private static ThreadReference thread(String name) {
+        return stub(ThreadReference.class, "name", name);
+    }
+
+    private static Location location(String method, int line) {
+        com.sun.jdi.Method m = stub(com.sun.jdi.Method.class,
+                "name", method, "declaringType", type("Test"));
+        return stub(Location.class, "method", m, "lineNumber", line);
+    }
+
+    private static ContentionProfiler.Profile profile(ContentionProfiler cp) {
+        List<EventRequest> none = Collections.emptyList();
+        return cp.new Profile(none);
+    }
+
+    private static ContentionProfiler.Record record(byte kind,
+            ThreadReference thread, ObjectReference monitor,
+            Location location, long time) {
+        return new ContentionProfiler.Record(kind, thread, monitor,
+                location, time, false);
+    }
+
+    @Test
+    public void test_ContentionProfiler_pairing() {
+        ContentionProfiler cp = new ContentionProfiler();
+        ContentionProfiler.Profile p = profile(cp);
+        ThreadReference t1 = thread("t1");
+        ObjectReference lock = monitor("Lock");
+        Location site = location("run", 10);
+        p.aggregate(record(ContentionProfiler.ENTER, t1, lock, site, 100));
+        p.aggregate(record(ContentionProfiler.ENTERED, t1, lock, site, 150));
+        p.aggregate(record(ContentionProfiler.WAIT, t1, lock, site, 200));
+        p.aggregate(record(ContentionProfiler.WAITED, t1, lock, site, 500));
+        List<ContentionStatistic> stats = cp.getStatistics(false);
+        assertEquals(2, stats.size());
+        // Ordered by decreasing total time, so the wait comes first.
+        ContentionStatistic wait = stats.get(0);
+        assertTrue(wait.isWaiting());
+        assertEquals(1, wait.getCount());
+        assertEquals(300, wait.getTotalTime());
+        assertEquals("Lock", wait.getMonitorClass());
+        assertEquals("Test.run:10", wait.getSite());
+        ContentionStatistic enter = stats.get(1);
+        assertFalse(enter.isWaiting());
+        assertEquals(1, enter.getCount());
+        assertEquals(50, enter.getTotalTime());
+    }
+
+    @Test
+    public void test_ContentionProfiler_unmatched() {
+        ContentionProfiler cp = new ContentionProfiler();
+        ContentionProfiler.Profile p = profile(cp);
+        ThreadReference t1 = thread("t1");
+        ObjectReference lock = monitor("Lock");
+        ObjectReference other = monitor("Other");
+        Location site = location("run", 10);
+        // Entered without an enter, as when blocking began before
+        // profiling started.
+        p.aggregate(record(ContentionProfiler.ENTERED, t1, lock, site, 100));
+        // An enter that is never followed by entered.
+        p.aggregate(record(ContentionProfiler.ENTER, t1, lock, site, 200));
+        // Waited does not end an enter.
+        p.aggregate(record(ContentionProfiler.WAITED, t1, lock, site, 300));
+        // Entered on a different monitor does not end the enter.
+        p.aggregate(record(ContentionProfiler.ENTER, t1, lock, site, 400));
+        p.aggregate(record(ContentionProfiler.ENTERED, t1, other, site, 500));
+        assertTrue(cp.getStatistics(false).isEmpty());
+    }
+
+    @Test
+    public void test_ContentionProfiler_interleaved() {
+        ContentionProfiler cp = new ContentionProfiler();
+        ContentionProfiler.Profile p = profile(cp);
+        ThreadReference t1 = thread("t1");
+        ThreadReference t2 = thread("t2");
+        ObjectReference lock = monitor("Lock");
+        Location site1 = location("first", 10);
+        Location site2 = location("second", 20);
+        p.aggregate(record(ContentionProfiler.ENTER, t1, lock, site1, 100));
+        p.aggregate(record(ContentionProfiler.ENTER, t2, lock, site2, 110));
+        p.aggregate(record(ContentionProfiler.ENTERED, t2, lock, site2, 140));
+        p.aggregate(record(ContentionProfiler.ENTERED, t1, lock, site1, 400));
+        List<ContentionStatistic> stats = cp.getStatistics(false);
+        assertEquals(2, stats.size());
+        assertEquals("Test.first:10", stats.get(0).getSite());
+        assertEquals(300, stats.get(0).getTotalTime());
+        assertEquals("Test.second:20", stats.get(1).getSite());
+        assertEquals(30, stats.get(1).getTotalTime());
+        // Summed by class, both periods count against the one monitor.
+        stats = cp.getStatistics(true);
+        assertEquals(1, stats.size());
+        assertEquals(2, stats.get(0).getCount());
+        assertEquals(330, stats.get(0).getTotalTime());
+        assertEquals(300, stats.get(0).getMaxTime());
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the CounterTable and ExceptionSnapshot classes.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ExceptionSnapshotTest {
+
+    @Test
+    public void test_CounterTable_increment() {
+        CounterTable table = new CounterTable();
+        for (long key = 0; key < 1000; key++) {
+            for (int ii = 0; ii <= key % 3; ii++) {
+                table.increment(key << 20);
+            }
+        }
+        assertEquals(1000, table.size());
+        long[] pairs = table.toArray();
+        assertEquals(2000, pairs.length);
+        for (int ii = 0; ii < pairs.length; ii += 2) {
+            long key = pairs[ii] >>> 20;
+            assertEquals(key % 3 + 1, pairs[ii + 1]);
+        }
+        table.clear();
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void test_ExceptionSnapshot_delta() {
+        List<ExceptionCount> before = new ArrayList<ExceptionCount>();
+        before.add(new ExceptionCount(1, "E1", "A.a:1", null, 5));
+        before.add(new ExceptionCount(2, "E2", "A.b:2", "A.c:3", 7));
+        List<ExceptionCount> after = new ArrayList<ExceptionCount>();
+        after.add(new ExceptionCount(1, "E1", "A.a:1", null, 5));
+        after.add(new ExceptionCount(2, "E2", "A.b:2", "A.c:3", 10));
+        after.add(new ExceptionCount(3, "E1", "A.d:4", null, 4));
+        ExceptionSnapshot s1 = new ExceptionSnapshot(before, 1000);
+        ExceptionSnapshot s2 = new ExceptionSnapshot(after, 3000);
+        assertEquals(12, s1.getTotal());
+        assertEquals(19, s2.getTotal());
+        assertEquals("E2", s2.getCounts().get(0).getType());
+
+        ExceptionSnapshot delta = s2.delta(s1);
+        assertEquals(7, delta.getTotal());
+        assertEquals(2000, delta.getElapsedTime());
+        List<ExceptionCount> counts = delta.getCounts();
+        assertEquals(2, counts.size());
+        assertEquals("A.d:4", counts.get(0).getThrownAt());
+        assertEquals(4, counts.get(0).getCount());
+        assertEquals(3, counts.get(1).getCount());
+    }
+
+    @Test
+    public void test_ExceptionSnapshot_types() {
+        List<ExceptionCount> list = new ArrayList<ExceptionCount>();
+        list.add(new ExceptionCount(1, "E1", "A.a:1", null, 5));
+        list.add(new ExceptionCount(2, "E2", "A.b:2", "A.c:3", 7));
+        list.add(new ExceptionCount(3, "E1", "A.d:4", null, 4));
+        List<ExceptionCount> types = new ExceptionSnapshot(list, 0).getTypeCounts();
+        assertEquals(2, types.size());
+        assertEquals("E1", types.get(0).getType());
+        assertEquals(9, types.get(0).getCount());
+        assertNull(types.get(0).getThrownAt());
+        assertEquals(7, types.get(1).getCount());
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ExecutionHistory class.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ExecutionHistoryTest {
+
+    @Test
+    public void test_ExecutionHistory_ring() {
+        ExecutionHistory history = new ExecutionHistory(3);
+        assertNull(history.getState(0));
+        Map<String, String> locals = new HashMap<String, String>();
+        locals.put("i", "1");
+        Map<String, String> fields = new HashMap<String, String>();
+        for (int ii = 1; ii <= 5; ii++) {
+            history.add("main", "A.run:" + ii, locals, fields);
+        }
+        assertEquals(3, history.getCount());
+        assertEquals("A.run:5", history.getState(0).getLocation());
+        assertEquals("A.run:3", history.getState(2).getLocation());
+        assertEquals(3, history.getState(2).getSequence());
+        assertNull(history.getState(3));
+        assertEquals("1", history.getState(1).getLocals().get("i"));
+        List<ExecutionState> states = history.getStates();
+        assertEquals(3, states.size());
+        assertEquals("A.run:3", states.get(0).getLocation());
+        assertEquals("A.run:5", states.get(2).getLocation());
+
+        // Shrinking keeps the most recent states.
+        history.setCapacity(2);
+        assertEquals(2, history.getCount());
+        assertEquals("A.run:4", history.getState(1).getLocation());
+        history.add("main", "A.run:6", locals, fields);
+        assertEquals("A.run:6", history.getState(0).getLocation());
+        assertEquals("A.run:5", history.getState(1).getLocation());
+        history.clear();
+        assertEquals(0, history.getCount());
+        assertNull(history.getState(0));
+    }
+}
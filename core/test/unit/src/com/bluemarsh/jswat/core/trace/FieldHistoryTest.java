@@ -0,0 +1,90 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the FieldHistory class.
+ *
+ * @author  Nathan Fiedler
+ */
+public class FieldHistoryTest {
+
+    @Test
+    public void test_FieldHistory_ring() {
+        FieldHistory history = new FieldHistory("A.x", 3);
+        assertTrue(history.getChanges(0).isEmpty());
+        for (int ii = 1; ii <= 5; ii++) {
+            history.add(ii, "main", "A.set:" + ii, String.valueOf(ii * 10));
+        }
+        assertEquals(5, history.getCount());
+        assertEquals(2, history.getDropped());
+        List<FieldChange> changes = history.getChanges(0);
+        assertEquals(3, changes.size());
+        assertEquals(3, changes.get(0).getSequence());
+        assertEquals("30", changes.get(0).getValue());
+        assertEquals("A.set:3", changes.get(0).getLocation());
+        assertEquals("main", changes.get(0).getThread());
+        assertEquals(5, changes.get(2).getSequence());
+        assertEquals(5, changes.get(2).getTime());
+        // Only the most recent are returned.
+        changes = history.getChanges(2);
+        assertEquals(2, changes.size());
+        assertEquals("40", changes.get(0).getValue());
+        history.clear();
+        assertEquals(0, history.getCount());
+        assertTrue(history.getChanges(0).isEmpty());
+    }
+
+    @Test
+    public void test_FieldHistory_spill() throws IOException {
+        File file = File.createTempFile("spill", ".txt");
+        file.deleteOnExit();
+        FieldHistory history = new FieldHistory("A.x", 2);
+        history.setSpillFile(file);
+        for (int ii = 1; ii <= 5; ii++) {
+            history.add(ii, "t" + ii % 2, "A.set", String.valueOf(ii));
+        }
+        history.close();
+        assertFalse(history.isActive());
+        assertEquals(0, history.getDropped());
+        BufferedReader br = new BufferedReader(new FileReader(file));
+        try {
+            for (int ii = 1; ii <= 3; ii++) {
+                String[] parts = br.readLine().split("\t");
+                assertEquals(String.valueOf(ii), parts[0]);
+                assertEquals("t" + ii % 2, parts[2]);
+                assertEquals(String.valueOf(ii), parts[4]);
+            }
+            assertNull(br.readLine());
+        } finally {
+            br.close();
+        }
+        assertEquals(2, history.getChanges(0).size());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the SampleTree class.
+ *
+ * @author  Nathan Fiedler
+ */
+public class SampleTreeTest {
+
+    @Test
+    public void test_SampleTree_hotMethods() {
+        SampleTree tree = new SampleTree(1000000L);
+        tree.defineThread(0, "main");
+        tree.defineMethod(0, "A.main()");
+        tree.defineMethod(1, "A.foo()");
+        // Stacks are given from the top: foo() recursing within main().
+        tree.addSample(0, new int[] { 1, 1, 0 }, 3, false);
+        tree.addSample(0, new int[] { 1, 0 }, 2, false);
+        tree.addSample(0, new int[] { 0 }, 1, false);
+        assertEquals(3, tree.getSampleCount());
+        assertEquals(3, tree.getPathCount());
+        List<MethodProfile> hot = tree.getHotMethods(10);
+        assertEquals(2, hot.size());
+        MethodProfile foo = hot.get(0);
+        assertEquals("A.foo()", foo.getName());
+        // The recursive sample counts only once.
+        assertEquals(2, foo.getCount());
+        assertEquals(2000000L, foo.getExclusiveTime());
+        assertEquals(2000000L, foo.getInclusiveTime());
+        MethodProfile main = hot.get(1);
+        assertEquals(3, main.getCount());
+        assertEquals(1000000L, main.getExclusiveTime());
+        assertEquals(3000000L, main.getInclusiveTime());
+    }
+
+    @Test
+    public void test_SampleTree_collapsed() throws IOException {
+        SampleTree tree = new SampleTree(1000000L);
+        tree.defineThread(0, "main");
+        tree.defineThread(1, "worker");
+        tree.defineMethod(0, "A.main()");
+        tree.defineMethod(1, "A.foo()");
+        tree.addSample(0, new int[] { 1, 0 }, 2, false);
+        tree.addSample(0, new int[] { 1, 0 }, 2, false);
+        tree.addSample(1, new int[] { 1 }, 1, true);
+        StringWriter sw = new StringWriter();
+        tree.writeCollapsed(sw);
+        assertEquals("main;A.main();A.foo() 2\nworker;...;A.foo() 1\n",
+                sw.toString());
+        assertEquals(2, tree.getSampleCount(0));
+        assertEquals(1, tree.getSampleCount(1));
+    }
+
+    @Test
+    public void test_SampleTree_growth() {
+        SampleTree tree = new SampleTree(1L);
+        tree.defineThread(0, "main");
+        int[] stack = new int[1];
+        for (int ii = 0; ii < 1000; ii++) {
+            tree.defineMethod(ii, "M" + ii);
+            stack[0] = ii;
+            tree.addSample(0, stack, 1, false);
+        }
+        assertEquals(1000, tree.getPathCount());
+        assertEquals(1000, tree.getHotMethods(2000).size());
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.core.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the TraceBuffer, TraceFileWriter and TraceFileReader
+ * classes.
+ *
+ * @author  Nathan Fiedler
+ */
+public class TraceFileTest {
+
+    @Test
+    public void test_TraceBuffer_drops() throws IOException {
+        TraceBuffer buffer = new TraceBuffer(4);
+        for (int ii = 0; ii < 6; ii++) {
+            buffer.offer(TraceConsumer.METHOD_ENTRY, ii, 0, ii);
+        }
+        assertEquals(2, buffer.getDropped());
+        Collector collector = new Collector();
+        assertEquals(4, buffer.drain(collector, buffer.getHead()));
+        assertEquals("E0@0 E1@1 E2@2 E3@3 ", collector.toString());
+        assertTrue(buffer.isEmpty());
+        // Space is available again after draining.
+        assertTrue(buffer.offer(TraceConsumer.METHOD_EXIT, 9, 0, 9));
+    }
+
+    @Test
+    public void test_TraceFile_roundTrip() throws IOException {
+        File file = File.createTempFile("trace", ".jst");
+        file.deleteOnExit();
+        TraceFileWriter writer = new TraceFileWriter(file);
+        writer.defineMethod(0, "Foo.bar()");
+        writer.defineThread(0, "main");
+        writer.record(TraceConsumer.METHOD_ENTRY, 0, 0, 10);
+        writer.record(TraceConsumer.METHOD_EXIT, 0, 0, 25);
+        writer.close(3);
+
+        Collector collector = new Collector();
+        TraceFileReader reader = new TraceFileReader(file);
+        reader.read(collector);
+        assertEquals("M0=Foo.bar() T0=main E0@10 X0@25 ", collector.toString());
+        assertEquals(3, collector.dropped);
+        assertTrue(reader.getStartTime() > 0);
+    }
+
+    /**
+     * Collects the trace in a compact string form.
+     */
+    private static class Collector implements TraceConsumer {
+        /** The collected trace. */
+        private final List<String> entries = new ArrayList<String>();
+        /** Dropped count given to close(). */
+        private long dropped;
+
+        @Override
+        public void close(long dropped) {
+            this.dropped = dropped;
+        }
+
+        @Override
+        public void defineMethod(int id, String name) {
+            entries.add("M" + id + "=" + name);
+        }
+
+        @Override
+        public void defineThread(int id, String name) {
+            entries.add("T" + id + "=" + name);
+        }
+
+        @Override
+        public void record(byte kind, int method, int thread, long time) {
+            String k = kind == METHOD_ENTRY ? "E" : "X";
+            entries.add(k + method + "@" + time);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (String entry : entries) {
+                sb.append(entry).append(' ');
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -22,8 +22,12 @@
  */
 package com.bluemarsh.jswat.core.util;
 
+import com.sun.jdi.Location;
+import com.sun.jdi.Method;
+import com.sun.jdi.ReferenceType;
 import java.io.File;
 import org.junit.Test;
+import static com.bluemarsh.jswat.core.JdiStubs.stub;
 import static org.junit.Assert.*;
 
 /**
@@ -31,6 +35,16 @@ import static org.junit.Assert.*;
  */
 public class NamesTest {
 
+    /**
+     * Creates a location in the given class and method, at the given line.
+     */
+    private static Location location(String cname, String mname, int line) {
+        ReferenceType type = stub(ReferenceType.class, "name", cname);
+        Method method = stub(Method.class, "name", mname,
+                "declaringType", type);
+        return stub(Location.class, "method", method, "lineNumber", line);
+    }
+
     @Test
     public void test_Names_classnameToFilename() {
         String fn = "com/bluemarsh/jswat/Main.java";
@@ -45,6 +59,14 @@ public class NamesTest {
                 Names.classnameToFilename("com.bluemarsh.jswat.Main", "SrcMain.java"));
     }
 
+    @Test
+    public void test_Names_getLocationName() {
+        assertEquals("com.pkg.Class.method:42", Names.getLocationName(
+                location("com.pkg.Class", "method", 42)));
+        assertEquals("com.pkg.Class.<init>", Names.getLocationName(
+                location("com.pkg.Class", "<init>", -1)));
+    }
+
     @Test
     public void testGetPackageName() {
         assertNull(Names.getPackageName(null));
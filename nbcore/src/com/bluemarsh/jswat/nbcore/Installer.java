@@ -31,6 +31,7 @@ import com.bluemarsh.jswat.core.breakpoint.BreakpointProvider;
 import com.bluemarsh.jswat.core.connect.ConnectionFactory;
 import com.bluemarsh.jswat.core.connect.ConnectionProvider;
 import com.bluemarsh.jswat.core.connect.JvmConnection;
+import com.bluemarsh.jswat.core.management.ManagementProvider;
 import com.bluemarsh.jswat.core.path.PathManager;
 import com.bluemarsh.jswat.core.path.PathProvider;
 import com.bluemarsh.jswat.core.runtime.JavaRuntime;
@@ -66,6 +67,8 @@ public class Installer extends ModuleInstall implements Runnable, WindowListener
 
     @Override
     public void close() {
+        // Withdraw the debugger internals from JMX clients.
+        ManagementProvider.uninstall();
         // Save the runtimes to persistent storage.
         RuntimeManager rm = RuntimeProvider.getRuntimeManager();
         rm.saveRuntimes();
@@ -225,6 +228,8 @@ public class Installer extends ModuleInstall implements Runnable, WindowListener
         // Load the command aliases.
         CommandParser parser = CommandProvider.getCommandParser();
         parser.loadSettings();
+        // Expose the debugger internals to JMX clients.
+        ManagementProvider.install();
         // See if the user provided connection arguments.
         String transport = System.getProperty("jswat.transport");
         String launch = System.getProperty("jswat.launch");
@@ -348,6 +353,13 @@ public class Installer extends ModuleInstall implements Runnable, WindowListener
         }
     }
 
+    @Override
+    public void uninstalled() {
+        // The MBean server outlives the module, so leave nothing behind.
+        ManagementProvider.uninstall();
+        super.uninstalled();
+    }
+
     @Override
     public void windowActivated(WindowEvent e) {
     }
@@ -27,6 +27,8 @@ import com.bluemarsh.jswat.core.breakpoint.Breakpoint;
 import com.bluemarsh.jswat.core.breakpoint.BreakpointGroup;
 import com.bluemarsh.jswat.core.context.DebuggingContext;
 import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.thread.ThreadEntry;
+import com.bluemarsh.jswat.core.thread.ThreadModel;
 import com.bluemarsh.jswat.nodes.breakpoints.BreakpointGroupChildren;
 import com.bluemarsh.jswat.nodes.breakpoints.BreakpointGroupNode;
 import com.bluemarsh.jswat.nodes.breakpoints.BreakpointNode;
@@ -45,7 +47,9 @@ import com.bluemarsh.jswat.nodes.stack.StackFrameNode;
 import com.bluemarsh.jswat.nodes.threads.DefaultThreadGroupNode;
 import com.bluemarsh.jswat.nodes.threads.DefaultThreadNode;
 import com.bluemarsh.jswat.nodes.threads.ThreadGroupChildren;
+import com.bluemarsh.jswat.nodes.threads.ThreadFilter;
 import com.bluemarsh.jswat.nodes.threads.ThreadGroupNode;
+import com.bluemarsh.jswat.nodes.threads.ThreadModelChildren;
 import com.bluemarsh.jswat.nodes.threads.ThreadNode;
 import com.sun.jdi.ClassLoaderReference;
 import com.sun.jdi.ReferenceType;
@@ -140,6 +144,20 @@ public abstract class NodeFactory {
     public abstract ThreadGroupNode createThreadGroupNode(
             ThreadGroupReference group, DebuggingContext context);
 
+    /**
+     * Create a node for the given thread group, whose children are
+     * provided by the thread model.
+     *
+     * @param  model    thread model.
+     * @param  group    thread group.
+     * @param  filter   decides which threads are shown.
+     * @param  context  debugging context.
+     * @return  thread group node.
+     */
+    public abstract ThreadGroupNode createThreadGroupNode(ThreadModel model,
+            ThreadGroupReference group, ThreadFilter filter,
+            DebuggingContext context);
+
     /**
      * Create a node for the given thread.
      *
@@ -150,6 +168,16 @@ public abstract class NodeFactory {
     public abstract ThreadNode createThreadNode(ThreadReference thread,
             DebuggingContext context);
 
+    /**
+     * Create a node for the given thread entry.
+     *
+     * @param  entry    thread entry.
+     * @param  context  debugging context.
+     * @return  thread node.
+     */
+    public abstract ThreadNode createThreadNode(ThreadEntry entry,
+            DebuggingContext context);
+
     /**
      * Default implementation of NodeFactory.
      */
@@ -213,10 +241,25 @@ public abstract class NodeFactory {
             return new DefaultThreadGroupNode(group, ch, context);
         }
 
+        @Override
+        public ThreadGroupNode createThreadGroupNode(ThreadModel model,
+                ThreadGroupReference group, ThreadFilter filter,
+                DebuggingContext context) {
+            Children ch = new ThreadModelChildren(model, group, filter, context);
+            return new DefaultThreadGroupNode(group, model.getGroupName(group),
+                    ch, context, model);
+        }
+
         @Override
         public ThreadNode createThreadNode(ThreadReference thread,
                 DebuggingContext context) {
             return new DefaultThreadNode(thread, context);
         }
+
+        @Override
+        public ThreadNode createThreadNode(ThreadEntry entry,
+                DebuggingContext context) {
+            return new DefaultThreadNode(entry, context);
+        }
     }
 }
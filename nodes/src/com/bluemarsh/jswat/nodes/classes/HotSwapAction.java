@@ -23,6 +23,7 @@
 
 package com.bluemarsh.jswat.nodes.classes;
 
+import com.bluemarsh.jswat.core.breakpoint.RedefinitionResolver;
 import com.bluemarsh.jswat.core.path.PathEntry;
 import com.bluemarsh.jswat.core.path.PathManager;
 import com.bluemarsh.jswat.core.path.PathProvider;
@@ -33,6 +34,7 @@ import com.sun.jdi.ReferenceType;
 import com.sun.jdi.VirtualMachine;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
 import org.openide.awt.StatusDisplayer;
 import org.openide.nodes.Node;
 import org.openide.util.HelpCtx;
@@ -148,6 +150,8 @@ public class HotSwapAction extends NodeAction {
             } else {
                 sd.setStatusText(NbBundle.getMessage(HotSwapAction.class,
                         "CTL_HotSwapAction_Success"));
+                RedefinitionResolver.classesRedefined(session,
+                        Collections.singletonList(rt));
             }
         }
     }
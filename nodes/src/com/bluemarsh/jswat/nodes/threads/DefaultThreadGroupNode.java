@@ -26,6 +26,8 @@ package com.bluemarsh.jswat.nodes.threads;
 import com.bluemarsh.jswat.core.context.ContextEvent;
 import com.bluemarsh.jswat.core.context.ContextListener;
 import com.bluemarsh.jswat.core.context.DebuggingContext;
+import com.bluemarsh.jswat.core.thread.ThreadEntry;
+import com.bluemarsh.jswat.core.thread.ThreadModel;
 import com.bluemarsh.jswat.nodes.Nodes;
 import com.bluemarsh.jswat.nodes.ReadOnlyProperty;
 import com.sun.jdi.ThreadGroupReference;
@@ -54,6 +56,8 @@ public class DefaultThreadGroupNode extends ThreadGroupNode
     private final String groupName;
     /** Debugging context we are associated with. */
     private final DebuggingContext debugContext;
+    /** Thread model that describes the group, if any. */
+    private final ThreadModel threadModel;
 
     /**
      * Constructs a GroupNode to represent the given thread group.
@@ -64,10 +68,26 @@ public class DefaultThreadGroupNode extends ThreadGroupNode
      */
     public DefaultThreadGroupNode(ThreadGroupReference group, Children children,
             DebuggingContext context) {
+        this(group, group.name(), children, context, null);
+    }
+
+    /**
+     * Constructs a GroupNode to represent the given thread group, using
+     * the thread model to find the group ancestry of the current thread.
+     *
+     * @param  group     the thread group.
+     * @param  name      name of the thread group.
+     * @param  children  children of this group.
+     * @param  context   debugging context.
+     * @param  model     thread model (may be null).
+     */
+    public DefaultThreadGroupNode(ThreadGroupReference group, String name,
+            Children children, DebuggingContext context, ThreadModel model) {
         super(children);
         threadGroup = group;
-        groupName = group.name();
+        groupName = name;
         debugContext = context;
+        threadModel = model;
         context.addContextListener(WeakListeners.create(
                 ContextListener.class, this, context));
         setName(groupName);
@@ -168,7 +188,16 @@ public class DefaultThreadGroupNode extends ThreadGroupNode
      */
     private boolean isCurrent() {
         ThreadReference thread = debugContext.getThread();
-        if (thread != null) {
+        if (thread != null && threadModel != null) {
+            ThreadEntry entry = threadModel.getEntry(thread);
+            ThreadGroupReference parent = entry == null ? null : entry.getGroup();
+            while (parent != null) {
+                if (parent.equals(threadGroup)) {
+                    return true;
+                }
+                parent = threadModel.getParent(parent);
+            }
+        } else if (thread != null) {
             ThreadGroupReference parent = thread.threadGroup();
             while (parent != null) {
                 if (parent.equals(threadGroup)) {
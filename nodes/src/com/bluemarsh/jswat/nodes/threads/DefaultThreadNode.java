@@ -26,10 +26,11 @@ package com.bluemarsh.jswat.nodes.threads;
 import com.bluemarsh.jswat.core.context.ContextEvent;
 import com.bluemarsh.jswat.core.context.ContextListener;
 import com.bluemarsh.jswat.core.context.DebuggingContext;
+import com.bluemarsh.jswat.core.thread.ThreadEntry;
 import com.bluemarsh.jswat.nodes.Nodes;
 import com.bluemarsh.jswat.nodes.ReadOnlyProperty;
 import com.sun.jdi.ThreadReference;
-import com.sun.jdi.VMDisconnectedException;
+import java.awt.Color;
 import java.awt.Image;
 import javax.swing.Action;
 import org.openide.nodes.Node;
@@ -41,7 +42,10 @@ import org.openide.util.WeakListeners;
 import org.openide.util.actions.SystemAction;
 
 /**
- * Represents a thread in the debuggee.
+ * Represents a thread in the debuggee. The node displays the information
+ * in its ThreadEntry, and never queries the debuggee itself; to reflect
+ * changes in the thread, call <code>update()</code> with a new entry.
+ * Threads found to be deadlocked are shown in red.
  *
  * @author  Nathan Fiedler
  */
@@ -49,8 +53,8 @@ public class DefaultThreadNode extends ThreadNode
         implements ContextListener, ThreadConstants {
     /** The thread reference we represent. */
     private final ThreadReference threadReference;
-    /** The name of the thread. */
-    private final String threadName;
+    /** What is known about the thread. */
+    private volatile ThreadEntry threadEntry;
     /** Debugging context we are associated with. */
     private final DebuggingContext debugContext;
 
@@ -61,13 +65,23 @@ public class DefaultThreadNode extends ThreadNode
      * @param  context  debugging context.
      */
     public DefaultThreadNode(ThreadReference thread, DebuggingContext context) {
-        threadReference = thread;
-        threadName = thread.name();
+        this(ThreadEntry.create(thread), context);
+    }
+
+    /**
+     * Constructs a ThreadNode to represent the given thread entry.
+     *
+     * @param  entry    thread to be represented.
+     * @param  context  debugging context.
+     */
+    public DefaultThreadNode(ThreadEntry entry, DebuggingContext context) {
+        threadReference = entry.getThread();
+        threadEntry = entry;
         debugContext = context;
         context.addContextListener(WeakListeners.create(
                 ContextListener.class, this, context));
-        setName(threadName);
-        setDisplayName(threadName);
+        setName(entry.getName());
+        setDisplayName(entry.getName());
         getCookieSet().add(this);
     }
 
@@ -108,15 +122,10 @@ public class DefaultThreadNode extends ThreadNode
     protected Sheet createSheet() {
         Sheet sheet = Sheet.createDefault();
         Set set = sheet.get(Sheet.PROPERTIES);
-        set.put(createProperty(Node.PROP_NAME, String.class, threadName));
-        int status;
-        try {
-            status = threadReference.status();
-        } catch (VMDisconnectedException vmde) {
-            status = ThreadReference.THREAD_STATUS_ZOMBIE;
-        }
+        ThreadEntry entry = threadEntry;
+        set.put(createProperty(Node.PROP_NAME, String.class, entry.getName()));
         String statusName = null;
-        switch(status) {
+        switch(entry.getStatus()) {
             case ThreadReference.THREAD_STATUS_MONITOR:
                 statusName = NbBundle.getMessage(ThreadNode.class,
                         "CTL_ThreadStatus_Monitor");
@@ -147,17 +156,25 @@ public class DefaultThreadNode extends ThreadNode
                         "CTL_ThreadStatus_Unknown");
                 break;
         }
+        if (entry.isDeadlocked()) {
+            statusName = NbBundle.getMessage(ThreadNode.class,
+                    "CTL_ThreadStatus_Deadlocked", statusName);
+        }
         set.put(createProperty(PROP_STATUS, String.class, statusName));
         set.put(createProperty(PROP_ID, Long.class, Long.valueOf(
                 threadReference.uniqueID())));
-        set.put(createProperty(PROP_CLASS, String.class, threadReference.type().name()));
+        set.put(createProperty(PROP_CLASS, String.class, entry.getTypeName()));
         return sheet;
     }
 
     @Override
     public String getHtmlDisplayName() {
-        if (threadReference.equals(debugContext.getThread())) {
-            return Nodes.toHTML(threadName, true, false, null);
+        boolean current = threadReference.equals(debugContext.getThread());
+        ThreadEntry entry = threadEntry;
+        if (entry.isDeadlocked()) {
+            return Nodes.toHTML(entry.getName(), current, false, Color.RED);
+        } else if (current) {
+            return Nodes.toHTML(entry.getName(), true, false, null);
         } else {
             return null;
         }
@@ -169,7 +186,7 @@ public class DefaultThreadNode extends ThreadNode
         if (threadReference.equals(debugContext.getThread())) {
             url = NbBundle.getMessage(ThreadNode.class,
                     "IMG_CurrentThreadNode");
-        } else if (threadReference.isSuspended()) {
+        } else if (threadEntry.isSuspended()) {
             url = NbBundle.getMessage(ThreadNode.class,
                     "IMG_SuspendedThreadNode");
         } else {
@@ -195,8 +212,35 @@ public class DefaultThreadNode extends ThreadNode
         return SystemAction.get(SetCurrentAction.class);
     }
 
+    /**
+     * Returns the thread entry displayed by this node.
+     *
+     * @return  thread entry.
+     */
+    public ThreadEntry getEntry() {
+        return threadEntry;
+    }
+
     @Override
     public ThreadReference getThread() {
         return threadReference;
     }
+
+    /**
+     * Shows the given, more recent, information about the thread.
+     *
+     * @param  entry  new thread entry for the same thread.
+     */
+    public void update(ThreadEntry entry) {
+        ThreadEntry old = threadEntry;
+        threadEntry = entry;
+        if (!old.getName().equals(entry.getName())) {
+            setName(entry.getName());
+            setDisplayName(entry.getName());
+        } else if (old.isDeadlocked() != entry.isDeadlocked()) {
+            fireDisplayNameChange(null, null);
+        }
+        setSheet(createSheet());
+        fireIconChange();
+    }
 }
@@ -0,0 +1,107 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.nodes.threads;
+
+import com.bluemarsh.jswat.core.thread.ThreadEntry;
+import com.sun.jdi.ThreadReference;
+import java.util.Locale;
+
+/**
+ * Class ThreadFilter decides which threads are to be shown, based on
+ * their name and state. The state is taken from the ThreadEntry, and is
+ * thus only as current as the last refresh of that entry.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ThreadFilter {
+
+    /**
+     * The thread states by which the threads may be filtered.
+     */
+    public static enum State {
+        /** Threads in any state. */
+        ANY,
+        /** Threads that are running and not suspended. */
+        RUNNING,
+        /** Threads that are suspended. */
+        SUSPENDED,
+        /** Threads waiting on a monitor or condition. */
+        WAITING,
+        /** Threads that are sleeping. */
+        SLEEPING
+    }
+
+    /** A filter that accepts every thread. */
+    public static final ThreadFilter NONE = new ThreadFilter(null, State.ANY);
+    /** Text the thread name must contain, in lower case. */
+    private final String text;
+    /** State the thread must be in. */
+    private final State state;
+
+    /**
+     * Constructs a new ThreadFilter.
+     *
+     * @param  text   text the thread name must contain, ignoring case
+     *                (null or empty to match any name).
+     * @param  state  state the thread must be in.
+     */
+    public ThreadFilter(String text, State state) {
+        this.text = text == null ? "" : text.trim().toLowerCase(Locale.ENGLISH);
+        this.state = state;
+    }
+
+    /**
+     * Indicates if this filter accepts every thread.
+     *
+     * @return  true if nothing is filtered, false otherwise.
+     */
+    public boolean isEmpty() {
+        return text.length() == 0 && state == State.ANY;
+    }
+
+    /**
+     * Determines if the given thread is accepted by this filter.
+     *
+     * @param  entry  thread entry to be tested.
+     * @return  true if the thread is to be shown, false otherwise.
+     */
+    public boolean matches(ThreadEntry entry) {
+        if (text.length() > 0 && !entry.getName().toLowerCase(
+                Locale.ENGLISH).contains(text)) {
+            return false;
+        }
+        int status = entry.getStatus();
+        switch (state) {
+            case RUNNING:
+                return status == ThreadReference.THREAD_STATUS_RUNNING
+                        && !entry.isSuspended();
+            case SUSPENDED:
+                return entry.isSuspended();
+            case WAITING:
+                return status == ThreadReference.THREAD_STATUS_WAIT
+                        || status == ThreadReference.THREAD_STATUS_MONITOR;
+            case SLEEPING:
+                return status == ThreadReference.THREAD_STATUS_SLEEPING;
+            default:
+                return true;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.nodes.threads;
+
+import com.bluemarsh.jswat.core.CoreSettings;
+import com.bluemarsh.jswat.core.context.DebuggingContext;
+import com.bluemarsh.jswat.core.thread.ThreadEntry;
+import com.bluemarsh.jswat.core.thread.ThreadModel;
+import com.bluemarsh.jswat.core.thread.ThreadModelEvent;
+import com.bluemarsh.jswat.core.thread.ThreadModelListener;
+import com.bluemarsh.jswat.nodes.NodeFactory;
+import com.sun.jdi.ThreadGroupReference;
+import com.sun.jdi.ThreadReference;
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import org.openide.nodes.Children;
+import org.openide.nodes.Node;
+import org.openide.util.WeakListeners;
+
+/**
+ * Contains the nodes for the subgroups and threads of a thread group, as
+ * described by a ThreadModel. The children are keyed by thread group and
+ * thread reference, such that changes to the model replace only the nodes
+ * that were affected, leaving the rest (and their expansion state) intact.
+ * The children listen to the model only while they are in use.
+ *
+ * @author  Nathan Fiedler
+ */
+public class ThreadModelChildren extends Children.Keys<Object>
+        implements ThreadModelListener {
+    /** The thread model providing the children. */
+    private final ThreadModel threadModel;
+    /** The thread group we represent, or null for the top-level groups. */
+    private final ThreadGroupReference threadGroup;
+    /** Decides which threads are shown. */
+    private final ThreadFilter threadFilter;
+    /** The debugging context for our threads. */
+    private final DebuggingContext debugContext;
+    /** Nodes that have been created, keyed by their key. */
+    private final Map<Object, Node> nodeMap;
+    /** Changed thread entries waiting to be shown (guarded by itself). */
+    private final List<ThreadEntry> pendingChanges;
+    /** True if the keys are to be recomputed (guarded by pendingChanges). */
+    private boolean pendingKeys;
+    /** True if an update has been posted (guarded by pendingChanges). */
+    private boolean pendingUpdate;
+    /** Our listener registered with the model, while we are in use. */
+    private ThreadModelListener modelListener;
+
+    /**
+     * Creates a new instance of ThreadModelChildren.
+     *
+     * @param  model    the thread model.
+     * @param  group    thread group to represent, or null for the
+     *                  top-level thread groups.
+     * @param  filter   decides which threads are shown.
+     * @param  context  debugging context.
+     */
+    public ThreadModelChildren(ThreadModel model, ThreadGroupReference group,
+            ThreadFilter filter, DebuggingContext context) {
+        threadModel = model;
+        threadGroup = group;
+        threadFilter = filter;
+        debugContext = context;
+        nodeMap = Collections.synchronizedMap(new HashMap<Object, Node>());
+        pendingChanges = new LinkedList<ThreadEntry>();
+    }
+
+    @Override
+    protected void addNotify() {
+        super.addNotify();
+        modelListener = WeakListeners.create(ThreadModelListener.class,
+                this, threadModel);
+        threadModel.addThreadModelListener(modelListener);
+        refreshKeys();
+    }
+
+    @Override
+    protected Node[] createNodes(Object key) {
+        NodeFactory factory = NodeFactory.getDefault();
+        Node node;
+        if (key instanceof ThreadGroupReference) {
+            ThreadGroupReference group = (ThreadGroupReference) key;
+            if (threadModel.getGroupName(group) == null) {
+                return null;
+            }
+            node = factory.createThreadGroupNode(threadModel, group,
+                    threadFilter, debugContext);
+        } else {
+            ThreadEntry entry = threadModel.getEntry((ThreadReference) key);
+            if (entry == null) {
+                return null;
+            }
+            node = factory.createThreadNode(entry, debugContext);
+        }
+        nodeMap.put(key, node);
+        return new Node[] { node };
+    }
+
+    @Override
+    protected void destroyNodes(Node[] nodes) {
+        synchronized (nodeMap) {
+            for (Node node : nodes) {
+                nodeMap.values().remove(node);
+            }
+        }
+        super.destroyNodes(nodes);
+    }
+
+    /**
+     * Finds the node created for the given key.
+     *
+     * @param  key  thread group or thread reference.
+     * @return  the node, or null if no such node exists.
+     */
+    public Node findNode(Object key) {
+        return nodeMap.get(key);
+    }
+
+    /**
+     * Determines if the given group, or any of its subgroups, contains a
+     * thread that would be shown.
+     *
+     * @param  group    thread group to search.
+     * @param  showAll  true to include threads that are not alive.
+     * @return  true if a matching thread was found, false otherwise.
+     */
+    private boolean hasMatch(ThreadGroupReference group, boolean showAll) {
+        for (ThreadEntry entry : threadModel.getThreads(group)) {
+            if (isShown(entry, showAll)) {
+                return true;
+            }
+        }
+        for (ThreadGroupReference subgroup : threadModel.getGroups(group)) {
+            if (hasMatch(subgroup, showAll)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines if the given thread is to be shown.
+     *
+     * @param  entry    thread entry.
+     * @param  showAll  true to include threads that are not alive.
+     * @return  true if shown, false if hidden.
+     */
+    private boolean isShown(ThreadEntry entry, boolean showAll) {
+        // Ignore threads that haven't started or have already finished,
+        // unless user wants to see them all anyway.
+        return (showAll || !entry.isDead()) && threadFilter.matches(entry);
+    }
+
+    /**
+     * Indicates if the given group is the one we represent.
+     *
+     * @param  group  thread group (may be null).
+     * @return  true if ours, false otherwise.
+     */
+    private boolean isOurs(ThreadGroupReference group) {
+        return threadGroup == null ? group == null : threadGroup.equals(group);
+    }
+
+    /**
+     * Applies the pending changes to the nodes; must be called on the
+     * AWT event dispatching thread.
+     */
+    private void processPending() {
+        List<ThreadEntry> changes;
+        boolean keys;
+        synchronized (pendingChanges) {
+            changes = new ArrayList<ThreadEntry>(pendingChanges);
+            pendingChanges.clear();
+            keys = pendingKeys;
+            pendingKeys = false;
+            pendingUpdate = false;
+        }
+        if (modelListener == null) {
+            // No longer in use.
+            return;
+        }
+        if (keys) {
+            refreshKeys();
+        }
+        for (ThreadEntry entry : changes) {
+            Node node = nodeMap.get(entry.getThread());
+            if (node instanceof DefaultThreadNode) {
+                ((DefaultThreadNode) node).update(entry);
+            }
+        }
+    }
+
+    /**
+     * Computes the keys from the current state of the thread model.
+     */
+    private void refreshKeys() {
+        boolean showAll = CoreSettings.getDefault().getShowAllThreads();
+        List<Object> keys = new ArrayList<Object>();
+        for (ThreadGroupReference group : threadModel.getGroups(threadGroup)) {
+            if (threadFilter.isEmpty() || hasMatch(group, showAll)) {
+                keys.add(group);
+            }
+        }
+        if (threadGroup != null) {
+            for (ThreadEntry entry : threadModel.getThreads(threadGroup)) {
+                if (isShown(entry, showAll)) {
+                    keys.add(entry.getThread());
+                }
+            }
+        }
+        setKeys(keys);
+    }
+
+    @Override
+    protected void removeNotify() {
+        if (modelListener != null) {
+            threadModel.removeThreadModelListener(modelListener);
+            modelListener = null;
+        }
+        setKeys(Collections.emptySet());
+        nodeMap.clear();
+        super.removeNotify();
+    }
+
+    @Override
+    public void threadsChanged(ThreadModelEvent event) {
+        // With a filter in effect, any change may hide or reveal a group.
+        boolean keys = event.isReloaded() || !threadFilter.isEmpty();
+        List<ThreadEntry> changes = new ArrayList<ThreadEntry>();
+        if (!keys) {
+            for (ThreadEntry entry : event.getAdded()) {
+                keys |= isOurs(entry.getGroup());
+            }
+            for (ThreadEntry entry : event.getRemoved()) {
+                keys |= isOurs(entry.getGroup());
+            }
+            for (ThreadGroupReference group : event.getAddedGroups()) {
+                keys |= isOurs(threadModel.getParent(group));
+            }
+        }
+        if (event.isReloaded()) {
+            // Every entry has been replaced, so update all of our threads.
+            synchronized (nodeMap) {
+                Iterator<Object> iter = nodeMap.keySet().iterator();
+                while (iter.hasNext()) {
+                    Object key = iter.next();
+                    if (key instanceof ThreadReference) {
+                        ThreadEntry entry = threadModel.getEntry(
+                                (ThreadReference) key);
+                        if (entry != null) {
+                            changes.add(entry);
+                        }
+                    }
+                }
+            }
+        } else {
+            for (ThreadEntry entry : event.getChanged()) {
+                if (isOurs(entry.getGroup())) {
+                    changes.add(entry);
+                }
+            }
+        }
+        if (!keys && changes.isEmpty()) {
+            return;
+        }
+        synchronized (pendingChanges) {
+            pendingChanges.addAll(changes);
+            pendingKeys |= keys;
+            if (pendingUpdate) {
+                // Already posted, will pick up these changes as well.
+                return;
+            }
+            pendingUpdate = true;
+        }
+        EventQueue.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                processPending();
+            }
+        });
+    }
+}
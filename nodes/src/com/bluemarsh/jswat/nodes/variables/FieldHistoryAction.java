@@ -0,0 +1,110 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.nodes.variables;
+
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.bluemarsh.jswat.core.trace.FieldRecorder;
+import com.bluemarsh.jswat.core.trace.TraceProvider;
+import com.sun.jdi.Field;
+import com.sun.jdi.VirtualMachine;
+import org.openide.DialogDisplayer;
+import org.openide.NotifyDescriptor;
+import org.openide.nodes.Node;
+import org.openide.util.HelpCtx;
+import org.openide.util.NbBundle;
+import org.openide.util.actions.NodeAction;
+
+/**
+ * Implements the action of recording the history of the selected fields.
+ * Fields of an object are recorded for that object only.
+ *
+ * @author  Nathan Fiedler
+ */
+public class FieldHistoryAction extends NodeAction {
+
+    /** silence the compiler warnings */
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean asynchronous() {
+        return false;
+    }
+
+    @Override
+    protected boolean enable(Node[] activatedNodes) {
+        if (activatedNodes == null || activatedNodes.length == 0) {
+            return false;
+        }
+        for (Node n : activatedNodes) {
+            GetVariableCookie gvc = n.getLookup().lookup(GetVariableCookie.class);
+            if (gvc == null || gvc.getField() == null) {
+                return false;
+            }
+            VirtualMachine vm = gvc.getField().virtualMachine();
+            if (!vm.canWatchFieldModification()
+                    || gvc.getObjectReference() != null
+                    && !vm.canUseInstanceFilters()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public HelpCtx getHelpCtx() {
+        return HelpCtx.DEFAULT_HELP;
+    }
+
+    @Override
+    public String getName() {
+        return NbBundle.getMessage(FieldHistoryAction.class,
+                "LBL_FieldHistoryAction_Name");
+    }
+
+    @Override
+    protected void performAction(Node[] activatedNodes) {
+        Session session = SessionProvider.getCurrentSession();
+        FieldRecorder recorder = TraceProvider.getFieldRecorder(session);
+        for (Node n : activatedNodes) {
+            GetVariableCookie gvc = n.getLookup().lookup(GetVariableCookie.class);
+            if (gvc != null) {
+                Field field = gvc.getField();
+                if (field != null) {
+                    try {
+                        recorder.record(field, gvc.getObjectReference(),
+                                FieldRecorder.DEFAULT_CAPACITY);
+                    } catch (IllegalStateException ise) {
+                        // Session disconnected in the meantime.
+                        return;
+                    } catch (UnsupportedOperationException uoe) {
+                        NotifyDescriptor nd = new NotifyDescriptor.Message(
+                                NbBundle.getMessage(FieldHistoryAction.class,
+                                "ERR_FieldHistoryAction_Unsupported"),
+                                NotifyDescriptor.ERROR_MESSAGE);
+                        DialogDisplayer.getDefault().notify(nd);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -37,7 +37,8 @@ import org.openide.util.NbBundle;
 /**
  * Class ReferentsNode represents the referring objects of an object
  * reference. That is, it displays the objects that refer to the given
- * object reference (i.e. back tracing).
+ * object reference (i.e. back tracing), along with the paths by which
+ * the object is reachable from the garbage collection roots.
  *
  * @author  Nathan Fiedler
  */
@@ -117,6 +118,8 @@ public class ReferentsNode extends AbstractNode implements Comparable<Node> {
                     count++;
                 }
                 Node[] kidsArray = kids.toArray(new Node[kids.size()]);
+                // Offer to explain why the object is still alive.
+                super.add(new Node[] { new RetentionNode(reference) });
                 super.add(kidsArray);
             } catch (Exception e) {
                 // In most cases, debuggee has resumed, just do nothing.
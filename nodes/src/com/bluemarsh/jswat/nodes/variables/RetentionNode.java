@@ -0,0 +1,306 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.nodes.variables;
+
+import com.bluemarsh.jswat.core.CoreSettings;
+import com.bluemarsh.jswat.core.PlatformProvider;
+import com.bluemarsh.jswat.core.PlatformService;
+import com.bluemarsh.jswat.core.heap.RetentionPath;
+import com.bluemarsh.jswat.core.heap.RetentionSearch;
+import com.bluemarsh.jswat.core.util.Threads;
+import com.sun.jdi.ClassObjectReference;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.ThreadReference;
+import java.awt.Image;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.openide.nodes.AbstractNode;
+import org.openide.nodes.Children;
+import org.openide.nodes.Node;
+import org.openide.util.Cancellable;
+import org.openide.util.ImageUtilities;
+import org.openide.util.NbBundle;
+
+/**
+ * Class RetentionNode answers the question "why is this object still
+ * alive?" by showing the shortest paths of references from a garbage
+ * collection root to the object. The search starts when the node is
+ * expanded, and runs in the background, as it may take a while.
+ *
+ * @author  Nathan Fiedler
+ */
+public class RetentionNode extends AbstractNode {
+    /** Name of this type of node. */
+    public static final String NAME = "retention";
+    /** Maximum number of paths to be found. */
+    private static final int MAX_PATHS = 10;
+    /** Number of objects visited so far, or -1 if not searching. */
+    private volatile int visited;
+
+    /**
+     * Creates a new instance of RetentionNode.
+     *
+     * @param  reference  the object reference.
+     */
+    public RetentionNode(ObjectReference reference) {
+        super(Children.LEAF);
+        visited = -1;
+        setChildren(new RetentionChildren(reference));
+    }
+
+    @Override
+    public String getDisplayName() {
+        int count = visited;
+        if (count < 0) {
+            return NbBundle.getMessage(RetentionNode.class,
+                    "LBL_RetentionNode_Name");
+        }
+        return NbBundle.getMessage(RetentionNode.class,
+                "LBL_RetentionNode_Searching", String.valueOf(count));
+    }
+
+    @Override
+    public Image getIcon(int type) {
+        String url = NbBundle.getMessage(VariableNode.class,
+                        "IMG_VariableNode_FieldNode");
+        return ImageUtilities.loadImage(url);
+    }
+
+    @Override
+    public Image getOpenedIcon(int type) {
+        return getIcon(type);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Updates the progress shown in the display name.
+     *
+     * @param  count  number of objects visited, or -1 when done.
+     */
+    private void setVisited(int count) {
+        visited = count;
+        fireDisplayNameChange(null, null);
+    }
+
+    /**
+     * A Result is either a retention path along with its description, or
+     * a message explaining the outcome of the search.
+     */
+    private static class Result {
+        /** Description of the path, or the message. */
+        private final String label;
+        /** The retention path, or null if this is a message. */
+        private final RetentionPath path;
+
+        /**
+         * Constructs a new Result.
+         *
+         * @param  label  description or message.
+         * @param  path   retention path, or null.
+         */
+        Result(String label, RetentionPath path) {
+            this.label = label;
+            this.path = path;
+        }
+    }
+
+    /**
+     * Children of the RetentionNode, performs the search when first
+     * shown, and cancels it if the node is collapsed in the meantime.
+     */
+    private class RetentionChildren extends Children.Keys<Result>
+            implements Cancellable, Runnable, RetentionSearch.Listener {
+        /** The object reference. */
+        private final ObjectReference reference;
+        /** The search in progress, if any. */
+        private volatile RetentionSearch search;
+
+        /**
+         * Creates a new instance of RetentionChildren.
+         *
+         * @param  reference  the object reference.
+         */
+        RetentionChildren(ObjectReference reference) {
+            this.reference = reference;
+        }
+
+        @Override
+        protected void addNotify() {
+            super.addNotify();
+            CoreSettings cs = CoreSettings.getDefault();
+            search = new RetentionSearch(reference, cs.getRetentionDepth(),
+                    cs.getRetentionObjects(), MAX_PATHS);
+            search.setListener(this);
+            setVisited(0);
+            Threads.getThreadPool().submit(this);
+        }
+
+        @Override
+        public boolean cancel() {
+            RetentionSearch s = search;
+            if (s != null) {
+                s.cancel();
+            }
+            return true;
+        }
+
+        @Override
+        protected Node[] createNodes(Result key) {
+            Node node;
+            if (key.path == null) {
+                node = new AbstractNode(Children.LEAF);
+                node.setDisplayName(key.label);
+            } else {
+                node = new PathNode(key.path, key.label);
+            }
+            return new Node[] { node };
+        }
+
+        /**
+         * Describes the root of the retention path.
+         *
+         * @param  path  retention path.
+         * @return  description of the path.
+         */
+        private String describe(RetentionPath path) {
+            List<RetentionPath.Link> links = path.getLinks();
+            RetentionPath.Link root = links.get(0);
+            String length = String.valueOf(path.length());
+            ObjectReference obj = root.getObject();
+            switch (path.getKind()) {
+                case CLASS:
+                    String cname = ((ClassObjectReference) obj).reflectedType().name();
+                    if (root.getReference() == null) {
+                        return NbBundle.getMessage(RetentionNode.class,
+                                "LBL_RetentionNode_ClassObject", cname, length);
+                    }
+                    return NbBundle.getMessage(RetentionNode.class,
+                            "LBL_RetentionNode_Class", cname,
+                            root.getReference(), length);
+                case THREAD:
+                    return NbBundle.getMessage(RetentionNode.class,
+                            "LBL_RetentionNode_Thread",
+                            ((ThreadReference) obj).name(), length);
+                default:
+                    return NbBundle.getMessage(RetentionNode.class,
+                            "LBL_RetentionNode_Unreferenced",
+                            obj.referenceType().name(), length);
+            }
+        }
+
+        @Override
+        public void progress(int count, int depth) {
+            setVisited(count);
+        }
+
+        @Override
+        protected void removeNotify() {
+            cancel();
+            search = null;
+            setKeys(Collections.<Result>emptySet());
+            super.removeNotify();
+        }
+
+        @Override
+        public void run() {
+            RetentionSearch s = search;
+            if (s == null) {
+                return;
+            }
+            PlatformService platform = PlatformProvider.getPlatformService();
+            Object ph = platform.startProgress(NbBundle.getMessage(
+                    RetentionNode.class, "LBL_RetentionNode_Progress"), this);
+            List<Result> results = new ArrayList<Result>();
+            try {
+                for (RetentionPath path : s.search()) {
+                    results.add(new Result(describe(path), path));
+                }
+                String msg = null;
+                if (s.isCancelled()) {
+                    msg = "LBL_RetentionNode_Cancelled";
+                } else if (s.isExhausted()) {
+                    msg = "LBL_RetentionNode_Exhausted";
+                } else if (results.isEmpty()) {
+                    msg = "LBL_RetentionNode_None";
+                }
+                if (msg != null) {
+                    results.add(new Result(NbBundle.getMessage(
+                            RetentionNode.class, msg), null));
+                }
+            } catch (Exception e) {
+                // In most cases, debuggee has resumed, just do nothing.
+            } finally {
+                platform.stopProgress(ph);
+            }
+            if (search == s) {
+                setKeys(results);
+            }
+            setVisited(-1);
+        }
+    }
+
+    /**
+     * Shows the objects along a single retention path, starting from the
+     * root and ending with the object in question.
+     */
+    private static class PathNode extends AbstractNode {
+
+        /**
+         * Creates a new instance of PathNode.
+         *
+         * @param  path   the retention path.
+         * @param  label  description of the path.
+         */
+        PathNode(RetentionPath path, String label) {
+            super(new Children.Array());
+            setDisplayName(label);
+            VariableFactory vf = VariableFactory.getDefault();
+            List<RetentionPath.Link> links = path.getLinks();
+            Node[] kids = new Node[links.size()];
+            String name = NbBundle.getMessage(RetentionNode.class,
+                    "LBL_RetentionNode_Root");
+            for (int ii = 0; ii < kids.length; ii++) {
+                RetentionPath.Link link = links.get(ii);
+                kids[ii] = vf.create(name, link.getObject());
+                // The next object is named by the reference to it.
+                name = link.getReference() == null ? "?" : link.getReference();
+            }
+            getChildren().add(kids);
+        }
+
+        @Override
+        public Image getIcon(int type) {
+            String url = NbBundle.getMessage(VariableNode.class,
+                            "IMG_VariableNode_FieldNode");
+            return ImageUtilities.loadImage(url);
+        }
+
+        @Override
+        public Image getOpenedIcon(int type) {
+            return getIcon(type);
+        }
+    }
+}
@@ -87,6 +87,7 @@ public class VariableNode extends AbstractNode implements
         this.kind = kind;
         nodeActions = new Action[]{
                     SystemAction.get(WatchpointAction.class),
+                    SystemAction.get(FieldHistoryAction.class),
                     SystemAction.get(AddWatchAction.class)
                 };
         getCookieSet().add(this);
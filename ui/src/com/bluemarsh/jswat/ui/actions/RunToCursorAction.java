@@ -30,19 +30,22 @@ import com.bluemarsh.jswat.core.breakpoint.BreakpointManager;
 import com.bluemarsh.jswat.core.breakpoint.BreakpointProvider;
 import com.bluemarsh.jswat.core.breakpoint.MalformedClassNameException;
 import com.bluemarsh.jswat.core.session.SessionProvider;
-import com.bluemarsh.jswat.core.util.Names;
+import com.bluemarsh.jswat.core.stepping.RunToLocation;
+import com.bluemarsh.jswat.core.stepping.SteppingException;
+import com.bluemarsh.jswat.core.stepping.SteppingProvider;
 import com.bluemarsh.jswat.ui.ActionEnabler;
 import com.bluemarsh.jswat.ui.editor.EditorSupport;
 import java.net.MalformedURLException;
 import org.openide.ErrorManager;
+import org.openide.awt.StatusDisplayer;
 import org.openide.util.HelpCtx;
 import org.openide.util.NbBundle;
 import org.openide.util.actions.CallableSystemAction;
 
 /**
- * Sets a line breakpoint at a line in the currently focused editor,
- * then resumes the debuggee. The breakpoint is set to delete on expire
- * and expire after one hit, so it will be deleted automatically.
+ * Resumes the debuggee until it reaches the line in the currently focused
+ * editor. If the class at that line is known, no breakpoint is created;
+ * otherwise a line breakpoint is set to delete itself when hit.
  *
  * @author Nathan Fiedler
  */
@@ -86,17 +89,23 @@ public class RunToCursorAction extends CallableSystemAction {
         int line = es.getCurrentLineNumber();
         if (url != null && line > 0) {
             Session session = SessionProvider.getSessionManager().getCurrent();
+            String name = es.getClassName(url, line);
+            if (name != null && name.length() > 0) {
+                // Run directly to the line, without creating a breakpoint.
+                RunToLocation runTo = SteppingProvider.getRunToLocation(session);
+                try {
+                    runTo.runToLine(name, line, null);
+                } catch (SteppingException se) {
+                    StatusDisplayer.getDefault().setStatusText(se.getMessage());
+                }
+                return;
+            }
             BreakpointManager bm = BreakpointProvider.getBreakpointManager(session);
             BreakpointFactory bf = BreakpointProvider.getBreakpointFactory();
             try {
-                // Attempt to determine the package name.
-                String name = es.getClassName(url, line);
-                name = Names.getPackageName(name);
-                if (name != null && name.length() == 0) {
-                    // Empty package names should be treated as null.
-                    name = null;
-                }
-                Breakpoint bp = bf.createLineBreakpoint(url, name, line);
+                // The class is not known, so let the breakpoint match
+                // by source file name instead.
+                Breakpoint bp = bf.createLineBreakpoint(url, null, line);
                 bp.setDeleteWhenHit(true);
                 bm.addBreakpoint(bp);
                 session.resumeVM();
@@ -25,10 +25,12 @@ package com.bluemarsh.jswat.ui.editor;
 
 import com.bluemarsh.jswat.core.context.ContextProvider;
 import com.bluemarsh.jswat.core.context.DebuggingContext;
+import com.bluemarsh.jswat.core.context.SuspensionSnapshot;
 import com.bluemarsh.jswat.core.path.PathEntry;
 import com.bluemarsh.jswat.core.path.PathManager;
 import com.bluemarsh.jswat.core.path.PathProvider;
 import com.bluemarsh.jswat.core.session.Session;
+import com.sun.jdi.IncompatibleThreadStateException;
 import com.sun.jdi.Location;
 import java.util.HashMap;
 import java.util.Map;
@@ -63,6 +65,30 @@ public class SteppingSupport {
         return theInstance;
     }
 
+    /**
+     * Finds the source file for the current location, preferably by way
+     * of the snapshot, which may already have found it.
+     *
+     * @param  dc   debugging context.
+     * @param  pm   path manager.
+     * @param  loc  current location.
+     * @return  source file, or null if not found.
+     */
+    private static PathEntry findSource(DebuggingContext dc, PathManager pm,
+            Location loc) {
+        SuspensionSnapshot snapshot = dc.getSnapshot();
+        if (snapshot != null) {
+            try {
+                return snapshot.getSource(dc.getFrame(), pm);
+            } catch (IncompatibleThreadStateException itse) {
+                // Fall through and look it up directly.
+            } catch (IndexOutOfBoundsException ioobe) {
+                // Fall through and look it up directly.
+            }
+        }
+        return pm.findSource(loc);
+    }
+
     /**
      * Removes the program counter annotation for the given session, if
      * one exists.
@@ -92,7 +118,7 @@ public class SteppingSupport {
         if (loc != null) {
             // There is a location, see if we can get the source file.
             PathManager pm = PathProvider.getPathManager(session);
-            PathEntry pe = pm.findSource(loc);
+            PathEntry pe = findSource(dc, pm, loc);
             if (pe != null) {
                 // There is a source file, get the URL.
                 String url = pe.getURL().toString();
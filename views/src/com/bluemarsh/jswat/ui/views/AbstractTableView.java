@@ -0,0 +1,249 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.ui.views;
+
+import java.awt.BorderLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Collections;
+import java.util.List;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+import org.openide.util.NbBundle;
+
+/**
+ * Class AbstractTableView is the basis for the views that show the data
+ * gathered by one of the session's collectors in a table, with a row of
+ * controls above it and a status line below. While the view is open, the
+ * data is collected in the background once a second, using the
+ * {@link ViewRefresher}, and then published to the view.
+ * <p/>
+ * @param <S> type of the snapshot collected for the view.
+ * <p/>
+ * @author Nathan Fiedler
+ */
+public abstract class AbstractTableView<S> extends AbstractView {
+
+    /**
+     * silence the compiler warnings
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * Milliseconds between updates of the view.
+     */
+    private static final int UPDATE_INTERVAL = 1000;
+    /**
+     * Shows the status of the collector.
+     */
+    private final JLabel statusLabel;
+    /**
+     * Schedules the periodic updates while the view is open.
+     */
+    private transient Timer timer;
+    /**
+     * Collects the data in the background.
+     */
+    private transient ViewRefresher.Refreshable<S> refresher;
+
+    /**
+     * Creates a new instance of AbstractTableView.
+     */
+    public AbstractTableView() {
+        refresher = new ViewRefresher.Refreshable<S>() {
+            @Override
+            public S collect() {
+                return collectSnapshot();
+            }
+
+            @Override
+            public void publish(S snapshot) {
+                publishSnapshot(snapshot);
+            }
+        };
+        statusLabel = new JLabel(" ");
+    }
+
+    /**
+     * Collects the data to be shown in the view. This is called on a
+     * background thread, and should read only the information already
+     * gathered by the collector, rather than going to the debuggee.
+     * <p/>
+     * @return snapshot of the data.
+     */
+    protected abstract S collectSnapshot();
+
+    @Override
+    protected void componentClosed() {
+        super.componentClosed();
+        if (timer != null) {
+            timer.stop();
+            timer = null;
+        }
+        ViewRefresher.getDefault().cancel(refresher);
+    }
+
+    @Override
+    protected void componentOpened() {
+        super.componentOpened();
+        timer = new Timer(UPDATE_INTERVAL, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                refresh();
+            }
+        });
+        timer.setInitialDelay(0);
+        timer.start();
+    }
+
+    @Override
+    public int getPersistenceType() {
+        return PERSISTENCE_ALWAYS;
+    }
+
+    /**
+     * Lays out the view with the given controls above the table and the
+     * status line below.
+     * <p/>
+     * @param controls the controls of the view.
+     * @param table    the table showing the data.
+     */
+    protected void layoutView(JComponent controls, JTable table) {
+        setLayout(new BorderLayout());
+        add(controls, BorderLayout.NORTH);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        add(statusLabel, BorderLayout.SOUTH);
+    }
+
+    @Override
+    protected String preferredID() {
+        return getClass().getName();
+    }
+
+    /**
+     * Shows the collected data in the view. This is called on the AWT
+     * event dispatching thread.
+     * <p/>
+     * @param snapshot the collected data.
+     */
+    protected abstract void publishSnapshot(S snapshot);
+
+    /**
+     * Schedules the collection of the data shown in the view, such as
+     * after the user has changed the state of the collector.
+     */
+    protected void refresh() {
+        ViewRefresher.getDefault().schedule(refresher);
+    }
+
+    /**
+     * Sets the text of the status line.
+     * <p/>
+     * @param status status of the collector, or null to clear.
+     */
+    protected void setStatus(String status) {
+        statusLabel.setText(status == null ? " " : status);
+    }
+
+    /**
+     * Table model showing a list of rows, one object per row, whose
+     * column names are found in the bundle of this package.
+     * <p/>
+     * @param <R> type of the objects shown in the rows.
+     */
+    protected abstract static class RowTableModel<R> extends AbstractTableModel {
+
+        /**
+         * silence the compiler warnings
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * Keys of the column names in the bundle.
+         */
+        private final String[] columns;
+        /**
+         * Classes of the column values.
+         */
+        private final Class<?>[] types;
+        /**
+         * The rows shown in the table.
+         */
+        private List<R> rows = Collections.emptyList();
+
+        /**
+         * Constructs a new RowTableModel.
+         * <p/>
+         * @param columns keys of the column names in the bundle.
+         * @param types   classes of the column values.
+         */
+        protected RowTableModel(String[] columns, Class<?>[] types) {
+            this.columns = columns;
+            this.types = types;
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return types[column];
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return NbBundle.getMessage(AbstractTableView.class, columns[column]);
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return getColumnValue(rows.get(row), column);
+        }
+
+        /**
+         * Returns the value of the given column for the given row.
+         * <p/>
+         * @param row    object shown in the row.
+         * @param column index of the column.
+         * @return value for the cell.
+         */
+        protected abstract Object getColumnValue(R row, int column);
+
+        /**
+         * Replaces the rows shown in the table.
+         * <p/>
+         * @param rows new list of rows.
+         */
+        public void setRows(List<R> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+    }
+}
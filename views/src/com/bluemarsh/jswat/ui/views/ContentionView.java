@@ -0,0 +1,323 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.ui.views;
+
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionManager;
+import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.bluemarsh.jswat.core.trace.ContentionProfiler;
+import com.bluemarsh.jswat.core.trace.ContentionStatistic;
+import com.bluemarsh.jswat.core.trace.TraceProvider;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.List;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JPanel;
+import javax.swing.JTable;
+import org.openide.DialogDisplayer;
+import org.openide.NotifyDescriptor;
+import org.openide.util.HelpCtx;
+import org.openide.util.NbBundle;
+
+/**
+ * Class ContentionView controls the contention profiler of the current
+ * session, and shows the monitor classes and code locations at which
+ * threads spent the most time blocked or waiting. The table may be
+ * sorted by any column. While the view is open, it is updated once a
+ * second.
+ * <p/>
+ * @author Nathan Fiedler
+ */
+public class ContentionView extends AbstractTableView<ContentionView.Snapshot> {
+
+    /**
+     * silence the compiler warnings
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * Maximum number of rows shown in the table.
+     */
+    private static final int ROW_LIMIT = 200;
+    /**
+     * Holds the statistics shown in the table.
+     */
+    private final StatisticTableModel tableModel;
+    /**
+     * Selects summing the times by monitor class.
+     */
+    private final JCheckBox byClassCheckBox;
+    /**
+     * Starts measuring contention.
+     */
+    private final JButton startButton;
+    /**
+     * Stops measuring contention.
+     */
+    private final JButton stopButton;
+    /**
+     * Discards the statistics.
+     */
+    private final JButton resetButton;
+    /**
+     * True if the times are to be summed by monitor class (copied from
+     * the check box for the benefit of the refresher).
+     */
+    private volatile boolean byClass;
+
+    /**
+     * Creates a new instance of ContentionView.
+     */
+    public ContentionView() {
+        tableModel = new StatisticTableModel();
+        JTable table = new JTable(tableModel);
+        table.setAutoCreateRowSorter(true);
+        table.getColumnModel().getColumn(4).setPreferredWidth(250);
+        table.getColumnModel().getColumn(5).setPreferredWidth(250);
+
+        byClassCheckBox = new JCheckBox(NbBundle.getMessage(
+                ContentionView.class, "LBL_ContentionView_ByClass"));
+        byClassCheckBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                byClass = byClassCheckBox.isSelected();
+                refresh();
+            }
+        });
+        startButton = new JButton(NbBundle.getMessage(
+                ContentionView.class, "LBL_ContentionView_Start"));
+        startButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                startProfiling();
+            }
+        });
+        stopButton = new JButton(NbBundle.getMessage(
+                ContentionView.class, "LBL_ContentionView_Stop"));
+        stopButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                getProfiler().stop();
+                refresh();
+            }
+        });
+        resetButton = new JButton(NbBundle.getMessage(
+                ContentionView.class, "LBL_ContentionView_Reset"));
+        resetButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                getProfiler().reset();
+                refresh();
+            }
+        });
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEADING));
+        controls.add(byClassCheckBox);
+        controls.add(startButton);
+        controls.add(stopButton);
+        controls.add(resetButton);
+        layoutView(controls, table);
+        updateButtons(false);
+    }
+
+    /**
+     * Collects the contention statistics of the current session. Only the
+     * statistics already gathered are read, nothing is retrieved from the
+     * debuggee.
+     * <p/>
+     * @return snapshot of the statistics.
+     */
+    @Override
+    protected Snapshot collectSnapshot() {
+        ContentionProfiler profiler = getProfiler();
+        List<ContentionStatistic> stats = profiler.getStatistics(byClass);
+        if (stats.size() > ROW_LIMIT) {
+            stats = stats.subList(0, ROW_LIMIT);
+        }
+        String status = NbBundle.getMessage(ContentionView.class,
+                "CTL_ContentionView_Status",
+                String.valueOf(profiler.getEventCount()));
+        return new Snapshot(profiler.isProfiling(), stats, status);
+    }
+
+    @Override
+    public String getDisplayName() {
+        return NbBundle.getMessage(ContentionView.class, "CTL_ContentionView_Name");
+    }
+
+    @Override
+    public HelpCtx getHelpCtx() {
+        return new HelpCtx("jswat-contention-view");
+    }
+
+    /**
+     * Returns the contention profiler of the current session.
+     * <p/>
+     * @return contention profiler.
+     */
+    private static ContentionProfiler getProfiler() {
+        SessionManager sm = SessionProvider.getSessionManager();
+        return TraceProvider.getContentionProfiler(sm.getCurrent());
+    }
+
+    @Override
+    public String getToolTipText() {
+        return NbBundle.getMessage(ContentionView.class, "CTL_ContentionView_Tooltip");
+    }
+
+    /**
+     * Shows the collected statistics in the view.
+     * <p/>
+     * @param snapshot the collected statistics.
+     */
+    @Override
+    protected void publishSnapshot(Snapshot snapshot) {
+        tableModel.setRows(snapshot.statistics);
+        setStatus(snapshot.status);
+        updateButtons(snapshot.profiling);
+    }
+
+    /**
+     * Starts measuring the contention of the current session.
+     */
+    private void startProfiling() {
+        SessionManager sm = SessionProvider.getSessionManager();
+        Session session = sm.getCurrent();
+        String error = null;
+        if (!session.isConnected()) {
+            error = "ERR_ContentionView_NotConnected";
+        } else {
+            ContentionProfiler profiler = TraceProvider.getContentionProfiler(session);
+            if (!profiler.isProfiling()) {
+                try {
+                    profiler.start();
+                } catch (UnsupportedOperationException uoe) {
+                    error = "ERR_ContentionView_Unsupported";
+                }
+            }
+        }
+        if (error != null) {
+            NotifyDescriptor nd = new NotifyDescriptor.Message(
+                    NbBundle.getMessage(ContentionView.class, error),
+                    NotifyDescriptor.ERROR_MESSAGE);
+            DialogDisplayer.getDefault().notify(nd);
+            return;
+        }
+        updateButtons(true);
+        refresh();
+    }
+
+    /**
+     * Enables the controls according to the state of the profiler.
+     * <p/>
+     * @param profiling true if contention is being measured.
+     */
+    private void updateButtons(boolean profiling) {
+        startButton.setEnabled(!profiling);
+        stopButton.setEnabled(profiling);
+    }
+
+    /**
+     * Table model for the contention statistics.
+     */
+    private static class StatisticTableModel extends RowTableModel<ContentionStatistic> {
+
+        /**
+         * silence the compiler warnings
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * Keys of the column names in the bundle.
+         */
+        private static final String[] COLUMNS = {
+            "CTL_ContentionView_Column_count", "CTL_ContentionView_Column_total",
+            "CTL_ContentionView_Column_max", "CTL_ContentionView_Column_kind",
+            "CTL_ContentionView_Column_monitor", "CTL_ContentionView_Column_site"
+        };
+        /**
+         * Classes of the column values.
+         */
+        private static final Class<?>[] TYPES = {
+            Long.class, Double.class, Double.class, String.class, String.class,
+            String.class
+        };
+
+        /**
+         * Constructs a new StatisticTableModel.
+         */
+        StatisticTableModel() {
+            super(COLUMNS, TYPES);
+        }
+
+        @Override
+        protected Object getColumnValue(ContentionStatistic cs, int column) {
+            switch (column) {
+                case 0:
+                    return Long.valueOf(cs.getCount());
+                case 1:
+                    return Double.valueOf(cs.getTotalTime() / 1000000.0);
+                case 2:
+                    return Double.valueOf(cs.getMaxTime() / 1000000.0);
+                case 3:
+                    return NbBundle.getMessage(ContentionView.class,
+                            cs.isWaiting() ? "CTL_ContentionView_Waiting"
+                            : "CTL_ContentionView_Blocked");
+                case 4:
+                    return cs.getMonitorClass();
+                default:
+                    return cs.getSite();
+            }
+        }
+    }
+
+    /**
+     * The statistics collected in the background.
+     */
+    static class Snapshot {
+
+        /**
+         * True if contention is being measured.
+         */
+        private final boolean profiling;
+        /**
+         * The statistics with the longest times.
+         */
+        private final List<ContentionStatistic> statistics;
+        /**
+         * Number of monitor events received.
+         */
+        private final String status;
+
+        /**
+         * Constructs a new Snapshot.
+         * <p/>
+         * @param profiling  true if contention is being measured.
+         * @param statistics the statistics with the longest times.
+         * @param status     number of monitor events received.
+         */
+        Snapshot(boolean profiling, List<ContentionStatistic> statistics,
+                String status) {
+            this.profiling = profiling;
+            this.statistics = statistics;
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.ui.views;
+
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionManager;
+import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.bluemarsh.jswat.core.trace.ExceptionCount;
+import com.bluemarsh.jswat.core.trace.ExceptionHistogram;
+import com.bluemarsh.jswat.core.trace.ExceptionSnapshot;
+import com.bluemarsh.jswat.core.trace.TraceProvider;
+import com.bluemarsh.jswat.core.util.Strings;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+import org.openide.DialogDisplayer;
+import org.openide.NotifyDescriptor;
+import org.openide.util.HelpCtx;
+import org.openide.util.NbBundle;
+
+/**
+ * Class ExceptionsView controls the exception histogram of the current
+ * session, and shows the most frequently thrown exceptions, along with
+ * the number thrown since the view was last updated. While the view is
+ * open, it is updated once a second.
+ * <p/>
+ * @author Nathan Fiedler
+ */
+public class ExceptionsView extends AbstractTableView<ExceptionsView.Snapshot> {
+
+    /**
+     * silence the compiler warnings
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * Maximum number of rows shown in the table.
+     */
+    private static final int ROW_LIMIT = 200;
+    /**
+     * Holds the exception counts shown in the table.
+     */
+    private final CountTableModel tableModel;
+    /**
+     * Class patterns of the throwing locations to be ignored.
+     */
+    private final JTextField exclusionsField;
+    /**
+     * Selects summing the counts by exception type.
+     */
+    private final JCheckBox byTypeCheckBox;
+    /**
+     * Starts counting exceptions.
+     */
+    private final JButton startButton;
+    /**
+     * Stops counting exceptions.
+     */
+    private final JButton stopButton;
+    /**
+     * Discards the counts.
+     */
+    private final JButton resetButton;
+    /**
+     * The counts shown at the previous update, from which the deltas are
+     * computed (accessed only by the refresher).
+     */
+    private transient ExceptionSnapshot previous;
+    /**
+     * The histogram from which the previous counts were taken.
+     */
+    private transient ExceptionHistogram previousHistogram;
+    /**
+     * True if the counts are to be summed by type (copied from the check
+     * box for the benefit of the refresher).
+     */
+    private volatile boolean byType;
+
+    /**
+     * Creates a new instance of ExceptionsView.
+     */
+    public ExceptionsView() {
+        tableModel = new CountTableModel();
+        JTable table = new JTable(tableModel);
+        table.getColumnModel().getColumn(2).setPreferredWidth(250);
+        table.getColumnModel().getColumn(3).setPreferredWidth(250);
+        table.getColumnModel().getColumn(4).setPreferredWidth(250);
+
+        exclusionsField = new JTextField(20);
+        exclusionsField.setToolTipText(NbBundle.getMessage(
+                ExceptionsView.class, "CTL_ExceptionsView_Exclusions_Tip"));
+        JLabel label = new JLabel(NbBundle.getMessage(
+                ExceptionsView.class, "LBL_ExceptionsView_Exclusions"));
+        label.setLabelFor(exclusionsField);
+        byTypeCheckBox = new JCheckBox(NbBundle.getMessage(
+                ExceptionsView.class, "LBL_ExceptionsView_ByType"));
+        byTypeCheckBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                byType = byTypeCheckBox.isSelected();
+                refresh();
+            }
+        });
+        startButton = new JButton(NbBundle.getMessage(
+                ExceptionsView.class, "LBL_ExceptionsView_Start"));
+        startButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                startCounting();
+            }
+        });
+        stopButton = new JButton(NbBundle.getMessage(
+                ExceptionsView.class, "LBL_ExceptionsView_Stop"));
+        stopButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                getHistogram().stop();
+                refresh();
+            }
+        });
+        resetButton = new JButton(NbBundle.getMessage(
+                ExceptionsView.class, "LBL_ExceptionsView_Reset"));
+        resetButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                getHistogram().reset();
+                refresh();
+            }
+        });
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEADING));
+        controls.add(label);
+        controls.add(exclusionsField);
+        controls.add(byTypeCheckBox);
+        controls.add(startButton);
+        controls.add(stopButton);
+        controls.add(resetButton);
+        layoutView(controls, table);
+        updateButtons(false);
+    }
+
+    /**
+     * Collects the exception counts of the current session, and the
+     * number of each thrown since the previous update. Only the counts
+     * already gathered are read, nothing is retrieved from the debuggee.
+     * <p/>
+     * @return snapshot of the counts.
+     */
+    @Override
+    protected Snapshot collectSnapshot() {
+        ExceptionHistogram histogram = getHistogram();
+        ExceptionSnapshot current = histogram.getSnapshot();
+        // The counts may have been reset, or come from another session.
+        ExceptionSnapshot delta = previous == null
+                || previousHistogram != histogram
+                || previous.getTotal() > current.getTotal()
+                ? current : current.delta(previous);
+        previous = current;
+        previousHistogram = histogram;
+        List<ExceptionCount> counts = byType ? current.getTypeCounts()
+                : current.getCounts();
+        List<ExceptionCount> changes = byType ? delta.getTypeCounts()
+                : delta.getCounts();
+        Map<String, Long> deltas = new HashMap<String, Long>();
+        for (ExceptionCount ec : changes) {
+            deltas.put(rowKey(ec), Long.valueOf(ec.getCount()));
+        }
+        if (counts.size() > ROW_LIMIT) {
+            counts = counts.subList(0, ROW_LIMIT);
+        }
+        double seconds = current.getElapsedTime() / 1000000000.0;
+        double rate = seconds > 0 ? current.getTotal() / seconds : 0.0;
+        String status = NbBundle.getMessage(ExceptionsView.class,
+                "CTL_ExceptionsView_Status", String.valueOf(current.getTotal()),
+                String.format("%.1f", seconds), String.format("%.1f", rate),
+                String.valueOf(histogram.getMissedCount()));
+        return new Snapshot(histogram.isCollecting(), counts, deltas, status);
+    }
+
+    @Override
+    public String getDisplayName() {
+        return NbBundle.getMessage(ExceptionsView.class, "CTL_ExceptionsView_Name");
+    }
+
+    @Override
+    public HelpCtx getHelpCtx() {
+        return new HelpCtx("jswat-exceptions-view");
+    }
+
+    /**
+     * Returns the exception histogram of the current session.
+     * <p/>
+     * @return exception histogram.
+     */
+    private static ExceptionHistogram getHistogram() {
+        SessionManager sm = SessionProvider.getSessionManager();
+        return TraceProvider.getExceptionHistogram(sm.getCurrent());
+    }
+
+    @Override
+    public String getToolTipText() {
+        return NbBundle.getMessage(ExceptionsView.class, "CTL_ExceptionsView_Tooltip");
+    }
+
+    /**
+     * Shows the collected counts in the view.
+     * <p/>
+     * @param snapshot the collected counts.
+     */
+    @Override
+    protected void publishSnapshot(Snapshot snapshot) {
+        tableModel.setCounts(snapshot.counts, snapshot.deltas);
+        setStatus(snapshot.status);
+        updateButtons(snapshot.collecting);
+    }
+
+    /**
+     * Returns the key by which the deltas are matched to the rows.
+     * <p/>
+     * @param ec exception count.
+     * @return key for the row.
+     */
+    private static String rowKey(ExceptionCount ec) {
+        return ec.getType() + '|' + ec.getThrownAt() + '|' + ec.getCaughtAt();
+    }
+
+    /**
+     * Starts counting the exceptions of the current session.
+     */
+    private void startCounting() {
+        SessionManager sm = SessionProvider.getSessionManager();
+        Session session = sm.getCurrent();
+        if (!session.isConnected()) {
+            NotifyDescriptor nd = new NotifyDescriptor.Message(
+                    NbBundle.getMessage(ExceptionsView.class,
+                    "ERR_ExceptionsView_NotConnected"),
+                    NotifyDescriptor.ERROR_MESSAGE);
+            DialogDisplayer.getDefault().notify(nd);
+            return;
+        }
+        ExceptionHistogram histogram = TraceProvider.getExceptionHistogram(session);
+        if (!histogram.isCollecting()) {
+            List<String> exclusions = Strings.stringToList(
+                    exclusionsField.getText().trim());
+            histogram.start(exclusions);
+        }
+        updateButtons(true);
+        refresh();
+    }
+
+    /**
+     * Enables the controls according to the state of the histogram.
+     * <p/>
+     * @param collecting true if exceptions are being counted.
+     */
+    private void updateButtons(boolean collecting) {
+        startButton.setEnabled(!collecting);
+        stopButton.setEnabled(collecting);
+        exclusionsField.setEnabled(!collecting);
+    }
+
+    /**
+     * Table model for the exception counts.
+     */
+    private static class CountTableModel extends RowTableModel<ExceptionCount> {
+
+        /**
+         * silence the compiler warnings
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * Keys of the column names in the bundle.
+         */
+        private static final String[] COLUMNS = {
+            "CTL_ExceptionsView_Column_count", "CTL_ExceptionsView_Column_delta",
+            "CTL_ExceptionsView_Column_type", "CTL_ExceptionsView_Column_thrown",
+            "CTL_ExceptionsView_Column_caught"
+        };
+        /**
+         * Classes of the column values.
+         */
+        private static final Class<?>[] TYPES = {
+            Long.class, Long.class, String.class, String.class, String.class
+        };
+        /**
+         * Counts since the previous update, keyed by row key.
+         */
+        private Map<String, Long> deltas = Collections.emptyMap();
+
+        /**
+         * Constructs a new CountTableModel.
+         */
+        CountTableModel() {
+            super(COLUMNS, TYPES);
+        }
+
+        @Override
+        protected Object getColumnValue(ExceptionCount ec, int column) {
+            switch (column) {
+                case 0:
+                    return Long.valueOf(ec.getCount());
+                case 1:
+                    Long delta = deltas.get(rowKey(ec));
+                    return delta == null ? Long.valueOf(0) : delta;
+                case 2:
+                    return ec.getType();
+                case 3:
+                    return ec.getThrownAt();
+                default:
+                    return ec.getCaughtAt();
+            }
+        }
+
+        /**
+         * Replaces the counts shown in the table.
+         * <p/>
+         * @param counts new list of counts.
+         * @param deltas counts since the previous update, by row key.
+         */
+        void setCounts(List<ExceptionCount> counts, Map<String, Long> deltas) {
+            this.deltas = deltas;
+            setRows(counts);
+        }
+    }
+
+    /**
+     * The counts collected in the background.
+     */
+    static class Snapshot {
+
+        /**
+         * True if exceptions are being counted.
+         */
+        private final boolean collecting;
+        /**
+         * The largest counts.
+         */
+        private final List<ExceptionCount> counts;
+        /**
+         * Counts since the previous update, by row key.
+         */
+        private final Map<String, Long> deltas;
+        /**
+         * Total and rate of exceptions.
+         */
+        private final String status;
+
+        /**
+         * Constructs a new Snapshot.
+         * <p/>
+         * @param collecting true if exceptions are being counted.
+         * @param counts     the largest counts.
+         * @param deltas     counts since the previous update.
+         * @param status     total and rate of exceptions.
+         */
+        Snapshot(boolean collecting, List<ExceptionCount> counts,
+                Map<String, Long> deltas, String status) {
+            this.collecting = collecting;
+            this.counts = counts;
+            this.deltas = deltas;
+            this.status = status;
+        }
+    }
+}
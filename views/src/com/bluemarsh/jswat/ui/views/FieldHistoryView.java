@@ -0,0 +1,345 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.ui.views;
+
+import com.bluemarsh.jswat.core.session.SessionManager;
+import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.bluemarsh.jswat.core.trace.FieldChange;
+import com.bluemarsh.jswat.core.trace.FieldHistory;
+import com.bluemarsh.jswat.core.trace.FieldRecorder;
+import com.bluemarsh.jswat.core.trace.TraceProvider;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import javax.swing.DefaultComboBoxModel;
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTable;
+import org.openide.util.HelpCtx;
+import org.openide.util.NbBundle;
+
+/**
+ * Class FieldHistoryView shows the values given to a recorded field, along
+ * with the thread and code location that made each change. Recording is
+ * started from the Variables view, or with the fieldhistory command.
+ * <p/>
+ * @author Nathan Fiedler
+ */
+public class FieldHistoryView extends AbstractTableView<FieldHistoryView.Snapshot> {
+
+    /**
+     * silence the compiler warnings
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * Holds the changes shown in the table.
+     */
+    private final ChangeTableModel tableModel;
+    /**
+     * Selects the field whose history is shown.
+     */
+    private final JComboBox fieldComboBox;
+    /**
+     * Stops recording the selected field.
+     */
+    private final JButton stopButton;
+    /**
+     * Discards the history of the selected field.
+     */
+    private final JButton removeButton;
+    /**
+     * The most recently collected changes (accessed only by the refresher).
+     */
+    private transient Snapshot collected;
+    /**
+     * The changes shown in the table.
+     */
+    private transient Snapshot shown;
+    /**
+     * The history selected by the user (copied from the combo box for the
+     * benefit of the refresher).
+     */
+    private transient volatile FieldHistory selected;
+    /**
+     * True while the combo box is being updated by the view itself.
+     */
+    private transient boolean updating;
+
+    /**
+     * Creates a new instance of FieldHistoryView.
+     */
+    public FieldHistoryView() {
+        tableModel = new ChangeTableModel();
+        JTable table = new JTable(tableModel);
+        table.setAutoCreateRowSorter(true);
+        table.getColumnModel().getColumn(3).setPreferredWidth(250);
+        table.getColumnModel().getColumn(4).setPreferredWidth(250);
+
+        fieldComboBox = new JComboBox();
+        fieldComboBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (!updating) {
+                    selected = (FieldHistory) fieldComboBox.getSelectedItem();
+                    refresh();
+                }
+            }
+        });
+        stopButton = new JButton(NbBundle.getMessage(
+                FieldHistoryView.class, "LBL_FieldHistoryView_Stop"));
+        stopButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                FieldHistory history = selected;
+                if (history != null) {
+                    getRecorder().stop(history);
+                    refresh();
+                }
+            }
+        });
+        removeButton = new JButton(NbBundle.getMessage(
+                FieldHistoryView.class, "LBL_FieldHistoryView_Remove"));
+        removeButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                FieldHistory history = selected;
+                if (history != null) {
+                    getRecorder().remove(history);
+                    refresh();
+                }
+            }
+        });
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEADING));
+        controls.add(new JLabel(NbBundle.getMessage(
+                FieldHistoryView.class, "LBL_FieldHistoryView_Field")));
+        controls.add(fieldComboBox);
+        controls.add(stopButton);
+        controls.add(removeButton);
+        layoutView(controls, table);
+    }
+
+    /**
+     * Collects the changes of the selected field of the current session.
+     * Only the changes already recorded are read, nothing is retrieved
+     * from the debuggee.
+     * <p/>
+     * @return snapshot of the changes.
+     */
+    @Override
+    protected Snapshot collectSnapshot() {
+        List<FieldHistory> histories = getRecorder().getHistories();
+        FieldHistory history = selected;
+        if (history == null || !histories.contains(history)) {
+            // Show the most recently recorded field.
+            history = histories.isEmpty() ? null
+                    : histories.get(histories.size() - 1);
+        }
+        long count = history == null ? 0 : history.getCount();
+        boolean active = history != null && history.isActive();
+        Snapshot last = collected;
+        if (last != null && last.history == history && last.count == count
+                && last.active == active
+                && last.histories.equals(histories)) {
+            // Nothing has changed, avoid disturbing the table.
+            return last;
+        }
+        List<FieldChange> changes;
+        String status;
+        if (history == null) {
+            changes = Collections.emptyList();
+            status = NbBundle.getMessage(FieldHistoryView.class,
+                    "CTL_FieldHistoryView_None");
+        } else {
+            changes = history.getChanges(0);
+            String key = active ? "CTL_FieldHistoryView_Status"
+                    : "CTL_FieldHistoryView_Stopped";
+            status = NbBundle.getMessage(FieldHistoryView.class, key,
+                    String.valueOf(count),
+                    String.valueOf(history.getDropped()));
+        }
+        collected = new Snapshot(histories, history, count, active,
+                changes, status);
+        return collected;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return NbBundle.getMessage(FieldHistoryView.class,
+                "CTL_FieldHistoryView_Name");
+    }
+
+    @Override
+    public HelpCtx getHelpCtx() {
+        return new HelpCtx("jswat-fieldhistory-view");
+    }
+
+    /**
+     * Returns the field recorder of the current session.
+     * <p/>
+     * @return field recorder.
+     */
+    private static FieldRecorder getRecorder() {
+        SessionManager sm = SessionProvider.getSessionManager();
+        return TraceProvider.getFieldRecorder(sm.getCurrent());
+    }
+
+    @Override
+    public String getToolTipText() {
+        return NbBundle.getMessage(FieldHistoryView.class,
+                "CTL_FieldHistoryView_Tooltip");
+    }
+
+    /**
+     * Shows the collected changes in the view.
+     * <p/>
+     * @param snapshot the collected changes.
+     */
+    @Override
+    protected void publishSnapshot(Snapshot snapshot) {
+        if (snapshot == shown) {
+            return;
+        }
+        if (shown == null || !shown.histories.equals(snapshot.histories)) {
+            updating = true;
+            fieldComboBox.setModel(new DefaultComboBoxModel(
+                    snapshot.histories.toArray()));
+            updating = false;
+        }
+        if (fieldComboBox.getSelectedItem() != snapshot.history) {
+            updating = true;
+            fieldComboBox.setSelectedItem(snapshot.history);
+            updating = false;
+        }
+        selected = snapshot.history;
+        shown = snapshot;
+        stopButton.setEnabled(snapshot.active);
+        removeButton.setEnabled(snapshot.history != null);
+        tableModel.setRows(snapshot.changes);
+        setStatus(snapshot.status);
+    }
+
+    /**
+     * Table model for the field changes.
+     */
+    private static class ChangeTableModel extends RowTableModel<FieldChange> {
+
+        /**
+         * silence the compiler warnings
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * Keys of the column names in the bundle.
+         */
+        private static final String[] COLUMNS = {
+            "CTL_FieldHistoryView_Column_sequence",
+            "CTL_FieldHistoryView_Column_time",
+            "CTL_FieldHistoryView_Column_thread",
+            "CTL_FieldHistoryView_Column_location",
+            "CTL_FieldHistoryView_Column_value"
+        };
+        /**
+         * Classes of the column values.
+         */
+        private static final Class<?>[] TYPES = {
+            Long.class, String.class, String.class, String.class, String.class
+        };
+
+        /**
+         * Constructs a new ChangeTableModel.
+         */
+        ChangeTableModel() {
+            super(COLUMNS, TYPES);
+        }
+
+        @Override
+        protected Object getColumnValue(FieldChange fc, int column) {
+            switch (column) {
+                case 0:
+                    return Long.valueOf(fc.getSequence());
+                case 1:
+                    return String.format("%tT.%<tL", new Date(fc.getTime()));
+                case 2:
+                    return fc.getThread();
+                case 3:
+                    return fc.getLocation();
+                default:
+                    return fc.getValue();
+            }
+        }
+    }
+
+    /**
+     * The changes collected in the background.
+     */
+    static class Snapshot {
+
+        /**
+         * All of the field histories.
+         */
+        private final List<FieldHistory> histories;
+        /**
+         * The history shown, or null if none.
+         */
+        private final FieldHistory history;
+        /**
+         * Number of changes recorded when collected.
+         */
+        private final long count;
+        /**
+         * True if the field was still being recorded.
+         */
+        private final boolean active;
+        /**
+         * The most recent changes, oldest first.
+         */
+        private final List<FieldChange> changes;
+        /**
+         * Describes the history shown.
+         */
+        private final String status;
+
+        /**
+         * Constructs a new Snapshot.
+         * <p/>
+         * @param histories all of the field histories.
+         * @param history   the history shown.
+         * @param count     number of changes recorded.
+         * @param active    true if still recording.
+         * @param changes   the most recent changes.
+         * @param status    describes the history shown.
+         */
+        Snapshot(List<FieldHistory> histories, FieldHistory history,
+                long count, boolean active, List<FieldChange> changes,
+                String status) {
+            this.histories = histories;
+            this.history = history;
+            this.count = count;
+            this.active = active;
+            this.changes = changes;
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.ui.views;
+
+import com.bluemarsh.jswat.core.heap.ClassCount;
+import com.bluemarsh.jswat.core.heap.HeapHistogram;
+import com.bluemarsh.jswat.core.heap.HeapProvider;
+import com.bluemarsh.jswat.core.heap.HeapSnapshot;
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionManager;
+import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.bluemarsh.jswat.core.util.Threads;
+import com.sun.jdi.VMDisconnectedException;
+import java.awt.EventQueue;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JPanel;
+import javax.swing.JTable;
+import org.openide.DialogDisplayer;
+import org.openide.NotifyDescriptor;
+import org.openide.util.HelpCtx;
+import org.openide.util.NbBundle;
+
+/**
+ * Class HeapView shows the number of instances of each class in the most
+ * recent heap snapshot of the current session, along with the change
+ * since the previous (or the first) snapshot. The table may be sorted by
+ * any column, making it easy to spot the classes that keep growing.
+ * <p/>
+ * @author Nathan Fiedler
+ */
+public class HeapView extends AbstractTableView<HeapView.Snapshot> {
+
+    /**
+     * silence the compiler warnings
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * Holds the class counts shown in the table.
+     */
+    private final CountTableModel tableModel;
+    /**
+     * Selects taking a snapshot at every breakpoint stop.
+     */
+    private final JCheckBox autoCheckBox;
+    /**
+     * Selects comparing with the first snapshot rather than the previous.
+     */
+    private final JCheckBox firstCheckBox;
+    /**
+     * Takes a snapshot.
+     */
+    private final JButton snapshotButton;
+    /**
+     * Discards the snapshots.
+     */
+    private final JButton clearButton;
+    /**
+     * The most recently collected counts (accessed only by the refresher).
+     */
+    private transient Snapshot collected;
+    /**
+     * The counts shown in the table.
+     */
+    private transient Snapshot shown;
+    /**
+     * True to compare with the first snapshot (copied from the check box
+     * for the benefit of the refresher).
+     */
+    private volatile boolean compareFirst;
+
+    /**
+     * Creates a new instance of HeapView.
+     */
+    public HeapView() {
+        tableModel = new CountTableModel();
+        JTable table = new JTable(tableModel);
+        table.setAutoCreateRowSorter(true);
+        table.getColumnModel().getColumn(0).setPreferredWidth(350);
+
+        snapshotButton = new JButton(NbBundle.getMessage(
+                HeapView.class, "LBL_HeapView_Snapshot"));
+        snapshotButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                takeSnapshot();
+            }
+        });
+        clearButton = new JButton(NbBundle.getMessage(
+                HeapView.class, "LBL_HeapView_Clear"));
+        clearButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                getHistogram().clear();
+                refresh();
+            }
+        });
+        autoCheckBox = new JCheckBox(NbBundle.getMessage(
+                HeapView.class, "LBL_HeapView_Auto"));
+        autoCheckBox.setToolTipText(NbBundle.getMessage(
+                HeapView.class, "CTL_HeapView_Auto_Tip"));
+        autoCheckBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                getHistogram().setAutoSnapshot(autoCheckBox.isSelected());
+            }
+        });
+        firstCheckBox = new JCheckBox(NbBundle.getMessage(
+                HeapView.class, "LBL_HeapView_First"));
+        firstCheckBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                compareFirst = firstCheckBox.isSelected();
+                refresh();
+            }
+        });
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEADING));
+        controls.add(snapshotButton);
+        controls.add(clearButton);
+        controls.add(autoCheckBox);
+        controls.add(firstCheckBox);
+        layoutView(controls, table);
+    }
+
+    /**
+     * Collects the class counts of the latest snapshot of the current
+     * session. Only the snapshots already taken are read, nothing is
+     * retrieved from the debuggee.
+     * <p/>
+     * @return snapshot of the counts.
+     */
+    @Override
+    protected Snapshot collectSnapshot() {
+        HeapHistogram histogram = getHistogram();
+        List<HeapSnapshot> snapshots = histogram.getSnapshots();
+        HeapSnapshot latest = snapshots.isEmpty() ? null
+                : snapshots.get(snapshots.size() - 1);
+        HeapSnapshot base = null;
+        if (snapshots.size() > 1) {
+            base = compareFirst ? snapshots.get(0)
+                    : snapshots.get(snapshots.size() - 2);
+        }
+        boolean auto = histogram.isAutoSnapshot();
+        Snapshot last = collected;
+        if (last != null && last.latest == latest && last.base == base
+                && last.auto == auto) {
+            // Nothing has changed, avoid disturbing the table.
+            return last;
+        }
+        List<ClassCount> counts;
+        String status;
+        if (latest == null) {
+            counts = Collections.emptyList();
+            status = NbBundle.getMessage(HeapView.class, "CTL_HeapView_None");
+        } else {
+            counts = latest.getCounts(base);
+            String label = latest.getLabel() == null ? "" : latest.getLabel();
+            status = NbBundle.getMessage(HeapView.class, "CTL_HeapView_Status",
+                    String.valueOf(latest.getTotal()),
+                    String.valueOf(counts.size()),
+                    String.valueOf(snapshots.size()),
+                    String.format("%tT", new Date(latest.getTime())), label);
+        }
+        collected = new Snapshot(latest, base, auto, counts, status);
+        return collected;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return NbBundle.getMessage(HeapView.class, "CTL_HeapView_Name");
+    }
+
+    @Override
+    public HelpCtx getHelpCtx() {
+        return new HelpCtx("jswat-heap-view");
+    }
+
+    /**
+     * Returns the heap histogram of the current session.
+     * <p/>
+     * @return heap histogram.
+     */
+    private static HeapHistogram getHistogram() {
+        SessionManager sm = SessionProvider.getSessionManager();
+        return HeapProvider.getHeapHistogram(sm.getCurrent());
+    }
+
+    @Override
+    public String getToolTipText() {
+        return NbBundle.getMessage(HeapView.class, "CTL_HeapView_Tooltip");
+    }
+
+    /**
+     * Shows the collected counts in the view.
+     * <p/>
+     * @param snapshot the collected counts.
+     */
+    @Override
+    protected void publishSnapshot(Snapshot snapshot) {
+        autoCheckBox.setSelected(snapshot.auto);
+        if (snapshot == shown) {
+            return;
+        }
+        shown = snapshot;
+        tableModel.setRows(snapshot.counts);
+        setStatus(snapshot.status);
+    }
+
+    /**
+     * Displays the given error message in a dialog.
+     * <p/>
+     * @param key bundle key of the message.
+     */
+    private static void showError(final String key) {
+        EventQueue.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                NotifyDescriptor nd = new NotifyDescriptor.Message(
+                        NbBundle.getMessage(HeapView.class, key),
+                        NotifyDescriptor.ERROR_MESSAGE);
+                DialogDisplayer.getDefault().notify(nd);
+            }
+        });
+    }
+
+    /**
+     * Takes a snapshot of the heap of the current session, in the
+     * background.
+     */
+    private void takeSnapshot() {
+        SessionManager sm = SessionProvider.getSessionManager();
+        Session session = sm.getCurrent();
+        if (!session.isConnected()) {
+            showError("ERR_HeapView_NotConnected");
+            return;
+        }
+        final HeapHistogram histogram = HeapProvider.getHeapHistogram(session);
+        snapshotButton.setEnabled(false);
+        Threads.getThreadPool().submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    histogram.takeSnapshot(null);
+                } catch (UnsupportedOperationException uoe) {
+                    showError("ERR_HeapView_Unsupported");
+                } catch (IllegalStateException ise) {
+                    showError("ERR_HeapView_NotConnected");
+                } catch (VMDisconnectedException vmde) {
+                    showError("ERR_HeapView_NotConnected");
+                } finally {
+                    EventQueue.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            snapshotButton.setEnabled(true);
+                        }
+                    });
+                    refresh();
+                }
+            }
+        });
+    }
+
+    /**
+     * Table model for the class counts.
+     */
+    private static class CountTableModel extends RowTableModel<ClassCount> {
+
+        /**
+         * silence the compiler warnings
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * Keys of the column names in the bundle.
+         */
+        private static final String[] COLUMNS = {
+            "CTL_HeapView_Column_class", "CTL_HeapView_Column_count",
+            "CTL_HeapView_Column_change"
+        };
+        /**
+         * Classes of the column values.
+         */
+        private static final Class<?>[] TYPES = {
+            String.class, Long.class, Long.class
+        };
+
+        /**
+         * Constructs a new CountTableModel.
+         */
+        CountTableModel() {
+            super(COLUMNS, TYPES);
+        }
+
+        @Override
+        protected Object getColumnValue(ClassCount cc, int column) {
+            switch (column) {
+                case 0:
+                    return cc.getName();
+                case 1:
+                    return Long.valueOf(cc.getCount());
+                default:
+                    return Long.valueOf(cc.getChange());
+            }
+        }
+    }
+
+    /**
+     * The counts collected in the background.
+     */
+    static class Snapshot {
+
+        /**
+         * The heap snapshot shown, or null if none.
+         */
+        private final HeapSnapshot latest;
+        /**
+         * The heap snapshot compared against, or null if none.
+         */
+        private final HeapSnapshot base;
+        /**
+         * True if snapshots are taken at every breakpoint stop.
+         */
+        private final boolean auto;
+        /**
+         * The class counts, largest first.
+         */
+        private final List<ClassCount> counts;
+        /**
+         * Describes the snapshot shown.
+         */
+        private final String status;
+
+        /**
+         * Constructs a new Snapshot.
+         * <p/>
+         * @param latest the heap snapshot shown.
+         * @param base   the heap snapshot compared against.
+         * @param auto   true if snapshots are taken automatically.
+         * @param counts the class counts.
+         * @param status describes the snapshot shown.
+         */
+        Snapshot(HeapSnapshot latest, HeapSnapshot base, boolean auto,
+                List<ClassCount> counts, String status) {
+            this.latest = latest;
+            this.base = base;
+            this.auto = auto;
+            this.counts = counts;
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.ui.views;
+
+import com.bluemarsh.jswat.core.session.Session;
+import com.bluemarsh.jswat.core.session.SessionManager;
+import com.bluemarsh.jswat.core.session.SessionProvider;
+import com.bluemarsh.jswat.core.trace.MethodProfile;
+import com.bluemarsh.jswat.core.trace.SampleTree;
+import com.bluemarsh.jswat.core.trace.SamplingProfiler;
+import com.bluemarsh.jswat.core.trace.TraceProvider;
+import com.bluemarsh.jswat.core.util.Threads;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JSpinner;
+import javax.swing.JTable;
+import javax.swing.SpinnerNumberModel;
+import org.openide.DialogDisplayer;
+import org.openide.NotifyDescriptor;
+import org.openide.util.HelpCtx;
+import org.openide.util.NbBundle;
+
+/**
+ * Class ProfilerView controls the sampling profiler of the current
+ * session, and shows the methods in which the most samples were taken,
+ * along with the cost of sampling. While the view is open, it is
+ * updated once a second.
+ * <p/>
+ * @author Nathan Fiedler
+ */
+public class ProfilerView extends AbstractTableView<ProfilerView.Snapshot> {
+
+    /**
+     * silence the compiler warnings
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * Number of frames captured in each sample.
+     */
+    private static final int SAMPLE_DEPTH = 32;
+    /**
+     * Maximum number of methods shown in the table.
+     */
+    private static final int METHOD_LIMIT = 200;
+    /**
+     * Holds the hot methods shown in the table.
+     */
+    private final MethodTableModel tableModel;
+    /**
+     * Milliseconds between samples.
+     */
+    private final JSpinner intervalSpinner;
+    /**
+     * Selects suspending the debuggee rather than each thread.
+     */
+    private final JCheckBox suspendAllCheckBox;
+    /**
+     * Starts the profiler.
+     */
+    private final JButton startButton;
+    /**
+     * Stops the profiler.
+     */
+    private final JButton stopButton;
+    /**
+     * Writes the samples in collapsed stacks format.
+     */
+    private final JButton exportButton;
+
+    /**
+     * Creates a new instance of ProfilerView.
+     */
+    public ProfilerView() {
+        tableModel = new MethodTableModel();
+        JTable table = new JTable(tableModel);
+        table.getColumnModel().getColumn(3).setPreferredWidth(400);
+
+        intervalSpinner = new JSpinner(new SpinnerNumberModel(10, 1, 1000, 1));
+        intervalSpinner.setToolTipText(NbBundle.getMessage(
+                ProfilerView.class, "CTL_ProfilerView_Interval_Tip"));
+        JLabel label = new JLabel(NbBundle.getMessage(
+                ProfilerView.class, "LBL_ProfilerView_Interval"));
+        label.setLabelFor(intervalSpinner);
+        suspendAllCheckBox = new JCheckBox(NbBundle.getMessage(
+                ProfilerView.class, "LBL_ProfilerView_SuspendAll"));
+        suspendAllCheckBox.setToolTipText(NbBundle.getMessage(
+                ProfilerView.class, "CTL_ProfilerView_SuspendAll_Tip"));
+        startButton = new JButton(NbBundle.getMessage(
+                ProfilerView.class, "LBL_ProfilerView_Start"));
+        startButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                startProfiler();
+            }
+        });
+        stopButton = new JButton(NbBundle.getMessage(
+                ProfilerView.class, "LBL_ProfilerView_Stop"));
+        stopButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                stopProfiler();
+            }
+        });
+        exportButton = new JButton(NbBundle.getMessage(
+                ProfilerView.class, "LBL_ProfilerView_Export"));
+        exportButton.setToolTipText(NbBundle.getMessage(
+                ProfilerView.class, "CTL_ProfilerView_Export_Tip"));
+        exportButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                exportProfile();
+            }
+        });
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEADING));
+        controls.add(label);
+        controls.add(intervalSpinner);
+        controls.add(suspendAllCheckBox);
+        controls.add(startButton);
+        controls.add(stopButton);
+        controls.add(exportButton);
+        layoutView(controls, table);
+        updateButtons(false, false);
+    }
+
+    /**
+     * Collects the profile of the current session. Only information
+     * already gathered by the profiler is read, nothing is retrieved from
+     * the debuggee.
+     * <p/>
+     * @return snapshot of the profile.
+     */
+    @Override
+    protected Snapshot collectSnapshot() {
+        SamplingProfiler profiler = getProfiler();
+        SampleTree tree = profiler.getSampleTree();
+        if (tree == null) {
+            return new Snapshot(profiler.isProfiling(),
+                    Collections.<MethodProfile>emptyList(), null);
+        }
+        List<MethodProfile> methods = tree.getHotMethods(METHOD_LIMIT);
+        long elapsed = profiler.getElapsedTime();
+        long passes = profiler.getPassCount();
+        double percent = elapsed == 0 ? 0.0
+                : profiler.getOverheadTime() * 100.0 / elapsed;
+        double perPass = passes == 0 ? 0.0
+                : profiler.getSuspendTime() / 1000000.0 / passes;
+        String status = NbBundle.getMessage(ProfilerView.class,
+                "CTL_ProfilerView_Status", String.valueOf(tree.getSampleCount()),
+                String.valueOf(tree.getThreadCount()),
+                String.format("%.1f", elapsed / 1000000000.0),
+                String.format("%.1f", percent), String.format("%.3f", perPass));
+        return new Snapshot(profiler.isProfiling(), methods, status);
+    }
+
+    /**
+     * Prompts for a file and writes the samples to it in the collapsed
+     * stacks format, for use with flame graph tools.
+     */
+    private void exportProfile() {
+        final SampleTree tree = getProfiler().getSampleTree();
+        if (tree == null) {
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        final File file = chooser.getSelectedFile();
+        Threads.getThreadPool().submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Writer out = new BufferedWriter(new FileWriter(file));
+                    try {
+                        tree.writeCollapsed(out);
+                    } finally {
+                        out.close();
+                    }
+                } catch (IOException ioe) {
+                    NotifyDescriptor nd = new NotifyDescriptor.Message(
+                            NbBundle.getMessage(ProfilerView.class,
+                            "ERR_ProfilerView_Export", ioe.getMessage()),
+                            NotifyDescriptor.ERROR_MESSAGE);
+                    DialogDisplayer.getDefault().notify(nd);
+                }
+            }
+        });
+    }
+
+    @Override
+    public String getDisplayName() {
+        return NbBundle.getMessage(ProfilerView.class, "CTL_ProfilerView_Name");
+    }
+
+    @Override
+    public HelpCtx getHelpCtx() {
+        return new HelpCtx("jswat-profiler-view");
+    }
+
+    /**
+     * Returns the sampling profiler of the current session.
+     * <p/>
+     * @return sampling profiler.
+     */
+    private static SamplingProfiler getProfiler() {
+        SessionManager sm = SessionProvider.getSessionManager();
+        return TraceProvider.getSamplingProfiler(sm.getCurrent());
+    }
+
+    @Override
+    public String getToolTipText() {
+        return NbBundle.getMessage(ProfilerView.class, "CTL_ProfilerView_Tooltip");
+    }
+
+    /**
+     * Shows the collected profile in the view.
+     * <p/>
+     * @param snapshot the collected profile.
+     */
+    @Override
+    protected void publishSnapshot(Snapshot snapshot) {
+        tableModel.setRows(snapshot.methods);
+        setStatus(snapshot.status == null ? " " : snapshot.status);
+        updateButtons(snapshot.profiling, snapshot.status != null);
+    }
+
+    /**
+     * Starts the profiler of the current session.
+     */
+    private void startProfiler() {
+        SessionManager sm = SessionProvider.getSessionManager();
+        Session session = sm.getCurrent();
+        if (!session.isConnected()) {
+            NotifyDescriptor nd = new NotifyDescriptor.Message(
+                    NbBundle.getMessage(ProfilerView.class,
+                    "ERR_ProfilerView_NotConnected"),
+                    NotifyDescriptor.ERROR_MESSAGE);
+            DialogDisplayer.getDefault().notify(nd);
+            return;
+        }
+        SamplingProfiler profiler = TraceProvider.getSamplingProfiler(session);
+        if (!profiler.isProfiling()) {
+            int interval = ((Number) intervalSpinner.getValue()).intValue();
+            profiler.start(interval, SAMPLE_DEPTH, null,
+                    suspendAllCheckBox.isSelected());
+        }
+        updateButtons(true, true);
+        refresh();
+    }
+
+    /**
+     * Stops the profiler of the current session.
+     */
+    private void stopProfiler() {
+        final SamplingProfiler profiler = getProfiler();
+        stopButton.setEnabled(false);
+        // Stopping waits for the sampling pass to finish.
+        Threads.getThreadPool().submit(new Runnable() {
+            @Override
+            public void run() {
+                profiler.stop();
+                refresh();
+            }
+        });
+    }
+
+    /**
+     * Enables the controls according to the state of the profiler.
+     * <p/>
+     * @param profiling true if the profiler is running.
+     * @param profiled  true if there is a profile to export.
+     */
+    private void updateButtons(boolean profiling, boolean profiled) {
+        startButton.setEnabled(!profiling);
+        stopButton.setEnabled(profiling);
+        intervalSpinner.setEnabled(!profiling);
+        suspendAllCheckBox.setEnabled(!profiling);
+        exportButton.setEnabled(profiled);
+    }
+
+    /**
+     * Table model for the hot methods.
+     */
+    private static class MethodTableModel extends RowTableModel<MethodProfile> {
+
+        /**
+         * silence the compiler warnings
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * Keys of the column names in the bundle.
+         */
+        private static final String[] COLUMNS = {
+            "CTL_ProfilerView_Column_samples", "CTL_ProfilerView_Column_self",
+            "CTL_ProfilerView_Column_total", "CTL_ProfilerView_Column_method"
+        };
+        /**
+         * Classes of the column values.
+         */
+        private static final Class<?>[] TYPES = {
+            Long.class, Double.class, Double.class, String.class
+        };
+
+        /**
+         * Constructs a new MethodTableModel.
+         */
+        MethodTableModel() {
+            super(COLUMNS, TYPES);
+        }
+
+        @Override
+        protected Object getColumnValue(MethodProfile mp, int column) {
+            switch (column) {
+                case 0:
+                    return Long.valueOf(mp.getCount());
+                case 1:
+                    return Double.valueOf(mp.getExclusiveTime() / 1000000.0);
+                case 2:
+                    return Double.valueOf(mp.getInclusiveTime() / 1000000.0);
+                default:
+                    return mp.getName();
+            }
+        }
+    }
+
+    /**
+     * The profile collected in the background.
+     */
+    static class Snapshot {
+
+        /**
+         * True if the profiler is running.
+         */
+        private final boolean profiling;
+        /**
+         * The hottest methods.
+         */
+        private final List<MethodProfile> methods;
+        /**
+         * Sampling statistics, or null if nothing has been profiled.
+         */
+        private final String status;
+
+        /**
+         * Constructs a new Snapshot.
+         * <p/>
+         * @param profiling true if the profiler is running.
+         * @param methods   the hottest methods.
+         * @param status    sampling statistics, or null if none.
+         */
+        Snapshot(boolean profiling, List<MethodProfile> methods, String status) {
+            this.profiling = profiling;
+            this.methods = methods;
+            this.status = status;
+        }
+    }
+}
@@ -24,6 +24,7 @@ import com.bluemarsh.jswat.core.context.ContextProvider;
 import com.bluemarsh.jswat.core.context.ContextEvent;
 import com.bluemarsh.jswat.core.context.ContextListener;
 import com.bluemarsh.jswat.core.context.DebuggingContext;
+import com.bluemarsh.jswat.core.context.SuspensionSnapshot;
 import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.session.SessionEvent;
 import com.bluemarsh.jswat.core.session.SessionListener;
@@ -35,14 +36,18 @@ import com.bluemarsh.jswat.nodes.NodeFactory;
 import com.bluemarsh.jswat.nodes.stack.StackFrameNode;
 import com.sun.jdi.IncompatibleThreadStateException;
 import com.sun.jdi.InvalidStackFrameException;
+import com.sun.jdi.ObjectCollectedException;
 import com.sun.jdi.StackFrame;
 import com.sun.jdi.ThreadReference;
 import com.sun.jdi.VMDisconnectedException;
 import java.awt.BorderLayout;
 import java.awt.EventQueue;
+import java.awt.event.AdjustmentEvent;
+import java.awt.event.AdjustmentListener;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
 import org.openide.explorer.ExplorerManager;
 import org.openide.explorer.view.OutlineView;
@@ -77,12 +82,66 @@ public class StackView extends AbstractView
      * Columns for the tree-table view.
      */
     private transient Node.Property[] columns;
+    /**
+     * Name of the thread whose stack is shown, for the window title.
+     */
+    private transient String currentThreadName = "";
+    /**
+     * Refreshes the tree in the background.
+     */
+    private transient ViewRefresher.Refreshable<Snapshot> refresher;
+    /**
+     * Loads the next page of frames in the background.
+     */
+    private transient ViewRefresher.Refreshable<Page> pageLoader;
+    /**
+     * The children of the root node, to which pages of frames are added.
+     */
+    private transient Children.Array frameChildren;
+    /**
+     * The thread snapshot from which the displayed frames were taken.
+     */
+    private transient volatile SuspensionSnapshot shownStack;
+    /**
+     * Number of frames shown in the view (accessed on the AWT thread).
+     */
+    private transient volatile int shownCount;
+    /**
+     * Total number of frames in the stack.
+     */
+    private transient int totalCount;
+    /**
+     * True if the next page of frames is being loaded.
+     */
+    private transient boolean loadingPage;
 
     /**
      * Constructs a StackView instance.
      */
     public StackView() {
         explorerManager = new ExplorerManager();
+        refresher = new ViewRefresher.Refreshable<Snapshot>() {
+            @Override
+            public Snapshot collect() {
+                return collectFrames();
+            }
+
+            @Override
+            public void publish(Snapshot snapshot) {
+                publishFrames(snapshot);
+            }
+        };
+        pageLoader = new ViewRefresher.Refreshable<Page>() {
+            @Override
+            public Page collect() {
+                return collectPage();
+            }
+
+            @Override
+            public void publish(Page page) {
+                publishPage(page);
+            }
+        };
         buildRoot(Children.LEAF);
         addSelectionListener(explorerManager);
 
@@ -99,6 +158,14 @@ public class StackView extends AbstractView
         addColumn(nodeView, StackFrameNode.PROP_CODEINDEX);
         // This, oddly enough, enables the column hiding feature.
         nodeView.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
+        // Load more frames as the user scrolls toward the end.
+        nodeView.getVerticalScrollBar().addAdjustmentListener(
+                new AdjustmentListener() {
+            @Override
+            public void adjustmentValueChanged(AdjustmentEvent e) {
+                checkForMore();
+            }
+        });
         setLayout(new BorderLayout());
         add(nodeView, BorderLayout.CENTER);
     }
@@ -138,12 +205,42 @@ public class StackView extends AbstractView
     }
 
     /**
-     * Builds the node tree for the current session.
+     * Schedules the loading of the next page of frames, if the view has
+     * been scrolled near the end and there are more frames to be shown.
+     */
+    private void checkForMore() {
+        if (loadingPage || shownStack == null || shownCount >= totalCount) {
+            return;
+        }
+        JScrollBar bar = nodeView.getVerticalScrollBar();
+        int remaining = bar.getMaximum() - bar.getValue()
+                - bar.getVisibleAmount();
+        if (remaining <= bar.getVisibleAmount()) {
+            loadingPage = true;
+            ViewRefresher.getDefault().schedule(pageLoader);
+        }
+    }
+
+    /**
+     * Schedules the rebuilding of the node tree for the current session.
      */
     private void buildTree() {
+        ViewRefresher.getDefault().schedule(refresher);
+    }
+
+    /**
+     * Collects the stack frame nodes for the current session. This makes
+     * calls into the debuggee and must not be called on the AWT thread.
+     * <p/>
+     * @return snapshot of the call stack.
+     */
+    private Snapshot collectFrames() {
         // Populate the root node with FrameNode children.
         List<Node> list = new LinkedList<Node>();
         Node currentNode = null;
+        String threadName = "";
+        SuspensionSnapshot stack = null;
+        int total = 0;
         SessionManager sm = SessionProvider.getSessionManager();
         Session session = sm.getCurrent();
         if (session.isConnected()) {
@@ -152,7 +249,13 @@ public class StackView extends AbstractView
             int currentFrame = dc.getFrame();
             if (thread != null) {
                 try {
-                    List<StackFrame> frames = thread.frames();
+                    threadName = thread.name();
+                    stack = dc.getSnapshot();
+                    total = stack.getFrameCount();
+                    // Load enough pages to include the current frame.
+                    int pageSize = SuspensionSnapshot.PAGE_SIZE;
+                    int length = (currentFrame / pageSize + 1) * pageSize;
+                    List<StackFrame> frames = stack.getFrames(0, length);
                     int index = 0;
                     NodeFactory factory = NodeFactory.getDefault();
                     for (StackFrame frame : frames) {
@@ -168,38 +271,116 @@ public class StackView extends AbstractView
                     // Do nothing and leave the node list empty.
                 } catch (InvalidStackFrameException isfe) {
                     // Do nothing and leave the node list empty.
+                } catch (ObjectCollectedException oce) {
+                    // Do nothing and leave the node list empty.
                 } catch (VMDisconnectedException vmde) {
                     // Do nothing and leave the node list empty.
                 }
             }
         }
-        if (list.size() > 0) {
-            Children children = new Children.Array();
-            Node[] nodes = list.toArray(new Node[list.size()]);
-            children.add(nodes);
-            buildRoot(children);
-            if (currentNode != null) {
-                final PersistentOutlineView view = nodeView;
-                final Node node = currentNode;
-                EventQueue.invokeLater(new Runnable() {
-                    @Override
-                    public void run() {
-                        view.scrollAndSelectNode(node);
-                    }
-                });
+        Node[] nodes = list.toArray(new Node[list.size()]);
+        return new Snapshot(nodes, currentNode, threadName, stack, total);
+    }
+
+    /**
+     * Collects the nodes for the next page of stack frames. This makes
+     * calls into the debuggee and must not be called on the AWT thread.
+     * <p/>
+     * @return the page of frames, or null if the stack has changed.
+     */
+    private Page collectPage() {
+        SuspensionSnapshot stack = shownStack;
+        int start = shownCount;
+        Session session = SessionProvider.getCurrentSession();
+        if (stack == null || !session.isConnected()) {
+            return null;
+        }
+        DebuggingContext dc = ContextProvider.getContext(session);
+        if (dc.getSnapshot() != stack) {
+            // The view will be rebuilt soon enough.
+            return null;
+        }
+        List<Node> list = new LinkedList<Node>();
+        try {
+            List<StackFrame> frames = stack.getFrames(start,
+                    SuspensionSnapshot.PAGE_SIZE);
+            int index = start;
+            NodeFactory factory = NodeFactory.getDefault();
+            for (StackFrame frame : frames) {
+                list.add(factory.createStackFrameNode(index, frame));
+                index++;
             }
-        } else {
-            buildRoot(Children.LEAF);
+        } catch (IncompatibleThreadStateException itse) {
+            return null;
+        } catch (InvalidStackFrameException isfe) {
+            return null;
+        } catch (ObjectCollectedException oce) {
+            return null;
+        }
+        Node[] nodes = list.toArray(new Node[list.size()]);
+        return new Page(nodes, start, stack);
+    }
+
+    /**
+     * Adds the given page of frames to the end of the view.
+     * <p/>
+     * @param page the page of frames, may be null.
+     */
+    private void publishPage(Page page) {
+        loadingPage = false;
+        if (!isOpened() || page == null || page.stack != shownStack
+                || page.start != shownCount || frameChildren == null) {
+            return;
         }
+        frameChildren.add(page.nodes);
+        shownCount += page.nodes.length;
+        checkForMoreLater();
+    }
+
+    /**
+     * Checks for the need to load more frames, once the view has adjusted
+     * to the frames just added.
+     */
+    private void checkForMoreLater() {
         EventQueue.invokeLater(new Runnable() {
             @Override
             public void run() {
-                // Force the window title to be updated.
-                setDisplayName(getDisplayName());
+                checkForMore();
             }
         });
     }
 
+    /**
+     * Shows the given snapshot of the call stack in the view.
+     * <p/>
+     * @param snapshot the call stack snapshot.
+     */
+    private void publishFrames(Snapshot snapshot) {
+        if (!isOpened()) {
+            return;
+        }
+        currentThreadName = snapshot.threadName;
+        shownStack = snapshot.stack;
+        shownCount = snapshot.nodes.length;
+        totalCount = snapshot.total;
+        loadingPage = false;
+        ViewRefresher.getDefault().cancel(pageLoader);
+        if (snapshot.nodes.length > 0) {
+            frameChildren = new Children.Array();
+            frameChildren.add(snapshot.nodes);
+            buildRoot(frameChildren);
+            if (snapshot.current != null) {
+                nodeView.scrollAndSelectNode(snapshot.current);
+            }
+            checkForMoreLater();
+        } else {
+            frameChildren = null;
+            buildRoot(Children.LEAF);
+        }
+        // Force the window title to be updated.
+        setDisplayName(getDisplayName());
+    }
+
     @Override
     public void changedFrame(ContextEvent ce) {
         if (!ce.isSuspending() && isCurrent(ce.getSession())) {
@@ -225,7 +406,12 @@ public class StackView extends AbstractView
     @Override
     protected void componentClosed() {
         super.componentClosed();
+        ViewRefresher.getDefault().cancel(refresher);
+        ViewRefresher.getDefault().cancel(pageLoader);
         // Clear the tree to release resources.
+        frameChildren = null;
+        shownStack = null;
+        loadingPage = false;
         buildRoot(Children.LEAF);
         // Stop listening to everything that affects our tree.
         SessionManager sm = SessionProvider.getSessionManager();
@@ -272,19 +458,11 @@ public class StackView extends AbstractView
 
     @Override
     public String getDisplayName() {
-        // Incorporate the thread name into the window title.
-        String threadName = "";
-        SessionManager sm = SessionProvider.getSessionManager();
-        Session session = sm.getCurrent();
-        if (session.isConnected()) {
-            DebuggingContext dc = ContextProvider.getContext(session);
-            ThreadReference thread = dc.getThread();
-            if (thread != null) {
-                threadName = thread.name();
-            }
-        }
+        // Incorporate the thread name into the window title; the name was
+        // retrieved along with the frames, to avoid calling the debuggee.
+        String threadName = currentThreadName;
         String nm = NbBundle.getMessage(StackView.class, "CTL_StackView_Name");
-        if (threadName.length() > 0) {
+        if (threadName != null && threadName.length() > 0) {
             return nm + " - " + threadName;
         } else {
             return nm;
@@ -367,4 +545,81 @@ public class StackView extends AbstractView
         p.setProperty("version", "1.0");
         nodeView.writeSettings(p, "Stack");
     }
+
+    /**
+     * Immutable snapshot of the call stack, as collected in the background.
+     */
+    private static class Snapshot {
+
+        /**
+         * The stack frame nodes.
+         */
+        private final Node[] nodes;
+        /**
+         * Node for the current frame, if any.
+         */
+        private final Node current;
+        /**
+         * Name of the thread, or empty string if none.
+         */
+        private final String threadName;
+        /**
+         * The thread snapshot from which the frames were taken, or null.
+         */
+        private final SuspensionSnapshot stack;
+        /**
+         * Total number of frames in the stack.
+         */
+        private final int total;
+
+        /**
+         * Constructs a new Snapshot.
+         * <p/>
+         * @param nodes      the stack frame nodes.
+         * @param current    node for the current frame, may be null.
+         * @param threadName name of the thread.
+         * @param stack      thread snapshot, may be null.
+         * @param total      total number of frames in the stack.
+         */
+        Snapshot(Node[] nodes, Node current, String threadName,
+                SuspensionSnapshot stack, int total) {
+            this.nodes = nodes;
+            this.current = current;
+            this.threadName = threadName;
+            this.stack = stack;
+            this.total = total;
+        }
+    }
+
+    /**
+     * Immutable page of stack frames, loaded as the user scrolls.
+     */
+    private static class Page {
+
+        /**
+         * The stack frame nodes.
+         */
+        private final Node[] nodes;
+        /**
+         * Index of the first frame in the page.
+         */
+        private final int start;
+        /**
+         * The thread snapshot from which the frames were taken.
+         */
+        private final SuspensionSnapshot stack;
+
+        /**
+         * Constructs a new Page.
+         * <p/>
+         * @param nodes the stack frame nodes.
+         * @param start index of the first frame.
+         * @param stack thread snapshot.
+         */
+        Page(Node[] nodes, int start, SuspensionSnapshot stack) {
+            this.nodes = nodes;
+            this.start = start;
+            this.stack = stack;
+        }
+    }
 }
@@ -29,24 +29,49 @@ import com.bluemarsh.jswat.core.session.SessionManager;
 import com.bluemarsh.jswat.core.session.SessionManagerEvent;
 import com.bluemarsh.jswat.core.session.SessionManagerListener;
 import com.bluemarsh.jswat.core.session.SessionProvider;
-import com.bluemarsh.jswat.nodes.NodeFactory;
+import com.bluemarsh.jswat.core.thread.Deadlock;
+import com.bluemarsh.jswat.core.thread.DeadlockDetector;
+import com.bluemarsh.jswat.core.thread.ThreadEntry;
+import com.bluemarsh.jswat.core.thread.ThreadModel;
+import com.bluemarsh.jswat.core.thread.ThreadModelProvider;
+import com.bluemarsh.jswat.core.util.Threads;
 import com.bluemarsh.jswat.nodes.threads.ThreadConstants;
+import com.bluemarsh.jswat.nodes.threads.ThreadFilter;
+import com.bluemarsh.jswat.nodes.threads.ThreadModelChildren;
 import com.bluemarsh.jswat.nodes.threads.ThreadNode;
 import com.sun.jdi.ThreadGroupReference;
 import com.sun.jdi.ThreadReference;
-import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.VMDisconnectedException;
 import java.awt.BorderLayout;
-import java.awt.EventQueue;
-import java.util.Enumeration;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.AdjustmentEvent;
+import java.awt.event.AdjustmentListener;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
+import java.util.concurrent.ExecutionException;
 import javax.swing.Action;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeExpansionListener;
+import org.netbeans.swing.outline.Outline;
+import org.openide.DialogDisplayer;
 import org.openide.ErrorManager;
+import org.openide.NotifyDescriptor;
 import org.openide.explorer.ExplorerManager;
 import org.openide.explorer.view.OutlineView;
+import org.openide.explorer.view.Visualizer;
 import org.openide.nodes.AbstractNode;
 import org.openide.nodes.Children;
 import org.openide.nodes.Node;
@@ -58,7 +83,10 @@ import org.openide.windows.TopComponent;
 import org.openide.windows.WindowManager;
 
 /**
- * Class ThreadsView displays the thread groups and their threads.
+ * Class ThreadsView displays the thread groups and their threads. The
+ * tree is built from the ThreadModel of the current session and updated
+ * as threads come and go, while the status of the threads is refreshed
+ * only for those rows that are visible.
  * <p/>
  * @author Nathan Fiedler
  */
@@ -86,6 +114,42 @@ public class ThreadsView extends AbstractView
      * Component showing our nodes.
      */
     private PersistentOutlineView nodeView;
+    /**
+     * Refreshes the tree in the background.
+     */
+    private transient ViewRefresher.Refreshable<Snapshot> refresher;
+    /**
+     * Refreshes the status of the visible threads in the background.
+     */
+    private transient ViewRefresher.Refreshable<Void> statusRefresher;
+    /**
+     * The threads that were visible when the status refresh was requested.
+     */
+    private transient volatile List<ThreadReference> visibleThreads;
+    /**
+     * True if the thread model is to be reloaded on the next refresh.
+     */
+    private transient volatile boolean reloadRequested;
+    /**
+     * The thread model shown in the tree, if any.
+     */
+    private transient ThreadModel shownModel;
+    /**
+     * The debugging context associated with the shown thread model.
+     */
+    private transient DebuggingContext shownContext;
+    /**
+     * Decides which threads are shown.
+     */
+    private transient ThreadFilter threadFilter;
+    /**
+     * Text field for filtering threads by name.
+     */
+    private JTextField filterField;
+    /**
+     * Combo box for filtering threads by state.
+     */
+    private JComboBox stateComboBox;
 
     /**
      * Constructs a new instance of ThreadsView. Clients should not construct
@@ -94,6 +158,30 @@ public class ThreadsView extends AbstractView
      */
     public ThreadsView() {
         explorerManager = new ExplorerManager();
+        refresher = new ViewRefresher.Refreshable<Snapshot>() {
+            @Override
+            public Snapshot collect() {
+                return collectGroups();
+            }
+
+            @Override
+            public void publish(Snapshot snapshot) {
+                publishGroups(snapshot);
+            }
+        };
+        statusRefresher = new ViewRefresher.Refreshable<Void>() {
+            @Override
+            public Void collect() {
+                collectStatus();
+                return null;
+            }
+
+            @Override
+            public void publish(Void snapshot) {
+                // The thread nodes are updated by the model events.
+            }
+        };
+        threadFilter = ThreadFilter.NONE;
         buildRoot(Children.LEAF);
         addSelectionListener(explorerManager);
 
@@ -108,7 +196,27 @@ public class ThreadsView extends AbstractView
         addColumn(nodeView, PROP_CLASS);
         // This, oddly enough, enables the column hiding feature.
         nodeView.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
+        // Refresh the status of the threads as they come into view.
+        nodeView.getVerticalScrollBar().addAdjustmentListener(
+                new AdjustmentListener() {
+            @Override
+            public void adjustmentValueChanged(AdjustmentEvent e) {
+                refreshVisible();
+            }
+        });
+        nodeView.getOutline().getOutlineModel().getTreePathSupport().
+                addTreeExpansionListener(new TreeExpansionListener() {
+            @Override
+            public void treeExpanded(TreeExpansionEvent event) {
+                refreshVisible();
+            }
+
+            @Override
+            public void treeCollapsed(TreeExpansionEvent event) {
+            }
+        });
         setLayout(new BorderLayout());
+        add(createFilterPanel(), BorderLayout.NORTH);
         add(nodeView, BorderLayout.CENTER);
     }
 
@@ -127,6 +235,25 @@ public class ThreadsView extends AbstractView
         view.addPropertyColumn(name, displayName, description);
     }
 
+    /**
+     * Applies the filter settings, preserving the expanded branches.
+     */
+    private void applyFilter() {
+        String text = filterField.getText();
+        int index = stateComboBox.getSelectedIndex();
+        ThreadFilter.State state = ThreadFilter.State.values()[
+                Math.max(index, 0)];
+        threadFilter = new ThreadFilter(text, state);
+        if (shownModel != null) {
+            Node rootNode = explorerManager.getRootContext();
+            List<String[]> expanded = getExpanded(nodeView, rootNode);
+            buildRoot(new ThreadModelChildren(shownModel, null,
+                    threadFilter, shownContext));
+            expandPaths(expanded, nodeView, explorerManager.getRootContext());
+            refreshVisible();
+        }
+    }
+
     /**
      * Build a new root node and set it to be the explorer's root context.
      * <p/>
@@ -139,7 +266,8 @@ public class ThreadsView extends AbstractView
             @Override
             public Action[] getActions(boolean b) {
                 return new Action[]{
-                    SystemAction.get(RefreshAction.class),};
+                    SystemAction.get(RefreshAction.class),
+                    SystemAction.get(FindDeadlocksAction.class),};
             }
         };
         // Surprisingly, this becomes the name and description of the first column.
@@ -151,63 +279,192 @@ public class ThreadsView extends AbstractView
     }
 
     /**
-     * Builds the group/thread node tree for the current session.
+     * Schedules the rebuilding of the group/thread node tree for the
+     * current session.
      */
     private void buildTree() {
-        // Ensure that the tree is built on the AWT thread to avoid slowing
-        // the JDI event dispatching thread, and the session connect process.
-        if (EventQueue.isDispatchThread()) {
-            buildTreeInAWTThread();
-        } else {
-            EventQueue.invokeLater(new Runnable() {
-                @Override
-                public void run() {
-                    buildTreeInAWTThread();
-                }
-            });
-        }
+        ViewRefresher.getDefault().schedule(refresher);
     }
 
     /**
-     * Builds the group/thread node tree for the current session on the AWT
-     * event dispatching thread.
+     * Ensures the thread model for the current session is loaded. This
+     * may make calls into the debuggee and must not be called on the AWT
+     * thread, so as to avoid freezing the interface.
+     * <p/>
+     * @return snapshot of the thread model.
      */
-    private void buildTreeInAWTThread() {
+    private Snapshot collectGroups() {
         SessionManager sm = SessionProvider.getSessionManager();
         Session session = sm.getCurrent();
         DebuggingContext dc = ContextProvider.getContext(session);
-        List<Node> list = new LinkedList<Node>();
-        Node rootNode = explorerManager.getRootContext();
-        final List<String[]> expanded = getExpanded(nodeView, rootNode);
-        if (session.isConnected()) {
-            VirtualMachine vm = session.getConnection().getVM();
-            List<ThreadGroupReference> groups = vm.topLevelThreadGroups();
-            NodeFactory factory = NodeFactory.getDefault();
-            for (ThreadGroupReference group : groups) {
-                list.add(factory.createThreadGroupNode(group, dc));
+        ThreadModel model = ThreadModelProvider.getThreadModel(session);
+        if (reloadRequested) {
+            reloadRequested = false;
+            model.reload();
+        } else {
+            model.load();
+        }
+        // Find the groups leading to the current thread, outermost first.
+        List<ThreadGroupReference> path = new LinkedList<ThreadGroupReference>();
+        ThreadReference thread = dc.getThread();
+        if (thread != null) {
+            ThreadEntry entry = model.getEntry(thread);
+            ThreadGroupReference group = entry == null ? null : entry.getGroup();
+            while (group != null) {
+                path.add(0, group);
+                group = model.getParent(group);
             }
         }
-        if (list.size() > 0) {
-            Children children = new Children.Array();
-            Node[] nodes = list.toArray(new Node[list.size()]);
-            children.add(nodes);
-            buildRoot(children);
-            // Expand the branches that the user had expanded earlier.
-            expandPaths(expanded, nodeView, rootNode);
-            // Expand the path leading to the current thread.
-            ThreadReference thread = dc.getThread();
-            if (thread != null) {
-                Node node = findThreadNode(thread);
-                if (node != null) {
-                    // Cannot expand leaf nodes, so use its parent.
-                    nodeView.expandNode(node.getParentNode());
-                }
+        return new Snapshot(model, dc, path);
+    }
+
+    /**
+     * Refreshes the status of the threads that were visible when the
+     * refresh was requested. This makes calls into the debuggee and must
+     * not be called on the AWT thread.
+     */
+    private void collectStatus() {
+        List<ThreadReference> threads = visibleThreads;
+        ThreadModel model = shownModel;
+        if (threads != null && model != null && !threads.isEmpty()) {
+            model.refresh(threads);
+        }
+    }
+
+    /**
+     * Creates the panel holding the thread filter components.
+     * <p/>
+     * @return filter panel.
+     */
+    private JPanel createFilterPanel() {
+        filterField = new JTextField();
+        filterField.setToolTipText(NbBundle.getMessage(ThreadsView.class,
+                "CTL_ThreadsView_Filter_Tip"));
+        filterField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                applyFilter();
             }
-        } else {
-            buildRoot(Children.LEAF);
+
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                applyFilter();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                applyFilter();
+            }
+        });
+        ThreadFilter.State[] states = ThreadFilter.State.values();
+        String[] labels = new String[states.length];
+        for (int ii = 0; ii < states.length; ii++) {
+            labels[ii] = NbBundle.getMessage(ThreadsView.class,
+                    "LBL_ThreadsView_State_" + states[ii].name());
+        }
+        stateComboBox = new JComboBox(labels);
+        stateComboBox.setToolTipText(NbBundle.getMessage(ThreadsView.class,
+                "CTL_ThreadsView_State_Tip"));
+        stateComboBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                applyFilter();
+            }
+        });
+        JLabel label = new JLabel(NbBundle.getMessage(ThreadsView.class,
+                "LBL_ThreadsView_Filter"));
+        label.setLabelFor(filterField);
+        JPanel panel = new JPanel(new BorderLayout(4, 0));
+        panel.add(label, BorderLayout.WEST);
+        panel.add(filterField, BorderLayout.CENTER);
+        panel.add(stateComboBox, BorderLayout.EAST);
+        return panel;
+    }
+
+    /**
+     * Shows the thread model of the given snapshot in the view. The tree
+     * is built only when the model changes (e.g. a different session
+     * becomes current); otherwise the nodes update themselves from the
+     * model events, preserving the expanded branches.
+     * <p/>
+     * @param snapshot the thread model snapshot.
+     */
+    private void publishGroups(Snapshot snapshot) {
+        if (!isOpened()) {
+            return;
+        }
+        if (snapshot.model != shownModel) {
+            shownModel = snapshot.model;
+            shownContext = snapshot.context;
+            buildRoot(new ThreadModelChildren(shownModel, null,
+                    threadFilter, shownContext));
+        }
+        // Expand the path leading to the current thread.
+        Node node = explorerManager.getRootContext();
+        for (ThreadGroupReference group : snapshot.path) {
+            Children children = node.getChildren();
+            if (!(children instanceof ThreadModelChildren)) {
+                break;
+            }
+            // Make sure the nodes of this group have been created.
+            children.getNodes();
+            Node child = ((ThreadModelChildren) children).findNode(group);
+            if (child == null) {
+                // Hidden by the filter, most likely.
+                break;
+            }
+            node = child;
+        }
+        if (node != explorerManager.getRootContext()) {
+            nodeView.expandNode(node);
+        }
+        refreshVisible();
+    }
+
+    /**
+     * Schedules the refresh of the status of the threads visible in the
+     * view. Must be called on the AWT event dispatching thread.
+     */
+    private void refreshVisible() {
+        if (shownModel == null) {
+            return;
+        }
+        Outline outline = nodeView.getOutline();
+        int count = outline.getRowCount();
+        if (count == 0) {
+            return;
+        }
+        Rectangle rect = outline.getVisibleRect();
+        int first = outline.rowAtPoint(rect.getLocation());
+        int last = outline.rowAtPoint(new Point(rect.x,
+                rect.y + rect.height - 1));
+        if (first < 0) {
+            first = 0;
+        }
+        if (last < 0) {
+            last = count - 1;
+        }
+        List<ThreadReference> threads = new ArrayList<ThreadReference>();
+        for (int row = first; row <= last; row++) {
+            Node node = Visualizer.findNode(outline.getValueAt(row, 0));
+            if (node instanceof ThreadNode) {
+                threads.add(((ThreadNode) node).getThread());
+            }
+        }
+        if (!threads.isEmpty()) {
+            visibleThreads = Collections.unmodifiableList(threads);
+            ViewRefresher.getDefault().schedule(statusRefresher);
         }
     }
 
+    /**
+     * Schedules the reloading of the thread model from the debuggee.
+     */
+    private void reloadTree() {
+        reloadRequested = true;
+        buildTree();
+    }
+
     @Override
     public void closing(SessionEvent sevt) {
     }
@@ -215,8 +472,12 @@ public class ThreadsView extends AbstractView
     @Override
     protected void componentClosed() {
         super.componentClosed();
+        ViewRefresher.getDefault().cancel(refresher);
+        ViewRefresher.getDefault().cancel(statusRefresher);
         // Clear the tree to release resources.
         buildRoot(Children.LEAF);
+        shownModel = null;
+        shownContext = null;
         // Stop listening to everything that affects our tree.
         SessionManager sm = SessionProvider.getSessionManager();
         sm.removeSessionManagerListener(this);
@@ -280,34 +541,6 @@ public class ThreadsView extends AbstractView
         return getDefault();
     }
 
-    /**
-     * Finds the node for the given thread.
-     * <p/>
-     * @param thread thread for which to find node.
-     * @return corresponding thread node, or null if none found.
-     */
-    private ThreadNode findThreadNode(ThreadReference thread) {
-        Queue<Node> queue = new LinkedList<Node>();
-        queue.offer(explorerManager.getRootContext());
-        while (!queue.isEmpty()) {
-            Node node = queue.poll();
-            if (node instanceof ThreadNode) {
-                ThreadNode tn = (ThreadNode) node;
-                ThreadReference tr = tn.getThread();
-                if (tr.equals(thread)) {
-                    return tn;
-                }
-            }
-            Children children = node.getChildren();
-            Enumeration<Node> enm = children.nodes();
-            while (enm.hasMoreElements()) {
-                Node child = enm.nextElement();
-                queue.offer(child);
-            }
-        }
-        return null;
-    }
-
     /**
      * Returns the single instance of this class, creating it if necessary.
      * Clients should not call this method, but instead use findInstance().
@@ -399,6 +632,134 @@ public class ThreadsView extends AbstractView
         nodeView.writeSettings(p, "Threads");
     }
 
+    /**
+     * Immutable snapshot of the thread model, as collected in the background.
+     */
+    private static class Snapshot {
+
+        /**
+         * The thread model of the current session.
+         */
+        private final ThreadModel model;
+        /**
+         * The debugging context of the current session.
+         */
+        private final DebuggingContext context;
+        /**
+         * The groups leading to the current thread, outermost first.
+         */
+        private final List<ThreadGroupReference> path;
+
+        /**
+         * Constructs a new Snapshot.
+         * <p/>
+         * @param model   the thread model.
+         * @param context the debugging context.
+         * @param path    groups leading to the current thread.
+         */
+        Snapshot(ThreadModel model, DebuggingContext context,
+                List<ThreadGroupReference> path) {
+            this.model = model;
+            this.context = context;
+            this.path = path;
+        }
+    }
+
+    /**
+     * Implements the action of finding the deadlocked threads, which are
+     * then highlighted by their nodes.
+     * <p/>
+     * @author Nathan Fiedler
+     */
+    public static class FindDeadlocksAction extends NodeAction {
+
+        /**
+         * silence the compiler warnings
+         */
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean asynchronous() {
+            return false;
+        }
+
+        @Override
+        protected boolean enable(Node[] activatedNodes) {
+            return true;
+        }
+
+        @Override
+        public HelpCtx getHelpCtx() {
+            return HelpCtx.DEFAULT_HELP;
+        }
+
+        @Override
+        public String getName() {
+            return NbBundle.getMessage(FindDeadlocksAction.class,
+                    "LBL_FindDeadlocksAction_Name");
+        }
+
+        /**
+         * Displays the given message in a dialog.
+         * <p/>
+         * @param message message to be displayed.
+         * @param type    one of the NotifyDescriptor message types.
+         */
+        private static void notify(String message, int type) {
+            NotifyDescriptor nd = new NotifyDescriptor.Message(message, type);
+            DialogDisplayer.getDefault().notify(nd);
+        }
+
+        @Override
+        protected void performAction(Node[] activatedNodes) {
+            SessionManager sm = SessionProvider.getSessionManager();
+            final Session session = sm.getCurrent();
+            if (!session.isConnected()) {
+                notify(NbBundle.getMessage(ThreadsView.class,
+                        "ERR_ThreadsView_NotConnected"),
+                        NotifyDescriptor.ERROR_MESSAGE);
+                return;
+            }
+            // Examining thousands of threads takes a while.
+            Threads.getThreadPool().submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        List<Deadlock> deadlocks = DeadlockDetector.detect(session);
+                        if (deadlocks.isEmpty()) {
+                            notify(NbBundle.getMessage(ThreadsView.class,
+                                    "CTL_ThreadsView_NoDeadlocks"),
+                                    NotifyDescriptor.INFORMATION_MESSAGE);
+                        } else {
+                            int count = 0;
+                            for (Deadlock deadlock : deadlocks) {
+                                count += deadlock.getThreads().size();
+                            }
+                            notify(NbBundle.getMessage(ThreadsView.class,
+                                    "CTL_ThreadsView_Deadlocks",
+                                    String.valueOf(deadlocks.size()),
+                                    String.valueOf(count)),
+                                    NotifyDescriptor.WARNING_MESSAGE);
+                        }
+                    } catch (UnsupportedOperationException uoe) {
+                        notify(NbBundle.getMessage(ThreadsView.class,
+                                "ERR_ThreadsView_DeadlocksUnsupported"),
+                                NotifyDescriptor.ERROR_MESSAGE);
+                    } catch (ExecutionException ee) {
+                        notify(NbBundle.getMessage(ThreadsView.class,
+                                "ERR_ThreadsView_DeadlocksFailed",
+                                ee.getCause().toString()),
+                                NotifyDescriptor.ERROR_MESSAGE);
+                    } catch (InterruptedException ie) {
+                        // Give up quietly.
+                    } catch (VMDisconnectedException vmde) {
+                        // Nothing left to examine.
+                    }
+                }
+            });
+        }
+    }
+
     /**
      * Implements the action of refreshing the node tree.
      * <p/>
@@ -435,7 +796,7 @@ public class ThreadsView extends AbstractView
         @Override
         protected void performAction(Node[] activatedNodes) {
             ThreadsView view = ThreadsView.findInstance();
-            view.buildTree();
+            view.reloadTree();
         }
     }
 }
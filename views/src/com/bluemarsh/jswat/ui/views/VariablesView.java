@@ -24,6 +24,7 @@ import com.bluemarsh.jswat.core.context.ContextEvent;
 import com.bluemarsh.jswat.core.context.ContextListener;
 import com.bluemarsh.jswat.core.context.ContextProvider;
 import com.bluemarsh.jswat.core.context.DebuggingContext;
+import com.bluemarsh.jswat.core.context.SuspensionSnapshot;
 import com.bluemarsh.jswat.core.session.Session;
 import com.bluemarsh.jswat.core.session.SessionEvent;
 import com.bluemarsh.jswat.core.session.SessionListener;
@@ -42,17 +43,16 @@ import com.sun.jdi.InvalidStackFrameException;
 import com.sun.jdi.LocalVariable;
 import com.sun.jdi.NativeMethodException;
 import com.sun.jdi.ObjectReference;
-import com.sun.jdi.ReferenceType;
 import com.sun.jdi.StackFrame;
 import com.sun.jdi.ThreadReference;
 import com.sun.jdi.VMDisconnectedException;
 import com.sun.jdi.Value;
 import java.awt.BorderLayout;
-import java.awt.EventQueue;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javax.swing.JScrollPane;
 import org.openide.explorer.ExplorerManager;
@@ -88,12 +88,27 @@ public class VariablesView extends AbstractView
      * Columns for the tree-table view.
      */
     private transient Node.Property[] columns;
+    /**
+     * Refreshes the tree in the background.
+     */
+    private transient ViewRefresher.Refreshable<Node[]> refresher;
 
     /**
      * Constructs a VariablesView instance.
      */
     public VariablesView() {
         explorerManager = new ExplorerManager();
+        refresher = new ViewRefresher.Refreshable<Node[]>() {
+            @Override
+            public Node[] collect() {
+                return collectVariables();
+            }
+
+            @Override
+            public void publish(Node[] nodes) {
+                publishVariables(nodes);
+            }
+        };
         buildRoot(Children.LEAF);
         addSelectionListener(explorerManager);
 
@@ -146,25 +161,34 @@ public class VariablesView extends AbstractView
     }
 
     /**
-     * Builds the node tree for the current session.
+     * Schedules the rebuilding of the node tree for the current session.
      */
     private void buildTree() {
+        ViewRefresher.getDefault().schedule(refresher);
+    }
+
+    /**
+     * Collects the variable nodes for the current session. This makes calls
+     * into the debuggee and must not be called on the AWT thread.
+     * <p/>
+     * @return the variable nodes.
+     */
+    private Node[] collectVariables() {
         SessionManager sm = SessionProvider.getSessionManager();
         Session session = sm.getCurrent();
         List<Node> list = new LinkedList<Node>();
-        Node rootNode = explorerManager.getRootContext();
-        final List<String[]> expanded = getExpanded(nodeView, rootNode);
         if (session.isConnected()) {
             DebuggingContext dc = ContextProvider.getContext(session);
             ThreadReference thread = dc.getThread();
             if (thread != null) {
                 try {
-                    StackFrame frame = dc.getStackFrame();
+                    SuspensionSnapshot snapshot = dc.getSnapshot();
+                    int frameIdx = dc.getFrame();
+                    StackFrame frame = snapshot.getFrame(frameIdx);
                     if (frame.location().codeIndex() == -1) {
                         throw new NativeMethodException("work around JPDA bug");
                     }
-                    ReferenceType clazz = frame.location().declaringType();
-                    ObjectReference thisObj = frame.thisObject();
+                    ObjectReference thisObj = snapshot.getThisObject(frameIdx);
 
                     // Build the set of visible variables, starting with fields.
                     Set<VariableNode> variables = new HashSet<VariableNode>();
@@ -175,21 +199,23 @@ public class VariablesView extends AbstractView
                         variables.add(thisNode);
                     } else {
                         // Must be in a static method, so show the static fields.
-                        List<Field> fields = clazz.visibleFields();
-                        for (Field field : fields) {
-                            if (field.isStatic()) {
-                                Value value = clazz.getValue(field);
-                                VariableNode vn = vf.create(field, value, null);
-                                variables.add(vn);
-                            }
+                        Map<Field, Value> fields =
+                                snapshot.getFieldValues(frameIdx);
+                        for (Map.Entry<Field, Value> entry : fields.entrySet()) {
+                            VariableNode vn = vf.create(entry.getKey(),
+                                    entry.getValue(), null);
+                            variables.add(vn);
                         }
                     }
 
                     // Now collect the visible local variables.
                     try {
-                        List<LocalVariable> locals = frame.visibleVariables();
-                        for (LocalVariable local : locals) {
-                            Value value = frame.getValue(local);
+                        // Fetch all of the values in a single request.
+                        Map<LocalVariable, Value> values =
+                                snapshot.getValues(frameIdx);
+                        for (LocalVariable local :
+                                snapshot.getVisibleVariables(frameIdx)) {
+                            Value value = values.get(local);
                             VariableNode vn = vf.create(local, value, null);
                             variables.add(vn);
                         }
@@ -236,24 +262,30 @@ public class VariablesView extends AbstractView
                         "EXC_NoCurrentThread")));
             }
         }
-        if (list.size() > 0) {
+        return list.toArray(new Node[list.size()]);
+    }
+
+    /**
+     * Shows the given variable nodes in the view.
+     * <p/>
+     * @param nodes the variable nodes.
+     */
+    private void publishVariables(Node[] nodes) {
+        if (!isOpened()) {
+            return;
+        }
+        Node rootNode = explorerManager.getRootContext();
+        List<String[]> expanded = getExpanded(nodeView, rootNode);
+        if (nodes.length > 0) {
             Children children = new Children.Array();
-            Node[] nodes = list.toArray(new Node[list.size()]);
             children.add(nodes);
             buildRoot(children);
         } else {
             buildRoot(Children.LEAF);
         }
-
-        // Must expand the nodes on the AWT event thread.
-        EventQueue.invokeLater(new Runnable() {
-            @Override
-            public void run() {
-                // Need to refetch the root in case it was replaced.
-                Node rootNode = explorerManager.getRootContext();
-                expandPaths(expanded, nodeView, rootNode);
-            }
-        });
+        // Need to refetch the root since it was replaced.
+        rootNode = explorerManager.getRootContext();
+        expandPaths(expanded, nodeView, rootNode);
     }
 
     @Override
@@ -284,6 +316,7 @@ public class VariablesView extends AbstractView
     @Override
     protected void componentClosed() {
         super.componentClosed();
+        ViewRefresher.getDefault().cancel(refresher);
         // Clear the tree to release resources.
         buildRoot(Children.LEAF);
         // Stop listening to everything that affects our tree.
@@ -0,0 +1,260 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development
+ * and Distribution License (the License). You may not use this file except in
+ * compliance with the License.
+ *
+ * You can obtain a copy of the License at http://www.netbeans.org/cddl.html
+ * or http://www.netbeans.org/cddl.txt.
+ *
+ * When distributing Covered Code, include this CDDL Header Notice in each file
+ * and include the License file at http://www.netbeans.org/cddl.txt.
+ * If applicable, add the following below the CDDL Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * The Original Software is JSwat. The Initial Developer of the Original
+ * Software is Nathan L. Fiedler. Portions created by Nathan L. Fiedler
+ * are Copyright (C) 2013. All Rights Reserved.
+ *
+ * Contributor(s): Nathan L. Fiedler.
+ */
+package com.bluemarsh.jswat.ui.views;
+
+import com.sun.jdi.VMDisconnectedException;
+import java.awt.EventQueue;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class ViewRefresher schedules the rebuilding of the debugger views. The
+ * model data (which invariably means talking to the debuggee) is collected
+ * on a background thread, and the resulting immutable snapshot is then
+ * published to the view on the AWT event dispatching thread.
+ *
+ * <p>Requests are coalesced per view: a burst of session and context
+ * events (e.g. stepping at keyboard-repeat speed) results in a single
+ * refresh, and any refresh that is superseded by a newer request before
+ * it could be published is silently discarded.</p>
+ * <p/>
+ * @author Nathan Fiedler
+ */
+public class ViewRefresher {
+
+    /**
+     * Logger for gracefully reporting unexpected errors.
+     */
+    private static final Logger logger = Logger.getLogger(
+            ViewRefresher.class.getName());
+    /**
+     * Time in milliseconds during which refresh requests are coalesced.
+     */
+    private static final long COALESCE_DELAY = 50;
+    /**
+     * Number of threads collecting snapshots for the views.
+     */
+    private static final int POOL_SIZE = 2;
+    /**
+     * The singleton instance of this class.
+     */
+    private static ViewRefresher theInstance;
+    /**
+     * Runs the snapshot collection in the background.
+     */
+    private final ScheduledExecutorService executor;
+    /**
+     * Outstanding requests, keyed by the view they refresh.
+     */
+    private final Map<Refreshable<?>, Request<?>> requests;
+
+    /**
+     * Creates a new instance of ViewRefresher.
+     */
+    private ViewRefresher() {
+        executor = new ScheduledThreadPoolExecutor(POOL_SIZE,
+                new RefresherThreadFactory());
+        requests = new HashMap<Refreshable<?>, Request<?>>();
+    }
+
+    /**
+     * Discards any pending refresh of the given view. A refresh that is
+     * currently collecting its snapshot will not be published.
+     * <p/>
+     * @param view the view whose refresh is to be cancelled.
+     */
+    public void cancel(Refreshable<?> view) {
+        synchronized (requests) {
+            Request<?> request = requests.remove(view);
+            if (request != null) {
+                request.cancel();
+            }
+        }
+    }
+
+    /**
+     * Returns the single instance of this class, creating it if necessary.
+     * <p/>
+     * @return instance of this class.
+     */
+    public static synchronized ViewRefresher getDefault() {
+        if (theInstance == null) {
+            theInstance = new ViewRefresher();
+        }
+        return theInstance;
+    }
+
+    /**
+     * Requests that the given view be refreshed. If a refresh for the view
+     * is already waiting to run, this request is merged with that one;
+     * otherwise a new refresh is scheduled after a brief delay.
+     * <p/>
+     * @param <T>  type of the snapshot collected by the view.
+     * @param view the view to be refreshed.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void schedule(Refreshable<T> view) {
+        synchronized (requests) {
+            Request<T> request = (Request<T>) requests.get(view);
+            if (request == null) {
+                request = new Request<T>(view);
+                requests.put(view, request);
+            }
+            request.generation.incrementAndGet();
+            if (request.future == null) {
+                request.future = executor.schedule(request, COALESCE_DELAY,
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * A Refreshable is a view that can be rebuilt by the ViewRefresher.
+     * <p/>
+     * @param <T> type of the snapshot collected by the view.
+     */
+    public interface Refreshable<T> {
+
+        /**
+         * Collect the model data for the view. This is called on a background
+         * thread and is the only place in which the view should retrieve
+         * information from the debuggee.
+         * <p/>
+         * @return snapshot of the model, to be given to publish().
+         */
+        T collect();
+
+        /**
+         * Update the view to show the given snapshot. This is always called
+         * on the AWT event dispatching thread, and must not make any calls
+         * into the debuggee.
+         * <p/>
+         * @param snapshot the snapshot returned from collect().
+         */
+        void publish(T snapshot);
+    }
+
+    /**
+     * Creates daemon threads for collecting view snapshots, so the
+     * refresher never prevents the application from exiting.
+     */
+    private static class RefresherThreadFactory implements ThreadFactory {
+
+        /**
+         * Used to give each thread a unique name.
+         */
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread th = new Thread(r, "ViewRefresher-"
+                    + counter.incrementAndGet());
+            th.setDaemon(true);
+            return th;
+        }
+    }
+
+    /**
+     * A Request represents the refresh of a single view, and is reused for
+     * each subsequent refresh of that view.
+     * <p/>
+     * @param <T> type of the snapshot collected by the view.
+     */
+    private class Request<T> implements Runnable {
+
+        /**
+         * The view to be refreshed.
+         */
+        private final Refreshable<T> view;
+        /**
+         * Incremented each time a refresh is requested; a snapshot is
+         * published only if no newer request arrived while collecting.
+         */
+        private final AtomicLong generation;
+        /**
+         * The scheduled task, if one is waiting to run (guarded by the
+         * requests map).
+         */
+        private ScheduledFuture<?> future;
+
+        /**
+         * Constructs a new Request for the given view.
+         * <p/>
+         * @param view view to be refreshed.
+         */
+        Request(Refreshable<T> view) {
+            this.view = view;
+            generation = new AtomicLong();
+        }
+
+        /**
+         * Prevents the request from running, or from publishing if it is
+         * already running (caller must hold the requests map lock).
+         */
+        void cancel() {
+            generation.incrementAndGet();
+            if (future != null) {
+                future.cancel(false);
+                future = null;
+            }
+        }
+
+        @Override
+        public void run() {
+            synchronized (requests) {
+                // Any request arriving from here on needs another run.
+                future = null;
+            }
+            final long expected = generation.get();
+            final T snapshot;
+            try {
+                snapshot = view.collect();
+            } catch (VMDisconnectedException vmde) {
+                // The disconnect event will trigger another refresh.
+                return;
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, null, e);
+                return;
+            }
+            if (generation.get() != expected) {
+                // Superseded by a newer request, which is already queued.
+                return;
+            }
+            EventQueue.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    if (generation.get() == expected) {
+                        view.publish(snapshot);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -24,6 +24,7 @@ import com.bluemarsh.jswat.core.context.ContextEvent;
 import com.bluemarsh.jswat.core.context.ContextListener;
 import com.bluemarsh.jswat.core.context.ContextProvider;
 import com.bluemarsh.jswat.core.context.DebuggingContext;
+import com.bluemarsh.jswat.core.context.SuspensionSnapshot;
 import com.bluemarsh.jswat.core.expr.EvaluationException;
 import com.bluemarsh.jswat.core.expr.Evaluator;
 import com.bluemarsh.jswat.core.expr.MissingContextException;
@@ -52,7 +53,6 @@ import com.sun.jdi.ThreadReference;
 import com.sun.jdi.Value;
 import com.sun.jdi.VoidValue;
 import java.awt.BorderLayout;
-import java.awt.EventQueue;
 import java.awt.Image;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -113,6 +113,10 @@ public class WatchesView extends AbstractView
      * Component showing our nodes.
      */
     private PersistentOutlineView nodeView;
+    /**
+     * Refreshes the tree in the background.
+     */
+    private transient ViewRefresher.Refreshable<Node[]> refresher;
 
     /**
      * Constructs a new instance of WatchesView. Clients should not construct
@@ -121,6 +125,17 @@ public class WatchesView extends AbstractView
      */
     public WatchesView() {
         explorerManager = new ExplorerManager();
+        refresher = new ViewRefresher.Refreshable<Node[]>() {
+            @Override
+            public Node[] collect() {
+                return collectWatches();
+            }
+
+            @Override
+            public void publish(Node[] nodes) {
+                publishWatches(nodes);
+            }
+        };
         ActionMap map = getActionMap();
         map.put("delete", ExplorerUtils.actionDelete(explorerManager, false));
         associateLookup(ExplorerUtils.createLookup(explorerManager, map));
@@ -186,14 +201,24 @@ public class WatchesView extends AbstractView
     }
 
     /**
-     * Build the tree of watch expressions, including their values.
+     * Schedules the rebuilding of the tree of watch expressions.
      */
     private void buildTree() {
-        Node rootNode = explorerManager.getRootContext();
-        final List<String[]> expanded = getExpanded(nodeView, rootNode);
+        ViewRefresher.getDefault().schedule(refresher);
+    }
+
+    /**
+     * Evaluates the watch expressions of the current session, building the
+     * nodes to represent their values. This makes calls into the debuggee
+     * and must not be called on the AWT thread.
+     * <p/>
+     * @return the watch nodes.
+     */
+    private Node[] collectWatches() {
         Session session = SessionProvider.getCurrentSession();
         DebuggingContext dc = ContextProvider.getContext(session);
-        ThreadReference thread = dc.getThread();
+        // All of the watches share the one snapshot of the thread.
+        SuspensionSnapshot snapshot = dc.getSnapshot();
         int frame = dc.getFrame();
 
         List<Node> nodes = new ArrayList<Node>();
@@ -205,7 +230,7 @@ public class WatchesView extends AbstractView
             Watch w = iter.next();
             if (w instanceof ExpressionWatch) {
                 String expr = ((ExpressionWatch) w).getExpression();
-                Node node = evaluate(expr, thread, frame);
+                Node node = evaluate(expr, snapshot, frame);
                 node = new WatchNode(node, w);
                 nodes.add(node);
             } else if (w instanceof FixedWatch) {
@@ -217,20 +242,26 @@ public class WatchesView extends AbstractView
                 nodes.add(node);
             }
         }
-        Node[] array = nodes.toArray(new Node[nodes.size()]);
+        return nodes.toArray(new Node[nodes.size()]);
+    }
+
+    /**
+     * Shows the given watch nodes in the view.
+     * <p/>
+     * @param nodes the watch nodes.
+     */
+    private void publishWatches(Node[] nodes) {
+        if (!isOpened()) {
+            return;
+        }
+        Node rootNode = explorerManager.getRootContext();
+        List<String[]> expanded = getExpanded(nodeView, rootNode);
         Children children = new Children.Array();
-        children.add(array);
+        children.add(nodes);
         buildRoot(children);
-
-        // Must expand the nodes on the AWT event thread.
-        EventQueue.invokeLater(new Runnable() {
-            @Override
-            public void run() {
-                // Need to refetch the root in case it was replaced.
-                Node rootNode = explorerManager.getRootContext();
-                expandPaths(expanded, nodeView, rootNode);
-            }
-        });
+        // Need to refetch the root since it was replaced.
+        rootNode = explorerManager.getRootContext();
+        expandPaths(expanded, nodeView, rootNode);
     }
 
     @Override
@@ -261,6 +292,7 @@ public class WatchesView extends AbstractView
     @Override
     protected void componentClosed() {
         super.componentClosed();
+        ViewRefresher.getDefault().cancel(refresher);
         // Clear the tree to release resources.
         buildRoot(Children.LEAF);
         // Stop listening to everything that affects our tree.
@@ -359,11 +391,12 @@ public class WatchesView extends AbstractView
      * VariableFactory class.
      * <p/>
      * @param expr   expression to evaluate.
-     * @param thread debuggee thread on which to perform evaluation.
-     * @param frame  frame in thread in which to access variables.
+     * @param snapshot snapshot of the thread on which to perform evaluation.
+     * @param frame    frame in thread in which to access variables.
      * @return node representing the evaluation.
      */
-    private Node evaluate(String expr, ThreadReference thread, int frame) {
+    private Node evaluate(String expr, SuspensionSnapshot snapshot,
+            int frame) {
         String msg = null;
         Value result = null;
         String resultSimple = null;
@@ -378,7 +411,7 @@ public class WatchesView extends AbstractView
         } else {
             Evaluator eval = new Evaluator(expr);
             try {
-                Object o = eval.evaluate(thread, frame);
+                Object o = eval.evaluate(snapshot, frame);
                 if (o instanceof Value) {
                     // From the debuggee, build out the object tree.
                     result = (Value) o;